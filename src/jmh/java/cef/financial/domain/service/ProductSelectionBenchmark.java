@@ -0,0 +1,74 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.model.InvestmentProduct;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escolha do produto elegível sobre catálogos de tamanhos diferentes.
+ *
+ * Mede o núcleo de InvestmentSimulationService.escolherProdutoElegivel (a consulta ao
+ * {@link ProductEligibilityIndex}) e o custo de montar o índice a cada recarga do catálogo.
+ * O método do serviço não entra direto porque grava log a cada chamada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProductSelectionBenchmark {
+
+    private static final String[] TIPOS = {"CDB", "LCI", "LCA", "Tesouro", "Fundo Multimercado", "Ações", "FII"};
+    private static final String[] RISCOS = {"Conservador", "Moderado", "Agressivo"};
+
+    @Param({"10", "100", "1000", "10000"})
+    int tamanhoCatalogo;
+
+    @Param({"6", "24", "120"})
+    int prazoMeses;
+
+    private List<InvestmentProduct> produtos;
+    private ProductEligibilityIndex indice;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        // semente fixa: o mesmo catálogo em todas as execuções
+        Random random = new Random(42);
+        produtos = new ArrayList<>(tamanhoCatalogo);
+        for (int i = 0; i < tamanhoCatalogo; i++) {
+            InvestmentProduct p = new InvestmentProduct();
+            p.id = (long) i + 1;
+            p.nome = "Produto " + p.id;
+            p.tipo = TIPOS[random.nextInt(TIPOS.length)];
+            p.risco = RISCOS[random.nextInt(RISCOS.length)];
+            p.rentabilidadeAnual = 0.05 + random.nextDouble() * 0.15;
+            p.liquidezDias = random.nextInt(720);
+            p.prazoMinMeses = random.nextInt(12);
+            p.prazoMaxMeses = random.nextBoolean() ? p.prazoMinMeses + 1 + random.nextInt(120) : null;
+            produtos.add(p);
+        }
+        indice = new ProductCatalogSnapshot(1L, Instant.EPOCH, produtos).indiceElegibilidade();
+    }
+
+    @Benchmark
+    public ProductEligibilityIndex.Resultado consultarPorTipo() {
+        return indice.consultar(prazoMeses, "CDB", 2, false);
+    }
+
+    @Benchmark
+    public ProductEligibilityIndex.Resultado consultarTodosOsTiposPorLiquidez() {
+        return indice.consultar(prazoMeses, null, 3, true);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ProductEligibilityIndex montarIndice() {
+        return new ProductCatalogSnapshot(2L, Instant.EPOCH, produtos).indiceElegibilidade();
+    }
+}
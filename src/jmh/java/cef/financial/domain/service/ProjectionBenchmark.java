@@ -0,0 +1,73 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.dto.InvestmentSimulationRequestDTO;
+import cef.financial.domain.model.InvestmentProduct;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo de juros compostos do {@link ProjectionEngine}: prazo isolado (forma fechada),
+ * série mensal e valores em vários prazos, além da projeção completa da simulação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private static final int[] PRAZOS_COMPARACAO = {6, 12, 24, 36, 60, 120};
+
+    @Param({"12", "120", "600"})
+    int prazoMeses;
+
+    // não final: evita que o JIT dobre o cálculo como constante
+    double valor = 10_000.0;
+    double taxaAnual = 0.1275;
+
+    private double fatorMensal;
+    private InvestmentSimulationService service;
+    private InvestmentProduct produto;
+    private InvestmentSimulationRequestDTO request;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        fatorMensal = ProjectionEngine.fatorMensal(taxaAnual);
+        service = new InvestmentSimulationService();
+
+        produto = new InvestmentProduct();
+        produto.id = 1L;
+        produto.rentabilidadeAnual = taxaAnual;
+
+        request = new InvestmentSimulationRequestDTO();
+        request.valor = valor;
+        request.prazoMeses = prazoMeses;
+    }
+
+    @Benchmark
+    public double fatorMensal() {
+        return ProjectionEngine.fatorMensal(taxaAnual);
+    }
+
+    @Benchmark
+    public double valorFinal() {
+        return ProjectionEngine.valorFinal(valor, fatorMensal, prazoMeses);
+    }
+
+    @Benchmark
+    public double[] saldosMensais() {
+        return ProjectionEngine.saldosMensais(valor, fatorMensal, prazoMeses);
+    }
+
+    @Benchmark
+    public double[] valoresNosPrazos() {
+        return ProjectionEngine.valoresNosPrazos(valor, fatorMensal, PRAZOS_COMPARACAO);
+    }
+
+    @Benchmark
+    public InvestmentSimulationService.Projecao projetarSimulacao() {
+        return service.projetar(produto, request);
+    }
+}
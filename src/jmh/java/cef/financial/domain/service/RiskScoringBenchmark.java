@@ -0,0 +1,131 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.dto.RiskProfileResponseDTO;
+import cef.financial.domain.model.Customer;
+import cef.financial.domain.model.CustomerRiskAggregate;
+import cef.financial.domain.model.InvestmentHistory;
+import cef.financial.domain.repository.CustomerRepository;
+import cef.financial.domain.repository.CustomerRiskAggregateRepository;
+import cef.financial.domain.repository.InvestmentHistoryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pontuação de risco do {@link RiskProfileService} sobre históricos de 1 a 100 mil operações.
+ *
+ * Compara a reconstrução do acumulado (varredura do histórico, caminho de clientes sem
+ * acumulado), o laço em colunas do {@link RiskScoringKernel} isolado e a pontuação a partir
+ * do acumulado já conhecido, que não depende do tamanho do histórico. Os repositórios são
+ * substituídos por versões em memória.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RiskScoringBenchmark {
+
+    private static final Long CLIENTE_ID = 1L;
+
+    private static final String[] TIPOS = {
+            "CDB", "LCI", "LCA", "Tesouro Selic", "Renda Fixa", "Fundo Multimercado",
+            "Fundo de Renda Fixa", "Ações", "FII", "Fundo Imobiliário", "Debênture"
+    };
+
+    @Param({"1", "100", "10000", "100000"})
+    int tamanhoHistorico;
+
+    private RiskProfileService service;
+    private CustomerRiskAggregate agregado;
+    private List<Object[]> linhas;
+    private RiskScoringKernel.Colunas colunas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random random = new Random(42);
+        List<InvestmentHistory> historico = new ArrayList<>(tamanhoHistorico);
+        for (int i = 0; i < tamanhoHistorico; i++) {
+            InvestmentHistory h = new InvestmentHistory();
+            h.id = (long) i + 1;
+            h.clienteId = CLIENTE_ID;
+            h.tipo = TIPOS[random.nextInt(TIPOS.length)];
+            h.valor = 100 + random.nextInt(100_000);
+            h.rentabilidade = random.nextBoolean() ? random.nextDouble() * 0.2 : random.nextDouble() * 20;
+            historico.add(h);
+        }
+
+        linhas = historico.stream()
+                .map(h -> new Object[]{h.valor, h.rentabilidade, h.tipo})
+                .toList();
+        colunas = RiskScoringKernel.colunas(linhas);
+
+        Customer cliente = new Customer();
+        cliente.id = CLIENTE_ID;
+
+        service = new RiskProfileService();
+        service.historyRepository = new InvestmentHistoryRepository() {
+            @Override
+            public List<Object[]> colunasDeRisco(Long clienteId) {
+                return linhas;
+            }
+        };
+        // sem acumulado gravado: calculateProfile sempre reconstrói a partir do histórico
+        service.aggregateRepository = new CustomerRiskAggregateRepository() {
+            @Override
+            public CustomerRiskAggregate findById(Long id) {
+                return null;
+            }
+
+            @Override
+            public CustomerRiskAggregate criarOuAcumular(CustomerRiskAggregate inicial, double peso,
+                                                         double retornoPonderado, int nivelRisco, long quantidade) {
+                return inicial;
+            }
+        };
+        service.customerRepository = new CustomerRepository() {
+            @Override
+            public Customer findById(Long id) {
+                return cliente;
+            }
+        };
+
+        agregado = new CustomerRiskAggregate();
+        agregado.clienteId = CLIENTE_ID;
+        for (InvestmentHistory h : historico) {
+            agregado.pesoTotal += h.valor;
+            agregado.retornoPonderado += h.rentabilidade * h.valor;
+            agregado.qtdOperacoes++;
+            agregado.maxNivelRisco = Math.max(agregado.maxNivelRisco, RiskProfileService.deriveRiskLevel(h.tipo));
+        }
+    }
+
+    @Benchmark
+    public RiskProfileResponseDTO reconstruirPeloHistorico() {
+        return service.calculateProfile(CLIENTE_ID);
+    }
+
+    @Benchmark
+    public CustomerRiskAggregate acumularColunas() {
+        return RiskScoringKernel.acumular(colunas);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public RiskProfileResponseDTO pontuarPeloAcumulado() {
+        return service.atualizarPerfil(CLIENTE_ID, agregado);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void derivarNivelDeRisco(Blackhole bh) {
+        for (String tipo : TIPOS) {
+            bh.consume(RiskProfileService.deriveRiskLevel(tipo));
+        }
+    }
+}
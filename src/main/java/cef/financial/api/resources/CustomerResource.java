@@ -3,6 +3,7 @@ package cef.financial.api.resources;
 import cef.financial.domain.dto.CustomerResponseDTO;
 import cef.financial.domain.model.Customer;
 import cef.financial.domain.repository.CustomerRepository;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
@@ -22,6 +23,7 @@ import java.util.List;
 @Consumes(MediaType.APPLICATION_JSON)
 @SecurityRequirement(name = "bearerAuth")
 @Tag(name = "Clientes", description = "Endpoints relacionados aos clientes do sistema")
+@RunOnVirtualThread
 public class CustomerResource {
 
     @Inject
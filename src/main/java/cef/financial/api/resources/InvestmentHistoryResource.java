@@ -1,13 +1,15 @@
 package cef.financial.api.resources;
 
 import cef.financial.domain.dto.InvestmentHistoryResponseDTO;
-import cef.financial.domain.model.InvestmentSimulation;
 import cef.financial.domain.repository.InvestmentSimulationRepository;
+import cef.financial.domain.service.InvestmentSimulationService;
 import io.quarkus.security.Authenticated;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
@@ -16,16 +18,25 @@ import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.logging.Logger;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @Path("/investimentos")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 @Authenticated
+@RunOnVirtualThread
 public class InvestmentHistoryResource {
 
     private static final Logger LOG = Logger.getLogger(InvestmentHistoryResource.class);
 
+    static final String CABECALHO_PROXIMO_CURSOR = "X-Proximo-Cursor";
+    private static final char SEPARADOR_CURSOR = '_';
+
     @Inject
     InvestmentSimulationRepository simulationRepository;
 
@@ -45,6 +56,8 @@ public class InvestmentHistoryResource {
                 O histórico é derivado das simulações já realizadas.
                 Inclui tipo do produto, valor investido, rentabilidade 
                 e data original da simulação.
+                Os itens vêm em ordem cronológica e em páginas; para a próxima página,
+                envie em cursor o valor do cabeçalho X-Proximo-Cursor.
             """
     )
     @APIResponse(
@@ -55,6 +68,10 @@ public class InvestmentHistoryResource {
                     schema = @Schema(implementation = InvestmentHistoryResponseDTO.class)
             )
     )
+    @APIResponse(
+            responseCode = "400",
+            description = "Período, cursor ou limite inválido"
+    )
     @APIResponse(
             responseCode = "404",
             description = "Cliente não encontrado"
@@ -63,32 +80,101 @@ public class InvestmentHistoryResource {
             responseCode = "403",
             description = "Acesso negado — usuário não autenticado"
     )
-    public List<InvestmentHistoryResponseDTO> historicoInvestimentos(
+    public Response historicoInvestimentos(
             @Parameter(description = "ID do cliente", required = true)
-            @PathParam("clienteId") Long clienteId
+            @PathParam("clienteId") Long clienteId,
+            @Parameter(description = "Data inicial no formato yyyy-MM-dd", example = "2025-11-01")
+            @QueryParam("inicio") String inicio,
+            @Parameter(description = "Data final (inclusiva) no formato yyyy-MM-dd", example = "2025-11-30")
+            @QueryParam("fim") String fim,
+            @Parameter(description = "Cursor da próxima página, copiado do cabeçalho " + CABECALHO_PROXIMO_CURSOR)
+            @QueryParam("cursor") String cursor,
+            @Parameter(description = "Quantidade máxima de itens na página (padrão 100, máximo 1000)")
+            @QueryParam("limite") Integer limite
     ) {
 
-        List<InvestmentSimulation> sims = simulationRepository.list("clienteId", clienteId);
+        Consulta consulta = interpretar(inicio, fim, cursor, limite);
 
-        if (sims == null || sims.isEmpty()) {
-            throw new NotFoundException("Cliente não existente na base");
+        List<InvestmentHistoryResponseDTO> pagina = simulationRepository.listarHistoricoCliente(
+                clienteId,
+                consulta.inicioInclusivo(),
+                consulta.fimExclusivo(),
+                consulta.aposData(),
+                consulta.aposId(),
+                consulta.limite()
+        );
+
+        return montarPagina(consulta, pagina);
+    }
+
+    // ================= Compartilhado com a leitura reativa =================
+
+    /**
+     * Filtros e cursor de uma consulta ao histórico, já validados.
+     */
+    record Consulta(LocalDate inicio, LocalDate fim, OffsetDateTime aposData, long aposId, int limite) {
+
+        OffsetDateTime inicioInclusivo() {
+            return inicioDoDia(inicio);
         }
 
-        return sims.stream().map(s -> {
-            InvestmentHistoryResponseDTO dto = new InvestmentHistoryResponseDTO();
-            dto.id = s.id;
-            dto.tipo = (s.produto != null ? s.produto.tipo : null);
-            dto.valor = s.valorInvestido > 0 ? s.valorInvestido : 0.0;
+        OffsetDateTime fimExclusivo() {
+            return fim != null ? inicioDoDia(fim.plusDays(1)) : null;
+        }
+    }
+
+    static Consulta interpretar(String inicio, String fim, String cursor, Integer limite) {
+        LocalDate dataInicio = lerData("inicio", inicio);
+        LocalDate dataFim = lerData("fim", fim);
+        if (dataInicio != null && dataFim != null && dataInicio.isAfter(dataFim)) {
+            throw new BadRequestException("Data inicial não pode ser maior que a data final.");
+        }
+        int limiteEfetivo = InvestmentSimulationService.limitePagina(limite);
 
-            if (s.valorInvestido > 0) {
-                dto.rentabilidade = (s.valorFinal - s.valorInvestido) / s.valorInvestido;
-            } else {
-                dto.rentabilidade = 0.0;
+        OffsetDateTime aposData = null;
+        long aposId = 0L;
+        if (cursor != null && !cursor.isBlank()) {
+            int separador = cursor.lastIndexOf(SEPARADOR_CURSOR);
+            try {
+                aposData = Instant.parse(cursor.substring(0, separador))
+                        .atZone(ZoneId.systemDefault()).toOffsetDateTime();
+                aposId = Long.parseLong(cursor.substring(separador + 1));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Cursor inválido.");
             }
+        }
+        return new Consulta(dataInicio, dataFim, aposData, aposId, limiteEfetivo);
+    }
+
+    static Response montarPagina(Consulta consulta, List<InvestmentHistoryResponseDTO> pagina) {
+        // sem filtros e sem cursor, página vazia significa que o cliente não tem nenhuma simulação
+        if (pagina.isEmpty() && consulta.aposData() == null && consulta.inicio() == null && consulta.fim() == null) {
+            throw new NotFoundException("Cliente não existente na base");
+        }
 
-            dto.data = s.dataSimulacao != null ? s.dataSimulacao.toLocalDate() : null;
+        Response.ResponseBuilder response = Response.ok(pagina);
+        // página cheia: pode haver mais itens depois do último
+        if (pagina.size() >= consulta.limite()) {
+            InvestmentHistoryResponseDTO ultimo = pagina.get(pagina.size() - 1);
+            // instante em UTC ("...Z"): não tem "+", que viraria espaço ao voltar na query string
+            response.header(CABECALHO_PROXIMO_CURSOR,
+                    ultimo.dataSimulacao.toInstant().toString() + SEPARADOR_CURSOR + ultimo.id);
+        }
+        return response.build();
+    }
+
+    private static LocalDate lerData(String nome, String valor) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(nome + " deve estar no formato yyyy-MM-dd.");
+        }
+    }
 
-            return dto;
-        }).toList();
+    private static OffsetDateTime inicioDoDia(LocalDate dia) {
+        return dia != null ? dia.atStartOfDay(ZoneId.systemDefault()).toOffsetDateTime() : null;
     }
 }
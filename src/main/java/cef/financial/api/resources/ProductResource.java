@@ -3,6 +3,7 @@ package cef.financial.api.resources;
 import cef.financial.domain.dto.CreateInvestmentProductRequestDTO;
 import cef.financial.domain.model.InvestmentProduct;
 import cef.financial.domain.repository.InvestmentProductRepository;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
@@ -13,6 +14,7 @@ import java.util.List;
 @Path("/produtos")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
+@RunOnVirtualThread
 public class ProductResource {
 
     @Inject
@@ -0,0 +1,180 @@
+package cef.financial.api.resources;
+
+import cef.financial.domain.dto.CustomerResponseDTO;
+import cef.financial.domain.dto.InvestmentHistoryResponseDTO;
+import cef.financial.domain.dto.InvestmentProductResponseDTO;
+import cef.financial.domain.model.InvestmentProduct;
+import cef.financial.domain.repository.ReactiveReadRepository;
+import io.quarkus.security.Authenticated;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+
+import java.util.List;
+
+/**
+ * Versões não bloqueantes das leituras mais frequentes. Os métodos devolvem {@link Uni} e rodam
+ * no event loop, com o cliente reativo do SQL Server: a concorrência dessas leituras não fica
+ * limitada pelo pool de worker threads nem pelas conexões JDBC. Gravações continuam no ORM.
+ */
+@Path("/reativo")
+@Produces(MediaType.APPLICATION_JSON)
+@Authenticated
+@SecurityRequirement(name = "bearerAuth")
+@Tag(name = "Leitura reativa", description = "Consultas de produtos, clientes e histórico sem bloquear threads")
+public class ReactiveReadResource {
+
+    @Inject
+    ReactiveReadRepository repository;
+
+    public ReactiveReadResource() {}
+
+    // construtor para testes
+    public ReactiveReadResource(ReactiveReadRepository repository) {
+        this.repository = repository;
+    }
+
+    @GET
+    @Path("/produtos")
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+            summary = "Listar produtos (reativo)",
+            description = "Mesmo resultado de GET /produtos, sem bloquear thread durante a consulta."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Lista de produtos retornada com sucesso",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = InvestmentProduct.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — usuário não autenticado"
+    )
+    public Uni<List<InvestmentProduct>> listarProdutos() {
+        return repository.listarProdutos();
+    }
+
+    @GET
+    @Path("/produtos-recomendados/{perfil}")
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+            summary = "Produtos recomendados pelo perfil (reativo)",
+            description = "Mesmo resultado de GET /produtos-recomendados/{perfil}, sem bloquear thread durante a consulta."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Lista de produtos recomendados retornada com sucesso",
+            content = @Content(
+                    schema = @Schema(implementation = InvestmentProductResponseDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "404",
+            description = "Perfil informado é inválido"
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — usuário não autenticado"
+    )
+    public Uni<List<InvestmentProductResponseDTO>> produtosRecomendados(
+            @Parameter(description = "Perfil do cliente (CONSERVADOR, MODERADO ou ARROJADO)", required = true)
+            @PathParam("perfil") String perfil) {
+
+        return repository.produtosPorPerfil(perfil)
+                .map(produtos -> {
+                    if (produtos.isEmpty()) {
+                        throw new NotFoundException("Nenhum produto encontrado para o perfil: " + perfil);
+                    }
+                    return produtos;
+                });
+    }
+
+    @GET
+    @Path("/clientes")
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+            summary = "Listar clientes (reativo)",
+            description = "Mesmo resultado de GET /clientes, sem bloquear thread durante a consulta."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Lista de clientes retornada com sucesso",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = CustomerResponseDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — usuário não autenticado"
+    )
+    public Uni<List<CustomerResponseDTO>> listarClientes() {
+        return repository.listarClientes();
+    }
+
+    @GET
+    @Path("/investimentos/{clienteId}")
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+            summary = "Histórico de investimentos do cliente (reativo)",
+            description = "Mesmos filtros, paginação e cabeçalho " + InvestmentHistoryResource.CABECALHO_PROXIMO_CURSOR +
+                    " de GET /investimentos/{clienteId}, sem bloquear thread durante a consulta."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Histórico retornado com sucesso",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = InvestmentHistoryResponseDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "400",
+            description = "Período, cursor ou limite inválido"
+    )
+    @APIResponse(
+            responseCode = "404",
+            description = "Cliente não encontrado"
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — usuário não autenticado"
+    )
+    public Uni<Response> historicoInvestimentos(
+            @Parameter(description = "ID do cliente", required = true)
+            @PathParam("clienteId") Long clienteId,
+            @Parameter(description = "Data inicial no formato yyyy-MM-dd", example = "2025-11-01")
+            @QueryParam("inicio") String inicio,
+            @Parameter(description = "Data final (inclusiva) no formato yyyy-MM-dd", example = "2025-11-30")
+            @QueryParam("fim") String fim,
+            @Parameter(description = "Cursor da próxima página, copiado do cabeçalho " + InvestmentHistoryResource.CABECALHO_PROXIMO_CURSOR)
+            @QueryParam("cursor") String cursor,
+            @Parameter(description = "Quantidade máxima de itens na página (padrão 100, máximo 1000)")
+            @QueryParam("limite") Integer limite) {
+
+        InvestmentHistoryResource.Consulta consulta = InvestmentHistoryResource.interpretar(inicio, fim, cursor, limite);
+
+        return repository.listarHistoricoCliente(
+                        clienteId,
+                        consulta.inicioInclusivo(),
+                        consulta.fimExclusivo(),
+                        consulta.aposData(),
+                        consulta.aposId(),
+                        consulta.limite())
+                .map(pagina -> InvestmentHistoryResource.montarPagina(consulta, pagina));
+    }
+}
@@ -3,6 +3,7 @@ package cef.financial.api.resources;
 import cef.financial.domain.dto.InvestmentProductResponseDTO;
 import cef.financial.domain.service.RecommendationService;
 import io.quarkus.security.Authenticated;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
@@ -18,6 +19,7 @@ import java.util.List;
 @Path("/produtos-recomendados")
 @Produces(MediaType.APPLICATION_JSON)
 @Authenticated
+@RunOnVirtualThread
 public class RecommendationResource {
 
     @Inject
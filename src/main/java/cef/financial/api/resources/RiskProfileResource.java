@@ -1,15 +1,22 @@
 package cef.financial.api.resources;
 
 import cef.financial.domain.dto.RiskProfileResponseDTO;
+import cef.financial.domain.dto.RiskRecalculationStatusDTO;
+import cef.financial.domain.service.RiskProfileRecalculationService;
 import cef.financial.domain.service.RiskProfileService;
-import cef.financial.domain.service.TelemetryService;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
@@ -17,18 +24,20 @@ import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 
 @Path("/perfil-risco")
 @Produces(MediaType.APPLICATION_JSON)
 @SecurityRequirement(name = "bearerAuth")
 @Tag(name = "Perfil de Risco", description = "Cálculo do perfil de risco de um cliente com base em dados financeiros e comportamentais")
+@RunOnVirtualThread
 public class RiskProfileResource {
 
     @Inject
     RiskProfileService riskProfileService;
 
     @Inject
-    TelemetryService telemetryService;
+    RiskProfileRecalculationService recalculationService;
 
     @GET
     @Path("/{clienteId}")
@@ -54,12 +63,88 @@ public class RiskProfileResource {
             description = "Acesso negado — usuário não possui permissão"
     )
     public RiskProfileResponseDTO perfilRisco(@PathParam("clienteId") Long clienteId) {
-        long start = System.currentTimeMillis();
-        try {
-            return riskProfileService.calculateProfile(clienteId);
-        } finally {
-            long duration = System.currentTimeMillis() - start;
-            telemetryService.record("perfil-risco", duration);
-        }
+        // tempo da requisição registrado pelo TelemetryFilter
+        return riskProfileService.consultarPerfil(clienteId);
+    }
+
+    @POST
+    @Path("/recalculo")
+    @RolesAllowed({"admin"})
+    @Operation(
+            summary = "Recalcular o perfil de risco de todos os clientes",
+            description = "Dispara em segundo plano o recálculo de todos os perfis com os critérios atuais: " +
+                    "uma leitura do histórico em ordem de cliente, pontuação em blocos paralelos e gravação " +
+                    "em lote. Por padrão retoma do último checkpoint de uma execução interrompida."
+    )
+    @APIResponse(
+            responseCode = "202",
+            description = "Recálculo iniciado",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = RiskRecalculationStatusDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "409",
+            description = "Já existe um recálculo em andamento"
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — apenas administradores podem recalcular perfis"
+    )
+    public Response iniciarRecalculo(
+            @Parameter(description = "false para recomeçar do primeiro cliente, ignorando o checkpoint")
+            @QueryParam("retomar") @DefaultValue("true") boolean retomar) {
+        return Response.accepted(recalculationService.iniciar(retomar)).build();
+    }
+
+    @GET
+    @Path("/recalculo")
+    @RolesAllowed({"admin"})
+    @Operation(
+            summary = "Andamento do recálculo de perfis",
+            description = "Situação da execução atual ou, sem execução nesta instância, do último checkpoint gravado."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Andamento retornado com sucesso",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = RiskRecalculationStatusDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — apenas administradores podem recalcular perfis"
+    )
+    public RiskRecalculationStatusDTO andamentoRecalculo() {
+        return recalculationService.consultar();
+    }
+
+    @DELETE
+    @Path("/recalculo")
+    @RolesAllowed({"admin"})
+    @Operation(
+            summary = "Cancelar o recálculo de perfis",
+            description = "Interrompe a execução em andamento; os blocos já enviados terminam e entram no checkpoint."
+    )
+    @APIResponse(
+            responseCode = "202",
+            description = "Cancelamento solicitado",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = RiskRecalculationStatusDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "404",
+            description = "Nenhum recálculo em andamento"
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — apenas administradores podem recalcular perfis"
+    )
+    public Response cancelarRecalculo() {
+        return Response.accepted(recalculationService.cancelar()).build();
     }
 }
@@ -1,18 +1,27 @@
 package cef.financial.api.resources;
 
+import cef.financial.domain.dto.InvestmentComparisonResponseDTO;
+import cef.financial.domain.dto.InvestmentProjectionRequestDTO;
+import cef.financial.domain.dto.InvestmentProjectionResponseDTO;
+import cef.financial.domain.dto.InvestmentSimulationBatchResponseDTO;
 import cef.financial.domain.dto.InvestmentSimulationRequestDTO;
 import cef.financial.domain.dto.InvestmentSimulationResponseDTO;
 import cef.financial.domain.dto.SimulationByProductDayResponseDTO;
 import cef.financial.domain.dto.SimulationHistoryResponseDTO;
-import cef.financial.domain.model.InvestmentSimulation;
+import cef.financial.domain.service.IdempotencyService;
+import cef.financial.domain.service.InvestmentSimulationBatchService;
 import cef.financial.domain.service.InvestmentSimulationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.quarkus.security.Authenticated;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
@@ -20,12 +29,13 @@ import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
-import java.util.Comparator;
+import java.time.format.DateTimeParseException;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @Path("")
 @Consumes(MediaType.APPLICATION_JSON)
@@ -33,16 +43,37 @@ import java.util.stream.Collectors;
 @Authenticated
 @SecurityRequirement(name = "bearerAuth")
 @Tag(name = "Simulações", description = "Endpoints para simular investimentos e consultar histórico de simulações")
+@RunOnVirtualThread
 public class SimulationResource {
 
+    static final String CABECALHO_PROXIMO_CURSOR = "X-Proximo-Cursor";
+    static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    static final String CABECALHO_IDEMPOTENCIA = "Idempotency-Key";
+    static final String CABECALHO_IDEMPOTENCIA_REPETIDA = "Idempotent-Replayed";
+
     @Inject
     InvestmentSimulationService simulationService;
 
+    @Inject
+    InvestmentSimulationBatchService batchService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    IdempotencyService idempotencyService;
+
     public SimulationResource() {}
 
-    // construtor para testes
-    public SimulationResource(InvestmentSimulationService simulationService) {
+    // construtor para testes; colaboradores não usados pelo teste podem ser null
+    public SimulationResource(InvestmentSimulationService simulationService,
+                              InvestmentSimulationBatchService batchService,
+                              ObjectMapper objectMapper,
+                              IdempotencyService idempotencyService) {
         this.simulationService = simulationService;
+        this.batchService = batchService;
+        this.objectMapper = objectMapper;
+        this.idempotencyService = idempotencyService;
     }
 
     @POST
@@ -50,7 +81,9 @@ public class SimulationResource {
     @RolesAllowed({"user", "admin"})
     @Operation(
             summary = "Simular investimento",
-            description = "Recebe os dados da simulação (cliente, produto, valor, prazo etc.) e retorna o resultado projetado do investimento."
+            description = "Recebe os dados da simulação (cliente, produto, valor, prazo etc.) e retorna o resultado projetado do investimento. " +
+                    "Com o cabeçalho " + CABECALHO_IDEMPOTENCIA + ", repetições da mesma requisição devolvem a resposta " +
+                    "original sem gravar outra simulação."
     )
     @APIResponse(
             responseCode = "200",
@@ -64,48 +97,234 @@ public class SimulationResource {
             responseCode = "422",
             description = "Erro de validação nos dados da simulação"
     )
+    @APIResponse(
+            responseCode = "409",
+            description = "Simulação com a mesma Idempotency-Key ainda em processamento"
+    )
     @APIResponse(
             responseCode = "403",
             description = "Acesso negado — usuário não possui permissão"
     )
-    public Response simularInvestimento(@Valid InvestmentSimulationRequestDTO request) {
-        InvestmentSimulationResponseDTO response = simulationService.simulate(request);
+    public Response simularInvestimento(
+            @Valid InvestmentSimulationRequestDTO request,
+            @Parameter(description = "Chave única da operação; retentativas com a mesma chave não duplicam a simulação")
+            @HeaderParam(CABECALHO_IDEMPOTENCIA) String chaveIdempotencia) {
+
+        if (chaveIdempotencia == null) {
+            return Response.ok(simulationService.simulate(request)).build();
+        }
+
+        IdempotencyService.Resultado resultado =
+                idempotencyService.executar(chaveIdempotencia, request, () -> simulationService.simulate(request));
+
+        Response.ResponseBuilder response = Response.ok(resultado.resposta());
+        if (resultado.repetida()) {
+            response.header(CABECALHO_IDEMPOTENCIA_REPETIDA, true);
+        }
+        return response.build();
+    }
+
+    @POST
+    @Path("/simular-investimento/previa")
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+            summary = "Prévia da simulação de investimento",
+            description = "Mesmo cálculo de /simular-investimento, mas sem gravar simulação, histórico " +
+                    "nem recalcular o perfil de risco. Indicado para atualizações interativas na tela."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Prévia calculada com sucesso",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = InvestmentSimulationResponseDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "422",
+            description = "Erro de validação nos dados da simulação"
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — usuário não possui permissão"
+    )
+    public Response simularInvestimentoPrevia(@Valid InvestmentSimulationRequestDTO request) {
+        InvestmentSimulationResponseDTO response = simulationService.simularPrevia(request);
+        return Response.ok(response).build();
+    }
+
+    @POST
+    @Path("/simular-investimento/lote")
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+            summary = "Simular investimentos em lote",
+            description = "Recebe uma lista de simulações e processa todas em poucas transações, " +
+                    "retornando o resultado ou o erro de cada item na mesma posição do envio. " +
+                    "Itens inválidos recebem o erro 400 no próprio item, sem rejeitar o lote."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Lote processado (verifique o campo erro de cada item)",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = InvestmentSimulationBatchResponseDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "400",
+            description = "Lote vazio ou acima do limite permitido"
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — usuário não possui permissão"
+    )
+    public Response simularInvestimentoEmLote(List<InvestmentSimulationRequestDTO> requests) {
+        InvestmentSimulationBatchResponseDTO response = batchService.simularLote(requests);
         return Response.ok(response).build();
     }
 
+    @POST
+    @Path("/simular-investimento/projecao")
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+            summary = "Projetar evolução do investimento",
+            description = "Retorna, sem gravar simulação, o saldo mês a mês até prazoMeses e/ou o valor final " +
+                    "em cada um dos prazos informados, a partir da rentabilidade do produto."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Projeção calculada com sucesso",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = InvestmentProjectionResponseDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "400",
+            description = "Valor, prazos ou rentabilidade do produto inválidos"
+    )
+    @APIResponse(
+            responseCode = "404",
+            description = "Produto não encontrado"
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — usuário não possui permissão"
+    )
+    public InvestmentProjectionResponseDTO projetarInvestimento(InvestmentProjectionRequestDTO request) {
+        return simulationService.projetarSerie(request);
+    }
+
+    @GET
+    @Path("/simular-investimento/comparacao")
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+            summary = "Comparar produtos para um valor e prazo",
+            description = "Simula o mesmo valor e prazo em todos os produtos elegíveis e retorna a tabela " +
+                    "ordenada pelo critério do motor de recomendação. Não grava simulação nem histórico."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Comparação calculada com sucesso",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = InvestmentComparisonResponseDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "400",
+            description = "Valor ou prazo inválido"
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — usuário não possui permissão"
+    )
+    public InvestmentComparisonResponseDTO compararProdutos(
+            @Parameter(description = "Valor a investir", required = true, example = "10000")
+            @QueryParam("valor") double valor,
+            @Parameter(description = "Prazo em meses", required = true, example = "24")
+            @QueryParam("prazoMeses") int prazoMeses,
+            @Parameter(description = "Restringe a um tipo de produto (ex.: CDB)")
+            @QueryParam("tipoProduto") String tipoProduto,
+            @Parameter(description = "Cliente cujo perfil define a compatibilidade de risco")
+            @QueryParam("clienteId") Long clienteId) {
+        return simulationService.compararProdutos(valor, prazoMeses, tipoProduto, clienteId);
+    }
+
     @GET
     @Path("/simulacoes")
     @Operation(
             summary = "Listar simulações",
-            description = "Retorna a lista de todas as simulações de investimento realizadas no sistema."
+            description = "Retorna as simulações de investimento em páginas ordenadas por id. " +
+                    "Para a próxima página, envie em aposId o valor do cabeçalho " + CABECALHO_PROXIMO_CURSOR + "."
     )
     @APIResponse(
             responseCode = "200",
-            description = "Lista de simulações retornada com sucesso",
+            description = "Página de simulações retornada com sucesso",
             content = @Content(
                     mediaType = "application/json",
                     schema = @Schema(implementation = SimulationHistoryResponseDTO.class)
             )
     )
+    @APIResponse(
+            responseCode = "400",
+            description = "Limite inválido"
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — usuário não autenticado"
+    )
+    public Response listarSimulacoes(
+            @Parameter(description = "Retorna simulações com id maior que este valor (cursor)")
+            @QueryParam("aposId") Long aposId,
+            @Parameter(description = "Quantidade máxima de itens na página (padrão 100, máximo 1000)")
+            @QueryParam("limite") Integer limite) {
+
+        List<SimulationHistoryResponseDTO> pagina = simulationService.listarSimulacoes(aposId, limite);
+
+        Response.ResponseBuilder response = Response.ok(pagina);
+        // página cheia: pode haver mais itens depois do último id
+        if (!pagina.isEmpty() && pagina.size() >= InvestmentSimulationService.limitePagina(limite)) {
+            response.header(CABECALHO_PROXIMO_CURSOR, pagina.get(pagina.size() - 1).id);
+        }
+        return response.build();
+    }
+
+    @GET
+    @Path("/simulacoes/exportar")
+    @Produces(MEDIA_TYPE_NDJSON)
+    @Operation(
+            summary = "Exportar simulações (NDJSON)",
+            description = "Transmite todas as simulações, uma por linha em JSON, lidas por cursor no banco. " +
+                    "Indicado para volumes grandes, em que a paginação de /simulacoes seria lenta."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Fluxo de simulações",
+            content = @Content(mediaType = MEDIA_TYPE_NDJSON)
+    )
     @APIResponse(
             responseCode = "403",
             description = "Acesso negado — usuário não autenticado"
     )
-    public List<SimulationHistoryResponseDTO> listarSimulacoes() {
-
-        List<InvestmentSimulation> sims = simulationService.listAllSimulations();
-
-        return sims.stream().map(sim -> {
-            SimulationHistoryResponseDTO dto = new SimulationHistoryResponseDTO();
-            dto.id = sim.id;
-            dto.clienteId = sim.clienteId;
-            dto.produto = sim.produto.nome;
-            dto.valorInvestido = sim.valorInvestido;
-            dto.valorFinal = sim.valorFinal;
-            dto.prazoMeses = sim.prazoMeses;
-            dto.dataSimulacao = sim.dataSimulacao;
-            return dto;
-        }).toList();
+    public Response exportarSimulacoes(
+            @Parameter(description = "Retoma a exportação a partir deste id (exclusivo)")
+            @QueryParam("aposId") Long aposId) {
+
+        StreamingOutput corpo = output -> {
+            ObjectWriter writer = objectMapper.writerFor(SimulationHistoryResponseDTO.class);
+            simulationService.percorrerSimulacoes(aposId, dto -> {
+                try {
+                    output.write(writer.writeValueAsBytes(dto));
+                    output.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            output.flush();
+        };
+
+        return Response.ok(corpo, MEDIA_TYPE_NDJSON).build();
     }
 
     @GET
@@ -122,39 +341,35 @@ public class SimulationResource {
                     schema = @Schema(implementation = SimulationByProductDayResponseDTO.class)
             )
     )
+    @APIResponse(
+            responseCode = "400",
+            description = "Período inválido"
+    )
     @APIResponse(
             responseCode = "403",
             description = "Acesso negado — usuário não autenticado"
     )
-    public List<SimulationByProductDayResponseDTO> simulacoesPorProdutoDia() {
-
-        List<InvestmentSimulation> sims = simulationService.listAllSimulations();
-
-        Map<String, Map<LocalDate, List<InvestmentSimulation>>> grouped =
-                sims.stream().collect(Collectors.groupingBy(
-                        s -> s.produto.nome,
-                        Collectors.groupingBy(s -> s.dataSimulacao.toLocalDate())
-                ));
-
-        return grouped.entrySet().stream()
-                .flatMap(entryProduto -> entryProduto.getValue().entrySet().stream()
-                        .map(entryDia -> {
-                            String produto = entryProduto.getKey();
-                            LocalDate dia = entryDia.getKey();
-                            List<InvestmentSimulation> lista = entryDia.getValue();
-
-                            SimulationByProductDayResponseDTO dto = new SimulationByProductDayResponseDTO();
-                            dto.produto = produto;
-                            dto.data = dia;
-                            dto.quantidadeSimulacoes = lista.size();
-                            dto.mediaValorFinal = lista.stream()
-                                    .mapToDouble(s -> s.valorFinal)
-                                    .average()
-                                    .orElse(0.0);
-
-                            return dto;
-                        })
-                ).sorted(Comparator.comparing((SimulationByProductDayResponseDTO dto) -> dto.data).reversed())
-                .toList();
+    public List<SimulationByProductDayResponseDTO> simulacoesPorProdutoDia(
+            @Parameter(description = "Data inicial no formato yyyy-MM-dd", example = "2025-11-01")
+            @QueryParam("inicio") String inicio,
+            @Parameter(description = "Data final no formato yyyy-MM-dd", example = "2025-11-30")
+            @QueryParam("fim") String fim,
+            @Parameter(description = "Filtra por um único produto")
+            @QueryParam("produtoId") Long produtoId) {
+
+        LocalDate from = lerData("inicio", inicio);
+        LocalDate to = lerData("fim", fim);
+        return simulationService.agregarPorProdutoDia(from, to, produtoId);
+    }
+
+    private static LocalDate lerData(String nome, String valor) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(nome + " deve estar no formato yyyy-MM-dd.");
+        }
     }
 }
@@ -1,6 +1,8 @@
 package cef.financial.api.resources;
 
+import cef.financial.domain.dto.CacheStatisticsResponseDTO;
 import cef.financial.domain.dto.TelemetryResponseDTO;
+import cef.financial.domain.service.CacheStatisticsService;
 import cef.financial.domain.service.TelemetryService;
 import io.quarkus.security.Authenticated;
 import jakarta.annotation.security.RolesAllowed;
@@ -29,6 +31,9 @@ public class TelemetryResource {
     @Inject
     TelemetryService telemetryService;
 
+    @Inject
+    CacheStatisticsService cacheStatisticsService;
+
     @GET
     @Path("/telemetria")
     @RolesAllowed({"admin"})
@@ -58,4 +63,47 @@ public class TelemetryResource {
         LocalDate to = fim != null ? LocalDate.parse(fim) : null;
         return telemetryService.getTelemetry(from, to);
     }
+
+    @GET
+    @Path("/telemetria/cache")
+    @RolesAllowed({"admin"})
+    @Operation(
+            summary = "Consultar estatísticas de cache",
+            description = "Retorna acertos e faltas do cache de segundo nível por região e a quantidade de " +
+                    "sentenças enviadas ao banco desde o último zeramento."
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Estatísticas retornadas com sucesso",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = CacheStatisticsResponseDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — apenas administradores podem consultar telemetria"
+    )
+    public CacheStatisticsResponseDTO estatisticasCache() {
+        return cacheStatisticsService.estatisticas();
+    }
+
+    @DELETE
+    @Path("/telemetria/cache")
+    @RolesAllowed({"admin"})
+    @Operation(
+            summary = "Zerar estatísticas de cache",
+            description = "Zera os contadores de cache e de sentenças; o conteúdo do cache é mantido."
+    )
+    @APIResponse(
+            responseCode = "204",
+            description = "Estatísticas zeradas"
+    )
+    @APIResponse(
+            responseCode = "403",
+            description = "Acesso negado — apenas administradores podem consultar telemetria"
+    )
+    public void zerarEstatisticasCache() {
+        cacheStatisticsService.zerar();
+    }
 }
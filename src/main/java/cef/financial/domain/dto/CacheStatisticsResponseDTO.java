@@ -0,0 +1,29 @@
+package cef.financial.domain.dto;
+
+import java.util.List;
+
+public class CacheStatisticsResponseDTO {
+
+    public boolean estatisticasHabilitadas;
+
+    // idas ao banco desde o último zeramento
+    public long sentencasPreparadas;
+    public long entidadesCarregadas;
+    public long consultasExecutadas;
+
+    public long cacheConsultasHits;
+    public long cacheConsultasMisses;
+
+    public List<RegiaoCache> regioes;
+
+    public static class RegiaoCache {
+        public String nome;
+        public long hits;
+        public long misses;
+        public long puts;
+        public long elementosEmMemoria;
+
+        // hits / (hits + misses); nulo sem nenhum acesso
+        public Double taxaAcerto;
+    }
+}
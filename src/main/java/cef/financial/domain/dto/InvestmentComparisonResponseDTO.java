@@ -0,0 +1,30 @@
+package cef.financial.domain.dto;
+
+import java.util.List;
+
+public class InvestmentComparisonResponseDTO {
+
+    public double valor;
+    public int prazoMeses;
+
+    // perfil usado no filtro de risco; nulo quando o cliente não foi informado ou não existe
+    public String perfilCliente;
+
+    // LIQUIDEZ (prazo até 12 meses) ou RENTABILIDADE, como no motor de recomendação
+    public String criterio;
+
+    public List<ProdutoComparado> produtos;
+
+    public static class ProdutoComparado {
+        public int posicao;
+        public Long produtoId;
+        public String nome;
+        public String tipo;
+        public String risco;
+        public double rentabilidadeAnual;
+        public Integer liquidezDias;
+        public double valorFinal;
+        public double rentabilidadeEfetiva;
+        public boolean compativelComPerfil;
+    }
+}
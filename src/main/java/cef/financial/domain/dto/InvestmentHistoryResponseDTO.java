@@ -1,8 +1,10 @@
 package cef.financial.domain.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
 
 public class InvestmentHistoryResponseDTO {
 
@@ -13,4 +15,24 @@ public class InvestmentHistoryResponseDTO {
 
     @JsonFormat(pattern = "yyyy-MM-dd")
     public LocalDate data;
+
+    // data/hora completa da simulação: usada só para montar o cursor da próxima página
+    @JsonIgnore
+    public OffsetDateTime dataSimulacao;
+
+    public InvestmentHistoryResponseDTO() {}
+
+    // usado pela projeção (select new) do InvestmentSimulationRepository
+    public InvestmentHistoryResponseDTO(Long id,
+                                        String tipo,
+                                        double valorInvestido,
+                                        double valorFinal,
+                                        OffsetDateTime dataSimulacao) {
+        this.id = id;
+        this.tipo = tipo;
+        this.valor = valorInvestido > 0 ? valorInvestido : 0.0;
+        this.rentabilidade = valorInvestido > 0 ? (valorFinal - valorInvestido) / valorInvestido : 0.0;
+        this.dataSimulacao = dataSimulacao;
+        this.data = dataSimulacao != null ? dataSimulacao.toLocalDate() : null;
+    }
 }
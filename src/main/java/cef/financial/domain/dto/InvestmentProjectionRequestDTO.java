@@ -0,0 +1,17 @@
+package cef.financial.domain.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+public class InvestmentProjectionRequestDTO {
+
+    @NotNull
+    public Long produtoId;
+
+    public double valor;
+
+    // horizonte da série mês a mês; 0 ou ausente quando só os prazos interessam
+    public int prazoMeses;
+
+    // prazos avulsos (em meses) para os quais se quer só o valor final
+    public int[] prazos;
+}
@@ -0,0 +1,15 @@
+package cef.financial.domain.dto;
+
+public class InvestmentProjectionResponseDTO {
+
+    public InvestmentSimulationResponseDTO.ProdutoValidado produtoValidado;
+    public double valorInicial;
+    public double taxaMensal;
+
+    // saldosMensais[i] = saldo após i meses (0..prazoMeses); nulo sem prazoMeses
+    public double[] saldosMensais;
+
+    // valoresNosPrazos[i] = valor ao fim de prazos[i]; nulos sem prazos
+    public int[] prazos;
+    public double[] valoresNosPrazos;
+}
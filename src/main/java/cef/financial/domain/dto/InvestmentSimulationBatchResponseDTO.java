@@ -0,0 +1,57 @@
+package cef.financial.domain.dto;
+
+import java.util.List;
+
+public class InvestmentSimulationBatchResponseDTO {
+
+    public int total;
+    public int sucessos;
+    public int falhas;
+    public List<ItemResultado> resultados;
+
+    public InvestmentSimulationBatchResponseDTO() {
+    }
+
+    public InvestmentSimulationBatchResponseDTO(List<ItemResultado> resultados) {
+        this.resultados = resultados;
+        this.total = resultados.size();
+        this.sucessos = (int) resultados.stream().filter(r -> r.erro == null).count();
+        this.falhas = total - sucessos;
+    }
+
+    public static class ItemResultado {
+        public int indice;
+        public InvestmentSimulationResponseDTO resultado;
+        public Erro erro;
+
+        public ItemResultado() {
+        }
+
+        public static ItemResultado sucesso(int indice, InvestmentSimulationResponseDTO resultado) {
+            ItemResultado item = new ItemResultado();
+            item.indice = indice;
+            item.resultado = resultado;
+            return item;
+        }
+
+        public static ItemResultado falha(int indice, int status, String mensagem) {
+            ItemResultado item = new ItemResultado();
+            item.indice = indice;
+            item.erro = new Erro(status, mensagem);
+            return item;
+        }
+    }
+
+    public static class Erro {
+        public int status;
+        public String mensagem;
+
+        public Erro() {
+        }
+
+        public Erro(int status, String mensagem) {
+            this.status = status;
+            this.mensagem = mensagem;
+        }
+    }
+}
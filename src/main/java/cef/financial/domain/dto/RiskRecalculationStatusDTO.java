@@ -0,0 +1,24 @@
+package cef.financial.domain.dto;
+
+import java.time.OffsetDateTime;
+
+public class RiskRecalculationStatusDTO {
+
+    // EXECUTANDO / CONCLUIDO / CANCELADO / FALHOU / INTERROMPIDO / NUNCA_EXECUTADO
+    public String status;
+
+    // clientes até este id já foram gravados; uma execução retomada continua do seguinte
+    public long ultimoClienteId;
+
+    public long clientesProcessados;
+    public long operacoesLidas;
+    public long perfisAlterados;
+
+    // média desde o início desta execução
+    public double clientesPorSegundo;
+
+    public OffsetDateTime iniciadoEm;
+    public OffsetDateTime atualizadoEm;
+
+    public String erro;
+}
@@ -6,6 +6,7 @@ import java.time.LocalDate;
 
 public class SimulationByProductDayResponseDTO {
 
+    public Long produtoId;
     public String produto;
 
     @JsonFormat(pattern = "yyyy-MM-dd")
@@ -13,4 +14,24 @@ public class SimulationByProductDayResponseDTO {
 
     public long quantidadeSimulacoes;
     public double mediaValorFinal;
+    public double mediaValorInvestido;
+    public double minValorFinal;
+    public double maxValorFinal;
+
+    public SimulationByProductDayResponseDTO() {}
+
+    // usado na projeção HQL sobre o agregado por produto/dia
+    public SimulationByProductDayResponseDTO(Long produtoId, String produto, LocalDate data,
+                                             Long quantidadeSimulacoes, Double mediaValorFinal,
+                                             Double mediaValorInvestido, Double minValorFinal,
+                                             Double maxValorFinal) {
+        this.produtoId = produtoId;
+        this.produto = produto;
+        this.data = data;
+        this.quantidadeSimulacoes = quantidadeSimulacoes != null ? quantidadeSimulacoes : 0L;
+        this.mediaValorFinal = mediaValorFinal != null ? mediaValorFinal : 0.0;
+        this.mediaValorInvestido = mediaValorInvestido != null ? mediaValorInvestido : 0.0;
+        this.minValorFinal = minValorFinal != null ? minValorFinal : 0.0;
+        this.maxValorFinal = maxValorFinal != null ? maxValorFinal : 0.0;
+    }
 }
@@ -15,4 +15,18 @@ public class SimulationHistoryResponseDTO {
 
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
     public OffsetDateTime dataSimulacao;
+
+    public SimulationHistoryResponseDTO() {}
+
+    // usado nas projeções HQL e na leitura via JDBC
+    public SimulationHistoryResponseDTO(Long id, Long clienteId, String produto, double valorInvestido,
+                                        double valorFinal, int prazoMeses, OffsetDateTime dataSimulacao) {
+        this.id = id;
+        this.clienteId = clienteId;
+        this.produto = produto;
+        this.valorInvestido = valorInvestido;
+        this.valorFinal = valorFinal;
+        this.prazoMeses = prazoMeses;
+        this.dataSimulacao = dataSimulacao;
+    }
 }
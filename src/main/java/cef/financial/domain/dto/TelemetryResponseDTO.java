@@ -14,6 +14,12 @@ public class TelemetryResponseDTO {
         public String nome;
         public long quantidadeChamadas;
         public double mediaTempoRespostaMs;
+
+        // percentis de latência; nulos quando o período não possui histograma
+        public Double p50Ms;
+        public Double p95Ms;
+        public Double p99Ms;
+        public Double p999Ms;
     }
 
     public static class Periodo {
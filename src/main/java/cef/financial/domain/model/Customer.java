@@ -2,6 +2,7 @@ package cef.financial.domain.model;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
@@ -10,7 +11,10 @@ import jakarta.persistence.Table;
 import java.time.OffsetDateTime;
 
 
+// leitura por id em quase toda simulação/perfil; o cache L2 é atualizado pelo próprio
+// Hibernate quando o perfil é regravado (ex.: RiskProfileService)
 @Entity
+@Cacheable
 @Table(name = "HTE_CUSTOMER")
 public class Customer extends PanacheEntityBase {
 
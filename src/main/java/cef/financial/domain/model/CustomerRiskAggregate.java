@@ -0,0 +1,39 @@
+package cef.financial.domain.model;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Acumulado por cliente usado no cálculo do perfil de risco.
+ * Atualizado a cada operação registrada em HTE_INVESTMENT_HISTORY.
+ */
+@Entity
+@Table(name = "HTE_CUSTOMER_RISK_AGGREGATE")
+public class CustomerRiskAggregate extends PanacheEntityBase {
+
+    @Id
+    @Column(name = "CLIENTE_ID")
+    public Long clienteId;
+
+    @Column(name = "PESO_TOTAL", nullable = false)
+    public double pesoTotal; // soma dos valores investidos (peso de cada operação)
+
+    @Column(name = "RETORNO_PONDERADO", nullable = false)
+    public double retornoPonderado; // soma de rentabilidade * peso
+
+    @Column(name = "MAX_NIVEL_RISCO", nullable = false)
+    public int maxNivelRisco; // 1 = baixo, 2 = médio, 3 = alto
+
+    @Column(name = "QTD_OPERACOES", nullable = false)
+    public long qtdOperacoes;
+
+    @Column(name = "ATUALIZADO_EM")
+    public OffsetDateTime atualizadoEm;
+
+    public CustomerRiskAggregate() {}
+}
@@ -0,0 +1,37 @@
+package cef.financial.domain.model;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Resposta já entregue para uma Idempotency-Key de POST /simular-investimento.
+ * Só é gravada quando simulacao.idempotencia.persistir=true; o armazenamento
+ * principal é o cache em memória do IdempotencyService. Sem resposta, a linha é a
+ * reserva de uma chave ainda em processamento em alguma instância.
+ */
+@Entity
+@Table(name = "HTE_IDEMPOTENCY_KEY")
+public class IdempotencyRecord extends PanacheEntityBase {
+
+    @Id
+    @Column(name = "CHAVE", length = 255)
+    public String chave;
+
+    // campos da requisição original; a mesma chave com outra requisição é rejeitada
+    @Column(name = "IMPRESSAO", nullable = false, length = 512)
+    public String impressao;
+
+    // InvestmentSimulationResponseDTO serializado em JSON; nulo enquanto a simulação processa
+    @Column(name = "RESPOSTA", columnDefinition = "NVARCHAR(MAX)")
+    public String resposta;
+
+    @Column(name = "EXPIRA_EM", nullable = false)
+    public OffsetDateTime expiraEm;
+
+    public IdempotencyRecord() {}
+}
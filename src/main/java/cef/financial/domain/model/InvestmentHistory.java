@@ -1,13 +1,19 @@
 package cef.financial.domain.model;
 
-import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import jakarta.persistence.*;
 
 import java.time.LocalDate;
 
 @Entity
 @Table(name = "HTE_INVESTMENT_HISTORY")
-public class InvestmentHistory extends PanacheEntity {
+public class InvestmentHistory extends PanacheEntityBase {
+
+    // mesmo esquema de InvestmentSimulation: sequence com blocos de 50, sem IDENTITY
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "InvestmentHistory_SEQ")
+    @SequenceGenerator(name = "InvestmentHistory_SEQ", sequenceName = "InvestmentHistory_SEQ", allocationSize = 50)
+    public Long id;
 
     @Column(name = "CLIENTE_ID", nullable = false)
     public Long clienteId;
@@ -2,12 +2,15 @@ package cef.financial.domain.model;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 
+// catálogo praticamente só de leitura: buscas por id e consultas cacheadas não vão ao banco
 @Entity
+@Cacheable
 @Table(name = "HTE_INVESTMENT_PRODUCT")
 public class InvestmentProduct extends PanacheEntityBase {
 
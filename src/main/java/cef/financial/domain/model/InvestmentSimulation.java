@@ -1,12 +1,18 @@
 package cef.financial.domain.model;
 
-import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import jakarta.persistence.*;
 import java.time.OffsetDateTime;
 
 @Entity
 @Table(name = "HTE_INVESTMENT_SIMULATION")
-public class InvestmentSimulation extends PanacheEntity {
+public class InvestmentSimulation extends PanacheEntityBase {
+
+    // ids reservados em blocos de 50 (pooled-lo): os inserts ficam pendentes e vão em JDBC batch no flush
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "InvestmentSimulation_SEQ")
+    @SequenceGenerator(name = "InvestmentSimulation_SEQ", sequenceName = "InvestmentSimulation_SEQ", allocationSize = 50)
+    public Long id;
 
     @Column(nullable = false)
     public Long clienteId;
@@ -0,0 +1,43 @@
+package cef.financial.domain.model;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Progresso do recálculo em massa dos perfis de risco. Os clientes são percorridos em ordem
+ * de id: tudo até {@link #ultimoClienteId} já foi gravado, e uma execução retomada continua
+ * do cliente seguinte.
+ */
+@Entity
+@Table(name = "HTE_RISK_RECALC_CHECKPOINT")
+public class RiskRecalculationCheckpoint extends PanacheEntityBase {
+
+    @Id
+    @Column(name = "JOB", length = 50)
+    public String job;
+
+    @Column(name = "STATUS", nullable = false, length = 20)
+    public String status; // EXECUTANDO / CONCLUIDO / CANCELADO / FALHOU
+
+    @Column(name = "ULTIMO_CLIENTE_ID", nullable = false)
+    public long ultimoClienteId;
+
+    @Column(name = "CLIENTES_PROCESSADOS", nullable = false)
+    public long clientesProcessados;
+
+    @Column(name = "PERFIS_ALTERADOS", nullable = false)
+    public long perfisAlterados;
+
+    @Column(name = "INICIADO_EM")
+    public OffsetDateTime iniciadoEm;
+
+    @Column(name = "ATUALIZADO_EM")
+    public OffsetDateTime atualizadoEm;
+
+    public RiskRecalculationCheckpoint() {}
+}
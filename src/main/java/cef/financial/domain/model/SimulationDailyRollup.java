@@ -0,0 +1,72 @@
+package cef.financial.domain.model;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Agregado de simulações por produto e dia, atualizado ao fim da mesma transação que grava
+ * as {@link InvestmentSimulation}. Fonte de leitura do GET /simulacoes/por-produto-dia.
+ */
+@Entity
+@Table(name = "HTE_SIMULATION_ROLLUP_DIA")
+public class SimulationDailyRollup extends PanacheEntityBase {
+
+    @EmbeddedId
+    public Chave id;
+
+    @Column(name = "QUANTIDADE", nullable = false)
+    public long quantidade;
+
+    @Column(name = "SOMA_VALOR_FINAL", nullable = false)
+    public double somaValorFinal;
+
+    @Column(name = "SOMA_VALOR_INVESTIDO", nullable = false)
+    public double somaValorInvestido;
+
+    @Column(name = "MIN_VALOR_FINAL", nullable = false)
+    public double minValorFinal;
+
+    @Column(name = "MAX_VALOR_FINAL", nullable = false)
+    public double maxValorFinal;
+
+    public SimulationDailyRollup() {}
+
+    @Embeddable
+    public static class Chave implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "PRODUTO_ID", nullable = false)
+        public Long produtoId;
+
+        @Column(name = "DIA", nullable = false)
+        public LocalDate dia;
+
+        public Chave() {}
+
+        public Chave(Long produtoId, LocalDate dia) {
+            this.produtoId = produtoId;
+            this.dia = dia;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Chave outra)) return false;
+            return Objects.equals(produtoId, outra.produtoId) && Objects.equals(dia, outra.dia);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(produtoId, dia);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package cef.financial.domain.model;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+/**
+ * Agregado diário de telemetria por serviço, mantido pelo gravador de telemetria
+ * à medida que os eventos chegam. É a fonte de leitura do GET /telemetria.
+ */
+@Entity
+@Table(name = "HTE_TELEMETRY_ROLLUP_DIA")
+public class TelemetryDailyRollup extends PanacheEntityBase {
+
+    @EmbeddedId
+    public Chave id;
+
+    @Column(name = "QUANTIDADE", nullable = false)
+    public long quantidade;
+
+    @Column(name = "SOMA_MS", nullable = false)
+    public long somaMs;
+
+    @Column(name = "MIN_MS", nullable = false)
+    public long minMs;
+
+    @Column(name = "MAX_MS", nullable = false)
+    public long maxMs;
+
+    // LatencyHistogram serializado (µs); nulo para dias reconstruídos só a partir de agregados
+    @Lob
+    @Column(name = "HISTOGRAMA")
+    public byte[] histograma;
+
+    @Column(name = "ATUALIZADO_EM")
+    public OffsetDateTime atualizadoEm;
+
+    public TelemetryDailyRollup() {}
+
+    public TelemetryDailyRollup(String serviceName, LocalDate dia) {
+        this.id = new Chave(serviceName, dia);
+        this.minMs = Long.MAX_VALUE;
+    }
+
+    @Embeddable
+    public static class Chave implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "SERVICE_NAME", nullable = false)
+        public String serviceName;
+
+        @Column(name = "DIA", nullable = false)
+        public LocalDate dia;
+
+        public Chave() {}
+
+        public Chave(String serviceName, LocalDate dia) {
+            this.serviceName = serviceName;
+            this.dia = dia;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Chave outra)) return false;
+            return Objects.equals(serviceName, outra.serviceName) && Objects.equals(dia, outra.dia);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serviceName, dia);
+        }
+    }
+}
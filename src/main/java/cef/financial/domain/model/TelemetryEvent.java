@@ -17,6 +17,10 @@ public class TelemetryEvent extends PanacheEntity {
     @Column(nullable = false)
     public long durationMs;
 
+    // duração em microssegundos; nula em eventos gravados antes da medição por nanoTime
+    @Column
+    public Long durationUs;
+
     @Column(nullable = false)
     public OffsetDateTime timestamp;
 }
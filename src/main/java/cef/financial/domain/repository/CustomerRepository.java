@@ -4,7 +4,26 @@ package cef.financial.domain.repository;
 import cef.financial.domain.model.Customer;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+
+import java.util.Objects;
 
 @ApplicationScoped
 public class CustomerRepository implements PanacheRepository<Customer> {
-}
\ No newline at end of file
+
+    /**
+     * Grava o perfil em transação própria e curta, só quando ele muda. Pela entidade, e não
+     * por UPDATE em massa, para que o Hibernate atualize só esse cliente no cache L2.
+     *
+     * @return {@code true} se o perfil foi alterado
+     */
+    @Transactional
+    public boolean atualizarPerfil(Long clienteId, String perfil) {
+        Customer customer = findById(clienteId);
+        if (customer == null || Objects.equals(customer.perfil, perfil)) {
+            return false;
+        }
+        customer.perfil = perfil;
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package cef.financial.domain.repository;
+
+import cef.financial.domain.model.CustomerRiskAggregate;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+@ApplicationScoped
+public class CustomerRiskAggregateRepository implements PanacheRepositoryBase<CustomerRiskAggregate, Long> {
+
+    /**
+     * Soma operações ao acumulado do cliente num único UPDATE atômico e devolve o estado
+     * resultante pela cláusula OUTPUT: uma ida ao banco, sem SELECT prévio com lock e sem
+     * UPDATE pendente para o flush. O lock da linha vale até o fim da transação.
+     *
+     * @return o acumulado já atualizado (não gerenciado pelo contexto de persistência),
+     * ou {@code null} quando o cliente ainda não possui acumulado
+     */
+    @SuppressWarnings("unchecked")
+    public CustomerRiskAggregate acumular(Long clienteId,
+                                          double peso,
+                                          double retornoPonderado,
+                                          int nivelRisco,
+                                          long quantidade,
+                                          OffsetDateTime atualizadoEm) {
+        List<Object[]> linhas = getEntityManager().createNativeQuery("""
+                        UPDATE HTE_CUSTOMER_RISK_AGGREGATE
+                        SET PESO_TOTAL = PESO_TOTAL + :peso,
+                            RETORNO_PONDERADO = RETORNO_PONDERADO + :retorno,
+                            MAX_NIVEL_RISCO = CASE WHEN :nivel > MAX_NIVEL_RISCO THEN :nivel ELSE MAX_NIVEL_RISCO END,
+                            QTD_OPERACOES = QTD_OPERACOES + :quantidade,
+                            ATUALIZADO_EM = :atualizadoEm
+                        OUTPUT inserted.PESO_TOTAL, inserted.RETORNO_PONDERADO,
+                               inserted.MAX_NIVEL_RISCO, inserted.QTD_OPERACOES
+                        WHERE CLIENTE_ID = :clienteId
+                        """)
+                .unwrap(NativeQuery.class)
+                // só sincroniza (flush) alterações pendentes do próprio acumulado
+                .addSynchronizedEntityClass(CustomerRiskAggregate.class)
+                .setParameter("peso", peso)
+                .setParameter("retorno", retornoPonderado)
+                .setParameter("nivel", nivelRisco)
+                .setParameter("quantidade", quantidade)
+                .setParameter("atualizadoEm", atualizadoEm)
+                .setParameter("clienteId", clienteId)
+                .getResultList();
+
+        if (linhas.isEmpty()) {
+            return null;
+        }
+
+        return lerAgregado(clienteId, linhas.get(0), atualizadoEm);
+    }
+
+    /**
+     * Cria o acumulado do cliente ou, se outra transação acabou de criá-lo, soma a operação
+     * atual ao que ela gravou. Um único MERGE com HOLDLOCK: duas primeiras operações
+     * simultâneas do mesmo cliente não disputam o INSERT da chave primária. O acumulado criado
+     * por outra transação não enxerga o histórico ainda não confirmado desta, por isso o ramo
+     * MATCHED soma só o incremento, não o acumulado montado aqui.
+     *
+     * @param inicial    acumulado montado a partir do histórico visível nesta transação,
+     *                   com cliente e data preenchidos
+     * @param quantidade operações do incremento; zero quando só se quer garantir que o acumulado exista
+     * @return o acumulado resultante (não gerenciado pelo contexto de persistência)
+     */
+    @SuppressWarnings("unchecked")
+    public CustomerRiskAggregate criarOuAcumular(CustomerRiskAggregate inicial,
+                                                 double peso,
+                                                 double retornoPonderado,
+                                                 int nivelRisco,
+                                                 long quantidade) {
+        List<Object[]> linhas = getEntityManager().createNativeQuery("""
+                        MERGE HTE_CUSTOMER_RISK_AGGREGATE WITH (HOLDLOCK) AS a
+                        USING (SELECT :clienteId AS CLIENTE_ID) AS k
+                           ON a.CLIENTE_ID = k.CLIENTE_ID
+                        WHEN MATCHED THEN UPDATE SET
+                            PESO_TOTAL = a.PESO_TOTAL + :peso,
+                            RETORNO_PONDERADO = a.RETORNO_PONDERADO + :retorno,
+                            MAX_NIVEL_RISCO = CASE WHEN :nivel > a.MAX_NIVEL_RISCO THEN :nivel ELSE a.MAX_NIVEL_RISCO END,
+                            QTD_OPERACOES = a.QTD_OPERACOES + :quantidade,
+                            ATUALIZADO_EM = :atualizadoEm
+                        WHEN NOT MATCHED THEN
+                            INSERT (CLIENTE_ID, PESO_TOTAL, RETORNO_PONDERADO, MAX_NIVEL_RISCO, QTD_OPERACOES, ATUALIZADO_EM)
+                            VALUES (:clienteId, :pesoInicial, :retornoInicial, :nivelInicial, :quantidadeInicial, :atualizadoEm)
+                        OUTPUT inserted.PESO_TOTAL, inserted.RETORNO_PONDERADO,
+                               inserted.MAX_NIVEL_RISCO, inserted.QTD_OPERACOES;
+                        """)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(CustomerRiskAggregate.class)
+                .setParameter("clienteId", inicial.clienteId)
+                .setParameter("peso", peso)
+                .setParameter("retorno", retornoPonderado)
+                .setParameter("nivel", nivelRisco)
+                .setParameter("quantidade", quantidade)
+                .setParameter("pesoInicial", inicial.pesoTotal)
+                .setParameter("retornoInicial", inicial.retornoPonderado)
+                .setParameter("nivelInicial", inicial.maxNivelRisco)
+                .setParameter("quantidadeInicial", inicial.qtdOperacoes)
+                .setParameter("atualizadoEm", inicial.atualizadoEm)
+                .getResultList();
+
+        return lerAgregado(inicial.clienteId, linhas.get(0), inicial.atualizadoEm);
+    }
+
+    private static CustomerRiskAggregate lerAgregado(Long clienteId, Object[] linha, OffsetDateTime atualizadoEm) {
+        CustomerRiskAggregate agregado = new CustomerRiskAggregate();
+        agregado.clienteId = clienteId;
+        agregado.pesoTotal = ((Number) linha[0]).doubleValue();
+        agregado.retornoPonderado = ((Number) linha[1]).doubleValue();
+        agregado.maxNivelRisco = ((Number) linha[2]).intValue();
+        agregado.qtdOperacoes = ((Number) linha[3]).longValue();
+        agregado.atualizadoEm = atualizadoEm;
+        return agregado;
+    }
+
+    /**
+     * Lê o acumulado sem mantê-lo para dirty checking: a entidade não gera UPDATE em flush
+     * e a leitura não precisa de transação.
+     */
+    public CustomerRiskAggregate buscarSomenteLeitura(Long clienteId) {
+        return getEntityManager().find(CustomerRiskAggregate.class, clienteId,
+                Map.of(HibernateHints.HINT_READ_ONLY, true));
+    }
+}
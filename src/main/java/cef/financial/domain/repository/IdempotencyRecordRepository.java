@@ -0,0 +1,63 @@
+package cef.financial.domain.repository;
+
+import cef.financial.domain.model.IdempotencyRecord;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+
+import java.time.OffsetDateTime;
+
+@ApplicationScoped
+public class IdempotencyRecordRepository implements PanacheRepositoryBase<IdempotencyRecord, String> {
+
+    // outra instância pode ter reservado a mesma chave: só uma vence, sem erro de PK
+    private static final String SQL_RESERVAR = """
+            INSERT INTO HTE_IDEMPOTENCY_KEY (CHAVE, IMPRESSAO, RESPOSTA, EXPIRA_EM)
+            SELECT :chave, :impressao, NULL, :expiraEm
+            WHERE NOT EXISTS (
+                SELECT 1 FROM HTE_IDEMPOTENCY_KEY WITH (UPDLOCK, HOLDLOCK) WHERE CHAVE = :chave)
+            """;
+
+    public IdempotencyRecord buscarValida(String chave, OffsetDateTime agora) {
+        return find("chave = ?1 and expiraEm > ?2", chave, agora).firstResult();
+    }
+
+    /**
+     * Reserva a chave como em processamento, em transação própria para que as outras
+     * instâncias a vejam antes de a simulação começar. Reserva ou resposta já expirada
+     * da mesma chave é removida antes.
+     *
+     * @return {@code false} quando outra requisição já reservou ou concluiu a chave
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public boolean reservar(String chave, String impressao, OffsetDateTime agora, OffsetDateTime expiraEm) {
+        delete("chave = ?1 and expiraEm <= ?2", chave, agora);
+        return getEntityManager().createNativeQuery(SQL_RESERVAR)
+                .setParameter("chave", chave)
+                .setParameter("impressao", impressao)
+                .setParameter("expiraEm", expiraEm)
+                .executeUpdate() == 1;
+    }
+
+    /**
+     * Grava a resposta na reserva em transação própria: a simulação já foi confirmada e
+     * uma falha aqui não deve desfazê-la.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void concluir(String chave, String resposta, OffsetDateTime expiraEm) {
+        update("resposta = ?1, expiraEm = ?2 where chave = ?3", resposta, expiraEm, chave);
+    }
+
+    /**
+     * Remove a reserva de uma simulação que falhou, liberando a chave para nova tentativa.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void liberar(String chave) {
+        delete("chave = ?1 and resposta is null", chave);
+    }
+
+    @Transactional
+    public long removerExpiradas(OffsetDateTime agora) {
+        return delete("expiraEm <= ?1", agora);
+    }
+}
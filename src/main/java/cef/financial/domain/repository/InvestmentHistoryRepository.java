@@ -4,7 +4,22 @@ import cef.financial.domain.model.InvestmentHistory;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 
+import java.util.List;
+
 @ApplicationScoped
 public class InvestmentHistoryRepository implements PanacheRepository<InvestmentHistory> {
-    // se quiser, pode criar métodos específicos aqui depois
+
+    /**
+     * Só as colunas usadas na pontuação de risco, como linhas {valor, rentabilidade, tipo}.
+     * Projeção escalar: nenhuma entidade é montada nem fica no contexto de persistência.
+     */
+    public List<Object[]> colunasDeRisco(Long clienteId) {
+        return getEntityManager().createQuery("""
+                        SELECT h.valor, h.rentabilidade, h.tipo
+                        FROM InvestmentHistory h
+                        WHERE h.clienteId = :clienteId
+                        """, Object[].class)
+                .setParameter("clienteId", clienteId)
+                .getResultList();
+    }
 }
@@ -1,9 +1,145 @@
 package cef.financial.domain.repository;
 
+import cef.financial.domain.dto.InvestmentHistoryResponseDTO;
+import cef.financial.domain.dto.SimulationHistoryResponseDTO;
 import cef.financial.domain.model.InvestmentSimulation;
+import io.agroal.api.AgroalDataSource;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.TypedQuery;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
 
 @ApplicationScoped
 public class InvestmentSimulationRepository implements PanacheRepository<InvestmentSimulation> {
-}
\ No newline at end of file
+
+    private static final int FETCH_SIZE_STREAMING = 500;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    /**
+     * Página de simulações com id maior que {@code aposId}, em ordem de id.
+     * Projeta direto no DTO: não carrega entidades nem o produto associado.
+     */
+    public List<SimulationHistoryResponseDTO> listarPagina(long aposId, int limite) {
+        return getEntityManager().createQuery("""
+                        select new cef.financial.domain.dto.SimulationHistoryResponseDTO(
+                               s.id, s.clienteId, p.nome, s.valorInvestido, s.valorFinal, s.prazoMeses, s.dataSimulacao)
+                        from InvestmentSimulation s
+                        join s.produto p
+                        where s.id > :aposId
+                        order by s.id
+                        """, SimulationHistoryResponseDTO.class)
+                .setParameter("aposId", aposId)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+
+    /**
+     * Histórico de um cliente em ordem cronológica, paginado por keyset em (dataSimulacao, id).
+     * Todos os filtros caem no índice IX_HTE_INVESTMENT_SIMULATION_CLIENTE_DATA, então cada
+     * página é uma busca no índice seguida da leitura de no máximo {@code limite} linhas.
+     *
+     * @param inicio       inclusivo; {@code null} sem limite inferior
+     * @param fimExclusivo exclusivo; {@code null} sem limite superior
+     * @param aposData     data/hora da última simulação da página anterior ({@code null} na primeira página)
+     * @param aposId       id da última simulação da página anterior
+     */
+    public List<InvestmentHistoryResponseDTO> listarHistoricoCliente(Long clienteId,
+                                                                     OffsetDateTime inicio,
+                                                                     OffsetDateTime fimExclusivo,
+                                                                     OffsetDateTime aposData,
+                                                                     long aposId,
+                                                                     int limite) {
+        StringBuilder hql = new StringBuilder("""
+                select new cef.financial.domain.dto.InvestmentHistoryResponseDTO(
+                       s.id, p.tipo, s.valorInvestido, s.valorFinal, s.dataSimulacao)
+                from InvestmentSimulation s
+                join s.produto p
+                where s.clienteId = :clienteId
+                """);
+        if (inicio != null) {
+            hql.append(" and s.dataSimulacao >= :inicio");
+        }
+        if (fimExclusivo != null) {
+            hql.append(" and s.dataSimulacao < :fim");
+        }
+        if (aposData != null) {
+            hql.append(" and (s.dataSimulacao > :aposData or (s.dataSimulacao = :aposData and s.id > :aposId))");
+        }
+        hql.append(" order by s.dataSimulacao, s.id");
+
+        TypedQuery<InvestmentHistoryResponseDTO> query =
+                getEntityManager().createQuery(hql.toString(), InvestmentHistoryResponseDTO.class)
+                        .setParameter("clienteId", clienteId)
+                        .setMaxResults(limite);
+        if (inicio != null) {
+            query.setParameter("inicio", inicio);
+        }
+        if (fimExclusivo != null) {
+            query.setParameter("fim", fimExclusivo);
+        }
+        if (aposData != null) {
+            query.setParameter("aposData", aposData);
+            query.setParameter("aposId", aposId);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Percorre todas as simulações com id maior que {@code aposId} usando um cursor JDBC
+     * forward-only, entregando uma linha por vez. A memória usada não depende do tamanho da tabela.
+     */
+    public void percorrer(long aposId, Consumer<SimulationHistoryResponseDTO> consumidor) throws SQLException {
+        String sql = """
+                SELECT s.id, s.clienteId, p.nome, s.valorInvestido, s.valorFinal, s.prazoMeses, s.dataSimulacao
+                FROM HTE_INVESTMENT_SIMULATION s
+                JOIN HTE_INVESTMENT_PRODUCT p ON p.id = s.produto_id
+                WHERE s.id > ?
+                ORDER BY s.id
+                """;
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(FETCH_SIZE_STREAMING);
+            ps.setLong(1, aposId);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumidor.accept(new SimulationHistoryResponseDTO(
+                            rs.getLong(1),
+                            rs.getLong(2),
+                            rs.getString(3),
+                            rs.getDouble(4),
+                            rs.getDouble(5),
+                            rs.getInt(6),
+                            lerDataHora(rs, 7)
+                    ));
+                }
+            }
+        }
+    }
+
+    // a coluna pode ser DATETIME2 (criada pelo DatabaseInitializer) ou DATETIMEOFFSET (criada pelo Hibernate);
+    // no DATETIME2 o Hibernate grava a hora de UTC (quarkus.hibernate-orm.jdbc.timezone=UTC)
+    private static OffsetDateTime lerDataHora(ResultSet rs, int coluna) throws SQLException {
+        Object valor = rs.getObject(coluna);
+        if (valor == null) {
+            return null;
+        }
+        if (valor instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().atOffset(ZoneOffset.UTC);
+        }
+        return rs.getObject(coluna, OffsetDateTime.class);
+    }
+}
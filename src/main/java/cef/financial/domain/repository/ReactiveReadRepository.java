@@ -0,0 +1,157 @@
+package cef.financial.domain.repository;
+
+import cef.financial.domain.dto.CustomerResponseDTO;
+import cef.financial.domain.dto.InvestmentHistoryResponseDTO;
+import cef.financial.domain.dto.InvestmentProductResponseDTO;
+import cef.financial.domain.model.InvestmentProduct;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Consultas de leitura pelo cliente reativo do SQL Server (Vert.x), sem JDBC nem Hibernate.
+ * Rodam no event loop: a espera pelo banco não ocupa worker thread nem conexão do pool Agroal.
+ * Devolvem os mesmos DTOs das consultas equivalentes feitas pelo ORM.
+ */
+@ApplicationScoped
+public class ReactiveReadRepository {
+
+    private static final String SQL_PRODUTOS = """
+            SELECT id, nome, tipo, risco, rentabilidade_anual, liquidez_dias,
+                   prazo_min_meses, prazo_max_meses, PERFIL_RECOMENDADO
+            FROM HTE_INVESTMENT_PRODUCT
+            ORDER BY id
+            """;
+
+    private static final String SQL_PRODUTOS_POR_PERFIL = """
+            SELECT id, nome, tipo, risco, rentabilidade_anual
+            FROM HTE_INVESTMENT_PRODUCT
+            WHERE UPPER(PERFIL_RECOMENDADO) = @p1
+            """;
+
+    private static final String SQL_CLIENTES = """
+            SELECT id, PERFIL, CRIADO_EM
+            FROM HTE_CUSTOMER
+            """;
+
+    @Inject
+    Pool client;
+
+    public Uni<List<InvestmentProduct>> listarProdutos() {
+        return consultar(SQL_PRODUTOS, Tuple.tuple(), row -> {
+            InvestmentProduct p = new InvestmentProduct();
+            p.id = row.getLong("id");
+            p.nome = row.getString("nome");
+            p.tipo = row.getString("tipo");
+            p.risco = row.getString("risco");
+            p.rentabilidadeAnual = row.getDouble("rentabilidade_anual");
+            p.liquidezDias = row.getInteger("liquidez_dias");
+            p.prazoMinMeses = row.getInteger("prazo_min_meses");
+            p.prazoMaxMeses = row.getInteger("prazo_max_meses");
+            p.perfilRecomendado = row.getString("PERFIL_RECOMENDADO");
+            return p;
+        });
+    }
+
+    public Uni<List<InvestmentProductResponseDTO>> produtosPorPerfil(String perfil) {
+        if (perfil == null) {
+            return Uni.createFrom().item(List.of());
+        }
+        return consultar(SQL_PRODUTOS_POR_PERFIL, Tuple.of(perfil.trim().toUpperCase()), row -> {
+            InvestmentProductResponseDTO dto = new InvestmentProductResponseDTO();
+            dto.id = row.getLong("id");
+            dto.nome = row.getString("nome");
+            dto.tipo = row.getString("tipo");
+            dto.rentabilidade = row.getDouble("rentabilidade_anual");
+            dto.risco = row.getString("risco");
+            return dto;
+        });
+    }
+
+    public Uni<List<CustomerResponseDTO>> listarClientes() {
+        return consultar(SQL_CLIENTES, Tuple.tuple(), row -> new CustomerResponseDTO(
+                row.getLong("id"),
+                row.getString("PERFIL"),
+                lerDataHora(row, "CRIADO_EM")
+        ));
+    }
+
+    /**
+     * Mesma consulta de {@link InvestmentSimulationRepository#listarHistoricoCliente}: keyset em
+     * (dataSimulacao, id) sobre o índice IX_HTE_INVESTMENT_SIMULATION_CLIENTE_DATA.
+     */
+    public Uni<List<InvestmentHistoryResponseDTO>> listarHistoricoCliente(Long clienteId,
+                                                                          OffsetDateTime inicio,
+                                                                          OffsetDateTime fimExclusivo,
+                                                                          OffsetDateTime aposData,
+                                                                          long aposId,
+                                                                          int limite) {
+        Tuple parametros = Tuple.of(limite, clienteId);
+        StringBuilder sql = new StringBuilder("""
+                SELECT TOP (@p1) s.id, p.tipo, s.valorInvestido, s.valorFinal, s.dataSimulacao
+                FROM HTE_INVESTMENT_SIMULATION s
+                JOIN HTE_INVESTMENT_PRODUCT p ON p.id = s.produto_id
+                WHERE s.clienteId = @p2
+                """);
+        if (inicio != null) {
+            parametros.addValue(inicio);
+            sql.append(" AND s.dataSimulacao >= @p").append(parametros.size());
+        }
+        if (fimExclusivo != null) {
+            parametros.addValue(fimExclusivo);
+            sql.append(" AND s.dataSimulacao < @p").append(parametros.size());
+        }
+        if (aposData != null) {
+            parametros.addValue(aposData);
+            int data = parametros.size();
+            parametros.addValue(aposId);
+            sql.append(" AND (s.dataSimulacao > @p").append(data)
+                    .append(" OR (s.dataSimulacao = @p").append(data)
+                    .append(" AND s.id > @p").append(parametros.size()).append("))");
+        }
+        sql.append(" ORDER BY s.dataSimulacao, s.id");
+
+        return consultar(sql.toString(), parametros, row -> new InvestmentHistoryResponseDTO(
+                row.getLong("id"),
+                row.getString("tipo"),
+                row.getDouble("valorInvestido"),
+                row.getDouble("valorFinal"),
+                lerDataHora(row, "dataSimulacao")
+        ));
+    }
+
+    private <T> Uni<List<T>> consultar(String sql, Tuple parametros, Function<Row, T> mapeador) {
+        return client.preparedQuery(sql)
+                .execute(parametros)
+                .map(linhas -> mapear(linhas, mapeador));
+    }
+
+    private static <T> List<T> mapear(RowSet<Row> linhas, Function<Row, T> mapeador) {
+        List<T> resultado = new ArrayList<>(linhas.size());
+        for (Row row : linhas) {
+            resultado.add(mapeador.apply(row));
+        }
+        return resultado;
+    }
+
+    // a coluna pode ser DATETIME2 (criada pelo DatabaseInitializer) ou DATETIMEOFFSET (criada pelo Hibernate);
+    // no DATETIME2 o Hibernate grava a hora de UTC (quarkus.hibernate-orm.jdbc.timezone=UTC)
+    private static OffsetDateTime lerDataHora(Row row, String coluna) {
+        Object valor = row.getValue(coluna);
+        if (valor instanceof LocalDateTime local) {
+            return local.atOffset(ZoneOffset.UTC);
+        }
+        return (OffsetDateTime) valor;
+    }
+}
@@ -0,0 +1,38 @@
+package cef.financial.domain.repository;
+
+import cef.financial.domain.model.RiskRecalculationCheckpoint;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+@ApplicationScoped
+public class RiskRecalculationCheckpointRepository implements PanacheRepositoryBase<RiskRecalculationCheckpoint, String> {
+
+    /**
+     * Grava o progresso em transação própria: o job roda fora de qualquer requisição e cada
+     * checkpoint precisa estar confirmado antes do próximo bloco.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void salvar(String job,
+                       String status,
+                       long ultimoClienteId,
+                       long clientesProcessados,
+                       long perfisAlterados,
+                       OffsetDateTime iniciadoEm) {
+        RiskRecalculationCheckpoint checkpoint = findById(job);
+        if (checkpoint == null) {
+            checkpoint = new RiskRecalculationCheckpoint();
+            checkpoint.job = job;
+            persist(checkpoint);
+        }
+        checkpoint.status = status;
+        checkpoint.ultimoClienteId = ultimoClienteId;
+        checkpoint.clientesProcessados = clientesProcessados;
+        checkpoint.perfisAlterados = perfisAlterados;
+        checkpoint.iniciadoEm = iniciadoEm;
+        checkpoint.atualizadoEm = OffsetDateTime.now(ZoneOffset.UTC);
+    }
+}
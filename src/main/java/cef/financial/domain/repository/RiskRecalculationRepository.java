@@ -0,0 +1,152 @@
+package cef.financial.domain.repository;
+
+import cef.financial.domain.model.Customer;
+import cef.financial.domain.model.CustomerRiskAggregate;
+import io.agroal.api.AgroalDataSource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Acesso JDBC do recálculo em massa dos perfis de risco: leitura do histórico inteiro num
+ * único cursor e gravação dos acumulados e perfis em JDBC batch, sem entidades nem contexto
+ * de persistência.
+ */
+@ApplicationScoped
+public class RiskRecalculationRepository {
+
+    private static final int FETCH_SIZE_STREAMING = 5000;
+
+    // só grava quando o perfil muda; o contador de linhas afetadas vira "perfis alterados"
+    private static final String SQL_ATUALIZAR_PERFIL = """
+            UPDATE HTE_CUSTOMER
+            SET PERFIL = ?
+            WHERE id = ? AND (PERFIL IS NULL OR PERFIL <> ?)
+            """;
+
+    // o acumulado montado do histórico inteiro substitui o gravado. Se o gravado já tem mais
+    // operações, uma simulação entrou depois que o cursor passou pelo cliente: ele é mantido
+    private static final String SQL_GRAVAR_AGREGADO = """
+            MERGE HTE_CUSTOMER_RISK_AGGREGATE WITH (HOLDLOCK) AS a
+            USING (SELECT ? AS CLIENTE_ID, ? AS PESO_TOTAL, ? AS RETORNO_PONDERADO,
+                          ? AS MAX_NIVEL_RISCO, ? AS QTD_OPERACOES, ? AS ATUALIZADO_EM) AS r
+               ON a.CLIENTE_ID = r.CLIENTE_ID
+            WHEN MATCHED AND a.QTD_OPERACOES <= r.QTD_OPERACOES THEN UPDATE SET
+                PESO_TOTAL = r.PESO_TOTAL,
+                RETORNO_PONDERADO = r.RETORNO_PONDERADO,
+                MAX_NIVEL_RISCO = r.MAX_NIVEL_RISCO,
+                QTD_OPERACOES = r.QTD_OPERACOES,
+                ATUALIZADO_EM = r.ATUALIZADO_EM
+            WHEN NOT MATCHED THEN
+                INSERT (CLIENTE_ID, PESO_TOTAL, RETORNO_PONDERADO, MAX_NIVEL_RISCO, QTD_OPERACOES, ATUALIZADO_EM)
+                VALUES (r.CLIENTE_ID, r.PESO_TOTAL, r.RETORNO_PONDERADO, r.MAX_NIVEL_RISCO,
+                        r.QTD_OPERACOES, r.ATUALIZADO_EM);
+            """;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @Inject
+    EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Recebe uma operação do histórico por vez, já em tipos primitivos.
+     */
+    @FunctionalInterface
+    public interface LeitorOperacao {
+
+        /**
+         * @return {@code false} para interromper a leitura
+         */
+        boolean aceitar(long clienteId, double valor, double rentabilidade, String tipo);
+    }
+
+    /**
+     * Percorre HTE_INVESTMENT_HISTORY em ordem de CLIENTE_ID, a partir do cliente seguinte a
+     * {@code aposClienteId}, com um cursor forward-only. As operações de um mesmo cliente chegam
+     * juntas; o índice IX_HTE_INVESTMENT_HISTORY_CLIENTE cobre a consulta, sem ordenação no banco.
+     */
+    public void percorrerHistorico(long aposClienteId, LeitorOperacao leitor) throws SQLException {
+        String sql = """
+                SELECT CLIENTE_ID, VALOR, RENTABILIDADE, TIPO
+                FROM HTE_INVESTMENT_HISTORY
+                WHERE CLIENTE_ID > ?
+                ORDER BY CLIENTE_ID
+                """;
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(FETCH_SIZE_STREAMING);
+            ps.setLong(1, aposClienteId);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (!leitor.aceitar(rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getString(4))) {
+                        ps.cancel();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Grava o acumulado de risco e o perfil das {@code quantidade} primeiras posições, cada um
+     * num JDBC batch, numa única transação, e retira esses clientes do cache L2 de Customer
+     * (os comandos não passam pelo Hibernate; o acumulado não fica em cache). Gravar o acumulado junto impede que a leitura seguinte do
+     * perfil (GET /perfil-risco), que pontua o acumulado, volte ao perfil anterior ao recálculo.
+     *
+     * @return quantos clientes tiveram o perfil alterado
+     */
+    public int gravarBloco(long[] clienteIds,
+                           CustomerRiskAggregate[] agregados,
+                           String[] perfis,
+                           int quantidade) throws SQLException {
+        OffsetDateTime agora = OffsetDateTime.now(ZoneOffset.UTC);
+        int alterados = 0;
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement agregado = conn.prepareStatement(SQL_GRAVAR_AGREGADO);
+                 PreparedStatement ps = conn.prepareStatement(SQL_ATUALIZAR_PERFIL)) {
+                for (int i = 0; i < quantidade; i++) {
+                    agregado.setLong(1, clienteIds[i]);
+                    agregado.setDouble(2, agregados[i].pesoTotal);
+                    agregado.setDouble(3, agregados[i].retornoPonderado);
+                    agregado.setInt(4, agregados[i].maxNivelRisco);
+                    agregado.setLong(5, agregados[i].qtdOperacoes);
+                    agregado.setObject(6, agora);
+                    agregado.addBatch();
+                }
+                agregado.executeBatch();
+
+                for (int i = 0; i < quantidade; i++) {
+                    ps.setString(1, perfis[i]);
+                    ps.setLong(2, clienteIds[i]);
+                    ps.setString(3, perfis[i]);
+                    ps.addBatch();
+                }
+                for (int linhas : ps.executeBatch()) {
+                    alterados += Math.max(0, linhas);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        Cache cache = entityManagerFactory.getCache();
+        for (int i = 0; i < quantidade; i++) {
+            cache.evict(Customer.class, clienteIds[i]);
+        }
+        return alterados;
+    }
+}
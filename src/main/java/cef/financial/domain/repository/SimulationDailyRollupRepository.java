@@ -0,0 +1,130 @@
+package cef.financial.domain.repository;
+
+import cef.financial.domain.dto.SimulationByProductDayResponseDTO;
+import cef.financial.domain.model.SimulationDailyRollup;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@ApplicationScoped
+public class SimulationDailyRollupRepository
+        implements PanacheRepositoryBase<SimulationDailyRollup, SimulationDailyRollup.Chave> {
+
+    // HOLDLOCK: duas simulações do mesmo produto/dia não disputam o INSERT da linha nova
+    private static final String SQL_REGISTRAR = """
+            MERGE HTE_SIMULATION_ROLLUP_DIA WITH (HOLDLOCK) AS r
+            USING (SELECT :produtoId AS PRODUTO_ID, :dia AS DIA) AS k
+               ON r.PRODUTO_ID = k.PRODUTO_ID AND r.DIA = k.DIA
+            WHEN MATCHED THEN UPDATE SET
+                QUANTIDADE = r.QUANTIDADE + :quantidade,
+                SOMA_VALOR_FINAL = r.SOMA_VALOR_FINAL + :somaValorFinal,
+                SOMA_VALOR_INVESTIDO = r.SOMA_VALOR_INVESTIDO + :somaValorInvestido,
+                MIN_VALOR_FINAL = CASE WHEN :minValorFinal < r.MIN_VALOR_FINAL THEN :minValorFinal ELSE r.MIN_VALOR_FINAL END,
+                MAX_VALOR_FINAL = CASE WHEN :maxValorFinal > r.MAX_VALOR_FINAL THEN :maxValorFinal ELSE r.MAX_VALOR_FINAL END
+            WHEN NOT MATCHED THEN
+                INSERT (PRODUTO_ID, DIA, QUANTIDADE, SOMA_VALOR_FINAL, SOMA_VALOR_INVESTIDO, MIN_VALOR_FINAL, MAX_VALOR_FINAL)
+                VALUES (:produtoId, :dia, :quantidade, :somaValorFinal, :somaValorInvestido, :minValorFinal, :maxValorFinal);
+            """;
+
+    private static final String SQL_RECONSTRUIR = """
+            INSERT INTO HTE_SIMULATION_ROLLUP_DIA
+                (PRODUTO_ID, DIA, QUANTIDADE, SOMA_VALOR_FINAL, SOMA_VALOR_INVESTIDO, MIN_VALOR_FINAL, MAX_VALOR_FINAL)
+            SELECT produto_id, CAST(dataSimulacao AS DATE), COUNT_BIG(*),
+                   SUM(valorFinal), SUM(valorInvestido), MIN(valorFinal), MAX(valorFinal)
+            FROM HTE_INVESTMENT_SIMULATION
+            GROUP BY produto_id, CAST(dataSimulacao AS DATE)
+            """;
+
+    /**
+     * Soma as simulações de um produto/dia ao agregado, criando a linha se necessário.
+     * O lock da linha vale até o commit: chamar como último comando da transação que
+     * persiste as simulações, depois do flush das demais entidades.
+     */
+    public void registrar(SimulationDailyRollup incremento) {
+        nativa(SQL_REGISTRAR)
+                .setParameter("produtoId", incremento.id.produtoId)
+                .setParameter("dia", incremento.id.dia)
+                .setParameter("quantidade", incremento.quantidade)
+                .setParameter("somaValorFinal", incremento.somaValorFinal)
+                .setParameter("somaValorInvestido", incremento.somaValorInvestido)
+                .setParameter("minValorFinal", incremento.minValorFinal)
+                .setParameter("maxValorFinal", incremento.maxValorFinal)
+                .executeUpdate();
+    }
+
+    /**
+     * Soma uma única simulação ao agregado do produto/dia (carga inicial).
+     */
+    public void registrar(Long produtoId, LocalDate dia, double valorInvestido, double valorFinal) {
+        SimulationDailyRollup incremento = new SimulationDailyRollup();
+        incremento.id = new SimulationDailyRollup.Chave(produtoId, dia);
+        incremento.quantidade = 1;
+        incremento.somaValorFinal = valorFinal;
+        incremento.somaValorInvestido = valorInvestido;
+        incremento.minValorFinal = valorFinal;
+        incremento.maxValorFinal = valorFinal;
+        registrar(incremento);
+    }
+
+    /**
+     * Gera os agregados a partir das simulações existentes quando a tabela ainda está vazia.
+     *
+     * @return quantidade de linhas criadas
+     */
+    public int reconstruirSeVazio() {
+        if (count() > 0) {
+            return 0;
+        }
+        return getEntityManager().createNativeQuery(SQL_RECONSTRUIR).executeUpdate();
+    }
+
+    /**
+     * Leitura por faixa de dia no índice da chave; filtros nulos são ignorados.
+     */
+    public List<SimulationByProductDayResponseDTO> consultar(LocalDate inicio, LocalDate fim, Long produtoId) {
+        StringBuilder hql = new StringBuilder("""
+                select new cef.financial.domain.dto.SimulationByProductDayResponseDTO(
+                       r.id.produtoId, p.nome, r.id.dia, r.quantidade,
+                       r.somaValorFinal / r.quantidade, r.somaValorInvestido / r.quantidade,
+                       r.minValorFinal, r.maxValorFinal)
+                from SimulationDailyRollup r
+                join InvestmentProduct p on p.id = r.id.produtoId
+                where 1 = 1
+                """);
+        if (inicio != null) {
+            hql.append(" and r.id.dia >= :inicio");
+        }
+        if (fim != null) {
+            hql.append(" and r.id.dia <= :fim");
+        }
+        if (produtoId != null) {
+            hql.append(" and r.id.produtoId = :produtoId");
+        }
+        hql.append(" order by r.id.dia desc, p.nome");
+
+        TypedQuery<SimulationByProductDayResponseDTO> query =
+                getEntityManager().createQuery(hql.toString(), SimulationByProductDayResponseDTO.class);
+        if (inicio != null) {
+            query.setParameter("inicio", inicio);
+        }
+        if (fim != null) {
+            query.setParameter("fim", fim);
+        }
+        if (produtoId != null) {
+            query.setParameter("produtoId", produtoId);
+        }
+        return query.getResultList();
+    }
+
+    // só sincroniza (flush) as alterações pendentes deste agregado, preservando o JDBC batch das demais entidades
+    @SuppressWarnings("unchecked")
+    private NativeQuery<?> nativa(String sql) {
+        return getEntityManager().createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(SimulationDailyRollup.class);
+    }
+}
@@ -0,0 +1,93 @@
+package cef.financial.domain.repository;
+
+import cef.financial.domain.model.TelemetryDailyRollup;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@ApplicationScoped
+public class TelemetryDailyRollupRepository
+        implements PanacheRepositoryBase<TelemetryDailyRollup, TelemetryDailyRollup.Chave> {
+
+    // HOLDLOCK: dois gravadores (agendado x encerramento, ou duas instâncias) não disputam
+    // o INSERT da linha nova do serviço/dia
+    private static final String SQL_ACUMULAR = """
+            MERGE HTE_TELEMETRY_ROLLUP_DIA WITH (HOLDLOCK) AS r
+            USING (SELECT :serviceName AS SERVICE_NAME, :dia AS DIA) AS k
+               ON r.SERVICE_NAME = k.SERVICE_NAME AND r.DIA = k.DIA
+            WHEN MATCHED THEN UPDATE SET
+                QUANTIDADE = r.QUANTIDADE + :quantidade,
+                SOMA_MS = r.SOMA_MS + :somaMs,
+                MIN_MS = CASE WHEN :minMs < r.MIN_MS THEN :minMs ELSE r.MIN_MS END,
+                MAX_MS = CASE WHEN :maxMs > r.MAX_MS THEN :maxMs ELSE r.MAX_MS END,
+                ATUALIZADO_EM = :atualizadoEm
+            WHEN NOT MATCHED THEN
+                INSERT (SERVICE_NAME, DIA, QUANTIDADE, SOMA_MS, MIN_MS, MAX_MS, HISTOGRAMA, ATUALIZADO_EM)
+                VALUES (:serviceName, :dia, :quantidade, :somaMs, :minMs, :maxMs, :histograma, :atualizadoEm)
+            OUTPUT $action, deleted.HISTOGRAMA;
+            """;
+
+    /**
+     * Resultado de {@link #acumular}: se a linha foi criada agora (já com o histograma do
+     * incremento) e, quando já existia, o histograma que ela tinha antes do incremento.
+     */
+    public record Acumulo(boolean criado, byte[] histogramaAnterior) {
+    }
+
+    /**
+     * Soma o incremento ao agregado do serviço/dia num único MERGE, criando a linha se
+     * necessário. Contadores e mínimo/máximo são somados no banco; o histograma serializado
+     * não, e quando a linha já existia deve ser mesclado e gravado com
+     * {@link #gravarHistograma}. O lock da linha vale até o commit, então a mescla não perde
+     * o histograma de outro gravador.
+     */
+    @SuppressWarnings("unchecked")
+    public Acumulo acumular(TelemetryDailyRollup incremento) {
+        List<Object[]> linhas = (List<Object[]>) nativa(SQL_ACUMULAR)
+                .setParameter("serviceName", incremento.id.serviceName)
+                .setParameter("dia", incremento.id.dia)
+                .setParameter("quantidade", incremento.quantidade)
+                .setParameter("somaMs", incremento.somaMs)
+                .setParameter("minMs", incremento.minMs)
+                .setParameter("maxMs", incremento.maxMs)
+                .setParameter("histograma", incremento.histograma)
+                .setParameter("atualizadoEm", incremento.atualizadoEm)
+                .getResultList();
+
+        Object[] linha = linhas.get(0);
+        return new Acumulo("INSERT".equals(linha[0]), (byte[]) linha[1]);
+    }
+
+    /**
+     * Substitui o histograma do serviço/dia. Chamar na mesma transação de {@link #acumular}.
+     */
+    public void gravarHistograma(TelemetryDailyRollup.Chave chave, byte[] histograma) {
+        nativa("""
+                        UPDATE HTE_TELEMETRY_ROLLUP_DIA
+                        SET HISTOGRAMA = :histograma
+                        WHERE SERVICE_NAME = :serviceName AND DIA = :dia
+                        """)
+                .setParameter("histograma", histograma)
+                .setParameter("serviceName", chave.serviceName)
+                .setParameter("dia", chave.dia)
+                .executeUpdate();
+    }
+
+    /**
+     * Agregados diários no intervalo [inicio, fim], ambos inclusivos.
+     */
+    public List<TelemetryDailyRollup> findByPeriodo(LocalDate inicio, LocalDate fim) {
+        return list("id.dia >= ?1 and id.dia <= ?2", inicio, fim);
+    }
+
+    // só sincroniza (flush) as alterações pendentes deste agregado, preservando o JDBC batch dos eventos
+    @SuppressWarnings("unchecked")
+    private NativeQuery<?> nativa(String sql) {
+        return getEntityManager().createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(TelemetryDailyRollup.class);
+    }
+}
@@ -0,0 +1,74 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.dto.CacheStatisticsResponseDTO;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Expõe as estatísticas do Hibernate sobre o cache de segundo nível (entidades e consultas)
+ * e a quantidade de idas ao banco, para conferir o efeito do cache por simulação.
+ */
+@ApplicationScoped
+public class CacheStatisticsService {
+
+    private static final Logger LOG = Logger.getLogger(CacheStatisticsService.class);
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    public CacheStatisticsService() {}
+
+    // construtor para testes
+    public CacheStatisticsService(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public CacheStatisticsResponseDTO estatisticas() {
+        Statistics stats = sessionFactory.getStatistics();
+
+        CacheStatisticsResponseDTO response = new CacheStatisticsResponseDTO();
+        response.estatisticasHabilitadas = stats.isStatisticsEnabled();
+        response.sentencasPreparadas = stats.getPrepareStatementCount();
+        response.entidadesCarregadas = stats.getEntityLoadCount();
+        response.consultasExecutadas = stats.getQueryExecutionCount();
+        response.cacheConsultasHits = stats.getQueryCacheHitCount();
+        response.cacheConsultasMisses = stats.getQueryCacheMissCount();
+
+        List<CacheStatisticsResponseDTO.RegiaoCache> regioes = new ArrayList<>();
+        String[] nomes = stats.getSecondLevelCacheRegionNames();
+        Arrays.sort(nomes);
+        for (String nome : nomes) {
+            CacheRegionStatistics regiao = stats.getCacheRegionStatistics(nome);
+            if (regiao == null) {
+                continue;
+            }
+            CacheStatisticsResponseDTO.RegiaoCache r = new CacheStatisticsResponseDTO.RegiaoCache();
+            r.nome = nome;
+            r.hits = regiao.getHitCount();
+            r.misses = regiao.getMissCount();
+            r.puts = regiao.getPutCount();
+            r.elementosEmMemoria = regiao.getElementCountInMemory();
+            long acessos = r.hits + r.misses;
+            r.taxaAcerto = acessos > 0 ? (double) r.hits / acessos : null;
+            regioes.add(r);
+        }
+        response.regioes = regioes;
+        return response;
+    }
+
+    /**
+     * Zera os contadores (não esvazia o cache): permite medir um intervalo isolado.
+     */
+    public void zerar() {
+        sessionFactory.getStatistics().clear();
+        LOG.info("Estatísticas do Hibernate zeradas.");
+    }
+}
@@ -0,0 +1,296 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.dto.InvestmentSimulationRequestDTO;
+import cef.financial.domain.dto.InvestmentSimulationResponseDTO;
+import cef.financial.domain.model.IdempotencyRecord;
+import cef.financial.domain.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Idempotência de POST /simular-investimento pelo cabeçalho Idempotency-Key.
+ *
+ * A primeira requisição com uma chave executa a simulação e guarda a resposta; as
+ * repetições (retentativas do app após timeout) recebem a mesma resposta sem gravar
+ * outra simulação nem recalcular o perfil. As respostas ficam num mapa em memória
+ * limitado a {@code simulacao.idempotencia.max-chaves} (descarta as mais antigas já
+ * concluídas) e expiram após {@code simulacao.idempotencia.ttl}. Com
+ * {@code simulacao.idempotencia.persistir} a chave é reservada em HTE_IDEMPOTENCY_KEY antes
+ * de simular e recebe a resposta ao final, valendo entre instâncias e reinícios.
+ */
+@ApplicationScoped
+public class IdempotencyService {
+
+    private static final Logger LOG = Logger.getLogger(IdempotencyService.class);
+    private static final int STATUS_UNPROCESSABLE_ENTITY = 422;
+
+    public static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+    @Inject
+    IdempotencyRecordRepository repository;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "simulacao.idempotencia.ttl", defaultValue = "PT24H")
+    Duration ttl;
+
+    @ConfigProperty(name = "simulacao.idempotencia.max-chaves", defaultValue = "100000")
+    int maxChaves;
+
+    @ConfigProperty(name = "simulacao.idempotencia.persistir", defaultValue = "false")
+    boolean persistir;
+
+    @ConfigProperty(name = "simulacao.idempotencia.ttl-reserva", defaultValue = "PT1M")
+    Duration ttlReserva;
+
+    // ordem de inserção: ao passar do limite sai a chave concluída mais antiga. Chave em
+    // processamento nunca sai, senão a repetição dela executaria a simulação de novo.
+    private final Map<String, Entrada> entradas = new LinkedHashMap<>(1024, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entrada> maisAntiga) {
+            if (size() <= maxChaves) {
+                return false;
+            }
+            Iterator<Entrada> it = values().iterator();
+            while (it.hasNext()) {
+                if (it.next().resposta() != null) {
+                    it.remove();
+                    break;
+                }
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Resposta de uma chave. {@code resposta} nula indica simulação ainda em processamento.
+     */
+    record Entrada(String impressao, InvestmentSimulationResponseDTO resposta, Instant expiraEm) {
+
+        boolean expirada(Instant agora) {
+            return !expiraEm.isAfter(agora);
+        }
+    }
+
+    /**
+     * @param repetida {@code true} quando a resposta veio de uma execução anterior com a mesma chave
+     */
+    public record Resultado(InvestmentSimulationResponseDTO resposta, boolean repetida) {
+    }
+
+    public IdempotencyService() {
+    }
+
+    // construtor para testes
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              ObjectMapper objectMapper,
+                              Duration ttl,
+                              int maxChaves,
+                              boolean persistir) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.maxChaves = maxChaves;
+        this.persistir = persistir;
+        this.ttlReserva = Duration.ofMinutes(1);
+    }
+
+    /**
+     * Executa {@code simulacao} uma única vez por chave. Repetições com a mesma requisição
+     * recebem a resposta guardada; com outra requisição, 422; enquanto a primeira ainda
+     * está em andamento, 409. Se a simulação falhar a chave é liberada para nova tentativa.
+     */
+    public Resultado executar(String chave,
+                              InvestmentSimulationRequestDTO request,
+                              Supplier<InvestmentSimulationResponseDTO> simulacao) {
+        validarChave(chave);
+        String impressao = impressao(request);
+        Instant agora = Instant.now();
+
+        Entrada existente;
+        synchronized (entradas) {
+            existente = entradas.get(chave);
+            if (existente != null && existente.expirada(agora)) {
+                entradas.remove(chave);
+                existente = null;
+            }
+            if (existente == null) {
+                entradas.put(chave, new Entrada(impressao, null, agora.plus(ttl)));
+            }
+        }
+        if (existente != null) {
+            return repetir(existente, impressao);
+        }
+
+        boolean reservadaNoBanco = false;
+        try {
+            if (persistir) {
+                // reserva antes de simular: entre instâncias, só quem insere a chave executa
+                reservadaNoBanco = repository.reservar(chave, impressao,
+                        agora.atOffset(ZoneOffset.UTC), agora.plus(ttlReserva).atOffset(ZoneOffset.UTC));
+                if (!reservadaNoBanco) {
+                    return repetirGravada(chave, impressao, agora);
+                }
+            }
+
+            InvestmentSimulationResponseDTO resposta = simulacao.get();
+            Entrada concluida = new Entrada(impressao, resposta, agora.plus(ttl));
+            if (persistir) {
+                concluir(chave, concluida);
+            }
+            publicar(chave, concluida);
+            return new Resultado(resposta, false);
+
+        } catch (RuntimeException e) {
+            liberarSeEmProcessamento(chave);
+            if (reservadaNoBanco) {
+                liberarNoBanco(chave);
+            }
+            throw e;
+        }
+    }
+
+    @Scheduled(every = "${simulacao.idempotencia.intervalo-limpeza:10m}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void limparExpiradas() {
+        Instant agora = Instant.now();
+        int removidas;
+        synchronized (entradas) {
+            int antes = entradas.size();
+            entradas.values().removeIf(e -> e.expirada(agora));
+            removidas = antes - entradas.size();
+        }
+        long removidasBanco = persistir ? repository.removerExpiradas(agora.atOffset(ZoneOffset.UTC)) : 0;
+        LOG.debugf("Chaves de idempotência expiradas removidas: memoria=%d, banco=%d", removidas, removidasBanco);
+    }
+
+    int tamanho() {
+        synchronized (entradas) {
+            return entradas.size();
+        }
+    }
+
+    // ================= Internos =================
+
+    private Resultado repetir(Entrada entrada, String impressao) {
+        if (!entrada.impressao().equals(impressao)) {
+            throw new WebApplicationException(
+                    "Idempotency-Key já utilizada com outra requisição de simulação.",
+                    STATUS_UNPROCESSABLE_ENTITY
+            );
+        }
+        if (entrada.resposta() == null) {
+            throw new WebApplicationException(
+                    "Simulação com esta Idempotency-Key ainda em processamento.",
+                    Response.Status.CONFLICT
+            );
+        }
+        return new Resultado(entrada.resposta(), true);
+    }
+
+    // a chave já estava reservada no banco: concluída por outra requisição ou ainda em processamento
+    private Resultado repetirGravada(String chave, String impressao, Instant agora) {
+        Entrada gravada = buscarGravada(chave, agora);
+        if (gravada == null) {
+            // reserva liberada ou expirada entre o INSERT e a leitura: o cliente tenta de novo
+            gravada = new Entrada(impressao, null, agora);
+        }
+        if (gravada.resposta() != null) {
+            publicar(chave, gravada);
+        }
+        return repetir(gravada, impressao);
+    }
+
+    private void publicar(String chave, Entrada entrada) {
+        synchronized (entradas) {
+            entradas.put(chave, entrada);
+        }
+    }
+
+    private void liberarSeEmProcessamento(String chave) {
+        synchronized (entradas) {
+            Entrada atual = entradas.get(chave);
+            if (atual != null && atual.resposta() == null) {
+                entradas.remove(chave);
+            }
+        }
+    }
+
+    private Entrada buscarGravada(String chave, Instant agora) {
+        IdempotencyRecord gravado = repository.buscarValida(chave, agora.atOffset(ZoneOffset.UTC));
+        if (gravado == null) {
+            return null;
+        }
+        if (gravado.resposta == null) {
+            return new Entrada(gravado.impressao, null, gravado.expiraEm.toInstant());
+        }
+        try {
+            return new Entrada(
+                    gravado.impressao,
+                    objectMapper.readValue(gravado.resposta, InvestmentSimulationResponseDTO.class),
+                    gravado.expiraEm.toInstant()
+            );
+        } catch (JsonProcessingException e) {
+            LOG.warnf(e, "Resposta gravada ilegível para a Idempotency-Key %s; ignorando registro.", chave);
+            return null;
+        }
+    }
+
+    // a simulação já foi confirmada: falha ao gravar a resposta só reduz a proteção a esta
+    // instância; nas outras a chave segue reservada até expirar a reserva (409 até lá)
+    private void concluir(String chave, Entrada entrada) {
+        try {
+            repository.concluir(
+                    chave,
+                    objectMapper.writeValueAsString(entrada.resposta()),
+                    OffsetDateTime.ofInstant(entrada.expiraEm(), ZoneOffset.UTC)
+            );
+        } catch (JsonProcessingException | RuntimeException e) {
+            LOG.warnf(e, "Não foi possível gravar a resposta da Idempotency-Key %s no banco.", chave);
+        }
+    }
+
+    // se falhar, a reserva expira sozinha após simulacao.idempotencia.ttl-reserva
+    private void liberarNoBanco(String chave) {
+        try {
+            repository.liberar(chave);
+        } catch (RuntimeException e) {
+            LOG.warnf(e, "Não foi possível liberar a reserva da Idempotency-Key %s no banco.", chave);
+        }
+    }
+
+    private static void validarChave(String chave) {
+        if (chave == null || chave.isBlank() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            throw new WebApplicationException(
+                    "Idempotency-Key deve ter entre 1 e " + TAMANHO_MAXIMO_CHAVE + " caracteres.",
+                    Response.Status.BAD_REQUEST
+            );
+        }
+    }
+
+    // campos que definem a simulação; inclui o cliente, então a chave de um cliente não devolve dados de outro
+    static String impressao(InvestmentSimulationRequestDTO request) {
+        if (request == null) {
+            return "";
+        }
+        return request.clienteId + "|" + request.produtoId + "|" + request.valor + "|"
+                + request.prazoMeses + "|" + (request.tipoProduto != null ? request.tipoProduto : "");
+    }
+}
@@ -0,0 +1,258 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.dto.InvestmentSimulationBatchResponseDTO;
+import cef.financial.domain.dto.InvestmentSimulationBatchResponseDTO.ItemResultado;
+import cef.financial.domain.dto.InvestmentSimulationRequestDTO;
+import cef.financial.domain.model.Customer;
+import cef.financial.domain.model.CustomerRiskAggregate;
+import cef.financial.domain.model.InvestmentHistory;
+import cef.financial.domain.model.InvestmentProduct;
+import cef.financial.domain.repository.CustomerRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Processa simulações em lote (campanhas noturnas).
+ *
+ * Em vez de uma transação por simulação, os itens são divididos em blocos:
+ * cada bloco resolve os clientes com uma única consulta, usa o catálogo em memória
+ * para os produtos, calcula todas as projeções e grava simulações/histórico num
+ * único flush (inserts agrupados via JDBC batch). As operações de cada cliente são
+ * somadas em memória e gravadas no acumulado de risco num único UPDATE por cliente,
+ * e o perfil é pontuado a partir do acumulado devolvido, sem reler o histórico.
+ */
+@ApplicationScoped
+public class InvestmentSimulationBatchService {
+
+    private static final Logger LOG = Logger.getLogger(InvestmentSimulationBatchService.class);
+
+    @Inject
+    InvestmentSimulationService simulationService;
+
+    @Inject
+    CustomerRepository customerRepository;
+
+    @Inject
+    RiskProfileService riskProfileService;
+
+    @Inject
+    ProductCatalogService productCatalog;
+
+    @ConfigProperty(name = "simulacao.lote.max-itens", defaultValue = "10000")
+    int maxItens;
+
+    @ConfigProperty(name = "simulacao.lote.itens-por-transacao", defaultValue = "500")
+    int itensPorTransacao;
+
+    public InvestmentSimulationBatchService() {
+    }
+
+    // construtor para testes
+    public InvestmentSimulationBatchService(InvestmentSimulationService simulationService,
+                                            CustomerRepository customerRepository,
+                                            RiskProfileService riskProfileService,
+                                            ProductCatalogService productCatalog,
+                                            int maxItens,
+                                            int itensPorTransacao) {
+        this.simulationService = simulationService;
+        this.customerRepository = customerRepository;
+        this.riskProfileService = riskProfileService;
+        this.productCatalog = productCatalog;
+        this.maxItens = maxItens;
+        this.itensPorTransacao = itensPorTransacao;
+    }
+
+    public InvestmentSimulationBatchResponseDTO simularLote(List<InvestmentSimulationRequestDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new WebApplicationException(
+                    "O lote de simulações não pode ser vazio.",
+                    Response.Status.BAD_REQUEST
+            );
+        }
+
+        if (requests.size() > maxItens) {
+            throw new WebApplicationException(
+                    String.format("O lote excede o limite de %d simulações (recebidas: %d).",
+                            maxItens, requests.size()),
+                    Response.Status.BAD_REQUEST
+            );
+        }
+
+        ProductCatalogSnapshot catalogo = productCatalog.snapshot();
+        ItemResultado[] resultados = new ItemResultado[requests.size()];
+        int tamanhoBloco = Math.max(1, itensPorTransacao);
+
+        for (int inicio = 0; inicio < requests.size(); inicio += tamanhoBloco) {
+            int fim = Math.min(inicio + tamanhoBloco, requests.size());
+            processarBlocoComTransacao(requests, inicio, fim, catalogo, resultados);
+        }
+
+        InvestmentSimulationBatchResponseDTO response =
+                new InvestmentSimulationBatchResponseDTO(Arrays.asList(resultados));
+
+        LOG.infof("Lote de simulações processado: total=%d, sucessos=%d, falhas=%d, catalogo=v%d",
+                response.total, response.sucessos, response.falhas, catalogo.versao());
+        return response;
+    }
+
+    private void processarBlocoComTransacao(List<InvestmentSimulationRequestDTO> requests,
+                                            int inicio,
+                                            int fim,
+                                            ProductCatalogSnapshot catalogo,
+                                            ItemResultado[] resultados) {
+        try {
+            executarEmTransacao(() -> processarBloco(requests, inicio, fim, catalogo, resultados));
+        } catch (Exception e) {
+            LOG.errorf(e, "Falha ao gravar o bloco [%d, %d) do lote de simulações", inicio, fim);
+
+            // o rollback desfaz todo o bloco: quem tinha sido calculado com sucesso vira erro
+            for (int i = inicio; i < fim; i++) {
+                if (resultados[i] == null || resultados[i].erro == null) {
+                    resultados[i] = ItemResultado.falha(i,
+                            Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                            "Erro interno ao persistir a simulação de investimento.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Cada bloco em transação própria: a falha de um bloco não desfaz os anteriores.
+     * Protegido para que os testes executem o bloco sem gerenciador de transações.
+     */
+    protected void executarEmTransacao(Runnable bloco) {
+        QuarkusTransaction.requiringNew().run(bloco);
+    }
+
+    private void processarBloco(List<InvestmentSimulationRequestDTO> requests,
+                                int inicio,
+                                int fim,
+                                ProductCatalogSnapshot catalogo,
+                                ItemResultado[] resultados) {
+
+        // 1) validação de todos os itens do bloco
+        Set<Long> clienteIds = new LinkedHashSet<>();
+        for (int i = inicio; i < fim; i++) {
+            InvestmentSimulationRequestDTO request = requests.get(i);
+            try {
+                validarItem(request);
+                clienteIds.add(request.clienteId);
+            } catch (WebApplicationException e) {
+                resultados[i] = falha(i, e);
+            }
+        }
+
+        if (clienteIds.isEmpty()) {
+            return;
+        }
+
+        // 2) clientes do bloco resolvidos numa única consulta; os inexistentes são criados
+        Map<Long, Customer> clientes = carregarOuCriarClientes(clienteIds);
+
+        // 3) produto + projeção + persistência (inserts ficam pendentes até o flush do commit)
+        // incremento de risco por cliente; ordenado pelo id para que blocos concorrentes
+        // bloqueiem os acumulados sempre na mesma ordem
+        Map<Long, CustomerRiskAggregate> incrementos = new TreeMap<>();
+        InvestmentSimulationService.RollupsPendentes rollups = new InvestmentSimulationService.RollupsPendentes();
+        for (int i = inicio; i < fim; i++) {
+            if (resultados[i] != null) {
+                continue;
+            }
+
+            InvestmentSimulationRequestDTO request = requests.get(i);
+            Customer cliente = clientes.get(request.clienteId);
+            try {
+                InvestmentProduct product = simulationService.escolherProdutoElegivel(request, cliente, catalogo);
+                InvestmentSimulationService.Projecao projecao = simulationService.projetar(product, request);
+                OffsetDateTime agora = OffsetDateTime.now(ZoneOffset.UTC);
+
+                InvestmentHistory hist =
+                        simulationService.registrarSimulacao(cliente.id, product, request, projecao, agora, rollups);
+                RiskScoringKernel.somar(incrementos.computeIfAbsent(cliente.id, this::incrementoVazio),
+                        hist.valor, hist.rentabilidade, hist.tipo);
+
+                resultados[i] = ItemResultado.sucesso(i,
+                        simulationService.montarResposta(product, projecao, request, agora));
+            } catch (WebApplicationException e) {
+                resultados[i] = falha(i, e);
+            }
+        }
+
+        // 4) um UPDATE do acumulado por cliente com todas as operações do bloco; o perfil é
+        //    pontuado pelo acumulado devolvido, sem reler acumulado nem histórico
+        for (CustomerRiskAggregate incremento : incrementos.values()) {
+            CustomerRiskAggregate agregado = riskProfileService.registrarOperacoes(incremento);
+            riskProfileService.atualizarPerfil(incremento.clienteId, agregado);
+        }
+
+        // 5) um MERGE por produto/dia do bloco, como últimos comandos da transação
+        simulationService.gravarRollups(rollups);
+    }
+
+    /**
+     * A lista do lote não passa por @Valid, para que um item inválido não rejeite o lote
+     * inteiro: as restrições do DTO aceitas pelo endpoint unitário são conferidas aqui, por item.
+     */
+    private void validarItem(InvestmentSimulationRequestDTO request) {
+        simulationService.validarRequest(request);
+
+        if (request.produtoId == null) {
+            throw new WebApplicationException(
+                    "produtoId deve ser informado.",
+                    Response.Status.BAD_REQUEST
+            );
+        }
+
+        if (request.tipoProduto == null) {
+            throw new WebApplicationException(
+                    "tipoProduto deve ser informado.",
+                    Response.Status.BAD_REQUEST
+            );
+        }
+    }
+
+    private Map<Long, Customer> carregarOuCriarClientes(Set<Long> clienteIds) {
+        Map<Long, Customer> clientes = new HashMap<>();
+        for (Customer c : customerRepository.list("id in ?1", clienteIds)) {
+            clientes.put(c.id, c);
+        }
+
+        OffsetDateTime agora = OffsetDateTime.now(ZoneOffset.UTC);
+        for (Long id : clienteIds) {
+            if (!clientes.containsKey(id)) {
+                Customer novo = new Customer();
+                novo.id = id;
+                novo.perfil = "INDEFINIDO";
+                novo.criadoEm = agora;
+                customerRepository.persist(novo);
+                clientes.put(id, novo);
+            }
+        }
+        return clientes;
+    }
+
+    private CustomerRiskAggregate incrementoVazio(Long clienteId) {
+        CustomerRiskAggregate incremento = new CustomerRiskAggregate();
+        incremento.clienteId = clienteId;
+        return incremento;
+    }
+
+    private ItemResultado falha(int indice, WebApplicationException e) {
+        return ItemResultado.falha(indice, e.getResponse().getStatus(), e.getMessage());
+    }
+}
@@ -1,29 +1,42 @@
 package cef.financial.domain.service;
 
+import cef.financial.domain.dto.InvestmentComparisonResponseDTO;
+import cef.financial.domain.dto.InvestmentProjectionRequestDTO;
+import cef.financial.domain.dto.InvestmentProjectionResponseDTO;
 import cef.financial.domain.dto.InvestmentSimulationRequestDTO;
 import cef.financial.domain.dto.InvestmentSimulationResponseDTO;
 import cef.financial.domain.dto.RiskProfileResponseDTO;
+import cef.financial.domain.dto.SimulationByProductDayResponseDTO;
+import cef.financial.domain.dto.SimulationHistoryResponseDTO;
 import cef.financial.domain.model.Customer;
+import cef.financial.domain.model.CustomerRiskAggregate;
 import cef.financial.domain.model.InvestmentHistory;
 import cef.financial.domain.model.InvestmentProduct;
 import cef.financial.domain.model.InvestmentSimulation;
+import cef.financial.domain.model.SimulationDailyRollup;
 import cef.financial.domain.repository.CustomerRepository;
 import cef.financial.domain.repository.InvestmentHistoryRepository;
 import cef.financial.domain.repository.InvestmentProductRepository;
 import cef.financial.domain.repository.InvestmentSimulationRepository;
+import cef.financial.domain.repository.SimulationDailyRollupRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
 import org.jboss.logging.Logger;
 
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @ApplicationScoped
 public class InvestmentSimulationService {
@@ -31,6 +44,9 @@ public class InvestmentSimulationService {
     private static final Logger LOG = Logger.getLogger(InvestmentSimulationService.class);
     private static final int STATUS_UNPROCESSABLE_ENTITY = 422;
 
+    public static final int LIMITE_PAGINA_PADRAO = 100;
+    public static final int LIMITE_PAGINA_MAXIMO = 1000;
+
     @Inject
     InvestmentProductRepository productRepository;
 
@@ -46,6 +62,15 @@ public class InvestmentSimulationService {
     @Inject
     RiskProfileService riskProfileService;
 
+    @Inject
+    ProductCatalogService productCatalog;
+
+    @Inject
+    SimulationDailyRollupRepository simulationRollupRepository;
+
+    @Inject
+    EntityManager entityManager;
+
     @Transactional
     public InvestmentSimulationResponseDTO simulate(InvestmentSimulationRequestDTO request) {
         try {
@@ -59,63 +84,30 @@ public class InvestmentSimulationService {
             // 2) escolhe/valida produto com base nas regras + mini motor de recomendação
             InvestmentProduct product = escolherProdutoElegivel(request, cliente);
 
-            // 3) valida rentabilidade do produto
-            double taxaAnual = validarRentabilidade(product);
-            double taxaMensal = Math.pow(1 + taxaAnual, 1.0 / 12.0) - 1.0;
-
-            // 4) cálculo da simulação
-            double valorFinal = request.valor *
-                    Math.pow(1 + taxaMensal, request.prazoMeses);
-
-            double rentabilidadeEfetiva = (valorFinal / request.valor) - 1;
+            // 3) valida rentabilidade do produto + 4) cálculo da simulação
+            Projecao projecao = projetar(product, request);
             OffsetDateTime agora = OffsetDateTime.now(ZoneOffset.UTC);
 
-            // 5) persistência da simulação
-            InvestmentSimulation sim = new InvestmentSimulation();
-            sim.clienteId = clienteIdReal;
-            sim.produto = product;
-            sim.valorInvestido = request.valor;
-            sim.valorFinal = valorFinal;
-            sim.prazoMeses = request.prazoMeses;
-            sim.dataSimulacao = agora;
-
-            simulationRepository.persist(sim);
+            // 5) persistência da simulação + 6) registro no histórico do cliente
+            RollupsPendentes rollups = new RollupsPendentes();
+            InvestmentHistory hist = registrarSimulacao(clienteIdReal, product, request, projecao, agora, rollups);
             LOG.infof("Simulação persistida para cliente=%d, produto=%d, valor=%.2f, prazo=%d",
                     clienteIdReal, product.id, request.valor, request.prazoMeses);
-
-            // 6) registrar operação no histórico do cliente
-            InvestmentHistory hist = new InvestmentHistory();
-            hist.clienteId = clienteIdReal;
-            hist.tipo = product.tipo != null ? product.tipo : product.nome;
-            hist.valor = request.valor;
-            hist.rentabilidade = rentabilidadeEfetiva; // retorno da simulação
-            hist.dataInvestimento = agora.toLocalDate();
-
-            historyRepository.persist(hist);
             LOG.infof("Histórico de investimento registrado para cliente=%d, tipo=%s, rentabilidade=%.4f",
                     clienteIdReal, hist.tipo, hist.rentabilidade);
 
-            // 7) recalcular o perfil de risco do cliente com base no histórico atualizado
-            RiskProfileResponseDTO perfilAtualizado = riskProfileService.calculateProfile(clienteIdReal);
+            // 7) acumulado de risco do cliente atualizado em O(1), sem reler o histórico, e o
+            //    perfil recalculado a partir do acumulado devolvido
+            CustomerRiskAggregate agregado = riskProfileService.registrarOperacao(hist);
+            RiskProfileResponseDTO perfilAtualizado = riskProfileService.atualizarPerfil(clienteIdReal, agregado);
             LOG.infof("Perfil de risco recalculado para cliente=%d: perfil=%s, score=%d",
                     clienteIdReal, perfilAtualizado.perfil, perfilAtualizado.pontuacao);
 
+            // 7.1) agregado por produto/dia por último: o lock da linha só dura até o commit
+            gravarRollups(rollups);
+
             // 8) resposta
-            return new InvestmentSimulationResponseDTO(
-                    new InvestmentSimulationResponseDTO.ProdutoValidado(
-                            product.id,
-                            product.nome,
-                            product.tipo,
-                            taxaAnual,
-                            product.risco
-                    ),
-                    new InvestmentSimulationResponseDTO.ResultadoSimulacao(
-                            valorFinal,
-                            rentabilidadeEfetiva,
-                            request.prazoMeses
-                    ),
-                    agora
-            );
+            return montarResposta(product, projecao, request, agora);
 
         } catch (WebApplicationException e) {
             LOG.warnf(e, "Erro de validação na simulação de investimento: %s", e.getMessage());
@@ -129,6 +121,156 @@ public class InvestmentSimulationService {
         }
     }
 
+    /**
+     * Prévia da simulação: mesma validação, escolha de produto e projeção de {@link #simulate},
+     * mas sem transação e sem gravar simulação, histórico ou perfil. Produto e cliente vêm do
+     * catálogo em memória e do cache de segundo nível, então uma prévia com ambos em cache não
+     * ocupa conexão do pool. Cliente inexistente não é criado, apenas fica sem filtro de perfil.
+     */
+    public InvestmentSimulationResponseDTO simularPrevia(InvestmentSimulationRequestDTO request) {
+        validarRequest(request);
+
+        Customer cliente = customerRepository.findById(request.clienteId);
+        InvestmentProduct product = escolherProdutoElegivel(request, cliente, productCatalog.snapshot());
+        Projecao projecao = projetar(product, request);
+
+        LOG.debugf("Prévia de simulação para cliente=%d, produto=%d, valor=%.2f, prazo=%d",
+                request.clienteId, product.id, request.valor, request.prazoMeses);
+        return montarResposta(product, projecao, request, OffsetDateTime.now(ZoneOffset.UTC));
+    }
+
+    // ================= Cálculo + persistência (compartilhado com o lote) =================
+
+    /**
+     * Resultado do cálculo de uma simulação, antes de qualquer persistência.
+     */
+    record Projecao(double taxaAnual, double valorFinal, double rentabilidadeEfetiva) {
+    }
+
+    /**
+     * Agregados por produto/dia das simulações da transação, somados em memória. A linha de
+     * cada produto/dia é disputada por todas as simulações daquele produto: o MERGE fica para
+     * o fim da transação ({@link #gravarRollups}), um por produto/dia, e não por simulação.
+     */
+    static final class RollupsPendentes {
+
+        private final Map<SimulationDailyRollup.Chave, SimulationDailyRollup> porChave = new HashMap<>();
+
+        void somar(Long produtoId, LocalDate dia, double valorInvestido, double valorFinal) {
+            SimulationDailyRollup rollup = porChave.computeIfAbsent(
+                    new SimulationDailyRollup.Chave(produtoId, dia), chave -> {
+                        SimulationDailyRollup novo = new SimulationDailyRollup();
+                        novo.id = chave;
+                        novo.minValorFinal = valorFinal;
+                        novo.maxValorFinal = valorFinal;
+                        return novo;
+                    });
+            rollup.quantidade++;
+            rollup.somaValorFinal += valorFinal;
+            rollup.somaValorInvestido += valorInvestido;
+            rollup.minValorFinal = Math.min(rollup.minValorFinal, valorFinal);
+            rollup.maxValorFinal = Math.max(rollup.maxValorFinal, valorFinal);
+        }
+    }
+
+    // mesma ordem de lock em todas as transações: dois lotes com produtos em comum não se travam
+    private static final Comparator<SimulationDailyRollup> ORDEM_ROLLUP = Comparator
+            .comparing((SimulationDailyRollup r) -> r.id.produtoId)
+            .thenComparing(r -> r.id.dia);
+
+    /**
+     * Grava os agregados por produto/dia como últimos comandos da transação. O flush antes
+     * envia simulações, histórico e perfil, para que nada mais rode com os locks já obtidos.
+     */
+    void gravarRollups(RollupsPendentes pendentes) {
+        if (pendentes.porChave.isEmpty()) {
+            return;
+        }
+
+        simulationRepository.flush();
+        pendentes.porChave.values().stream()
+                .sorted(ORDEM_ROLLUP)
+                .forEach(simulationRollupRepository::registrar);
+    }
+
+    Projecao projetar(InvestmentProduct product, InvestmentSimulationRequestDTO request) {
+        double taxaAnual = validarRentabilidade(product);
+        double valorFinal = ProjectionEngine.valorFinal(
+                request.valor, ProjectionEngine.fatorMensal(taxaAnual), request.prazoMeses);
+
+        double rentabilidadeEfetiva = (valorFinal / request.valor) - 1;
+        return new Projecao(taxaAnual, valorFinal, rentabilidadeEfetiva);
+    }
+
+    /**
+     * Persiste a simulação e a operação correspondente no histórico do cliente.
+     * Os inserts ficam pendentes no contexto de persistência até o flush da transação,
+     * onde vão agrupados por tabela (ids de sequence + JDBC batch). O agregado por
+     * produto/dia só é somado em {@code rollups}, gravado depois por {@link #gravarRollups},
+     * e o acumulado de risco fica a cargo de quem chama (por operação ou por cliente no lote).
+     */
+    InvestmentHistory registrarSimulacao(Long clienteId,
+                                InvestmentProduct product,
+                                InvestmentSimulationRequestDTO request,
+                                Projecao projecao,
+                                OffsetDateTime agora,
+                                RollupsPendentes rollups) {
+        InvestmentSimulation sim = new InvestmentSimulation();
+        sim.clienteId = clienteId;
+        sim.produto = referenciaGerenciada(product);
+        sim.valorInvestido = request.valor;
+        sim.valorFinal = projecao.valorFinal();
+        sim.prazoMeses = request.prazoMeses;
+        sim.dataSimulacao = agora;
+
+        simulationRepository.persist(sim);
+        rollups.somar(product.id, agora.toLocalDate(), request.valor, projecao.valorFinal());
+
+        InvestmentHistory hist = new InvestmentHistory();
+        hist.clienteId = clienteId;
+        hist.tipo = product.tipo != null ? product.tipo : product.nome;
+        hist.valor = request.valor;
+        hist.rentabilidade = projecao.rentabilidadeEfetiva(); // retorno da simulação
+        hist.dataInvestimento = agora.toLocalDate();
+
+        historyRepository.persist(hist);
+        return hist;
+    }
+
+    InvestmentSimulationResponseDTO montarResposta(InvestmentProduct product,
+                                                   Projecao projecao,
+                                                   InvestmentSimulationRequestDTO request,
+                                                   OffsetDateTime agora) {
+        return new InvestmentSimulationResponseDTO(
+                new InvestmentSimulationResponseDTO.ProdutoValidado(
+                        product.id,
+                        product.nome,
+                        product.tipo,
+                        projecao.taxaAnual(),
+                        product.risco
+                ),
+                new InvestmentSimulationResponseDTO.ResultadoSimulacao(
+                        projecao.valorFinal(),
+                        projecao.rentabilidadeEfetiva(),
+                        request.prazoMeses
+                ),
+                agora
+        );
+    }
+
+    /**
+     * Produtos vindos do catálogo em memória estão destacados da sessão. Usar uma
+     * referência evita que o Hibernate consulte o banco para decidir se o produto é
+     * transiente ao gravar a FK da simulação.
+     */
+    private InvestmentProduct referenciaGerenciada(InvestmentProduct product) {
+        if (entityManager == null || product.id == null || entityManager.contains(product)) {
+            return product;
+        }
+        InvestmentProduct referencia = entityManager.getReference(InvestmentProduct.class, product.id);
+        return referencia != null ? referencia : product;
+    }
+
     // ================= Cliente =================
     private Customer obterOuCriarCliente(Long clienteIdRequest) {
         Customer existente = customerRepository.findById(clienteIdRequest);
@@ -150,7 +292,7 @@ public class InvestmentSimulationService {
     }
 
     // ================= Validações =================
-    private void validarRequest(InvestmentSimulationRequestDTO request) {
+    void validarRequest(InvestmentSimulationRequestDTO request) {
 
         if (request == null) {
             throw new WebApplicationException(
@@ -194,118 +336,114 @@ public class InvestmentSimulationService {
 
         // 1) Se o cliente escolheu produto explicitamente, só valida prazo + compatibilidade com perfil
         if (request.produtoId != null && request.produtoId > 0) {
+            return validarProdutoEscolhido(request, cliente, productRepository.findById(request.produtoId));
+        }
 
-            InvestmentProduct product = productRepository.findById(request.produtoId);
+        // 2) Nenhum produto escolhido → usar motor de recomendação (sobre o catálogo em memória)
+        return recomendarProduto(request, cliente, productCatalog.snapshot());
+    }
 
-            if (product == null) {
-                throw new WebApplicationException(
-                        "Produto não encontrado: " + request.produtoId,
-                        Response.Status.NOT_FOUND
-                );
-            }
+    /**
+     * Variante usada no processamento em lote: o produto explícito também é
+     * resolvido pela fotografia do catálogo, sem ida ao banco por item.
+     */
+    InvestmentProduct escolherProdutoElegivel(InvestmentSimulationRequestDTO request,
+                                              Customer cliente,
+                                              ProductCatalogSnapshot catalogo) {
+        if (request.produtoId != null && request.produtoId > 0) {
+            return validarProdutoEscolhido(request, cliente, catalogo.porId(request.produtoId));
+        }
+        return recomendarProduto(request, cliente, catalogo);
+    }
 
-            if (!atendePrazo(product, request.prazoMeses)) {
-                throw new WebApplicationException(
-                        String.format(
-                                "Produto %d não atende ao prazo solicitado (%d meses). " +
-                                        "Faixa permitida: [%s, %s] meses.",
-                                product.id,
-                                request.prazoMeses,
-                                product.prazoMinMeses != null ? product.prazoMinMeses : "-",
-                                (product.prazoMaxMeses != null && product.prazoMaxMeses > 0)
-                                        ? product.prazoMaxMeses : "-"
-                        ),
-                        Response.Status.BAD_REQUEST
-                );
-            }
+    private InvestmentProduct validarProdutoEscolhido(InvestmentSimulationRequestDTO request,
+                                                      Customer cliente,
+                                                      InvestmentProduct product) {
+        if (product == null) {
+            throw new WebApplicationException(
+                    "Produto não encontrado: " + request.produtoId,
+                    Response.Status.NOT_FOUND
+            );
+        }
 
-            if (!produtoCompatívelComPerfil(cliente, product)) {
-                LOG.warnf(
-                        "Produto explicitamente escolhido (%d) não é compatível com o perfil do cliente (%s).",
-                        product.id,
-                        cliente != null ? cliente.perfil : "N/D"
-                );
-                // aqui podemos optar por lançar erro se quiser ser rígido
-            }
+        if (!atendePrazo(product, request.prazoMeses)) {
+            throw new WebApplicationException(
+                    String.format(
+                            "Produto %d não atende ao prazo solicitado (%d meses). " +
+                                    "Faixa permitida: [%s, %s] meses.",
+                            product.id,
+                            request.prazoMeses,
+                            product.prazoMinMeses != null ? product.prazoMinMeses : "-",
+                            (product.prazoMaxMeses != null && product.prazoMaxMeses > 0)
+                                    ? product.prazoMaxMeses : "-"
+                    ),
+                    Response.Status.BAD_REQUEST
+            );
+        }
 
-            LOG.infof("Produto escolhido explicitamente pelo cliente: id=%d, nome=%s",
-                    product.id, product.nome);
-            return product;
+        if (!produtoCompatívelComPerfil(cliente, product)) {
+            LOG.warnf(
+                    "Produto explicitamente escolhido (%d) não é compatível com o perfil do cliente (%s).",
+                    product.id,
+                    cliente != null ? cliente.perfil : "N/D"
+            );
+            // aqui podemos optar por lançar erro se quiser ser rígido
         }
 
-        // 2) Nenhum produto escolhido → usar motor de recomendação
-        List<InvestmentProduct> todosProdutos = productRepository.listAll();
-        if (todosProdutos.isEmpty()) {
+        LOG.infof("Produto escolhido explicitamente pelo cliente: id=%d, nome=%s",
+                product.id, product.nome);
+        return product;
+    }
+
+    private InvestmentProduct recomendarProduto(InvestmentSimulationRequestDTO request,
+                                                Customer cliente,
+                                                ProductCatalogSnapshot catalogo) {
+        if (catalogo.isEmpty()) {
             throw new WebApplicationException(
                     "Nenhum produto de investimento cadastrado no sistema.",
                     Response.Status.INTERNAL_SERVER_ERROR
             );
         }
 
-        // 2.1) Filtro básico: prazo e tipo
-        List<InvestmentProduct> elegiveisBase = todosProdutos.stream()
-                .filter(p -> atendePrazo(p, request.prazoMeses))
-                .filter(p -> tipoCompativel(p, request.tipoProduto))
-                .collect(Collectors.toList());
+        // 2.1) Uma única consulta ao índice resolve prazo, tipo, perfil e o ranking
+        //      liquidez (prazo curto, <= 12 meses) vs rentabilidade (prazo longo)
+        int maxRiscoCliente = (cliente != null && cliente.perfil != null)
+                ? perfilMaxRiskScore(cliente.perfil)
+                : 0;
+        boolean prefereLiquidez = request.prazoMeses <= 12;
+
+        ProductEligibilityIndex.Resultado resultado = catalogo.indiceElegibilidade()
+                .consultar(request.prazoMeses, request.tipoProduto, maxRiscoCliente, prefereLiquidez);
 
-        if (elegiveisBase.isEmpty()) {
+        if (!resultado.possuiElegivel()) {
             throw new WebApplicationException(
                     "Nenhum produto atende aos parâmetros informados (prazo/tipo).",
                     STATUS_UNPROCESSABLE_ENTITY
             );
         }
 
-        // 2.2) Filtro por perfil do cliente
-        List<InvestmentProduct> elegiveisPerfil = filtrarPorPerfilCliente(cliente, elegiveisBase);
-
-        List<InvestmentProduct> baseParaRanking =
-                elegiveisPerfil.isEmpty() ? elegiveisBase : elegiveisPerfil;
-
-        if (elegiveisPerfil.isEmpty()) {
+        if (resultado.melhorCompativelComPerfil() == null) {
             LOG.info("Motor de recomendação: nenhum produto compatível com o perfil do cliente. " +
                     "Usando apenas filtros de prazo/tipo.");
-        } else {
-            LOG.infof("Motor de recomendação: %d produtos compatíveis com o perfil do cliente.",
-                    elegiveisPerfil.size());
         }
 
-        // 2.3) Dentro dos produtos ainda elegíveis, decidir entre liquidez vs rentabilidade
-        InvestmentProduct escolhido =
-                escolherPorPreferenciaLiquidezOuRentabilidade(request, baseParaRanking);
+        InvestmentProduct escolhido = resultado.escolhido();
 
         LOG.infof("Produto escolhido automaticamente pelo motor de recomendação: " +
-                        "id=%d, nome=%s, tipo=%s, risco=%s, taxaAnual=%.4f",
+                        "id=%d, nome=%s, tipo=%s, risco=%s, taxaAnual=%.4f, catalogo=v%d",
                 escolhido.id,
                 escolhido.nome,
                 escolhido.tipo,
                 escolhido.risco,
-                escolhido.rentabilidadeAnual != null ? escolhido.rentabilidadeAnual : 0.0
+                escolhido.rentabilidadeAnual != null ? escolhido.rentabilidadeAnual : 0.0,
+                catalogo.versao()
         );
 
         return escolhido;
     }
 
     private boolean atendePrazo(InvestmentProduct product, int prazoMesesRequest) {
-        Integer min = product.prazoMinMeses;
-        Integer max = product.prazoMaxMeses;
-
-        if (min != null && prazoMesesRequest < min) {
-            return false;
-        }
-        if (max != null && max > 0 && prazoMesesRequest > max) {
-            return false;
-        }
-        return true;
-    }
-
-    private boolean tipoCompativel(InvestmentProduct product, String tipoProdutoRequest) {
-        if (tipoProdutoRequest == null || tipoProdutoRequest.isBlank()) {
-            return true;
-        }
-        return Objects.equals(
-                product.tipo != null ? product.tipo.toUpperCase() : null,
-                tipoProdutoRequest.toUpperCase()
-        );
+        return ProductEligibilityIndex.cobrePrazo(product, prazoMesesRequest);
     }
 
     // ================= Rentabilidade =================
@@ -329,113 +467,248 @@ public class InvestmentSimulationService {
         return taxaAnualObj;
     }
 
-    public List<InvestmentSimulation> listAllSimulations() {
-        return simulationRepository.listAll();
-    }
+    // ================= Projeção mês a mês (sem persistência) =================
 
-    // ===================== Mini Motor de Recomendação =====================
+    /**
+     * Curva de saldos mês a mês e/ou valores em vários prazos para um produto, numa única chamada.
+     * Usa a mesma validação de rentabilidade da simulação, mas não grava nada.
+     */
+    public InvestmentProjectionResponseDTO projetarSerie(InvestmentProjectionRequestDTO request) {
+        validarProjecao(request);
 
-    private boolean produtoCompatívelComPerfil(Customer cliente, InvestmentProduct produto) {
-        if (cliente == null || cliente.perfil == null || produto == null) {
-            return true; // se não souber o perfil, não bloqueia
+        InvestmentProduct product = productCatalog.snapshot().porId(request.produtoId);
+        if (product == null) {
+            product = productRepository.findById(request.produtoId);
         }
-        int riscoProduto = riscoScore(produto.risco);
-        int maxRiscoCliente = perfilMaxRiskScore(cliente.perfil);
-        return riscoProduto <= maxRiscoCliente;
+        if (product == null) {
+            throw new WebApplicationException(
+                    "Produto não encontrado: " + request.produtoId,
+                    Response.Status.NOT_FOUND
+            );
+        }
+
+        double taxaAnual = validarRentabilidade(product);
+        double fatorMensal = ProjectionEngine.fatorMensal(taxaAnual);
+
+        InvestmentProjectionResponseDTO response = new InvestmentProjectionResponseDTO();
+        response.produtoValidado = new InvestmentSimulationResponseDTO.ProdutoValidado(
+                product.id, product.nome, product.tipo, taxaAnual, product.risco);
+        response.valorInicial = request.valor;
+        response.taxaMensal = fatorMensal - 1.0;
+
+        if (request.prazoMeses > 0) {
+            response.saldosMensais = ProjectionEngine.saldosMensais(request.valor, fatorMensal, request.prazoMeses);
+        }
+        if (request.prazos != null && request.prazos.length > 0) {
+            response.prazos = request.prazos;
+            response.valoresNosPrazos = ProjectionEngine.valoresNosPrazos(request.valor, fatorMensal, request.prazos);
+        }
+        return response;
     }
 
-    private List<InvestmentProduct> filtrarPorPerfilCliente(Customer cliente,
-                                                            List<InvestmentProduct> produtos) {
-        if (cliente == null || cliente.perfil == null || produtos == null || produtos.isEmpty()) {
-            return List.of();
+    private void validarProjecao(InvestmentProjectionRequestDTO request) {
+        if (request == null) {
+            throw new WebApplicationException(
+                    "Requisição de projeção não pode ser nula.",
+                    Response.Status.BAD_REQUEST
+            );
         }
 
-        int maxRiscoCliente = perfilMaxRiskScore(cliente.perfil);
+        if (request.produtoId == null || request.produtoId <= 0) {
+            throw new WebApplicationException(
+                    "produtoId deve ser informado e maior que zero.",
+                    Response.Status.BAD_REQUEST
+            );
+        }
 
-        return produtos.stream()
-                .filter(p -> riscoScore(p.risco) <= maxRiscoCliente)
-                .collect(Collectors.toList());
+        if (request.valor <= 0) {
+            throw new WebApplicationException(
+                    "valor deve ser informado e maior que zero.",
+                    Response.Status.BAD_REQUEST
+            );
+        }
+
+        boolean temPrazos = request.prazos != null && request.prazos.length > 0;
+        if (request.prazoMeses <= 0 && !temPrazos) {
+            throw new WebApplicationException(
+                    "Informe prazoMeses (série mês a mês) e/ou a lista de prazos.",
+                    Response.Status.BAD_REQUEST
+            );
+        }
+
+        if (request.prazoMeses < 0 || request.prazoMeses > ProjectionEngine.PRAZO_MAXIMO_MESES) {
+            throw new WebApplicationException(
+                    "prazoMeses deve estar entre 1 e " + ProjectionEngine.PRAZO_MAXIMO_MESES + ".",
+                    Response.Status.BAD_REQUEST
+            );
+        }
+
+        if (temPrazos) {
+            for (int prazo : request.prazos) {
+                if (prazo <= 0 || prazo > ProjectionEngine.PRAZO_MAXIMO_MESES) {
+                    throw new WebApplicationException(
+                            "Cada prazo deve estar entre 1 e " + ProjectionEngine.PRAZO_MAXIMO_MESES + " meses.",
+                            Response.Status.BAD_REQUEST
+                    );
+                }
+            }
+        }
     }
 
-    private int perfilMaxRiskScore(String perfilCliente) {
-        if (perfilCliente == null) return 2; // default = moderado
+    // ================= Comparação entre produtos (sem persistência) =================
+
+    /**
+     * Simula o mesmo valor e prazo em todos os produtos elegíveis do catálogo, numa única passada,
+     * e devolve a tabela ordenada pelo mesmo critério do motor de recomendação: produtos
+     * compatíveis com o perfil primeiro e, entre eles, liquidez (prazo curto) ou rentabilidade.
+     * A primeira posição é o produto que a simulação escolheria. Não grava nada.
+     */
+    public InvestmentComparisonResponseDTO compararProdutos(double valor,
+                                                           int prazoMeses,
+                                                           String tipoProduto,
+                                                           Long clienteId) {
+        if (valor <= 0) {
+            throw new WebApplicationException(
+                    "valor deve ser informado e maior que zero.",
+                    Response.Status.BAD_REQUEST
+            );
+        }
+
+        if (prazoMeses <= 0 || prazoMeses > ProjectionEngine.PRAZO_MAXIMO_MESES) {
+            throw new WebApplicationException(
+                    "prazoMeses deve estar entre 1 e " + ProjectionEngine.PRAZO_MAXIMO_MESES + ".",
+                    Response.Status.BAD_REQUEST
+            );
+        }
+
+        // só leitura: cliente inexistente não é criado, apenas fica sem filtro de perfil
+        Customer cliente = (clienteId != null && clienteId > 0) ? customerRepository.findById(clienteId) : null;
+        String perfil = cliente != null ? cliente.perfil : null;
+        int maxRiscoCliente = perfil != null ? perfilMaxRiskScore(perfil) : 0;
+
+        boolean prefereLiquidez = prazoMeses <= 12;
+        Comparator<InvestmentProduct> ranking = prefereLiquidez
+                ? ProductEligibilityIndex.POR_LIQUIDEZ
+                : ProductEligibilityIndex.POR_RENTABILIDADE;
+
+        List<InvestmentProduct> elegiveis = new ArrayList<>();
+        for (InvestmentProduct p : productCatalog.snapshot().produtos()) {
+            if (atendePrazo(p, prazoMeses)
+                    && tipoAtende(p, tipoProduto)
+                    && p.rentabilidadeAnual != null
+                    && p.rentabilidadeAnual >= 0) {
+                elegiveis.add(p);
+            }
+        }
+        elegiveis.sort(Comparator
+                .comparing((InvestmentProduct p) -> maxRiscoCliente > 0 && riscoScore(p.risco) > maxRiscoCliente)
+                .thenComparing(ranking));
+
+        List<InvestmentComparisonResponseDTO.ProdutoComparado> tabela = new ArrayList<>(elegiveis.size());
+        for (InvestmentProduct p : elegiveis) {
+            double valorFinal = ProjectionEngine.valorFinal(
+                    valor, ProjectionEngine.fatorMensal(p.rentabilidadeAnual), prazoMeses);
+
+            InvestmentComparisonResponseDTO.ProdutoComparado item = new InvestmentComparisonResponseDTO.ProdutoComparado();
+            item.posicao = tabela.size() + 1;
+            item.produtoId = p.id;
+            item.nome = p.nome;
+            item.tipo = p.tipo;
+            item.risco = p.risco;
+            item.rentabilidadeAnual = p.rentabilidadeAnual;
+            item.liquidezDias = p.liquidezDias;
+            item.valorFinal = valorFinal;
+            item.rentabilidadeEfetiva = (valorFinal / valor) - 1;
+            item.compativelComPerfil = maxRiscoCliente == 0 || riscoScore(p.risco) <= maxRiscoCliente;
+            tabela.add(item);
+        }
+
+        InvestmentComparisonResponseDTO response = new InvestmentComparisonResponseDTO();
+        response.valor = valor;
+        response.prazoMeses = prazoMeses;
+        response.perfilCliente = perfil;
+        response.criterio = prefereLiquidez ? "LIQUIDEZ" : "RENTABILIDADE";
+        response.produtos = tabela;
+        return response;
+    }
 
-        String p = perfilCliente.trim().toUpperCase();
-        return switch (p) {
-            case "CONSERVADOR" -> 1;
-            case "MODERADO" -> 2;
-            case "AGRESSIVO", "ARROJADO" -> 3;
-            default -> 2;
-        };
+    // mesmo critério do índice de elegibilidade: tipo ausente aceita todos
+    private static boolean tipoAtende(InvestmentProduct product, String tipoProduto) {
+        return tipoProduto == null || tipoProduto.isBlank() || tipoProduto.equalsIgnoreCase(product.tipo);
     }
 
-    private int riscoScore(String riscoProduto) {
-        if (riscoProduto == null) return 2;
+    // ===================== Consulta paginada / streaming =====================
 
-        String r = riscoProduto.trim().toUpperCase();
-        return switch (r) {
-            case "BAIXO", "BAIXO RISCO" -> 1;
-            case "MEDIO", "MÉDIO", "MODERADO" -> 2;
-            case "ALTO", "ALTO RISCO" -> 3;
-            default -> 2;
-        };
+    /**
+     * Limite efetivo da página: padrão quando ausente e nunca acima do máximo.
+     */
+    public static int limitePagina(Integer limite) {
+        if (limite == null) {
+            return LIMITE_PAGINA_PADRAO;
+        }
+        if (limite <= 0) {
+            throw new WebApplicationException(
+                    "limite deve ser maior que zero.",
+                    Response.Status.BAD_REQUEST
+            );
+        }
+        return Math.min(limite, LIMITE_PAGINA_MAXIMO);
     }
 
     /**
-     * Dentro dos produtos compatíveis com prazo/tipo/perfil, decide:
-     *
-     * - Prazo curto (<= 12 meses)  → prioriza LIQUIDEZ (menor liquidezDias), desempate por maior rentabilidade
-     * - Prazo longo  (> 12 meses)  → prioriza RENTABILIDADE (maior rentabilidadeAnual), desempate por menor liquidez
+     * Página de simulações por keyset: ids maiores que {@code aposId}, em ordem crescente.
+     * Cada página custa uma busca no índice da chave primária, independente da posição.
      */
-    private InvestmentProduct escolherPorPreferenciaLiquidezOuRentabilidade(
-            InvestmentSimulationRequestDTO request,
-            List<InvestmentProduct> candidatos) {
+    public List<SimulationHistoryResponseDTO> listarSimulacoes(Long aposId, Integer limite) {
+        int limiteEfetivo = limitePagina(limite);
+        return simulationRepository.listarPagina(aposId != null ? aposId : 0L, limiteEfetivo);
+    }
 
-        if (candidatos == null || candidatos.isEmpty()) {
+    /**
+     * Estatísticas por produto e dia lidas do agregado mantido a cada simulação;
+     * o custo depende da quantidade de grupos retornados, não do volume de simulações.
+     */
+    public List<SimulationByProductDayResponseDTO> agregarPorProdutoDia(LocalDate inicio, LocalDate fim, Long produtoId) {
+        if (inicio != null && fim != null && inicio.isAfter(fim)) {
             throw new WebApplicationException(
-                    "Nenhum produto disponível para recomendação.",
-                    STATUS_UNPROCESSABLE_ENTITY
+                    "Data inicial não pode ser maior que a data final.",
+                    Response.Status.BAD_REQUEST
             );
         }
+        return simulationRollupRepository.consultar(inicio, fim, produtoId);
+    }
 
-        if (candidatos.size() == 1) {
-            return candidatos.get(0);
+    /**
+     * Entrega as simulações uma a uma, lidas por cursor forward-only, sem montar lista em memória.
+     */
+    public void percorrerSimulacoes(Long aposId, Consumer<SimulationHistoryResponseDTO> consumidor) {
+        try {
+            simulationRepository.percorrer(aposId != null ? aposId : 0L, consumidor);
+        } catch (SQLException e) {
+            LOG.error("Erro ao ler simulações para exportação", e);
+            throw new WebApplicationException(
+                    "Erro interno ao exportar simulações.",
+                    Response.Status.INTERNAL_SERVER_ERROR
+            );
         }
+    }
 
-        boolean prefereLiquidez = request.prazoMeses <= 12;
+    // ===================== Mini Motor de Recomendação =====================
 
-        if (prefereLiquidez) {
-            // prioriza produtos com menor liquidezDias (resgate mais rápido)
-            return candidatos.stream()
-                    .sorted(
-                            Comparator
-                                    .comparing((InvestmentProduct p) ->
-                                            p.liquidezDias != null ? p.liquidezDias : Integer.MAX_VALUE)
-                                    .thenComparing(
-                                            (InvestmentProduct p) ->
-                                                    p.rentabilidadeAnual != null ? p.rentabilidadeAnual : 0.0,
-                                            Comparator.reverseOrder()
-                                    )
-                    )
-                    .findFirst()
-                    .orElse(candidatos.get(0));
-        } else {
-            // prioriza produtos com maior rentabilidadeAnual, desempata pela liquidez
-            return candidatos.stream()
-                    .sorted(
-                            Comparator
-                                    .comparing(
-                                            (InvestmentProduct p) ->
-                                                    p.rentabilidadeAnual != null ? p.rentabilidadeAnual : 0.0,
-                                            Comparator.reverseOrder()
-                                    )
-                                    .thenComparing(
-                                            (InvestmentProduct p) ->
-                                                    p.liquidezDias != null ? p.liquidezDias : Integer.MAX_VALUE
-                                    )
-                    )
-                    .findFirst()
-                    .orElse(candidatos.get(0));
+    private boolean produtoCompatívelComPerfil(Customer cliente, InvestmentProduct produto) {
+        if (cliente == null || cliente.perfil == null || produto == null) {
+            return true; // se não souber o perfil, não bloqueia
         }
+        int riscoProduto = riscoScore(produto.risco);
+        int maxRiscoCliente = perfilMaxRiskScore(cliente.perfil);
+        return riscoProduto <= maxRiscoCliente;
+    }
+
+    static int perfilMaxRiskScore(String perfilCliente) {
+        return RiskLevelClassifier.tetoPorPerfil(perfilCliente);
+    }
+
+    static int riscoScore(String riscoProduto) {
+        return RiskLevelClassifier.nivelPorRisco(riscoProduto);
     }
 }
@@ -0,0 +1,187 @@
+package cef.financial.domain.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Histograma de latência em microssegundos com buckets logarítmicos (no estilo HDR).
+ *
+ * Cada potência de 2 é dividida em {@value #SUB_BUCKETS} sub-buckets lineares, o que
+ * limita o erro relativo de qualquer percentil a ~3%. Valores abaixo de
+ * {@value #SUB_BUCKETS} µs são exatos. O registro não aloca memória e dois
+ * histogramas podem ser mesclados somando os contadores, então agregados de
+ * períodos diferentes (ex.: dias) se combinam sem perder precisão.
+ *
+ * Não é thread-safe: é alimentado apenas pelo gravador de telemetria.
+ */
+public final class LatencyHistogram {
+
+    private static final int BITS_SUB_BUCKET = 5;
+    private static final int SUB_BUCKETS = 1 << BITS_SUB_BUCKET;
+
+    // maior expoente representável: 2^37 µs ≈ 38 horas; acima disso o valor é saturado
+    private static final int MAIOR_EXPOENTE = 37;
+    private static final long MAIOR_VALOR = (1L << (MAIOR_EXPOENTE + 1)) - 1;
+
+    static final int QUANTIDADE_BUCKETS = SUB_BUCKETS + (MAIOR_EXPOENTE - BITS_SUB_BUCKET + 1) * SUB_BUCKETS;
+
+    private static final byte VERSAO_FORMATO = 1;
+
+    private final long[] contagens = new long[QUANTIDADE_BUCKETS];
+    private long total;
+
+    public void registrar(long valorMicros) {
+        registrar(valorMicros, 1);
+    }
+
+    public void registrar(long valorMicros, long ocorrencias) {
+        contagens[indice(valorMicros)] += ocorrencias;
+        total += ocorrencias;
+    }
+
+    public void mesclar(LatencyHistogram outro) {
+        if (outro == null) {
+            return;
+        }
+        for (int i = 0; i < QUANTIDADE_BUCKETS; i++) {
+            contagens[i] += outro.contagens[i];
+        }
+        total += outro.total;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return total == 0;
+    }
+
+    /**
+     * Valor (em µs) abaixo do qual estão {@code percentil}% das amostras.
+     * Retorna o ponto médio do bucket que contém a amostra de ordem correspondente.
+     *
+     * @param percentil entre 0 e 100
+     */
+    public long percentil(double percentil) {
+        if (total == 0) {
+            return 0;
+        }
+        double p = Math.max(0.0, Math.min(100.0, percentil));
+        long alvo = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+
+        long acumulado = 0;
+        for (int i = 0; i < QUANTIDADE_BUCKETS; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= alvo) {
+                return valorRepresentativo(i);
+            }
+        }
+        return valorRepresentativo(QUANTIDADE_BUCKETS - 1);
+    }
+
+    // ================= Serialização =================
+
+    /**
+     * Formato compacto: só os buckets não vazios, como pares (salto de índice, contagem) em varint.
+     */
+    public byte[] serializar() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(VERSAO_FORMATO);
+
+        int anterior = -1;
+        for (int i = 0; i < QUANTIDADE_BUCKETS; i++) {
+            if (contagens[i] != 0) {
+                escreverVarLong(out, i - anterior);
+                escreverVarLong(out, contagens[i]);
+                anterior = i;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static LatencyHistogram desserializar(byte[] dados) {
+        LatencyHistogram histograma = new LatencyHistogram();
+        if (dados == null || dados.length == 0) {
+            return histograma;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(dados);
+        byte versao = buffer.get();
+        if (versao != VERSAO_FORMATO) {
+            throw new IllegalArgumentException("Versão de histograma não suportada: " + versao);
+        }
+
+        int indice = -1;
+        while (buffer.hasRemaining()) {
+            indice += (int) lerVarLong(buffer);
+            long contagem = lerVarLong(buffer);
+            if (indice < 0 || indice >= QUANTIDADE_BUCKETS) {
+                throw new IllegalArgumentException("Histograma corrompido: bucket " + indice);
+            }
+            histograma.contagens[indice] += contagem;
+            histograma.total += contagem;
+        }
+        return histograma;
+    }
+
+    // ================= Buckets =================
+
+    static int indice(long valor) {
+        if (valor < SUB_BUCKETS) {
+            return (int) Math.max(0, valor);
+        }
+        long v = Math.min(valor, MAIOR_VALOR);
+        int expoente = 63 - Long.numberOfLeadingZeros(v);
+        int deslocamento = expoente - BITS_SUB_BUCKET;
+        int sub = (int) (v >>> deslocamento) - SUB_BUCKETS;
+        return SUB_BUCKETS + deslocamento * SUB_BUCKETS + sub;
+    }
+
+    static long valorRepresentativo(int indice) {
+        if (indice < SUB_BUCKETS) {
+            return indice;
+        }
+        int deslocamento = (indice - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (indice - SUB_BUCKETS) % SUB_BUCKETS;
+        long inicio = (long) (SUB_BUCKETS + sub) << deslocamento;
+        long largura = 1L << deslocamento;
+        return inicio + largura / 2;
+    }
+
+    private static void escreverVarLong(ByteArrayOutputStream out, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            out.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        out.write((int) valor);
+    }
+
+    private static long lerVarLong(ByteBuffer buffer) {
+        long resultado = 0;
+        int deslocamento = 0;
+        byte b;
+        do {
+            if (deslocamento > 63) {
+                throw new IllegalArgumentException("Histograma corrompido: varint inválido");
+            }
+            b = buffer.get();
+            resultado |= (long) (b & 0x7F) << deslocamento;
+            deslocamento += 7;
+        } while ((b & 0x80) != 0);
+        return resultado;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LatencyHistogram outro)) return false;
+        return total == outro.total && Arrays.equals(contagens, outro.contagens);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(contagens);
+    }
+}
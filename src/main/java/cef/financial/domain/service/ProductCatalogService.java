@@ -0,0 +1,144 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.model.InvestmentProduct;
+import cef.financial.domain.repository.InvestmentProductRepository;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mantém em memória o catálogo de produtos de investimento.
+ *
+ * O catálogo quase não muda, então a seleção automática de produto lê sempre
+ * a fotografia atual em vez de consultar o banco a cada simulação. A recarga
+ * acontece por agendamento, quando a fotografia passa do TTL ou quando alguém
+ * sinaliza alteração de produtos via {@link #invalidar()}.
+ */
+@ApplicationScoped
+public class ProductCatalogService {
+
+    private static final Logger LOG = Logger.getLogger(ProductCatalogService.class);
+
+    @Inject
+    InvestmentProductRepository productRepository;
+
+    @ConfigProperty(name = "catalogo.produtos.ttl", defaultValue = "PT5M")
+    Duration ttl;
+
+    private final AtomicLong versoes = new AtomicLong();
+
+    // geração das alterações de produto: cada invalidar() avança; fotografia de geração anterior não vale
+    private final AtomicLong invalidacoes = new AtomicLong();
+
+    private final ReentrantLock recarga = new ReentrantLock();
+
+    private volatile Fotografia atual;
+
+    /**
+     * Fotografia publicada e a geração de invalidação vigente quando os produtos foram lidos.
+     */
+    private record Fotografia(ProductCatalogSnapshot snapshot, long geracao) {
+    }
+
+    public ProductCatalogService() {
+    }
+
+    // construtor para testes unitários
+    public ProductCatalogService(InvestmentProductRepository productRepository, Duration ttl) {
+        this.productRepository = productRepository;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Retorna a fotografia vigente, carregando-a se ainda não existir, se estiver expirada
+     * ou se houve invalidação depois da leitura dela.
+     */
+    public ProductCatalogSnapshot snapshot() {
+        Fotografia fotografia = atual;
+        if (vigente(fotografia)) {
+            return fotografia.snapshot();
+        }
+
+        recarga.lock();
+        try {
+            // quem esperava o lock encontra a fotografia que outra thread acabou de publicar
+            fotografia = atual;
+            if (vigente(fotografia)) {
+                return fotografia.snapshot();
+            }
+            return carregar();
+        } finally {
+            recarga.unlock();
+        }
+    }
+
+    /**
+     * Descarta a fotografia atual; a próxima leitura recarrega do banco.
+     * Deve ser chamado por qualquer fluxo que altere produtos.
+     */
+    public void invalidar() {
+        invalidacoes.incrementAndGet();
+        LOG.debug("Catálogo de produtos invalidado.");
+    }
+
+    @Scheduled(every = "${catalogo.produtos.intervalo-recarga:60s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void recarregarAgendado() {
+        recarregar();
+    }
+
+    @Transactional
+    public ProductCatalogSnapshot recarregar() {
+        // lock em vez de synchronized: a leitura do banco aqui dentro não prende a carrier thread
+        // quando a recarga parte de uma requisição em virtual thread
+        recarga.lock();
+        try {
+            return carregar();
+        } finally {
+            recarga.unlock();
+        }
+    }
+
+    // só com o lock de recarga
+    private ProductCatalogSnapshot carregar() {
+        long geracao;
+        List<InvestmentProduct> produtos;
+        do {
+            // invalidar() durante a leitura: os produtos lidos podem ser anteriores à alteração
+            geracao = invalidacoes.get();
+            produtos = productRepository.listAll();
+        } while (invalidacoes.get() != geracao);
+
+        ProductCatalogSnapshot novo = new ProductCatalogSnapshot(
+                versoes.incrementAndGet(),
+                Instant.now(),
+                produtos
+        );
+        atual = new Fotografia(novo, geracao);
+
+        LOG.debugf("Catálogo de produtos recarregado: versao=%d, produtos=%d",
+                novo.versao(), produtos.size());
+        return novo;
+    }
+
+    private boolean vigente(Fotografia fotografia) {
+        return fotografia != null
+                && fotografia.geracao() == invalidacoes.get()
+                && !expirado(fotografia.snapshot());
+    }
+
+    private boolean expirado(ProductCatalogSnapshot snapshot) {
+        return ttl != null
+                && !ttl.isZero()
+                && snapshot.carregadoEm().plus(ttl).isBefore(Instant.now());
+    }
+}
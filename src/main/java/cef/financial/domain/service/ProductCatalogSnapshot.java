@@ -0,0 +1,66 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.model.InvestmentProduct;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fotografia imutável do catálogo de produtos em um determinado momento.
+ *
+ * Cada recarga gera uma nova instância com versão incrementada; quem está
+ * no meio de uma simulação continua lendo a versão que obteve, sem locks.
+ */
+public final class ProductCatalogSnapshot {
+
+    private final long versao;
+    private final Instant carregadoEm;
+    private final List<InvestmentProduct> produtos;
+    private final Map<Long, InvestmentProduct> produtosPorId;
+    private final ProductEligibilityIndex indiceElegibilidade;
+
+    public ProductCatalogSnapshot(long versao, Instant carregadoEm, List<InvestmentProduct> produtos) {
+        this.versao = versao;
+        this.carregadoEm = carregadoEm;
+        this.produtos = List.copyOf(produtos);
+
+        Map<Long, InvestmentProduct> porId = new LinkedHashMap<>();
+        for (InvestmentProduct p : this.produtos) {
+            if (p.id != null) {
+                porId.put(p.id, p);
+            }
+        }
+        this.produtosPorId = Collections.unmodifiableMap(porId);
+        this.indiceElegibilidade = new ProductEligibilityIndex(this.produtos);
+    }
+
+    public long versao() {
+        return versao;
+    }
+
+    public Instant carregadoEm() {
+        return carregadoEm;
+    }
+
+    public List<InvestmentProduct> produtos() {
+        return produtos;
+    }
+
+    public InvestmentProduct porId(Long id) {
+        return id != null ? produtosPorId.get(id) : null;
+    }
+
+    /**
+     * Índice de elegibilidade construído uma única vez para esta versão do catálogo.
+     */
+    public ProductEligibilityIndex indiceElegibilidade() {
+        return indiceElegibilidade;
+    }
+
+    public boolean isEmpty() {
+        return produtos.isEmpty();
+    }
+}
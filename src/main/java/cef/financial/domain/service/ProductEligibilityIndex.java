@@ -0,0 +1,206 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.model.InvestmentProduct;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Índice de elegibilidade pré-calculado sobre uma versão do catálogo.
+ *
+ * Os produtos são agrupados por tipo normalizado (mais um grupo com todos os tipos)
+ * e, dentro de cada grupo, o eixo de prazo é dividido em faixas elementares a partir
+ * dos limites {@code prazoMinMeses}/{@code prazoMaxMeses}. Para cada faixa guardamos,
+ * já ordenados pelos critérios de liquidez e de rentabilidade, o melhor produto sem
+ * filtro de perfil e o melhor produto para cada teto de risco (1, 2 e 3).
+ *
+ * Assim a seleção automática vira uma busca binária pela faixa + acesso direto ao
+ * candidato, sem filtrar nem ordenar o catálogo a cada simulação.
+ */
+public final class ProductEligibilityIndex {
+
+    private static final String TODOS_OS_TIPOS = "";
+    private static final int RISCO_MAXIMO = 3;
+
+    /**
+     * Prazo curto: menor liquidezDias primeiro, desempate por maior rentabilidade.
+     */
+    static final Comparator<InvestmentProduct> POR_LIQUIDEZ = Comparator
+            .comparing((InvestmentProduct p) ->
+                    p.liquidezDias != null ? p.liquidezDias : Integer.MAX_VALUE)
+            .thenComparing(
+                    (InvestmentProduct p) ->
+                            p.rentabilidadeAnual != null ? p.rentabilidadeAnual : 0.0,
+                    Comparator.reverseOrder()
+            );
+
+    /**
+     * Prazo longo: maior rentabilidadeAnual primeiro, desempate por menor liquidez.
+     */
+    static final Comparator<InvestmentProduct> POR_RENTABILIDADE = Comparator
+            .comparing(
+                    (InvestmentProduct p) ->
+                            p.rentabilidadeAnual != null ? p.rentabilidadeAnual : 0.0,
+                    Comparator.reverseOrder()
+            )
+            .thenComparing(
+                    (InvestmentProduct p) ->
+                            p.liquidezDias != null ? p.liquidezDias : Integer.MAX_VALUE
+            );
+
+    private final Map<String, Grupo> grupos;
+
+    public ProductEligibilityIndex(List<InvestmentProduct> produtos) {
+        Map<String, List<InvestmentProduct>> porTipo = new HashMap<>();
+        porTipo.put(TODOS_OS_TIPOS, produtos);
+        for (InvestmentProduct p : produtos) {
+            if (p.tipo != null) {
+                porTipo.computeIfAbsent(p.tipo.toUpperCase(), k -> new ArrayList<>()).add(p);
+            }
+        }
+
+        Map<String, Grupo> construidos = new HashMap<>();
+        porTipo.forEach((tipo, lista) -> construidos.put(tipo, new Grupo(lista)));
+        this.grupos = Map.copyOf(construidos);
+    }
+
+    /**
+     * Busca o melhor candidato para o prazo/tipo informados.
+     *
+     * @param maxRiscoPerfil teto de risco do cliente (1 a 3) ou 0 quando o perfil é desconhecido
+     * @param prefereLiquidez true para o ranking de liquidez, false para o de rentabilidade
+     */
+    public Resultado consultar(int prazoMeses, String tipoProduto, int maxRiscoPerfil, boolean prefereLiquidez) {
+        Grupo grupo = grupos.get(chaveTipo(tipoProduto));
+        if (grupo == null) {
+            return Resultado.VAZIO;
+        }
+
+        Faixa faixa = grupo.faixa(prazoMeses);
+        if (faixa == null) {
+            return Resultado.VAZIO;
+        }
+
+        InvestmentProduct[] melhores = prefereLiquidez ? faixa.melhoresPorLiquidez : faixa.melhoresPorRentabilidade;
+        InvestmentProduct compativelComPerfil = maxRiscoPerfil > 0
+                ? melhores[Math.min(maxRiscoPerfil, RISCO_MAXIMO)]
+                : null;
+
+        return new Resultado(melhores[0], compativelComPerfil);
+    }
+
+    static boolean cobrePrazo(InvestmentProduct p, int prazoMeses) {
+        Integer min = p.prazoMinMeses;
+        Integer max = p.prazoMaxMeses;
+
+        if (min != null && prazoMeses < min) {
+            return false;
+        }
+        return max == null || max <= 0 || prazoMeses <= max;
+    }
+
+    private static String chaveTipo(String tipoProduto) {
+        return (tipoProduto == null || tipoProduto.isBlank())
+                ? TODOS_OS_TIPOS
+                : tipoProduto.toUpperCase();
+    }
+
+    /**
+     * Resultado de uma consulta ao índice.
+     *
+     * @param melhorPorPrazoETipo       melhor produto considerando só prazo/tipo (null se nenhum atende)
+     * @param melhorCompativelComPerfil melhor produto que também respeita o teto de risco do cliente
+     */
+    public record Resultado(InvestmentProduct melhorPorPrazoETipo,
+                            InvestmentProduct melhorCompativelComPerfil) {
+
+        static final Resultado VAZIO = new Resultado(null, null);
+
+        public boolean possuiElegivel() {
+            return melhorPorPrazoETipo != null;
+        }
+
+        public InvestmentProduct escolhido() {
+            return melhorCompativelComPerfil != null ? melhorCompativelComPerfil : melhorPorPrazoETipo;
+        }
+    }
+
+    // ================= Estruturas internas =================
+
+    private static final class Grupo {
+        private final int[] limites;
+        private final Faixa[] faixas;
+
+        Grupo(List<InvestmentProduct> produtos) {
+            // sort estável: empates mantêm a ordem original do catálogo
+            List<InvestmentProduct> porLiquidez = new ArrayList<>(produtos);
+            porLiquidez.sort(POR_LIQUIDEZ);
+            List<InvestmentProduct> porRentabilidade = new ArrayList<>(produtos);
+            porRentabilidade.sort(POR_RENTABILIDADE);
+
+            TreeSet<Integer> bordas = new TreeSet<>();
+            bordas.add(Integer.MIN_VALUE);
+            for (InvestmentProduct p : produtos) {
+                if (p.prazoMinMeses != null) {
+                    bordas.add(p.prazoMinMeses);
+                }
+                if (p.prazoMaxMeses != null && p.prazoMaxMeses > 0 && p.prazoMaxMeses < Integer.MAX_VALUE) {
+                    bordas.add(p.prazoMaxMeses + 1);
+                }
+            }
+
+            this.limites = bordas.stream().mapToInt(Integer::intValue).toArray();
+            this.faixas = new Faixa[limites.length];
+            for (int i = 0; i < limites.length; i++) {
+                faixas[i] = new Faixa(
+                        melhoresPorTetoDeRisco(porLiquidez, limites[i]),
+                        melhoresPorTetoDeRisco(porRentabilidade, limites[i])
+                );
+            }
+        }
+
+        Faixa faixa(int prazoMeses) {
+            int i = Arrays.binarySearch(limites, prazoMeses);
+            if (i < 0) {
+                i = -i - 2;
+            }
+            return i >= 0 ? faixas[i] : null;
+        }
+
+        /**
+         * Posição 0 = melhor sem filtro de risco; posição k = melhor com risco <= k.
+         */
+        private static InvestmentProduct[] melhoresPorTetoDeRisco(List<InvestmentProduct> ordenados, int prazoMeses) {
+            InvestmentProduct[] melhores = new InvestmentProduct[RISCO_MAXIMO + 1];
+
+            for (InvestmentProduct p : ordenados) {
+                if (!cobrePrazo(p, prazoMeses)) {
+                    continue;
+                }
+                if (melhores[0] == null) {
+                    melhores[0] = p;
+                }
+                int risco = InvestmentSimulationService.riscoScore(p.risco);
+                for (int teto = risco; teto <= RISCO_MAXIMO; teto++) {
+                    if (melhores[teto] == null) {
+                        melhores[teto] = p;
+                    }
+                }
+                // achou o melhor de risco 1 → todos os tetos já estão preenchidos
+                if (melhores[1] != null) {
+                    break;
+                }
+            }
+            return melhores;
+        }
+    }
+
+    private record Faixa(InvestmentProduct[] melhoresPorLiquidez,
+                         InvestmentProduct[] melhoresPorRentabilidade) {
+    }
+}
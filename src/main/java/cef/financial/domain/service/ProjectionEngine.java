@@ -0,0 +1,65 @@
+package cef.financial.domain.service;
+
+/**
+ * Projeção de juros compostos mensais a partir da rentabilidade anual do produto.
+ *
+ * O fator mensal é calculado uma única vez; um prazo isolado usa a forma fechada
+ * (uma potência) e a série mensal é montada por multiplicações sucessivas num
+ * {@code double[]}, sem objetos por mês.
+ */
+public final class ProjectionEngine {
+
+    // 50 anos: limita o tamanho da série devolvida numa única resposta
+    public static final int PRAZO_MAXIMO_MESES = 600;
+
+    private ProjectionEngine() {
+    }
+
+    /**
+     * Fator de capitalização mensal equivalente à taxa anual: (1 + a)^(1/12).
+     */
+    public static double fatorMensal(double taxaAnual) {
+        return Math.pow(1 + taxaAnual, 1.0 / 12.0);
+    }
+
+    /**
+     * Valor ao fim de {@code meses} meses, em forma fechada.
+     */
+    public static double valorFinal(double valor, double fatorMensal, int meses) {
+        return valor * Math.pow(fatorMensal, meses);
+    }
+
+    /**
+     * Saldo ao fim de cada mês, de 0 (valor aplicado) até {@code meses}.
+     *
+     * @return vetor com {@code meses + 1} posições; a posição i é o saldo após i meses
+     */
+    public static double[] saldosMensais(double valor, double fatorMensal, int meses) {
+        double[] saldos = new double[meses + 1];
+        double saldo = valor;
+        saldos[0] = saldo;
+        for (int mes = 1; mes <= meses; mes++) {
+            saldo *= fatorMensal;
+            saldos[mes] = saldo;
+        }
+        return saldos;
+    }
+
+    /**
+     * Valor ao fim de cada prazo pedido, na mesma ordem de {@code prazos}.
+     * Percorre os meses uma única vez, até o maior prazo.
+     */
+    public static double[] valoresNosPrazos(double valor, double fatorMensal, int[] prazos) {
+        int maior = 0;
+        for (int prazo : prazos) {
+            maior = Math.max(maior, prazo);
+        }
+
+        double[] saldos = saldosMensais(valor, fatorMensal, maior);
+        double[] valores = new double[prazos.length];
+        for (int i = 0; i < prazos.length; i++) {
+            valores[i] = saldos[prazos[i]];
+        }
+        return valores;
+    }
+}
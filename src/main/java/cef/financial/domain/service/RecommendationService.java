@@ -4,6 +4,7 @@ import cef.financial.domain.model.InvestmentProduct;
 import cef.financial.domain.repository.InvestmentProductRepository; // Importe
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject; // Importe
+import org.hibernate.jpa.HibernateHints;
 import java.util.List;
 
 @ApplicationScoped
@@ -18,6 +19,9 @@ public class RecommendationService {
         }
         String normalizado = perfil.trim().toUpperCase();
 
-        return productRepository.list("UPPER(perfilRecomendado) = ?1", normalizado);
+        // resultado no cache de consultas; invalidado pelo Hibernate quando HTE_INVESTMENT_PRODUCT muda
+        return productRepository.find("UPPER(perfilRecomendado) = ?1", normalizado)
+                .withHint(HibernateHints.HINT_CACHEABLE, true)
+                .list();
     }
 }
\ No newline at end of file
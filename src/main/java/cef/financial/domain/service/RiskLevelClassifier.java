@@ -0,0 +1,108 @@
+package cef.financial.domain.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Converte os textos livres de tipo de produto, risco do produto e perfil do cliente
+ * nos códigos numéricos de risco (1 = baixo, 2 = médio, 3 = alto).
+ *
+ * Cada texto distinto é classificado uma única vez (minúsculas/maiúsculas e busca por
+ * palavras-chave) e o código fica em cache. Nas chamadas seguintes é só uma consulta ao
+ * mapa pela própria String, cujo hash já vem calculado: nenhuma String nova é criada
+ * nos laços que percorrem o histórico ou o catálogo.
+ */
+public final class RiskLevelClassifier {
+
+    // os textos vêm do banco e de parâmetros de requisição: o cache não pode crescer sem limite
+    static final int LIMITE_CACHE = 1024;
+
+    private static final Map<String, Integer> NIVEL_POR_TIPO = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> NIVEL_POR_RISCO = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> TETO_POR_PERFIL = new ConcurrentHashMap<>();
+
+    private RiskLevelClassifier() {
+    }
+
+    /**
+     * Nível de risco pelo tipo do produto no histórico (ex.: "CDB", "Fundo Multimercado", "Ações").
+     */
+    public static int nivelPorTipo(String tipo) {
+        if (tipo == null) {
+            return 1;
+        }
+        return classificar(NIVEL_POR_TIPO, tipo, RiskLevelClassifier::classificarTipo);
+    }
+
+    /**
+     * Nível de risco pelo campo risco do produto (ex.: "Baixo", "Médio", "Alto risco").
+     */
+    public static int nivelPorRisco(String risco) {
+        if (risco == null) {
+            return 2;
+        }
+        return classificar(NIVEL_POR_RISCO, risco, RiskLevelClassifier::classificarRisco);
+    }
+
+    /**
+     * Maior nível de risco aceito para o perfil do cliente (ex.: "Conservador", "Moderado").
+     */
+    public static int tetoPorPerfil(String perfil) {
+        if (perfil == null) {
+            return 2; // default = moderado
+        }
+        return classificar(TETO_POR_PERFIL, perfil, RiskLevelClassifier::classificarPerfil);
+    }
+
+    private static int classificar(Map<String, Integer> cache, String texto, ToIntFunction<String> classificador) {
+        Integer nivel = cache.get(texto);
+        if (nivel != null) {
+            return nivel;
+        }
+
+        int calculado = classificador.applyAsInt(texto);
+        if (cache.size() < LIMITE_CACHE) {
+            cache.putIfAbsent(texto, calculado);
+        }
+        return calculado;
+    }
+
+    private static int classificarTipo(String tipo) {
+        String t = tipo.toLowerCase();
+
+        // Alto risco
+        if (t.contains("ação") || t.contains("acoes")
+                || t.contains("renda variável") || t.contains("renda variavel")
+                || t.contains("fii")
+                || t.contains("fundo imobiliário") || t.contains("fundo imobiliario")) {
+            return 3;
+        }
+
+        // Médio risco
+        if (t.contains("multimercado") || t.contains("fundo")) {
+            return 2;
+        }
+
+        // Baixo risco: CDB, LCI, LCA, Tesouro, renda fixa e tipos desconhecidos
+        return 1;
+    }
+
+    private static int classificarRisco(String risco) {
+        return switch (risco.trim().toUpperCase()) {
+            case "BAIXO", "BAIXO RISCO" -> 1;
+            case "MEDIO", "MÉDIO", "MODERADO" -> 2;
+            case "ALTO", "ALTO RISCO" -> 3;
+            default -> 2;
+        };
+    }
+
+    private static int classificarPerfil(String perfil) {
+        return switch (perfil.trim().toUpperCase()) {
+            case "CONSERVADOR" -> 1;
+            case "MODERADO" -> 2;
+            case "AGRESSIVO", "ARROJADO" -> 3;
+            default -> 2;
+        };
+    }
+}
@@ -0,0 +1,416 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.dto.RiskRecalculationStatusDTO;
+import cef.financial.domain.model.CustomerRiskAggregate;
+import cef.financial.domain.model.RiskRecalculationCheckpoint;
+import cef.financial.domain.repository.RiskRecalculationCheckpointRepository;
+import cef.financial.domain.repository.RiskRecalculationRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recálculo em massa do perfil de risco de toda a base, para quando os critérios de
+ * pontuação do {@link RiskProfileService} mudam.
+ *
+ * Uma única leitura de HTE_INVESTMENT_HISTORY em ordem de cliente monta o acumulado de cada
+ * cliente em memória, uma operação por vez, sem guardar o histórico. Os clientes são agrupados
+ * em blocos; cada bloco é pontuado e gravado (acumulado e perfil em JDBC batch) numa tarefa de um
+ * {@link ForkJoinPool} enquanto a leitura continua. O checkpoint só avança quando todos os
+ * blocos anteriores terminaram: retomar a partir dele nunca pula cliente, no máximo regrava
+ * alguns (a gravação é idempotente).
+ *
+ * Uma execução por instância; o controle de concorrência é local.
+ */
+@ApplicationScoped
+public class RiskProfileRecalculationService {
+
+    private static final Logger LOG = Logger.getLogger(RiskProfileRecalculationService.class);
+
+    static final String JOB = "perfil-risco";
+
+    public static final String EXECUTANDO = "EXECUTANDO";
+    public static final String CONCLUIDO = "CONCLUIDO";
+    public static final String CANCELADO = "CANCELADO";
+    public static final String FALHOU = "FALHOU";
+    // checkpoint ficou EXECUTANDO mas a execução não existe mais (ex.: reinício da aplicação)
+    public static final String INTERROMPIDO = "INTERROMPIDO";
+    public static final String NUNCA_EXECUTADO = "NUNCA_EXECUTADO";
+
+    private static final long INTERVALO_LOG_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @Inject
+    RiskRecalculationRepository recalculationRepository;
+
+    @Inject
+    RiskRecalculationCheckpointRepository checkpointRepository;
+
+    @ConfigProperty(name = "perfil-risco.recalculo.clientes-por-bloco", defaultValue = "1000")
+    int clientesPorBloco;
+
+    @ConfigProperty(name = "perfil-risco.recalculo.paralelismo", defaultValue = "3")
+    int paralelismo;
+
+    // onde roda a leitura do histórico; nos testes, a própria thread que chama iniciar
+    private final Executor executorJob;
+
+    private final AtomicReference<Execucao> atual = new AtomicReference<>();
+
+    public RiskProfileRecalculationService() {
+        this.executorJob = tarefa -> Thread.ofPlatform().name("recalculo-perfil-risco").daemon().start(tarefa);
+    }
+
+    // construtor para testes
+    public RiskProfileRecalculationService(RiskRecalculationRepository recalculationRepository,
+                                           RiskRecalculationCheckpointRepository checkpointRepository,
+                                           int clientesPorBloco,
+                                           int paralelismo,
+                                           Executor executorJob) {
+        this.recalculationRepository = recalculationRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.clientesPorBloco = clientesPorBloco;
+        this.paralelismo = paralelismo;
+        this.executorJob = executorJob;
+    }
+
+    /**
+     * Dispara o recálculo em segundo plano.
+     *
+     * @param retomar continua do último checkpoint de uma execução que não chegou ao fim;
+     *                {@code false} recomeça do primeiro cliente
+     */
+    public RiskRecalculationStatusDTO iniciar(boolean retomar) {
+        Execucao anterior = atual.get();
+        if (anterior != null && anterior.emAndamento()) {
+            throw new WebApplicationException(
+                    "Já existe um recálculo de perfis em andamento.",
+                    Response.Status.CONFLICT
+            );
+        }
+
+        Execucao execucao = new Execucao();
+        if (retomar) {
+            RiskRecalculationCheckpoint checkpoint = checkpointRepository.findById(JOB);
+            if (checkpoint != null && !CONCLUIDO.equals(checkpoint.status)) {
+                execucao.retomarDe(checkpoint);
+            }
+        }
+
+        if (!atual.compareAndSet(anterior, execucao)) {
+            throw new WebApplicationException(
+                    "Já existe um recálculo de perfis em andamento.",
+                    Response.Status.CONFLICT
+            );
+        }
+
+        executorJob.execute(() -> executar(execucao));
+        return execucao.status();
+    }
+
+    /**
+     * Pede a interrupção da execução em andamento. Os blocos já enviados terminam e entram
+     * no checkpoint; o restante fica para uma execução retomada.
+     */
+    public RiskRecalculationStatusDTO cancelar() {
+        Execucao execucao = atual.get();
+        if (execucao == null || !execucao.emAndamento()) {
+            throw new WebApplicationException(
+                    "Nenhum recálculo de perfis em andamento.",
+                    Response.Status.NOT_FOUND
+            );
+        }
+        execucao.cancelado = true;
+        return execucao.status();
+    }
+
+    public RiskRecalculationStatusDTO consultar() {
+        Execucao execucao = atual.get();
+        if (execucao != null) {
+            return execucao.status();
+        }
+
+        RiskRecalculationStatusDTO dto = new RiskRecalculationStatusDTO();
+        RiskRecalculationCheckpoint checkpoint = checkpointRepository.findById(JOB);
+        if (checkpoint == null) {
+            dto.status = NUNCA_EXECUTADO;
+            return dto;
+        }
+
+        dto.status = EXECUTANDO.equals(checkpoint.status) ? INTERROMPIDO : checkpoint.status;
+        dto.ultimoClienteId = checkpoint.ultimoClienteId;
+        dto.clientesProcessados = checkpoint.clientesProcessados;
+        dto.perfisAlterados = checkpoint.perfisAlterados;
+        dto.iniciadoEm = checkpoint.iniciadoEm;
+        dto.atualizadoEm = checkpoint.atualizadoEm;
+        return dto;
+    }
+
+    private void executar(Execucao execucao) {
+        LOG.infof("Recálculo de perfis de risco iniciado a partir do cliente %d (blocos de %d, paralelismo %d)",
+                execucao.ultimoClienteId, clientesPorBloco, paralelismo);
+
+        String status;
+        // close() espera os blocos ainda em gravação, inclusive quando a leitura falha
+        try (ForkJoinPool pool = new ForkJoinPool(Math.max(1, paralelismo))) {
+            processar(execucao, pool);
+            status = execucao.cancelado ? CANCELADO : CONCLUIDO;
+        } catch (Exception e) {
+            LOG.errorf(e, "Falha no recálculo de perfis de risco após o cliente %d", execucao.ultimoClienteId);
+            execucao.erro = e.getMessage();
+            status = FALHOU;
+        }
+
+        try {
+            salvarCheckpoint(execucao, status);
+        } catch (Exception e) {
+            LOG.errorf(e, "Falha ao gravar o checkpoint final do recálculo de perfis de risco");
+        }
+        execucao.status = status;
+
+        LOG.infof("Recálculo de perfis de risco %s: clientes=%d, alterados=%d, operações lidas=%d, último cliente=%d",
+                status, execucao.clientesProcessados, execucao.perfisAlterados,
+                execucao.operacoesLidas.sum(), execucao.ultimoClienteId);
+    }
+
+    private void processar(Execucao execucao, ForkJoinPool pool) throws SQLException {
+        // limita os blocos em memória: a leitura espera quando a gravação fica para trás
+        Semaphore vagas = new Semaphore(pool.getParallelism() * 2);
+        Deque<Bloco> pendentes = new ArrayDeque<>();
+        Montagem montagem = new Montagem(Math.max(1, clientesPorBloco));
+
+        salvarCheckpoint(execucao, EXECUTANDO);
+
+        recalculationRepository.percorrerHistorico(execucao.ultimoClienteId, (clienteId, valor, rentabilidade, tipo) -> {
+            if (execucao.cancelado) {
+                return false;
+            }
+            execucao.operacoesLidas.increment();
+
+            Bloco cheio = montagem.adicionar(clienteId, valor, rentabilidade, tipo);
+            if (cheio != null) {
+                enviar(cheio, pool, vagas, pendentes);
+                concluir(pendentes, execucao, false);
+            }
+            return true;
+        });
+
+        // cancelado: o cliente em montagem pode estar incompleto e fica para a próxima execução
+        if (!execucao.cancelado) {
+            Bloco ultimo = montagem.finalizar();
+            if (ultimo != null) {
+                enviar(ultimo, pool, vagas, pendentes);
+            }
+        }
+        concluir(pendentes, execucao, true);
+    }
+
+    private void enviar(Bloco bloco, ForkJoinPool pool, Semaphore vagas, Deque<Bloco> pendentes) {
+        vagas.acquireUninterruptibly();
+        bloco.tarefa = pool.submit(() -> {
+            try {
+                return pontuarEGravar(bloco);
+            } finally {
+                vagas.release();
+            }
+        });
+        pendentes.add(bloco);
+    }
+
+    /**
+     * Contabiliza, em ordem, os blocos já gravados e avança o checkpoint.
+     * Uma falha na gravação de um bloco é relançada aqui e interrompe a execução.
+     *
+     * @param esperar aguarda todos os pendentes; {@code false} para no primeiro ainda em andamento
+     */
+    private void concluir(Deque<Bloco> pendentes, Execucao execucao, boolean esperar) {
+        while (!pendentes.isEmpty() && (esperar || pendentes.peek().tarefa.isDone())) {
+            Bloco bloco = pendentes.poll();
+            int alterados = bloco.tarefa.join();
+
+            execucao.clientesProcessados += bloco.tamanho;
+            execucao.perfisAlterados += alterados;
+            execucao.ultimoClienteId = bloco.ultimoClienteId();
+            salvarCheckpoint(execucao, EXECUTANDO);
+            execucao.registrarProgresso();
+        }
+    }
+
+    private int pontuarEGravar(Bloco bloco) throws SQLException {
+        String[] perfis = new String[bloco.tamanho];
+        for (int i = 0; i < bloco.tamanho; i++) {
+            perfis[i] = RiskProfileService.pontuar(bloco.clienteIds[i], bloco.agregados[i]).perfil;
+        }
+        return recalculationRepository.gravarBloco(bloco.clienteIds, bloco.agregados, perfis, bloco.tamanho);
+    }
+
+    private void salvarCheckpoint(Execucao execucao, String status) {
+        checkpointRepository.salvar(JOB, status, execucao.ultimoClienteId,
+                execucao.clientesProcessados, execucao.perfisAlterados, execucao.iniciadoEm);
+        execucao.atualizadoEm = OffsetDateTime.now(ZoneOffset.UTC);
+    }
+
+    /**
+     * Monta o acumulado do cliente corrente a partir das operações, que chegam agrupadas por
+     * cliente, e junta os clientes completos em blocos. Usada só pela thread de leitura.
+     */
+    private static final class Montagem {
+
+        private final int tamanhoBloco;
+        private Bloco bloco;
+        private CustomerRiskAggregate agregado;
+
+        Montagem(int tamanhoBloco) {
+            this.tamanhoBloco = tamanhoBloco;
+        }
+
+        /**
+         * @return o bloco que ficou cheio ao trocar de cliente, ou {@code null}
+         */
+        Bloco adicionar(long clienteId, double valor, double rentabilidade, String tipo) {
+            Bloco cheio = null;
+            if (agregado == null || agregado.clienteId != clienteId) {
+                cheio = fecharCliente();
+                agregado = new CustomerRiskAggregate();
+                agregado.clienteId = clienteId;
+            }
+
+            RiskScoringKernel.somar(agregado, valor, rentabilidade, tipo);
+            return cheio;
+        }
+
+        /**
+         * Fim da leitura: o último cliente está completo.
+         *
+         * @return o último bloco, cheio ou não, ou {@code null} se não sobrou cliente
+         */
+        Bloco finalizar() {
+            Bloco cheio = fecharCliente();
+            if (cheio != null) {
+                return cheio;
+            }
+            Bloco resto = bloco;
+            bloco = null;
+            return resto;
+        }
+
+        private Bloco fecharCliente() {
+            if (agregado == null) {
+                return null;
+            }
+            if (bloco == null) {
+                bloco = new Bloco(tamanhoBloco);
+            }
+            bloco.adicionar(agregado);
+            agregado = null;
+
+            if (bloco.tamanho < tamanhoBloco) {
+                return null;
+            }
+            Bloco cheio = bloco;
+            bloco = null;
+            return cheio;
+        }
+    }
+
+    private static final class Bloco {
+
+        final long[] clienteIds;
+        final CustomerRiskAggregate[] agregados;
+        int tamanho;
+        ForkJoinTask<Integer> tarefa;
+
+        Bloco(int capacidade) {
+            this.clienteIds = new long[capacidade];
+            this.agregados = new CustomerRiskAggregate[capacidade];
+        }
+
+        void adicionar(CustomerRiskAggregate agregado) {
+            clienteIds[tamanho] = agregado.clienteId;
+            agregados[tamanho] = agregado;
+            tamanho++;
+        }
+
+        long ultimoClienteId() {
+            return clienteIds[tamanho - 1];
+        }
+    }
+
+    /**
+     * Estado de uma execução. Os contadores só são alterados pela thread de leitura;
+     * volatile basta para as consultas de andamento.
+     */
+    private static final class Execucao {
+
+        final OffsetDateTime iniciadoEm = OffsetDateTime.now(ZoneOffset.UTC);
+        final long inicioNanos = System.nanoTime();
+        final LongAdder operacoesLidas = new LongAdder();
+
+        volatile String status = EXECUTANDO;
+        volatile boolean cancelado;
+        volatile String erro;
+        volatile OffsetDateTime atualizadoEm = iniciadoEm;
+
+        volatile long ultimoClienteId;
+        volatile long clientesProcessados;
+        volatile long perfisAlterados;
+
+        // totais herdados do checkpoint quando a execução é retomada
+        long clientesIniciais;
+        long ultimoLogNanos = inicioNanos;
+
+        void retomarDe(RiskRecalculationCheckpoint checkpoint) {
+            ultimoClienteId = checkpoint.ultimoClienteId;
+            clientesProcessados = checkpoint.clientesProcessados;
+            perfisAlterados = checkpoint.perfisAlterados;
+            clientesIniciais = checkpoint.clientesProcessados;
+        }
+
+        boolean emAndamento() {
+            return EXECUTANDO.equals(status);
+        }
+
+        void registrarProgresso() {
+            long agora = System.nanoTime();
+            if (agora - ultimoLogNanos >= INTERVALO_LOG_NANOS) {
+                ultimoLogNanos = agora;
+                LOG.infof("Recálculo de perfis de risco: %d clientes (%.0f/s), %d alterados, último cliente %d",
+                        clientesProcessados, clientesPorSegundo(), perfisAlterados, ultimoClienteId);
+            }
+        }
+
+        double clientesPorSegundo() {
+            double segundos = (System.nanoTime() - inicioNanos) / 1e9;
+            return segundos > 0 ? (clientesProcessados - clientesIniciais) / segundos : 0.0;
+        }
+
+        RiskRecalculationStatusDTO status() {
+            RiskRecalculationStatusDTO dto = new RiskRecalculationStatusDTO();
+            dto.status = status;
+            dto.ultimoClienteId = ultimoClienteId;
+            dto.clientesProcessados = clientesProcessados;
+            dto.operacoesLidas = operacoesLidas.sum();
+            dto.perfisAlterados = perfisAlterados;
+            dto.clientesPorSegundo = clientesPorSegundo();
+            dto.iniciadoEm = iniciadoEm;
+            dto.atualizadoEm = atualizadoEm;
+            dto.erro = erro;
+            return dto;
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package cef.financial.domain.service;
 
 import cef.financial.domain.dto.RiskProfileResponseDTO;
+import cef.financial.domain.model.CustomerRiskAggregate;
 import cef.financial.domain.model.InvestmentHistory;
 import cef.financial.domain.model.Customer;
+import cef.financial.domain.repository.CustomerRiskAggregateRepository;
 import cef.financial.domain.repository.InvestmentHistoryRepository;
 import cef.financial.domain.repository.CustomerRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Objects;
 
 @ApplicationScoped
 public class RiskProfileService {
@@ -20,59 +25,174 @@ public class RiskProfileService {
     @Inject
     CustomerRepository customerRepository;
 
+    @Inject
+    CustomerRiskAggregateRepository aggregateRepository;
+
+    /**
+     * Incorpora uma operação recém-gravada no histórico ao acumulado do cliente, em O(1).
+     * Deve ser chamado na mesma transação que persiste o {@link InvestmentHistory}.
+     *
+     * @return o acumulado após a operação, pronto para {@link #atualizarPerfil}
+     */
+    @Transactional
+    public CustomerRiskAggregate registrarOperacao(InvestmentHistory operacao) {
+        if (operacao == null || operacao.clienteId == null) {
+            return null;
+        }
+
+        CustomerRiskAggregate incremento = new CustomerRiskAggregate();
+        incremento.clienteId = operacao.clienteId;
+        RiskScoringKernel.somar(incremento, operacao.valor, operacao.rentabilidade, operacao.tipo);
+        return registrarOperacoes(incremento);
+    }
+
+    /**
+     * Incorpora de uma vez várias operações do mesmo cliente já gravadas no histórico,
+     * somadas em memória no {@code incremento} (ex.: as de um bloco do lote).
+     *
+     * @return o acumulado após as operações, pronto para {@link #atualizarPerfil}
+     */
+    @Transactional
+    public CustomerRiskAggregate registrarOperacoes(CustomerRiskAggregate incremento) {
+        // UPDATE atômico: simulações concorrentes do mesmo cliente não perdem incrementos
+        CustomerRiskAggregate agregado = aggregateRepository.acumular(
+                incremento.clienteId,
+                incremento.pesoTotal,
+                incremento.retornoPonderado,
+                incremento.maxNivelRisco,
+                incremento.qtdOperacoes,
+                OffsetDateTime.now(ZoneOffset.UTC)
+        );
+
+        if (agregado == null) {
+            // primeiro registro do cliente: monta o acumulado a partir do histórico
+            // (que já contém as operações do incremento, gravadas na mesma transação)
+            return reconstruirAgregado(incremento.clienteId, incremento.pesoTotal, incremento.retornoPonderado,
+                    incremento.maxNivelRisco, incremento.qtdOperacoes);
+        }
+        return agregado;
+    }
+
+    /**
+     * Perfil para GET /perfil-risco, sem transação de escrita nem lock em HTE_CUSTOMER.
+     *
+     * O acumulado do cliente é a versão persistida do histórico: cada operação registrada
+     * o atualiza na mesma transação ({@link #registrarOperacao}), então pontuá-lo sempre
+     * reflete o histórico atual, em O(1). O perfil gravado no cliente (lido do cache L2) só é
+     * regravado quando diverge do calculado, ex.: depois de mudar os critérios de pontuação.
+     * Clientes ainda sem acumulado passam uma única vez pelo {@link #calculateProfile}.
+     */
+    public RiskProfileResponseDTO consultarPerfil(Long clienteId) {
+        if (clienteId == null || clienteId <= 0) {
+            return perfilInvalido(clienteId);
+        }
+
+        CustomerRiskAggregate agregado = aggregateRepository.buscarSomenteLeitura(clienteId);
+        if (agregado == null) {
+            return calculateProfile(clienteId);
+        }
+        if (agregado.qtdOperacoes == 0) {
+            return perfilIndefinido(clienteId);
+        }
+
+        RiskProfileResponseDTO response = pontuar(clienteId, agregado);
+
+        Customer customer = customerRepository.findById(clienteId);
+        if (customer != null && !Objects.equals(customer.perfil, response.perfil)) {
+            customerRepository.atualizarPerfil(clienteId, response.perfil);
+        }
+        return response;
+    }
+
     @Transactional
     public RiskProfileResponseDTO calculateProfile(Long clienteId) {
 
         // ===== Validação simples do ID do cliente =====
         if (clienteId == null || clienteId <= 0) {
-            RiskProfileResponseDTO response = new RiskProfileResponseDTO();
-            response.clienteId = clienteId;
-            response.perfil = "Inválido";
-            response.pontuacao = 0;
-            response.descricao = "ID do cliente inválido. O valor deve ser um número positivo.";
-            return response;
+            return perfilInvalido(clienteId);
         }
 
-        List<InvestmentHistory> history =
-                historyRepository.list("clienteId", clienteId);
+        CustomerRiskAggregate agregado = aggregateRepository.findById(clienteId);
+        if (agregado == null) {
+            agregado = reconstruirAgregado(clienteId, 0.0, 0.0, 0, 0);
+        }
+
+        return atualizarPerfil(clienteId, agregado);
+    }
+
+    /**
+     * Pontua o cliente a partir de um acumulado já conhecido (ex.: o devolvido por
+     * {@link #registrarOperacao}) e grava o perfil no cliente, sem reler o banco.
+     */
+    @Transactional
+    public RiskProfileResponseDTO atualizarPerfil(Long clienteId, CustomerRiskAggregate agregado) {
 
         // Sem histórico → perfil indefinido (não altera o cliente)
-        if (history == null || history.isEmpty()) {
-            RiskProfileResponseDTO response = new RiskProfileResponseDTO();
-            response.clienteId = clienteId;
-            response.perfil = "Indefinido";
-            response.pontuacao = 0;
-            response.descricao = "Cliente sem histórico de investimentos suficiente para cálculo de perfil de risco.";
-            return response;
+        if (agregado == null || agregado.qtdOperacoes == 0) {
+            return perfilIndefinido(clienteId);
         }
 
-        int qtdOperacoes = history.size();
-        double pesoTotal = 0.0;
-        double weightedReturn = 0.0;
-        int maxRiskLevel = 0; // 1 = baixo, 2 = médio, 3 = alto
+        RiskProfileResponseDTO response = pontuar(clienteId, agregado);
 
-        for (InvestmentHistory h : history) {
-            double valor = h.valor;
+        // ===== 5) Atualiza o perfil do cliente na tabela CUSTOMER =====
+        // só altera quando muda: evita um UPDATE e a invalidação do cache L2 a cada simulação
+        Customer customer = customerRepository.findById(clienteId);
+        if (customer != null && !Objects.equals(customer.perfil, response.perfil)) {
+            customer.perfil = response.perfil;
+        }
+
+        return response;
+    }
 
-            // Normalização de rentabilidade:
-            // Se a rentabilidade vier em percentual (ex: 10 = 10%), convertemos para 0.10
-            double rentabilidade = h.rentabilidade;
+    private static RiskProfileResponseDTO perfilInvalido(Long clienteId) {
+        RiskProfileResponseDTO response = new RiskProfileResponseDTO();
+        response.clienteId = clienteId;
+        response.perfil = "Inválido";
+        response.pontuacao = 0;
+        response.descricao = "ID do cliente inválido. O valor deve ser um número positivo.";
+        return response;
+    }
 
-            // Se vier em percentual (ex.: 10 significa 10%), converte:
-            if (rentabilidade > 1.0) {
-                rentabilidade = rentabilidade / 100.0;
-            }
-            double peso = valor > 0 ? valor : 1.0;
-            pesoTotal += peso;
-            weightedReturn += rentabilidade * peso;
+    private static RiskProfileResponseDTO perfilIndefinido(Long clienteId) {
+        RiskProfileResponseDTO response = new RiskProfileResponseDTO();
+        response.clienteId = clienteId;
+        response.perfil = "Indefinido";
+        response.pontuacao = 0;
+        response.descricao = "Cliente sem histórico de investimentos suficiente para cálculo de perfil de risco.";
+        return response;
+    }
 
-            int riskLevel = deriveRiskLevel(h.tipo);
-            if (riskLevel > maxRiskLevel) {
-                maxRiskLevel = riskLevel;
-            }
+    /**
+     * Varre o histórico completo uma única vez para criar o acumulado de um cliente
+     * que ainda não o possui (clientes anteriores ao acumulado ou dados de seed).
+     * Lê só as colunas usadas na pontuação, sem carregar entidades.
+     *
+     * Outra transação pode criar o mesmo acumulado entre o UPDATE sem linha e este ponto
+     * (duas primeiras simulações simultâneas, ou uma simulação e um GET /perfil-risco):
+     * a gravação é um MERGE que, nesse caso, soma só o incremento informado.
+     */
+    private CustomerRiskAggregate reconstruirAgregado(Long clienteId,
+                                                      double peso,
+                                                      double retornoPonderado,
+                                                      int nivelRisco,
+                                                      long quantidade) {
+        List<Object[]> linhas = historyRepository.colunasDeRisco(clienteId);
+
+        if (linhas == null || linhas.isEmpty()) {
+            return null;
         }
 
-        double avgReturn = (pesoTotal > 0) ? (weightedReturn / pesoTotal) : 0.0;
+        CustomerRiskAggregate inicial = RiskScoringKernel.acumular(RiskScoringKernel.colunas(linhas));
+        inicial.clienteId = clienteId;
+        inicial.atualizadoEm = OffsetDateTime.now(ZoneOffset.UTC);
+
+        return aggregateRepository.criarOuAcumular(inicial, peso, retornoPonderado, nivelRisco, quantidade);
+    }
+
+    static RiskProfileResponseDTO pontuar(Long clienteId, CustomerRiskAggregate agregado) {
+        long qtdOperacoes = agregado.qtdOperacoes;
+        int maxRiskLevel = agregado.maxNivelRisco;
+        double avgReturn = (agregado.pesoTotal > 0) ? (agregado.retornoPonderado / agregado.pesoTotal) : 0.0;
 
         // ===== 1) Score pela rentabilidade média (0 a 40) =====
         // Faixas mais suaves para não empurrar todo mundo pra cima
@@ -133,12 +253,6 @@ public class RiskProfileService {
             descricao = "Perfil com alta tolerância ao risco, aceitando maior volatilidade em troca de potenciais ganhos.";
         }
 
-        // ===== 5) Atualiza o perfil do cliente na tabela CUSTOMER =====
-        Customer customer = customerRepository.findById(clienteId);
-        if (customer != null) {
-            customer.perfil = perfil;
-        }
-
         RiskProfileResponseDTO response = new RiskProfileResponseDTO();
         response.clienteId = clienteId;
         response.perfil = perfil;
@@ -147,36 +261,7 @@ public class RiskProfileService {
         return response;
     }
 
-    private int deriveRiskLevel(String tipo) {
-        if (tipo == null) {
-            return 1;
-        }
-
-        String t = tipo.toLowerCase();
-
-        // Alto risco
-        if (t.contains("ação") || t.contains("acoes")
-                || t.contains("renda variável") || t.contains("renda variavel")
-                || t.contains("fii")
-                || t.contains("fundo imobiliário") || t.contains("fundo imobiliario")) {
-            return 3;
-        }
-
-        // Médio risco
-        if (t.contains("multimercado") || t.contains("fundo")) {
-            return 2;
-        }
-
-        // Baixo risco
-        if (t.contains("cdb")
-                || t.contains("lci")
-                || t.contains("lca")
-                || t.contains("lc")
-                || t.contains("tesouro")
-                || t.contains("renda fixa")) {
-            return 1;
-        }
-
-        return 1;
+    static int deriveRiskLevel(String tipo) {
+        return RiskLevelClassifier.nivelPorTipo(tipo);
     }
 }
@@ -0,0 +1,98 @@
+package cef.financial.domain.service;
+
+import cef.financial.domain.model.CustomerRiskAggregate;
+
+import java.util.List;
+
+/**
+ * Montagem do acumulado de risco a partir do histórico em colunas: valores e rentabilidades
+ * em {@code double[]} e o nível de risco de cada operação em {@code byte[]}.
+ *
+ * O histórico chega como projeção escalar (valor, rentabilidade, tipo), sem entidades no
+ * contexto de persistência. O laço de {@link #acumular} só lê vetores primitivos, sem
+ * desvios além do máximo e da normalização da rentabilidade, que o JIT compila sem saltos.
+ */
+public final class RiskScoringKernel {
+
+    private RiskScoringKernel() {
+    }
+
+    /**
+     * Histórico de um cliente em colunas; a posição i de cada vetor é a mesma operação.
+     */
+    public record Colunas(double[] valores, double[] rentabilidades, byte[] niveisRisco) {
+
+        public int tamanho() {
+            return valores.length;
+        }
+    }
+
+    /**
+     * Converte as linhas {valor, rentabilidade, tipo} da projeção em vetores primitivos.
+     * O tipo vira o nível de risco aqui, pelo cache do {@link RiskLevelClassifier}.
+     */
+    public static Colunas colunas(List<Object[]> linhas) {
+        int n = linhas.size();
+        double[] valores = new double[n];
+        double[] rentabilidades = new double[n];
+        byte[] niveis = new byte[n];
+
+        int i = 0;
+        for (Object[] linha : linhas) {
+            valores[i] = ((Number) linha[0]).doubleValue();
+            rentabilidades[i] = ((Number) linha[1]).doubleValue();
+            niveis[i] = (byte) RiskLevelClassifier.nivelPorTipo((String) linha[2]);
+            i++;
+        }
+        return new Colunas(valores, rentabilidades, niveis);
+    }
+
+    /**
+     * Soma todas as operações num acumulado novo (sem cliente e sem data).
+     */
+    public static CustomerRiskAggregate acumular(Colunas colunas) {
+        double[] valores = colunas.valores();
+        double[] rentabilidades = colunas.rentabilidades();
+        byte[] niveis = colunas.niveisRisco();
+        int n = colunas.tamanho();
+
+        double pesoTotal = 0.0;
+        double retornoPonderado = 0.0;
+        int maxNivel = 0;
+        for (int i = 0; i < n; i++) {
+            double peso = peso(valores[i]);
+            pesoTotal += peso;
+            retornoPonderado += normalizarRentabilidade(rentabilidades[i]) * peso;
+            maxNivel = Math.max(maxNivel, niveis[i]);
+        }
+
+        CustomerRiskAggregate agregado = new CustomerRiskAggregate();
+        agregado.pesoTotal = pesoTotal;
+        agregado.retornoPonderado = retornoPonderado;
+        agregado.maxNivelRisco = maxNivel;
+        agregado.qtdOperacoes = n;
+        return agregado;
+    }
+
+    /**
+     * Soma uma operação a um acumulado em memória, ex.: o incremento das operações de um
+     * cliente num bloco do lote, gravado depois num único UPDATE.
+     */
+    public static void somar(CustomerRiskAggregate agregado, double valor, double rentabilidade, String tipo) {
+        double peso = peso(valor);
+        agregado.pesoTotal += peso;
+        agregado.retornoPonderado += normalizarRentabilidade(rentabilidade) * peso;
+        agregado.maxNivelRisco = Math.max(agregado.maxNivelRisco, RiskLevelClassifier.nivelPorTipo(tipo));
+        agregado.qtdOperacoes++;
+    }
+
+    // Normalização de rentabilidade:
+    // Se vier em percentual (ex.: 10 significa 10%), converte para 0.10
+    static double normalizarRentabilidade(double rentabilidade) {
+        return rentabilidade > 1.0 ? rentabilidade / 100.0 : rentabilidade;
+    }
+
+    static double peso(double valor) {
+        return valor > 0 ? valor : 1.0;
+    }
+}
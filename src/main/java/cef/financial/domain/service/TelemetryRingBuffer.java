@@ -0,0 +1,122 @@
+package cef.financial.domain.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fila circular limitada, sem locks, para vários produtores e um consumidor.
+ *
+ * Os produtores (threads de requisição) nunca bloqueiam: se a fila estiver cheia
+ * o item é descartado e contabilizado em {@link #descartados()}. Cada posição
+ * carrega um número de sequência que indica se está livre para escrita ou
+ * pronta para leitura, o que garante a publicação segura do item ao consumidor.
+ */
+public final class TelemetryRingBuffer<E> {
+
+    private final int capacidade;
+    private final int mascara;
+    private final Object[] itens;
+    private final AtomicLongArray sequencias;
+
+    // próxima posição a ser reservada pelos produtores
+    private final AtomicLong cauda = new AtomicLong();
+
+    // próxima posição a ser lida; só alterada dentro de drenar()
+    private long cabeca;
+
+    private final LongAdder descartados = new LongAdder();
+
+    public TelemetryRingBuffer(int capacidadeMinima) {
+        if (capacidadeMinima < 1) {
+            throw new IllegalArgumentException("Capacidade da fila deve ser positiva.");
+        }
+        this.capacidade = proximaPotenciaDeDois(capacidadeMinima);
+        this.mascara = capacidade - 1;
+        this.itens = new Object[capacidade];
+        this.sequencias = new AtomicLongArray(capacidade);
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+    }
+
+    /**
+     * Tenta enfileirar o item sem bloquear.
+     *
+     * @return {@code false} quando a fila está cheia e o item foi descartado
+     */
+    public boolean oferecer(E item) {
+        long posicao = cauda.get();
+        while (true) {
+            int indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - posicao;
+
+            if (diferenca == 0) {
+                if (cauda.compareAndSet(posicao, posicao + 1)) {
+                    itens[indice] = item;
+                    // publica o item para o consumidor
+                    sequencias.set(indice, posicao + 1);
+                    return true;
+                }
+                posicao = cauda.get();
+            } else if (diferenca < 0) {
+                // posição ainda não foi liberada pelo consumidor: fila cheia
+                descartados.increment();
+                return false;
+            } else {
+                // outro produtor reservou esta posição antes
+                posicao = cauda.get();
+            }
+        }
+    }
+
+    /**
+     * Move até {@code maximo} itens publicados para {@code destino}, em ordem de chegada.
+     * Sincronizado para permitir drenagem pelo agendamento e pelo shutdown sem disputa.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized int drenar(List<? super E> destino, int maximo) {
+        int lidos = 0;
+        while (lidos < maximo) {
+            int indice = (int) (cabeca & mascara);
+            if (sequencias.get(indice) != cabeca + 1) {
+                break; // vazia ou produtor ainda publicando
+            }
+
+            destino.add((E) itens[indice]);
+            itens[indice] = null;
+            // libera a posição para a próxima volta
+            sequencias.set(indice, cabeca + capacidade);
+            cabeca++;
+            lidos++;
+        }
+        return lidos;
+    }
+
+    /**
+     * Quantidade aproximada de itens aguardando drenagem.
+     */
+    public int tamanho() {
+        long pendentes;
+        synchronized (this) {
+            pendentes = cauda.get() - cabeca;
+        }
+        return (int) Math.max(0, Math.min(pendentes, capacidade));
+    }
+
+    public int capacidade() {
+        return capacidade;
+    }
+
+    public long descartados() {
+        return descartados.sum();
+    }
+
+    private static int proximaPotenciaDeDois(int valor) {
+        if (valor > (1 << 30)) {
+            throw new IllegalArgumentException("Capacidade da fila muito grande: " + valor);
+        }
+        return valor == 1 ? 1 : Integer.highestOneBit(valor - 1) << 1;
+    }
+}
@@ -1,60 +1,325 @@
 package cef.financial.domain.service;
 
 import cef.financial.domain.dto.TelemetryResponseDTO;
+import cef.financial.domain.model.TelemetryDailyRollup;
 import cef.financial.domain.model.TelemetryEvent;
+import cef.financial.domain.repository.TelemetryDailyRollupRepository;
 import cef.financial.domain.repository.TelemetryEventRepository;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Registro e consulta de telemetria dos endpoints.
+ *
+ * O registro não toca o banco na thread da requisição: os eventos entram numa
+ * fila circular limitada e um gravador em background descarrega lotes,
+ * aproveitando o JDBC batch do Hibernate. Eventos que não cabem na fila são
+ * descartados e contabilizados.
+ *
+ * Junto com os eventos, o gravador mantém agregados diários por serviço
+ * ({@link TelemetryDailyRollup}), somados por MERGE no banco; a consulta lê apenas esses agregados, então o
+ * custo não depende da quantidade de chamadas no período.
+ */
 @ApplicationScoped
 public class TelemetryService {
 
     private static final Logger LOG = Logger.getLogger(TelemetryService.class);
 
+    private static final int CAPACIDADE_PADRAO = 8192;
+    private static final int TAMANHO_LOTE_PADRAO = 500;
+    private static final int MAX_SERIES_PADRAO = 200;
+
+    // ordem de gravação dos agregados de um lote: serviço, depois dia
+    private static final Comparator<TelemetryDailyRollup.Chave> ORDEM_CHAVE = Comparator
+            .comparing((TelemetryDailyRollup.Chave c) -> c.serviceName)
+            .thenComparing(c -> c.dia);
+
+    /** Série que recebe as chamadas de serviços novos depois que o limite de séries é atingido. */
+    public static final String SERIE_EXCEDENTE = "OUTROS";
+
     @Inject
     TelemetryEventRepository telemetryEventRepository;
 
+    @Inject
+    TelemetryDailyRollupRepository rollupRepository;
+
+    @ConfigProperty(name = "telemetria.fila.capacidade", defaultValue = "8192")
+    int capacidadeFila;
+
+    @ConfigProperty(name = "telemetria.gravacao.tamanho-lote", defaultValue = "500")
+    int tamanhoLote;
+
+    @ConfigProperty(name = "telemetria.max-series", defaultValue = "200")
+    int maxSeries;
+
+    // nomes de série aceitos até agora; nunca passa de maxSeries (+ corrida entre threads)
+    private final Set<String> series = ConcurrentHashMap.newKeySet();
+    private final LongAdder chamadasExcedentes = new LongAdder();
+
+    private TelemetryRingBuffer<TelemetryEvent> fila;
+
+    private final LongAdder falhasGravacao = new LongAdder();
+    private long descartadosJaReportados;
+
     // construtor padrão para o CDI
     public TelemetryService() {
     }
 
     // construtor para testes unitários
-    public TelemetryService(TelemetryEventRepository telemetryEventRepository) {
+    public TelemetryService(TelemetryEventRepository telemetryEventRepository,
+                            TelemetryDailyRollupRepository rollupRepository) {
+        this(telemetryEventRepository, rollupRepository, CAPACIDADE_PADRAO, TAMANHO_LOTE_PADRAO, MAX_SERIES_PADRAO);
+    }
+
+    // construtor para testes unitários
+    public TelemetryService(TelemetryEventRepository telemetryEventRepository,
+                            TelemetryDailyRollupRepository rollupRepository,
+                            int capacidadeFila, int tamanhoLote) {
+        this(telemetryEventRepository, rollupRepository, capacidadeFila, tamanhoLote, MAX_SERIES_PADRAO);
+    }
+
+    // construtor para testes unitários
+    public TelemetryService(TelemetryEventRepository telemetryEventRepository,
+                            TelemetryDailyRollupRepository rollupRepository,
+                            int capacidadeFila, int tamanhoLote, int maxSeries) {
         this.telemetryEventRepository = telemetryEventRepository;
+        this.rollupRepository = rollupRepository;
+        this.capacidadeFila = capacidadeFila;
+        this.tamanhoLote = tamanhoLote;
+        this.maxSeries = maxSeries;
+        this.fila = new TelemetryRingBuffer<>(capacidadeFila);
     }
 
-    @Transactional
+    @PostConstruct
+    void init() {
+        fila = new TelemetryRingBuffer<>(capacidadeFila);
+    }
+
+    /**
+     * Enfileira o evento para gravação assíncrona. Nunca bloqueia nem acessa o banco.
+     */
     public void record(String serviceName, long durationMs) {
         try {
             validarParametrosRecord(serviceName, durationMs);
+            enfileirar(serviceName, durationMs, durationMs * 1000L);
 
-            TelemetryEvent event = new TelemetryEvent();
-            event.serviceName = serviceName;
-            event.durationMs = durationMs;
-            event.timestamp = OffsetDateTime.now();
+        } catch (WebApplicationException e) {
+            LOG.warnf("Erro de validação ao registrar telemetria: %s", e.getMessage());
+            throw e;
+        }
+    }
 
-            telemetryEventRepository.persist(event);
+    /**
+     * Igual a {@link #record(String, long)}, com a duração medida por {@code System.nanoTime()}.
+     * A precisão de microssegundos é preservada no histograma de latência.
+     */
+    public void recordNanos(String serviceName, long durationNanos) {
+        try {
+            validarParametrosRecord(serviceName, durationNanos);
+            enfileirar(serviceName, Math.round(durationNanos / 1_000_000.0), durationNanos / 1_000L);
 
         } catch (WebApplicationException e) {
             LOG.warnf("Erro de validação ao registrar telemetria: %s", e.getMessage());
             throw e;
-        } catch (Exception e) {
-            LOG.error("Erro inesperado ao registrar telemetria", e);
-            throw new WebApplicationException(
-                    "Erro interno ao registrar telemetria.",
-                    Response.Status.INTERNAL_SERVER_ERROR
-            );
+        }
+    }
+
+    private void enfileirar(String serviceName, long durationMs, long durationUs) {
+        TelemetryEvent event = new TelemetryEvent();
+        event.serviceName = limitarSerie(serviceName);
+        event.durationMs = durationMs;
+        event.durationUs = durationUs;
+        event.timestamp = OffsetDateTime.now();
+
+        fila.oferecer(event);
+    }
+
+    /**
+     * Mantém a quantidade de séries limitada: depois de {@code maxSeries} nomes distintos,
+     * serviços novos são contabilizados em {@link #SERIE_EXCEDENTE}.
+     */
+    private String limitarSerie(String serviceName) {
+        if (series.contains(serviceName)) {
+            return serviceName;
+        }
+        if (series.size() < maxSeries && series.add(serviceName)) {
+            return serviceName;
+        }
+        if (series.contains(serviceName)) {
+            return serviceName; // adicionado por outra thread
+        }
+        chamadasExcedentes.increment();
+        return SERIE_EXCEDENTE;
+    }
+
+    @Scheduled(every = "${telemetria.gravacao.intervalo:1s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void descarregarAgendado() {
+        descarregar();
+    }
+
+    void aoEncerrar(@Observes ShutdownEvent event) {
+        int gravados = descarregar();
+        LOG.infof("Telemetria drenada no encerramento: eventos=%d, descartados=%d, falhas=%d, excedentes=%d",
+                gravados, descartados(), falhasGravacao(), chamadasExcedentes());
+    }
+
+    /**
+     * Drena a fila em lotes de até {@code tamanhoLote} eventos, um lote por transação.
+     * Falha em um lote não interrompe os demais; os eventos do lote são contabilizados como perdidos.
+     *
+     * @return quantidade de eventos gravados
+     */
+    public int descarregar() {
+        int gravados = 0;
+        List<TelemetryEvent> lote = new ArrayList<>(tamanhoLote);
+
+        while (fila.drenar(lote, tamanhoLote) > 0) {
+            try {
+                gravarLote(lote);
+                gravados += lote.size();
+            } catch (Exception e) {
+                falhasGravacao.add(lote.size());
+                LOG.errorf(e, "Falha ao gravar lote de telemetria com %d eventos", lote.size());
+            }
+            lote.clear();
+        }
+
+        reportarDescartes();
+        return gravados;
+    }
+
+    // chamada interna interceptada pelo ArC: cada lote roda na sua própria transação
+    @Transactional
+    void gravarLote(List<TelemetryEvent> lote) {
+        telemetryEventRepository.persist(lote);
+        atualizarRollups(lote);
+    }
+
+    /**
+     * Soma o lote aos agregados diários. O lote é consolidado em memória antes, então cada
+     * par (serviço, dia) gera um MERGE e, se a linha já existia, a gravação do histograma
+     * mesclado. As chaves são gravadas sempre na mesma ordem, para que dois gravadores
+     * concorrentes não bloqueiem as mesmas linhas em ordens opostas.
+     */
+    private void atualizarRollups(List<TelemetryEvent> lote) {
+        Map<TelemetryDailyRollup.Chave, TelemetryDailyRollup> parciais = new TreeMap<>(ORDEM_CHAVE);
+        Map<TelemetryDailyRollup.Chave, LatencyHistogram> histogramas = new HashMap<>();
+        for (TelemetryEvent event : lote) {
+            LocalDate dia = event.timestamp.toLocalDate();
+            TelemetryDailyRollup parcial = parciais.computeIfAbsent(
+                    new TelemetryDailyRollup.Chave(event.serviceName, dia),
+                    chave -> new TelemetryDailyRollup(chave.serviceName, chave.dia));
+            acumular(parcial, 1, event.durationMs, event.durationMs, event.durationMs);
+            histogramas.computeIfAbsent(parcial.id, chave -> new LatencyHistogram())
+                    .registrar(duracaoMicros(event));
+        }
+
+        OffsetDateTime agora = OffsetDateTime.now();
+        for (TelemetryDailyRollup parcial : parciais.values()) {
+            LatencyHistogram histogramaLote = histogramas.get(parcial.id);
+            parcial.histograma = histogramaLote.serializar();
+            parcial.atualizadoEm = agora;
+
+            TelemetryDailyRollupRepository.Acumulo acumulo = rollupRepository.acumular(parcial);
+            if (!acumulo.criado()) {
+                LatencyHistogram histograma = LatencyHistogram.desserializar(acumulo.histogramaAnterior());
+                histograma.mesclar(histogramaLote);
+                rollupRepository.gravarHistograma(parcial.id, histograma.serializar());
+            }
+        }
+    }
+
+    private static long duracaoMicros(TelemetryEvent event) {
+        return event.durationUs != null ? event.durationUs : event.durationMs * 1000L;
+    }
+
+    private static void acumular(TelemetryDailyRollup rollup, long quantidade, long somaMs, long minMs, long maxMs) {
+        rollup.quantidade += quantidade;
+        rollup.somaMs += somaMs;
+        rollup.minMs = Math.min(rollup.minMs, minMs);
+        rollup.maxMs = Math.max(rollup.maxMs, maxMs);
+    }
+
+    /**
+     * Gera os agregados diários a partir dos eventos já gravados, caso a tabela
+     * de agregados ainda esteja vazia (primeira subida com esta versão).
+     *
+     * @return quantidade de agregados criados
+     */
+    @Transactional
+    public int reconstruirRollups() {
+        if (rollupRepository.count() > 0) {
+            return 0;
+        }
+
+        List<Object[]> linhas = telemetryEventRepository.getEntityManager().createQuery("""
+                        select e.serviceName, cast(e.timestamp as LocalDate),
+                               count(e), sum(e.durationMs), min(e.durationMs), max(e.durationMs)
+                        from TelemetryEvent e
+                        group by e.serviceName, cast(e.timestamp as LocalDate)
+                        """, Object[].class)
+                .getResultList();
+
+        OffsetDateTime agora = OffsetDateTime.now();
+        for (Object[] linha : linhas) {
+            TelemetryDailyRollup rollup = new TelemetryDailyRollup((String) linha[0], (LocalDate) linha[1]);
+            acumular(rollup,
+                    ((Number) linha[2]).longValue(),
+                    ((Number) linha[3]).longValue(),
+                    ((Number) linha[4]).longValue(),
+                    ((Number) linha[5]).longValue());
+            rollup.atualizadoEm = agora;
+            rollupRepository.persist(rollup);
+        }
+
+        LOG.infof("Agregados diários de telemetria reconstruídos: %d", linhas.size());
+        return linhas.size();
+    }
+
+    public long descartados() {
+        return fila.descartados();
+    }
+
+    public long falhasGravacao() {
+        return falhasGravacao.sum();
+    }
+
+    public long chamadasExcedentes() {
+        return chamadasExcedentes.sum();
+    }
+
+    public int pendentes() {
+        return fila.tamanho();
+    }
+
+    private void reportarDescartes() {
+        long total = fila.descartados();
+        if (total > descartadosJaReportados) {
+            LOG.warnf("Fila de telemetria cheia: %d eventos descartados desde o último ciclo (total=%d)",
+                    total - descartadosJaReportados, total);
+            descartadosJaReportados = total;
         }
     }
 
@@ -63,24 +328,41 @@ public class TelemetryService {
         try {
             PeriodoConsulta periodo = validarETratarPeriodo(from, to);
 
-            List<TelemetryEvent> events = telemetryEventRepository.list(
-                    "timestamp >= ?1 and timestamp < ?2",
-                    periodo.start, periodo.endExclusive
-            );
+            // no máximo (dias do período x serviços) linhas, independente do volume de chamadas
+            List<TelemetryDailyRollup> rollups = rollupRepository.findByPeriodo(periodo.from, periodo.to);
 
-            Map<String, List<TelemetryEvent>> byService =
-                    events.stream().collect(Collectors.groupingBy(e -> e.serviceName));
+            Map<String, TelemetryDailyRollup> byService = new TreeMap<>();
+            Map<String, LatencyHistogram> histogramas = new HashMap<>();
+            for (TelemetryDailyRollup diario : rollups) {
+                TelemetryDailyRollup total = byService.computeIfAbsent(
+                        diario.id.serviceName,
+                        nome -> new TelemetryDailyRollup(nome, null));
+                acumular(total, diario.quantidade, diario.somaMs, diario.minMs, diario.maxMs);
+
+                // percentis do período = percentis do histograma resultante da soma dos dias
+                if (diario.histograma != null) {
+                    histogramas.computeIfAbsent(diario.id.serviceName, nome -> new LatencyHistogram())
+                            .mesclar(LatencyHistogram.desserializar(diario.histograma));
+                }
+            }
 
             TelemetryResponseDTO response = new TelemetryResponseDTO();
-            response.servicos = byService.entrySet().stream()
-                    .map(entry -> {
+            response.servicos = byService.values().stream()
+                    .map(total -> {
                         TelemetryResponseDTO.ServiceMetric m = new TelemetryResponseDTO.ServiceMetric();
-                        m.nome = entry.getKey();
-                        m.quantidadeChamadas = entry.getValue().size();
-                        m.mediaTempoRespostaMs = entry.getValue().stream()
-                                .mapToLong(ev -> ev.durationMs)
-                                .average()
-                                .orElse(0.0);
+                        m.nome = total.id.serviceName;
+                        m.quantidadeChamadas = total.quantidade;
+                        m.mediaTempoRespostaMs = total.quantidade > 0
+                                ? (double) total.somaMs / total.quantidade
+                                : 0.0;
+
+                        LatencyHistogram histograma = histogramas.get(m.nome);
+                        if (histograma != null && !histograma.isEmpty()) {
+                            m.p50Ms = percentilMs(histograma, 50.0);
+                            m.p95Ms = percentilMs(histograma, 95.0);
+                            m.p99Ms = percentilMs(histograma, 99.0);
+                            m.p999Ms = percentilMs(histograma, 99.9);
+                        }
                         return m;
                     })
                     .toList();
@@ -104,6 +386,10 @@ public class TelemetryService {
         }
     }
 
+    private static double percentilMs(LatencyHistogram histograma, double percentil) {
+        return histograma.percentil(percentil) / 1000.0;
+    }
+
     private void validarParametrosRecord(String serviceName, long durationMs) {
         if (serviceName == null || serviceName.isBlank()) {
             throw new WebApplicationException(
@@ -137,22 +423,14 @@ public class TelemetryService {
             );
         }
 
-        ZoneOffset offset = OffsetDateTime.now().getOffset();
-        OffsetDateTime start = from.atStartOfDay().atOffset(offset);
-        OffsetDateTime endExclusive = to.plusDays(1).atStartOfDay().atOffset(offset);
-
         PeriodoConsulta periodo = new PeriodoConsulta();
         periodo.from = from;
         periodo.to = to;
-        periodo.start = start;
-        periodo.endExclusive = endExclusive;
         return periodo;
     }
 
     private static class PeriodoConsulta {
         LocalDate from;
         LocalDate to;
-        OffsetDateTime start;
-        OffsetDateTime endExclusive;
     }
 }
@@ -1,8 +1,10 @@
 package cef.financial.infra;
 
 import io.agroal.api.AgroalDataSource;
-import jakarta.annotation.PostConstruct;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.Priority;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
@@ -15,11 +17,15 @@ public class DatabaseInitializer {
 
     private static final Logger LOG = Logger.getLogger(DatabaseInitializer.class);
 
+    // igual ao allocationSize das entidades
+    private static final int INCREMENTO_SEQUENCE = 50;
+
     @Inject
     AgroalDataSource dataSource;   // usa o <default>, não tem @Named
 
-    @PostConstruct
-    void init() {
+    // roda no startup, antes do DatabaseSeeder (prioridade menor é notificada primeiro);
+    // sem um observer o bean não tem pontos de injeção e nunca seria instanciado
+    void init(@Observes @Priority(1) StartupEvent ev) {
         LOG.info("Verificando estrutura do banco investments (tabelas principais).");
 
         try (Connection conn = dataSource.getConnection();
@@ -28,6 +34,11 @@ public class DatabaseInitializer {
             ensureInvestmentProductTable(st);
             ensureInvestmentHistoryTable(st);
             ensureInvestmentSimulationTable(st);
+            ensureInvestmentSimulationClienteIndex(st);
+            ensureInvestmentHistoryClienteIndex(st);
+            ensureIdempotencyRespostaNullable(st);
+            ensureIdSequence(st, "InvestmentHistory_SEQ", "HTE_INVESTMENT_HISTORY");
+            ensureIdSequence(st, "InvestmentSimulation_SEQ", "HTE_INVESTMENT_SIMULATION");
 
         } catch (Exception e) {
             LOG.error("Erro ao inicializar/garantir as tabelas do banco investments", e);
@@ -96,7 +107,7 @@ public class DatabaseInitializer {
 
         String createTableSql = """
                 CREATE TABLE HTE_INVESTMENT_HISTORY (
-                    id                 BIGINT IDENTITY(1,1) PRIMARY KEY,
+                    id                 BIGINT        NOT NULL PRIMARY KEY,
                     CLIENTE_ID         BIGINT        NOT NULL,
                     TIPO               VARCHAR(100)  NULL,
                     VALOR              FLOAT         NOT NULL,
@@ -130,7 +141,7 @@ public class DatabaseInitializer {
 
         String createTableSql = """
                 CREATE TABLE HTE_INVESTMENT_SIMULATION (
-                    id              BIGINT IDENTITY(1,1) PRIMARY KEY,
+                    id              BIGINT         NOT NULL PRIMARY KEY,
                     clienteId       BIGINT         NOT NULL,
                     produto_id      BIGINT         NOT NULL,
                     valorInvestido  FLOAT          NOT NULL,
@@ -143,4 +154,129 @@ public class DatabaseInitializer {
         st.executeUpdate(createTableSql);
         LOG.info("Tabela HTE_INVESTMENT_SIMULATION criada com sucesso.");
     }
+
+    // histórico por cliente: busca por (clienteId, dataSimulacao) sem ler a tabela inteira.
+    // O INCLUDE cobre as colunas do histórico, evitando o lookup na chave primária por linha.
+    private void ensureInvestmentSimulationClienteIndex(Statement st) throws Exception {
+        boolean exists = false;
+        try (ResultSet rs = st.executeQuery("""
+                SELECT 1
+                FROM sys.indexes
+                WHERE name = 'IX_HTE_INVESTMENT_SIMULATION_CLIENTE_DATA'
+                  AND object_id = OBJECT_ID('HTE_INVESTMENT_SIMULATION')
+                """)) {
+            if (rs.next()) {
+                exists = true;
+            }
+        }
+
+        if (exists) {
+            LOG.info("Índice IX_HTE_INVESTMENT_SIMULATION_CLIENTE_DATA já existe. Nenhuma ação necessária.");
+            return;
+        }
+
+        LOG.warn("Índice IX_HTE_INVESTMENT_SIMULATION_CLIENTE_DATA NÃO encontrado. Criando índice...");
+
+        String createIndexSql = """
+                CREATE NONCLUSTERED INDEX IX_HTE_INVESTMENT_SIMULATION_CLIENTE_DATA
+                    ON HTE_INVESTMENT_SIMULATION (clienteId, dataSimulacao, id)
+                    INCLUDE (produto_id, valorInvestido, valorFinal);
+                """;
+
+        st.executeUpdate(createIndexSql);
+        LOG.info("Índice IX_HTE_INVESTMENT_SIMULATION_CLIENTE_DATA criado com sucesso.");
+    }
+
+    // histórico em ordem de cliente (recálculo em massa dos perfis e pontuação de um cliente):
+    // o INCLUDE cobre as colunas da pontuação, então a leitura não ordena nem consulta a tabela base
+    private void ensureInvestmentHistoryClienteIndex(Statement st) throws Exception {
+        boolean exists = false;
+        try (ResultSet rs = st.executeQuery("""
+                SELECT 1
+                FROM sys.indexes
+                WHERE name = 'IX_HTE_INVESTMENT_HISTORY_CLIENTE'
+                  AND object_id = OBJECT_ID('HTE_INVESTMENT_HISTORY')
+                """)) {
+            if (rs.next()) {
+                exists = true;
+            }
+        }
+
+        if (exists) {
+            LOG.info("Índice IX_HTE_INVESTMENT_HISTORY_CLIENTE já existe. Nenhuma ação necessária.");
+            return;
+        }
+
+        LOG.warn("Índice IX_HTE_INVESTMENT_HISTORY_CLIENTE NÃO encontrado. Criando índice...");
+
+        String createIndexSql = """
+                CREATE NONCLUSTERED INDEX IX_HTE_INVESTMENT_HISTORY_CLIENTE
+                    ON HTE_INVESTMENT_HISTORY (CLIENTE_ID)
+                    INCLUDE (VALOR, RENTABILIDADE, TIPO);
+                """;
+
+        st.executeUpdate(createIndexSql);
+        LOG.info("Índice IX_HTE_INVESTMENT_HISTORY_CLIENTE criado com sucesso.");
+    }
+
+    // a reserva de uma Idempotency-Key em processamento é gravada sem resposta; tabelas criadas
+    // antes disso pelo Hibernate (generation=update não altera colunas) têm RESPOSTA NOT NULL
+    private void ensureIdempotencyRespostaNullable(Statement st) throws Exception {
+        String nullable = null;
+        try (ResultSet rs = st.executeQuery("""
+                SELECT IS_NULLABLE
+                FROM INFORMATION_SCHEMA.COLUMNS
+                WHERE TABLE_NAME = 'HTE_IDEMPOTENCY_KEY' AND COLUMN_NAME = 'RESPOSTA'
+                """)) {
+            if (rs.next()) {
+                nullable = rs.getString(1);
+            }
+        }
+
+        if (nullable == null || "YES".equals(nullable)) {
+            LOG.info("Coluna HTE_IDEMPOTENCY_KEY.RESPOSTA já aceita nulo (ou tabela inexistente). Nenhuma ação necessária.");
+            return;
+        }
+
+        LOG.warn("Coluna HTE_IDEMPOTENCY_KEY.RESPOSTA é NOT NULL. Alterando para aceitar reservas sem resposta...");
+        st.executeUpdate("ALTER TABLE HTE_IDEMPOTENCY_KEY ALTER COLUMN RESPOSTA NVARCHAR(MAX) NULL");
+        LOG.info("Coluna HTE_IDEMPOTENCY_KEY.RESPOSTA alterada com sucesso.");
+    }
+
+    // ids de simulação/histórico vêm de sequences com incremento 50 (pooled-lo no Hibernate).
+    // Garante que a sequence exista e esteja à frente do maior id já gravado.
+    private void ensureIdSequence(Statement st, String sequence, String tabela) throws Exception {
+        long maiorId;
+        try (ResultSet rs = st.executeQuery("SELECT ISNULL(MAX(id), 0) FROM " + tabela)) {
+            rs.next();
+            maiorId = rs.getLong(1);
+        }
+
+        // próximo valor seguro para pooled e pooled-lo: o bloco inteiro fica acima do maior id
+        long inicio = maiorId + INCREMENTO_SEQUENCE + 1;
+
+        Long valorAtual = null;
+        try (ResultSet rs = st.executeQuery(
+                "SELECT CAST(current_value AS BIGINT) FROM sys.sequences WHERE name = '" + sequence + "'")) {
+            if (rs.next()) {
+                valorAtual = rs.getLong(1);
+            }
+        }
+
+        if (valorAtual == null) {
+            LOG.warnf("Sequence %s NÃO encontrada. Criando a partir de %d...", sequence, inicio);
+            st.executeUpdate("CREATE SEQUENCE " + sequence + " AS BIGINT START WITH " + inicio
+                    + " INCREMENT BY " + INCREMENTO_SEQUENCE);
+            return;
+        }
+
+        if (valorAtual <= maiorId) {
+            LOG.warnf("Sequence %s (%d) atrás do maior id de %s (%d). Reiniciando em %d...",
+                    sequence, valorAtual, tabela, maiorId, inicio);
+            st.executeUpdate("ALTER SEQUENCE " + sequence + " RESTART WITH " + inicio);
+            return;
+        }
+
+        LOG.infof("Sequence %s já existe e está à frente de %s. Nenhuma ação necessária.", sequence, tabela);
+    }
 }
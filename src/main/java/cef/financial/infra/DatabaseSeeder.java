@@ -6,7 +6,10 @@ import cef.financial.domain.model.Customer;
 import cef.financial.domain.model.InvestmentHistory;
 import cef.financial.domain.repository.InvestmentProductRepository;
 import cef.financial.domain.repository.InvestmentSimulationRepository;
+import cef.financial.domain.repository.SimulationDailyRollupRepository;
 import cef.financial.domain.repository.CustomerRepository;
+import cef.financial.domain.service.ProductCatalogService;
+import cef.financial.domain.service.TelemetryService;
 import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
@@ -33,6 +36,15 @@ public class DatabaseSeeder {
     @Inject
     InvestmentSimulationRepository simulationRepository;
 
+    @Inject
+    SimulationDailyRollupRepository simulationRollupRepository;
+
+    @Inject
+    ProductCatalogService productCatalog;
+
+    @Inject
+    TelemetryService telemetryService;
+
     // ================== STARTUP ==================
     @Transactional
     void onStart(@Observes StartupEvent ev) {
@@ -44,8 +56,28 @@ public class DatabaseSeeder {
     void seed() {
         seedProducts();
         seedCustomers();
+        seedSimulationRollups();
         seedSimulations();
         seedInvestmentHistory();
+        seedTelemetryRollups();
+    }
+
+    // ================== AGREGADO DE SIMULAÇÕES ==================
+    private void seedSimulationRollups() {
+        // antes do seed de simulações: as criadas a seguir já entram no agregado uma a uma
+        int criados = simulationRollupRepository.reconstruirSeVazio();
+        if (criados > 0) {
+            LOG.infof("DatabaseSeeder: %d agregados produto/dia gerados a partir das simulações existentes.", criados);
+        }
+    }
+
+    // ================== TELEMETRIA ==================
+    private void seedTelemetryRollups() {
+        // agregados diários a partir de eventos gravados antes da existência da tabela
+        int criados = telemetryService.reconstruirRollups();
+        if (criados > 0) {
+            LOG.infof("DatabaseSeeder: %d agregados diários de telemetria gerados a partir do histórico.", criados);
+        }
     }
 
     // ================== PRODUTOS ==================
@@ -141,6 +173,9 @@ public class DatabaseSeeder {
 
         productRepository.flush();
 
+        // catálogo em memória precisa enxergar os produtos recém-inseridos
+        productCatalog.invalidar();
+
         LOG.infof("DatabaseSeeder: inseridos %d produtos de teste.", productRepository.count());
     }
 
@@ -243,6 +278,7 @@ public class DatabaseSeeder {
         sim.dataSimulacao = dataSimulacao;
 
         simulationRepository.persist(sim);
+        simulationRollupRepository.registrar(product.id, dataSimulacao.toLocalDate(), valor, valorFinal);
     }
 
     // ================== HISTÓRICO DE INVESTIMENTOS ==================
@@ -3,26 +3,45 @@ package cef.financial.infra;
 import cef.financial.domain.service.TelemetryService;
 import jakarta.annotation.Priority;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Priorities;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.container.ContainerResponseContext;
 import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.ext.Provider;
 
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
 @Provider
 @Priority(Priorities.USER)
 public class TelemetryFilter implements ContainerRequestFilter, ContainerResponseFilter {
 
     private static final String START_TIME_PROPERTY = "telemetryStartTime";
 
+    static final String NAO_MAPEADO = "<nao-mapeado>";
+
+    // {id: \d+} -> {id}
+    private static final Pattern REGEX_PARAMETRO = Pattern.compile("\\{\\s*([^:}\\s]+)\\s*:[^}]*}");
+
+    // o template de um método de recurso nunca muda: calculado uma vez por método
+    private static final Map<Method, String> TEMPLATES = new ConcurrentHashMap<>();
+
     @Inject
     public TelemetryService telemetryService;
 
+    @Context
+    public ResourceInfo resourceInfo;
+
     @Override
     public void filter(ContainerRequestContext requestContext) {
-        // Marca o início da requisição
-        requestContext.setProperty(START_TIME_PROPERTY, System.currentTimeMillis());
+        // Marca o início da requisição (relógio monotônico)
+        requestContext.setProperty(START_TIME_PROPERTY, System.nanoTime());
     }
 
     @Override
@@ -33,14 +52,38 @@ public class TelemetryFilter implements ContainerRequestFilter, ContainerRespons
         }
 
         long startTime = (Long) startObj;
-        long durationMs = System.currentTimeMillis() - startTime;
+        long durationNanos = System.nanoTime() - startTime;
 
-        // Monta um "nome de serviço" legível: ex. "GET /investimentos", "POST /simulacoes"
-        String httpMethod = requestContext.getMethod();
-        String path = requestContext.getUriInfo().getPath();
-        String serviceName = httpMethod + " " + path;
+        // Nome do serviço pelo template da rota, não pelo path concreto:
+        // ex. "GET /perfil-risco/{clienteId}" em vez de um nome por cliente
+        String serviceName = requestContext.getMethod() + " " + template();
 
         // Registra o evento de telemetria
-        telemetryService.record(serviceName, durationMs);
+        telemetryService.recordNanos(serviceName, durationNanos);
+    }
+
+    private String template() {
+        Method method = resourceInfo != null ? resourceInfo.getResourceMethod() : null;
+        if (method == null) {
+            // 404, OPTIONS automático etc.: todos caem numa única série
+            return NAO_MAPEADO;
+        }
+        Class<?> resourceClass = resourceInfo.getResourceClass();
+        return TEMPLATES.computeIfAbsent(method,
+                m -> montarTemplate(resourceClass != null ? resourceClass : m.getDeclaringClass(), m));
+    }
+
+    static String montarTemplate(Class<?> resourceClass, Method method) {
+        Path pathClasse = resourceClass.getAnnotation(Path.class);
+        Path pathMetodo = method.getAnnotation(Path.class);
+
+        String template = "/" + (pathClasse != null ? pathClasse.value() : "")
+                + "/" + (pathMetodo != null ? pathMetodo.value() : "");
+        template = REGEX_PARAMETRO.matcher(template).replaceAll("{$1}");
+        template = template.replaceAll("/{2,}", "/");
+        if (template.length() > 1 && template.endsWith("/")) {
+            template = template.substring(0, template.length() - 1);
+        }
+        return template;
     }
 }
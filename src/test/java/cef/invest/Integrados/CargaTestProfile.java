@@ -0,0 +1,16 @@
+package cef.invest.Integrados;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+/**
+ * Perfil usado apenas pelo SimulationLoadIT: ativa o WorkerThreadSimulationResource.
+ */
+public class CargaTestProfile implements QuarkusTestProfile {
+
+    public static final String PERFIL = "carga";
+
+    @Override
+    public String getConfigProfile() {
+        return PERFIL;
+    }
+}
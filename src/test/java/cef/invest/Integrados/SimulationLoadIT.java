@@ -0,0 +1,190 @@
+package cef.invest.Integrados;
+
+import cef.financial.domain.service.LatencyHistogram;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.security.TestSecurity;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Teste de carga: compara os endpoints de simulação em virtual threads (@RunOnVirtualThread)
+ * com os mesmos serviços no pool de worker threads (WorkerThreadSimulationResource).
+ *
+ * Não roda no build normal (sufixo IT). Para executar, com o SQL Server do application.properties:
+ *
+ *   mvn test -Dtest=SimulationLoadIT -Dcarga.concorrencia=400 -Dcarga.requisicoes=8000
+ *
+ * As requisições se espalham pelos clientes 1..carga.clientes (padrão: os 13 do DatabaseSeeder)
+ * e pelos 6 produtos do seed, cada um com o seu tipo, para não concentrar todas as gravações
+ * na mesma linha de acumulado de risco e de rollup diário.
+ *
+ * Para cada cenário imprime vazão (req/s), p50 e p99 de cada modelo e quantas vezes uma
+ * virtual thread ficou presa à carrier thread (evento JFR jdk.VirtualThreadPinned).
+ */
+@QuarkusTest
+@TestProfile(CargaTestProfile.class)
+class SimulationLoadIT {
+
+    private static final Logger LOG = Logger.getLogger(SimulationLoadIT.class);
+
+    private static final int CONCORRENCIA = Integer.getInteger("carga.concorrencia", 400);
+    private static final int REQUISICOES = Integer.getInteger("carga.requisicoes", 4000);
+    private static final int AQUECIMENTO = Math.max(100, REQUISICOES / 10);
+
+    private static final int CLIENTES = Integer.getInteger("carga.clientes", 13);
+
+    // tipo de cada produto do DatabaseSeeder, na ordem dos ids (1..6)
+    private static final String[] TIPOS_PRODUTO = {"CDB", "CDB", "TESOURO", "Fundo Multimercado", "LCI", "Debênture"};
+
+    // 36 meses atende à faixa de prazo de todos os produtos do seed
+    private static final String CORPO = """
+            {
+              "produtoId": %d,
+              "clienteId": %d,
+              "valor": 5000.0,
+              "prazoMeses": 36,
+              "tipoProduto": "%s"
+            }
+            """;
+
+    @TestHTTPResource("/")
+    URL base;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    record Medicao(String modelo, long requisicoes, long erros, double segundos, LatencyHistogram latencias) {
+
+        double vazao() {
+            return requisicoes / segundos;
+        }
+    }
+
+    @Test
+    @TestSecurity(user = "carga", roles = {"user"})
+    void previa_SemConexaoComBanco() throws Exception {
+        comparar("previa", "simular-investimento/previa", "carga/worker/simular-investimento/previa");
+    }
+
+    @Test
+    @TestSecurity(user = "carga", roles = {"user"})
+    void simulacao_LimitadaPeloPoolDeConexoes() throws Exception {
+        comparar("simular", "simular-investimento", "carga/worker/simular-investimento");
+    }
+
+    private void comparar(String cenario, String rotaVirtual, String rotaWorker) throws Exception {
+        executar(rotaWorker, AQUECIMENTO);
+        executar(rotaVirtual, AQUECIMENTO);
+
+        Medicao worker = medir("worker", rotaWorker);
+
+        Map<String, LongAdder> pinagens = new ConcurrentHashMap<>();
+        Medicao virtual;
+        try (RecordingStream jfr = new RecordingStream()) {
+            jfr.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1)).withStackTrace();
+            jfr.onEvent("jdk.VirtualThreadPinned", e -> {
+                List<RecordedFrame> frames = e.getStackTrace() != null ? e.getStackTrace().getFrames() : List.of();
+                String origem = frames.isEmpty() ? "?" : frames.get(0).getMethod().getType().getName()
+                        + "." + frames.get(0).getMethod().getName();
+                pinagens.computeIfAbsent(origem, k -> new LongAdder()).increment();
+            });
+            jfr.startAsync();
+            virtual = medir("virtual", rotaVirtual);
+        }
+
+        LOG.infof("Carga [%s] concorrência=%d requisições=%d", cenario, CONCORRENCIA, REQUISICOES);
+        for (Medicao m : List.of(worker, virtual)) {
+            LOG.infof("  %-8s %8.1f req/s  p50=%6.2f ms  p99=%7.2f ms  erros=%d",
+                    m.modelo(), m.vazao(),
+                    m.latencias().percentil(50.0) / 1000.0,
+                    m.latencias().percentil(99.0) / 1000.0,
+                    m.erros());
+        }
+        LOG.infof("  virtual/worker: vazão %.2fx, p99 %.2fx",
+                virtual.vazao() / worker.vazao(),
+                (double) virtual.latencias().percentil(99.0) / Math.max(1, worker.latencias().percentil(99.0)));
+        pinagens.forEach((origem, n) -> LOG.infof("  pinned >1ms: %s x%d", origem, n.sum()));
+
+        Assertions.assertEquals(0, worker.erros(), "erros no modelo worker");
+        Assertions.assertEquals(0, virtual.erros(), "erros no modelo virtual");
+    }
+
+    private Medicao medir(String modelo, String rota) throws Exception {
+        long inicio = System.nanoTime();
+        List<LatencyHistogram> parciais = executar(rota, REQUISICOES);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        LatencyHistogram latencias = new LatencyHistogram();
+        for (LatencyHistogram parcial : parciais) {
+            latencias.mesclar(parcial);
+        }
+        return new Medicao(modelo, latencias.total(), REQUISICOES - latencias.total(), segundos, latencias);
+    }
+
+    /**
+     * Dispara {@code total} requisições com {@link #CONCORRENCIA} clientes simultâneos.
+     * Cada cliente tem seu histograma (que não é thread-safe); só respostas 2xx são registradas.
+     */
+    private List<LatencyHistogram> executar(String rota, int total) throws Exception {
+        URI destino = URI.create(base + rota);
+        AtomicInteger restantes = new AtomicInteger(total);
+        List<Future<LatencyHistogram>> clientes = new ArrayList<>(CONCORRENCIA);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCORRENCIA; i++) {
+                clientes.add(executor.submit(() -> {
+                    LatencyHistogram latencias = new LatencyHistogram();
+                    int n;
+                    while ((n = restantes.getAndDecrement()) > 0) {
+                        HttpRequest request = requisicao(destino, n);
+                        long t0 = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() / 100 == 2) {
+                            latencias.registrar((System.nanoTime() - t0) / 1000);
+                        }
+                    }
+                    return latencias;
+                }));
+            }
+        }
+
+        List<LatencyHistogram> parciais = new ArrayList<>(clientes.size());
+        for (Future<LatencyHistogram> cliente : clientes) {
+            parciais.add(cliente.get());
+        }
+        return parciais;
+    }
+
+    // a n-ésima requisição vai para o cliente 1 + n % CLIENTES e o produto 1 + n % 6
+    private static HttpRequest requisicao(URI destino, int n) {
+        int produto = n % TIPOS_PRODUTO.length;
+        String corpo = CORPO.formatted(produto + 1, 1 + n % CLIENTES, TIPOS_PRODUTO[produto]);
+        return HttpRequest.newBuilder(destino)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                .build();
+    }
+}
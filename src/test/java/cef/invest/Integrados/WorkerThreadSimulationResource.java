@@ -0,0 +1,43 @@
+package cef.invest.Integrados;
+
+import cef.financial.domain.dto.InvestmentSimulationRequestDTO;
+import cef.financial.domain.dto.InvestmentSimulationResponseDTO;
+import cef.financial.domain.service.InvestmentSimulationService;
+import io.quarkus.arc.profile.IfBuildProfile;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Só existe nos testes: mesmos serviços e a mesma validação de SimulationResource, mas sem
+ * @RunOnVirtualThread, ou seja, no pool de worker threads. Serve de linha de base para o SimulationLoadIT.
+ * Só é implantado no perfil "carga" ({@link CargaTestProfile}), não nos demais @QuarkusTest.
+ */
+@IfBuildProfile(CargaTestProfile.PERFIL)
+@Path("/carga/worker")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class WorkerThreadSimulationResource {
+
+    @Inject
+    InvestmentSimulationService simulationService;
+
+    @POST
+    @Path("/simular-investimento")
+    @RolesAllowed({"user", "admin"})
+    public InvestmentSimulationResponseDTO simular(@Valid InvestmentSimulationRequestDTO request) {
+        return simulationService.simulate(request);
+    }
+
+    @POST
+    @Path("/simular-investimento/previa")
+    @RolesAllowed({"user", "admin"})
+    public InvestmentSimulationResponseDTO previa(@Valid InvestmentSimulationRequestDTO request) {
+        return simulationService.simularPrevia(request);
+    }
+}
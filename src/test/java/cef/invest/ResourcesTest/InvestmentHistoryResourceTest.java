@@ -2,15 +2,14 @@ package cef.invest.ResourcesTest;
 
 import cef.financial.api.resources.InvestmentHistoryResource;
 import cef.financial.domain.dto.InvestmentHistoryResponseDTO;
-import cef.financial.domain.model.Customer;
-import cef.financial.domain.model.InvestmentProduct;
-import cef.financial.domain.model.InvestmentSimulation;
 import cef.financial.domain.repository.CustomerRepository;
 import cef.financial.domain.repository.InvestmentSimulationRepository;
 import io.quarkus.security.Authenticated;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,11 +18,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
-import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -63,12 +62,14 @@ class InvestmentHistoryResourceTest {
                 InvestmentHistoryResource.class.getAnnotation(Produces.class).value()[0]);
 
         assertTrue(InvestmentHistoryResource.class.isAnnotationPresent(Authenticated.class));
+        assertTrue(InvestmentHistoryResource.class.isAnnotationPresent(RunOnVirtualThread.class));
     }
 
     @Test
     @DisplayName("O método deve ter as anotações corretas")
     void testMethodAnnotations() throws NoSuchMethodException {
-        var method = InvestmentHistoryResource.class.getMethod("historicoInvestimentos", Long.class);
+        var method = InvestmentHistoryResource.class.getMethod("historicoInvestimentos",
+                Long.class, String.class, String.class, String.class, Integer.class);
 
         assertTrue(method.isAnnotationPresent(GET.class));
         assertTrue(method.isAnnotationPresent(RolesAllowed.class));
@@ -90,19 +91,19 @@ class InvestmentHistoryResourceTest {
         Long clienteId = 10L;
 
         // Sem simulações para o cliente
-        when(simulationRepository.list("clienteId", clienteId))
+        when(simulationRepository.listarHistoricoCliente(clienteId, null, null, null, 0L, 100))
                 .thenReturn(List.of());
 
         // Agora o comportamento esperado é exceção, não lista vazia
         NotFoundException ex = assertThrows(
                 NotFoundException.class,
-                () -> resource.historicoInvestimentos(clienteId)
+                () -> resource.historicoInvestimentos(clienteId, null, null, null, null)
         );
 
         assertEquals("Cliente não existente na base", ex.getMessage());
 
         verify(simulationRepository, times(1))
-                .list("clienteId", clienteId);
+                .listarHistoricoCliente(clienteId, null, null, null, 0L, 100);
     }
 
     @Test
@@ -111,7 +112,7 @@ class InvestmentHistoryResourceTest {
         Long clienteId = 20L;
         LocalDate data = LocalDate.of(2024, 1, 15);
 
-        InvestmentSimulation s = simulation(
+        InvestmentHistoryResponseDTO s = simulation(
                 1L,
                 "RF",
                 1500.0,
@@ -119,11 +120,11 @@ class InvestmentHistoryResourceTest {
                 data
         );
 
-        when(simulationRepository.list("clienteId", clienteId))
+        when(simulationRepository.listarHistoricoCliente(clienteId, null, null, null, 0L, 100))
                 .thenReturn(List.of(s));
 
-        List<InvestmentHistoryResponseDTO> result =
-                resource.historicoInvestimentos(clienteId);
+        List<InvestmentHistoryResponseDTO> result = corpo(
+                resource.historicoInvestimentos(clienteId, null, null, null, null));
 
         assertNotNull(result);
         assertEquals(1, result.size());
@@ -138,34 +139,86 @@ class InvestmentHistoryResourceTest {
         assertEquals(data, dto.data);
 
         verify(simulationRepository, times(1))
-                .list("clienteId", clienteId);
+                .listarHistoricoCliente(clienteId, null, null, null, 0L, 100);
     }
 
     @Test
-    @DisplayName("Deve suportar grande volume de dados e retornar lista com 500 itens")
-    void testHistoricoInvestimentos_ListGrande() {
+    @DisplayName("Projeção zera valor e rentabilidade quando o valor investido não é positivo")
+    void testProjecaoValorInvestidoZero() {
+        InvestmentHistoryResponseDTO dto = simulation(1L, "RF", 0.0, 100.0, LocalDate.now());
+
+        assertEquals(0.0, dto.valor);
+        assertEquals(0.0, dto.rentabilidade);
+    }
+
+    @Test
+    @DisplayName("Página cheia retorna cursor; o cursor devolvido continua a partir do último item")
+    void testHistoricoInvestimentos_PaginaComCursor() {
         Long clienteId = 7L;
 
-        List<InvestmentSimulation> grandeLista =
+        List<InvestmentHistoryResponseDTO> pagina =
                 java.util.stream.IntStream.range(0, 500)
                         .mapToObj(i -> simulation(
                                 (long) i,
                                 "TIPO",
                                 100 + i,
                                 120 + i,
-                                LocalDate.now()
+                                LocalDate.of(2024, 1, 1).plusDays(i)
                         ))
                         .toList();
 
-        when(simulationRepository.list("clienteId", clienteId))
-                .thenReturn(grandeLista);
+        when(simulationRepository.listarHistoricoCliente(clienteId, null, null, null, 0L, 500))
+                .thenReturn(pagina);
 
-        List<InvestmentHistoryResponseDTO> result =
-                resource.historicoInvestimentos(clienteId);
+        Response response = resource.historicoInvestimentos(clienteId, null, null, null, 500);
 
-        assertEquals(500, result.size());
-        verify(simulationRepository, times(1))
-                .list("clienteId", clienteId);
+        assertEquals(500, corpo(response).size());
+        String cursor = response.getHeaderString("X-Proximo-Cursor");
+        assertNotNull(cursor);
+        assertFalse(cursor.contains("+"));
+
+        InvestmentHistoryResponseDTO ultimo = pagina.get(499);
+        when(simulationRepository.listarHistoricoCliente(eq(clienteId), isNull(), isNull(),
+                argThat(d -> d.isEqual(ultimo.dataSimulacao)), eq(499L), eq(500)))
+                .thenReturn(List.of());
+
+        Response seguinte = resource.historicoInvestimentos(clienteId, null, null, cursor, 500);
+
+        // página seguinte vazia não é 404: o cliente existe
+        assertTrue(corpo(seguinte).isEmpty());
+        assertNull(seguinte.getHeaderString("X-Proximo-Cursor"));
+    }
+
+    @Test
+    @DisplayName("Filtro de período vira intervalo [inicio, fim + 1 dia) e página vazia não é 404")
+    void testHistoricoInvestimentos_FiltroPeriodo() {
+        Long clienteId = 8L;
+        LocalDate inicio = LocalDate.of(2025, 11, 1);
+        LocalDate fim = LocalDate.of(2025, 11, 30);
+
+        when(simulationRepository.listarHistoricoCliente(eq(clienteId),
+                argThat(d -> d.toLocalDate().equals(inicio)),
+                argThat(d -> d.toLocalDate().equals(fim.plusDays(1))),
+                isNull(), eq(0L), eq(100)))
+                .thenReturn(List.of());
+
+        Response response = resource.historicoInvestimentos(clienteId, "2025-11-01", "2025-11-30", null, null);
+
+        assertEquals(200, response.getStatus());
+        assertTrue(corpo(response).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Período invertido, data malformada ou cursor inválido retornam 400")
+    void testHistoricoInvestimentos_ParametrosInvalidos() {
+        assertThrows(BadRequestException.class,
+                () -> resource.historicoInvestimentos(1L, "2025-12-01", "2025-11-01", null, null));
+        assertThrows(BadRequestException.class,
+                () -> resource.historicoInvestimentos(1L, "01/11/2025", null, null, null));
+        assertThrows(BadRequestException.class,
+                () -> resource.historicoInvestimentos(1L, null, null, "lixo", null));
+
+        verifyNoInteractions(simulationRepository);
     }
 
     @Test
@@ -174,14 +227,14 @@ class InvestmentHistoryResourceTest {
         Long clienteId = 30L;
         LocalDate hoje = LocalDate.now();
 
-        InvestmentSimulation s1 = simulation(1L, "A", 100, 110, hoje);
-        InvestmentSimulation s2 = simulation(2L, "B", 200, 220, hoje);
+        InvestmentHistoryResponseDTO s1 = simulation(1L, "A", 100, 110, hoje);
+        InvestmentHistoryResponseDTO s2 = simulation(2L, "B", 200, 220, hoje);
 
-        when(simulationRepository.list("clienteId", clienteId))
+        when(simulationRepository.listarHistoricoCliente(clienteId, null, null, null, 0L, 100))
                 .thenReturn(List.of(s1, s2));
 
-        List<InvestmentHistoryResponseDTO> result =
-                resource.historicoInvestimentos(clienteId);
+        List<InvestmentHistoryResponseDTO> result = corpo(
+                resource.historicoInvestimentos(clienteId, null, null, null, null));
 
         assertEquals(2, result.size());
         assertEquals(1L, result.get(0).id);
@@ -192,22 +245,23 @@ class InvestmentHistoryResourceTest {
     // HELPERS
     // ========================================================
 
-    private InvestmentSimulation simulation(Long id,
-                                            String tipoProduto,
-                                            double valorInvestido,
-                                            double valorFinal,
-                                            LocalDate data) {
-
-        InvestmentSimulation s = new InvestmentSimulation();
-        s.id = id;
-        s.valorInvestido = valorInvestido;
-        s.valorFinal = valorFinal;
-        s.dataSimulacao = data.atStartOfDay().atOffset(ZoneOffset.UTC);
-
-        InvestmentProduct p = new InvestmentProduct();
-        p.tipo = tipoProduto;
-        s.produto = p;
+    private InvestmentHistoryResponseDTO simulation(Long id,
+                                                    String tipoProduto,
+                                                    double valorInvestido,
+                                                    double valorFinal,
+                                                    LocalDate data) {
+
+        return new InvestmentHistoryResponseDTO(
+                id,
+                tipoProduto,
+                valorInvestido,
+                valorFinal,
+                data.atStartOfDay().atOffset(ZoneOffset.UTC)
+        );
+    }
 
-        return s;
+    @SuppressWarnings("unchecked")
+    private List<InvestmentHistoryResponseDTO> corpo(Response response) {
+        return (List<InvestmentHistoryResponseDTO>) response.getEntity();
     }
 }
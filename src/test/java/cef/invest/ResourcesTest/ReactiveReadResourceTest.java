@@ -0,0 +1,104 @@
+package cef.invest.ResourcesTest;
+
+import cef.financial.api.resources.ReactiveReadResource;
+import cef.financial.domain.dto.CustomerResponseDTO;
+import cef.financial.domain.dto.InvestmentHistoryResponseDTO;
+import cef.financial.domain.dto.InvestmentProductResponseDTO;
+import cef.financial.domain.repository.ReactiveReadRepository;
+import io.quarkus.security.Authenticated;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveReadResourceTest {
+
+    @Mock
+    ReactiveReadRepository repository;
+
+    private ReactiveReadResource resource;
+
+    @BeforeEach
+    void setUp() {
+        resource = new ReactiveReadResource(repository);
+    }
+
+    private InvestmentHistoryResponseDTO historico(long id) {
+        return new InvestmentHistoryResponseDTO(id, "CDB", 1000.0, 1100.0,
+                OffsetDateTime.of(2025, 11, 1, 10, 0, 0, 0, ZoneOffset.UTC));
+    }
+
+    @Test
+    @DisplayName("A classe roda no event loop: sem @RunOnVirtualThread e com retornos Uni")
+    void testClassAnnotations() throws Exception {
+        assertEquals("/reativo", ReactiveReadResource.class.getAnnotation(Path.class).value());
+        assertTrue(ReactiveReadResource.class.isAnnotationPresent(Authenticated.class));
+        assertFalse(ReactiveReadResource.class.isAnnotationPresent(RunOnVirtualThread.class));
+
+        var method = ReactiveReadResource.class.getMethod("listarClientes");
+        assertTrue(method.isAnnotationPresent(GET.class));
+        assertEquals("/clientes", method.getAnnotation(Path.class).value());
+        assertEquals(Uni.class, method.getReturnType());
+        assertArrayEquals(new String[]{"user", "admin"}, method.getAnnotation(RolesAllowed.class).value());
+    }
+
+    @Test
+    @DisplayName("Clientes vêm do repositório reativo")
+    void listarClientes() {
+        List<CustomerResponseDTO> clientes = List.of(new CustomerResponseDTO(1L, "MODERADO", null));
+        when(repository.listarClientes()).thenReturn(Uni.createFrom().item(clientes));
+
+        assertEquals(clientes, resource.listarClientes().await().indefinitely());
+    }
+
+    @Test
+    @DisplayName("Perfil sem produtos falha com 404, como no endpoint bloqueante")
+    void produtosRecomendados_Vazio() {
+        when(repository.produtosPorPerfil("INEXISTENTE")).thenReturn(Uni.createFrom().item(List.of()));
+
+        Uni<List<InvestmentProductResponseDTO>> resultado = resource.produtosRecomendados("INEXISTENTE");
+
+        assertThrows(NotFoundException.class, () -> resultado.await().indefinitely());
+    }
+
+    @Test
+    @DisplayName("Histórico: página cheia informa o próximo cursor")
+    void historico_PaginaCheia() {
+        when(repository.listarHistoricoCliente(eq(1L), isNull(), isNull(), isNull(), eq(0L), eq(2)))
+                .thenReturn(Uni.createFrom().item(List.of(historico(1), historico(2))));
+
+        Response response = resource.historicoInvestimentos(1L, null, null, null, 2).await().indefinitely();
+
+        assertEquals(200, response.getStatus());
+        assertEquals("2025-11-01T10:00:00Z_2", response.getHeaderString("X-Proximo-Cursor"));
+    }
+
+    @Test
+    @DisplayName("Histórico: cliente sem simulações falha com 404 e cursor inválido com 400")
+    void historico_Erros() {
+        when(repository.listarHistoricoCliente(eq(9L), any(), any(), any(), anyLong(), anyInt()))
+                .thenReturn(Uni.createFrom().item(List.of()));
+
+        Uni<Response> vazio = resource.historicoInvestimentos(9L, null, null, null, null);
+        assertThrows(NotFoundException.class, () -> vazio.await().indefinitely());
+
+        assertThrows(BadRequestException.class,
+                () -> resource.historicoInvestimentos(9L, null, null, "lixo", null));
+    }
+}
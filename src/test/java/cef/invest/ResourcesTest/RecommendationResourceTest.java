@@ -5,6 +5,7 @@ import cef.financial.domain.dto.InvestmentProductResponseDTO;
 import cef.financial.domain.model.InvestmentProduct;
 import cef.financial.domain.service.RecommendationService;
 import io.quarkus.security.Authenticated;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
@@ -48,6 +49,7 @@ class RecommendationResourceTest {
                 RecommendationResource.class.getAnnotation(Produces.class).value()[0]);
 
         assertTrue(RecommendationResource.class.isAnnotationPresent(Authenticated.class));
+        assertTrue(RecommendationResource.class.isAnnotationPresent(RunOnVirtualThread.class));
     }
 
     @Test
@@ -2,13 +2,19 @@ package cef.invest.ResourcesTest;
 
 import cef.financial.api.resources.RiskProfileResource;
 import cef.financial.domain.dto.RiskProfileResponseDTO;
+import cef.financial.domain.dto.RiskRecalculationStatusDTO;
+import cef.financial.domain.service.RiskProfileRecalculationService;
 import cef.financial.domain.service.RiskProfileService;
-import cef.financial.domain.service.TelemetryService;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -28,7 +34,7 @@ class RiskProfileResourceTest {
     private RiskProfileService riskProfileService;
 
     @Mock
-    private TelemetryService telemetryService;
+    private RiskProfileRecalculationService recalculationService;
 
     @InjectMocks
     private RiskProfileResource riskProfileResource;
@@ -38,6 +44,7 @@ class RiskProfileResourceTest {
         // Verifica as anotações de classe
         assertTrue(RiskProfileResource.class.isAnnotationPresent(Path.class));
         assertEquals("/perfil-risco", RiskProfileResource.class.getAnnotation(Path.class).value());
+        assertTrue(RiskProfileResource.class.isAnnotationPresent(RunOnVirtualThread.class));
     }
 
     @Test
@@ -46,8 +53,8 @@ class RiskProfileResourceTest {
         var riskProfileField = RiskProfileResource.class.getDeclaredField("riskProfileService");
         assertTrue(riskProfileField.isAnnotationPresent(Inject.class));
 
-        var telemetryField = RiskProfileResource.class.getDeclaredField("telemetryService");
-        assertTrue(telemetryField.isAnnotationPresent(Inject.class));
+        var recalculationField = RiskProfileResource.class.getDeclaredField("recalculationService");
+        assertTrue(recalculationField.isAnnotationPresent(Inject.class));
     }
 
     @Test
@@ -72,7 +79,7 @@ class RiskProfileResourceTest {
         perfilEsperado.perfil = "MODERADO";
         perfilEsperado.pontuacao = 75;
 
-        when(riskProfileService.calculateProfile(clienteId)).thenReturn(perfilEsperado);
+        when(riskProfileService.consultarPerfil(clienteId)).thenReturn(perfilEsperado);
 
         // Act
         RiskProfileResponseDTO result = riskProfileResource.perfilRisco(clienteId);
@@ -81,8 +88,7 @@ class RiskProfileResourceTest {
         assertNotNull(result);
         assertEquals("MODERADO", result.perfil);
         assertEquals(75, result.pontuacao);
-        verify(riskProfileService).calculateProfile(clienteId);
-        verify(telemetryService).record(eq("perfil-risco"), anyLong());
+        verify(riskProfileService).consultarPerfil(clienteId);
     }
 
     @Test
@@ -92,7 +98,7 @@ class RiskProfileResourceTest {
         perfilEsperado.perfil = "INDEFINIDO";
         perfilEsperado.pontuacao = 0;
 
-        when(riskProfileService.calculateProfile(null)).thenReturn(perfilEsperado);
+        when(riskProfileService.consultarPerfil(null)).thenReturn(perfilEsperado);
 
         // Act
         RiskProfileResponseDTO result = riskProfileResource.perfilRisco(null);
@@ -101,8 +107,7 @@ class RiskProfileResourceTest {
         assertNotNull(result);
         assertEquals("INDEFINIDO", result.perfil);
         assertEquals(0, result.pontuacao);
-        verify(riskProfileService).calculateProfile(null);
-        verify(telemetryService).record(eq("perfil-risco"), anyLong());
+        verify(riskProfileService).consultarPerfil(null);
     }
 
     @Test
@@ -113,7 +118,7 @@ class RiskProfileResourceTest {
         perfilEsperado.perfil = "CONSERVADOR";
         perfilEsperado.pontuacao = 25;
 
-        when(riskProfileService.calculateProfile(clienteId)).thenReturn(perfilEsperado);
+        when(riskProfileService.consultarPerfil(clienteId)).thenReturn(perfilEsperado);
 
         // Act
         RiskProfileResponseDTO result = riskProfileResource.perfilRisco(clienteId);
@@ -122,8 +127,7 @@ class RiskProfileResourceTest {
         assertNotNull(result);
         assertEquals("CONSERVADOR", result.perfil);
         assertEquals(25, result.pontuacao);
-        verify(riskProfileService).calculateProfile(clienteId);
-        verify(telemetryService).record(eq("perfil-risco"), anyLong());
+        verify(riskProfileService).consultarPerfil(clienteId);
     }
 
     @Test
@@ -134,7 +138,7 @@ class RiskProfileResourceTest {
         perfilEsperado.perfil = "ARROJADO";
         perfilEsperado.pontuacao = 90;
 
-        when(riskProfileService.calculateProfile(clienteId)).thenReturn(perfilEsperado);
+        when(riskProfileService.consultarPerfil(clienteId)).thenReturn(perfilEsperado);
 
         // Act
         RiskProfileResponseDTO result = riskProfileResource.perfilRisco(clienteId);
@@ -143,42 +147,27 @@ class RiskProfileResourceTest {
         assertNotNull(result);
         assertEquals("ARROJADO", result.perfil);
         assertEquals(90, result.pontuacao);
-        verify(riskProfileService).calculateProfile(clienteId);
-        verify(telemetryService).record(eq("perfil-risco"), anyLong());
+        verify(riskProfileService).consultarPerfil(clienteId);
     }
 
     @Test
-    void perfilRisco_deveChamarTelemetryMesmoComExcecao() {
+    void perfilRisco_devePropagarExcecaoDoServico() {
         // Arrange
         Long clienteId = 1L;
-        when(riskProfileService.calculateProfile(clienteId)).thenThrow(new RuntimeException("Erro no serviço"));
+        when(riskProfileService.consultarPerfil(clienteId)).thenThrow(new RuntimeException("Erro no serviço"));
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> {
             riskProfileResource.perfilRisco(clienteId);
         });
-
-        // Assert - Telemetry deve ser chamado mesmo com exceção
-        verify(telemetryService).record(eq("perfil-risco"), anyLong());
+        verify(riskProfileService).consultarPerfil(clienteId);
     }
 
     @Test
-    void perfilRisco_deveRegistrarTempoDeExecucao() {
-        // Arrange
-        Long clienteId = 1L;
-        RiskProfileResponseDTO perfilEsperado = new RiskProfileResponseDTO();
-        perfilEsperado.perfil = "MODERADO";
-        perfilEsperado.pontuacao = 65;
-
-        when(riskProfileService.calculateProfile(clienteId)).thenReturn(perfilEsperado);
-
-        // Act
-        RiskProfileResponseDTO result = riskProfileResource.perfilRisco(clienteId);
-
-        // Assert
-        assertNotNull(result);
-        verify(riskProfileService).calculateProfile(clienteId);
-        verify(telemetryService).record(eq("perfil-risco"), anyLong());
+    void perfilRisco_naoMedeTempoNoRecurso() {
+        // o tempo da requisição é registrado pelo TelemetryFilter, não pelo próprio recurso
+        assertThrows(NoSuchFieldException.class,
+                () -> RiskProfileResource.class.getDeclaredField("telemetryService"));
     }
 
     @Test
@@ -194,7 +183,7 @@ class RiskProfileResourceTest {
             perfilEsperado.perfil = perfis[i];
             perfilEsperado.pontuacao = scores[i];
 
-            when(riskProfileService.calculateProfile(clienteId)).thenReturn(perfilEsperado);
+            when(riskProfileService.consultarPerfil(clienteId)).thenReturn(perfilEsperado);
 
             // Act
             RiskProfileResponseDTO result = riskProfileResource.perfilRisco(clienteId);
@@ -205,8 +194,7 @@ class RiskProfileResourceTest {
             assertEquals(scores[i], result.pontuacao);
         }
 
-        verify(riskProfileService, times(perfis.length)).calculateProfile(clienteId);
-        verify(telemetryService, times(perfis.length)).record(eq("perfil-risco"), anyLong());
+        verify(riskProfileService, times(perfis.length)).consultarPerfil(clienteId);
     }
 
     @Test
@@ -217,15 +205,14 @@ class RiskProfileResourceTest {
         perfilEsperado.perfil = "MODERADO";
         perfilEsperado.pontuacao = 70;
 
-        when(riskProfileService.calculateProfile(clienteId)).thenReturn(perfilEsperado);
+        when(riskProfileService.consultarPerfil(clienteId)).thenReturn(perfilEsperado);
 
         // Act
         riskProfileResource.perfilRisco(clienteId);
 
         // Assert
-        verify(riskProfileService, times(1)).calculateProfile(clienteId);
-        verify(telemetryService, times(1)).record(eq("perfil-risco"), anyLong());
-        verifyNoMoreInteractions(riskProfileService, telemetryService);
+        verify(riskProfileService, times(1)).consultarPerfil(clienteId);
+        verifyNoMoreInteractions(riskProfileService);
     }
 
     @Test
@@ -243,7 +230,7 @@ class RiskProfileResourceTest {
         perfilEsperado.perfil = null;
         perfilEsperado.pontuacao = 0;
 
-        when(riskProfileService.calculateProfile(clienteId)).thenReturn(perfilEsperado);
+        when(riskProfileService.consultarPerfil(clienteId)).thenReturn(perfilEsperado);
 
         // Act
         RiskProfileResponseDTO result = riskProfileResource.perfilRisco(clienteId);
@@ -252,8 +239,7 @@ class RiskProfileResourceTest {
         assertNotNull(result);
         assertNull(result.perfil);
         assertEquals(0, result.pontuacao);
-        verify(riskProfileService).calculateProfile(clienteId);
-        verify(telemetryService).record(eq("perfil-risco"), anyLong());
+        verify(riskProfileService).consultarPerfil(clienteId);
     }
 
     @Test
@@ -264,7 +250,7 @@ class RiskProfileResourceTest {
         perfilEsperado.perfil = "ARROJADO";
         perfilEsperado.pontuacao = 100;
 
-        when(riskProfileService.calculateProfile(clienteId)).thenReturn(perfilEsperado);
+        when(riskProfileService.consultarPerfil(clienteId)).thenReturn(perfilEsperado);
 
         // Act
         RiskProfileResponseDTO result = riskProfileResource.perfilRisco(clienteId);
@@ -273,7 +259,49 @@ class RiskProfileResourceTest {
         assertNotNull(result);
         assertEquals("ARROJADO", result.perfil);
         assertEquals(100, result.pontuacao);
-        verify(riskProfileService).calculateProfile(clienteId);
-        verify(telemetryService).record(eq("perfil-risco"), anyLong());
+        verify(riskProfileService).consultarPerfil(clienteId);
+    }
+
+    @Test
+    @DisplayName("Endpoints de recálculo em massa ficam em /recalculo e são restritos a admin")
+    void recalculo_Anotacoes() throws NoSuchMethodException {
+        var iniciar = RiskProfileResource.class.getMethod("iniciarRecalculo", boolean.class);
+        var andamento = RiskProfileResource.class.getMethod("andamentoRecalculo");
+        var cancelar = RiskProfileResource.class.getMethod("cancelarRecalculo");
+
+        assertTrue(iniciar.isAnnotationPresent(POST.class));
+        assertTrue(andamento.isAnnotationPresent(GET.class));
+        assertTrue(cancelar.isAnnotationPresent(DELETE.class));
+        for (var method : new java.lang.reflect.Method[]{iniciar, andamento, cancelar}) {
+            assertEquals("/recalculo", method.getAnnotation(Path.class).value());
+            assertArrayEquals(new String[]{"admin"}, method.getAnnotation(RolesAllowed.class).value());
+        }
+    }
+
+    @Test
+    @DisplayName("Iniciar e cancelar o recálculo respondem 202 com o andamento")
+    void recalculo_IniciarECancelar() {
+        RiskRecalculationStatusDTO executando = new RiskRecalculationStatusDTO();
+        executando.status = RiskProfileRecalculationService.EXECUTANDO;
+        when(recalculationService.iniciar(true)).thenReturn(executando);
+        when(recalculationService.cancelar()).thenReturn(executando);
+
+        Response iniciado = riskProfileResource.iniciarRecalculo(true);
+        Response cancelado = riskProfileResource.cancelarRecalculo();
+
+        assertEquals(202, iniciado.getStatus());
+        assertSame(executando, iniciado.getEntity());
+        assertEquals(202, cancelado.getStatus());
+        verifyNoInteractions(riskProfileService);
+    }
+
+    @Test
+    @DisplayName("Andamento do recálculo vem do serviço")
+    void recalculo_Andamento() {
+        RiskRecalculationStatusDTO concluido = new RiskRecalculationStatusDTO();
+        concluido.status = RiskProfileRecalculationService.CONCLUIDO;
+        when(recalculationService.consultar()).thenReturn(concluido);
+
+        assertSame(concluido, riskProfileResource.andamentoRecalculo());
     }
-}
\ No newline at end of file
+}
@@ -1,28 +1,54 @@
 package cef.invest.ResourcesTest;
 
 import cef.financial.api.resources.SimulationResource;
+import cef.financial.domain.dto.InvestmentComparisonResponseDTO;
+import cef.financial.domain.dto.InvestmentProjectionRequestDTO;
+import cef.financial.domain.dto.InvestmentProjectionResponseDTO;
+import cef.financial.domain.dto.InvestmentSimulationBatchResponseDTO;
 import cef.financial.domain.dto.InvestmentSimulationRequestDTO;
 import cef.financial.domain.dto.InvestmentSimulationResponseDTO;
 import cef.financial.domain.dto.SimulationByProductDayResponseDTO;
 import cef.financial.domain.dto.SimulationHistoryResponseDTO;
+import cef.financial.domain.model.Customer;
+import cef.financial.domain.model.CustomerRiskAggregate;
 import cef.financial.domain.model.InvestmentProduct;
 import cef.financial.domain.model.InvestmentSimulation;
+import cef.financial.domain.repository.CustomerRepository;
+import cef.financial.domain.repository.InvestmentHistoryRepository;
+import cef.financial.domain.repository.InvestmentSimulationRepository;
+import cef.financial.domain.repository.SimulationDailyRollupRepository;
+import cef.financial.domain.service.IdempotencyService;
+import cef.financial.domain.service.InvestmentSimulationBatchService;
 import cef.financial.domain.service.InvestmentSimulationService;
+import cef.financial.domain.service.ProductCatalogService;
+import cef.financial.domain.service.ProductCatalogSnapshot;
+import cef.financial.domain.service.RiskProfileService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkus.security.Authenticated;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,12 +59,37 @@ class SimulationResourceTest {
     @Mock
     InvestmentSimulationService simulationService;
 
+    @Mock
+    InvestmentSimulationBatchService batchService;
+
+    // repositórios e serviços de apoio do lote real (teste de itens inválidos)
+    @Mock
+    InvestmentSimulationRepository simulationRepository;
+
+    @Mock
+    InvestmentHistoryRepository historyRepository;
+
+    @Mock
+    SimulationDailyRollupRepository simulationRollupRepository;
+
+    @Mock
+    CustomerRepository customerRepository;
+
+    @Mock
+    RiskProfileService riskProfileService;
+
+    @Mock
+    ProductCatalogService productCatalog;
+
+    @InjectMocks
+    InvestmentSimulationService simulacaoReal;
+
     SimulationResource resource;
 
     @BeforeEach
     void setUp() {
-        // usa o construtor que recebe o service (que você já definiu no Resource)
-        resource = new SimulationResource(simulationService);
+        // usa o construtor que recebe os services (que você já definiu no Resource)
+        resource = new SimulationResource(simulationService, batchService, null, null);
     }
 
     // ----------------------------- ANOTAÇÕES -----------------------------
@@ -57,12 +108,13 @@ class SimulationResourceTest {
                 SimulationResource.class.getAnnotation(Produces.class).value()[0]);
 
         assertTrue(SimulationResource.class.isAnnotationPresent(Authenticated.class));
+        assertTrue(SimulationResource.class.isAnnotationPresent(RunOnVirtualThread.class));
     }
 
     @Test
     void testSimularInvestimentoAnnotations() throws Exception {
         var dtoClass = InvestmentSimulationRequestDTO.class;
-        var method = SimulationResource.class.getMethod("simularInvestimento", dtoClass);
+        var method = SimulationResource.class.getMethod("simularInvestimento", dtoClass, String.class);
 
         assertTrue(method.isAnnotationPresent(POST.class));
         assertTrue(method.isAnnotationPresent(Path.class));
@@ -70,19 +122,198 @@ class SimulationResourceTest {
 
         RolesAllowed roles = method.getAnnotation(RolesAllowed.class);
         assertArrayEquals(new String[]{"user", "admin"}, roles.value());
+
+        HeaderParam header = method.getParameters()[1].getAnnotation(HeaderParam.class);
+        assertEquals("Idempotency-Key", header.value());
+    }
+
+    @Test
+    void testSimularInvestimentoPreviaAnnotations() throws Exception {
+        var method = SimulationResource.class.getMethod("simularInvestimentoPrevia", InvestmentSimulationRequestDTO.class);
+
+        assertTrue(method.isAnnotationPresent(POST.class));
+        assertEquals("/simular-investimento/previa", method.getAnnotation(Path.class).value());
+
+        RolesAllowed roles = method.getAnnotation(RolesAllowed.class);
+        assertArrayEquals(new String[]{"user", "admin"}, roles.value());
+    }
+
+    @Test
+    void testSimularInvestimentoPrevia_NaoUsaSimulate() {
+        InvestmentSimulationRequestDTO req = new InvestmentSimulationRequestDTO();
+        req.clienteId = 1L;
+        req.valor = 1000.0;
+        req.prazoMeses = 12;
+
+        InvestmentSimulationResponseDTO previa = new InvestmentSimulationResponseDTO();
+        when(simulationService.simularPrevia(req)).thenReturn(previa);
+
+        Response response = resource.simularInvestimentoPrevia(req);
+
+        assertEquals(200, response.getStatus());
+        assertSame(previa, response.getEntity());
+        verify(simulationService, never()).simulate(any());
+    }
+
+    @Test
+    void testSimularInvestimentoEmLoteAnnotations() throws Exception {
+        var method = SimulationResource.class.getMethod("simularInvestimentoEmLote", List.class);
+
+        assertTrue(method.isAnnotationPresent(POST.class));
+        assertEquals("/simular-investimento/lote", method.getAnnotation(Path.class).value());
+
+        RolesAllowed roles = method.getAnnotation(RolesAllowed.class);
+        assertArrayEquals(new String[]{"user", "admin"}, roles.value());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSimularInvestimentoEmLote_ItemInvalidoNaoRejeitaOLote() {
+        InvestmentProduct produto = new InvestmentProduct();
+        produto.id = 10L;
+        produto.nome = "CDB Teste";
+        produto.tipo = "CDB";
+        produto.risco = "BAIXO";
+        produto.rentabilidadeAnual = 0.10;
+        produto.prazoMinMeses = 6;
+        produto.prazoMaxMeses = 24;
+        Customer cliente = new Customer();
+        cliente.id = 1L;
+        cliente.perfil = "MODERADO";
+
+        when(productCatalog.snapshot()).thenReturn(new ProductCatalogSnapshot(1L, Instant.now(), List.of(produto)));
+        when(customerRepository.list(eq("id in ?1"), any(Set.class))).thenReturn(List.of(cliente));
+        when(riskProfileService.registrarOperacoes(any(CustomerRiskAggregate.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // serviço de lote real, com o bloco executado sem gerenciador de transações
+        InvestmentSimulationBatchService lote = new InvestmentSimulationBatchService(
+                simulacaoReal, customerRepository, riskProfileService, productCatalog, 100, 100) {
+            @Override
+            protected void executarEmTransacao(Runnable bloco) {
+                bloco.run();
+            }
+        };
+        resource = new SimulationResource(simulationService, lote, null, null);
+
+        InvestmentSimulationRequestDTO semTipo = itemDoLote(2000.0);
+        semTipo.tipoProduto = null;
+
+        Response response = resource.simularInvestimentoEmLote(
+                List.of(itemDoLote(1000.0), semTipo, itemDoLote(3000.0)));
+
+        assertEquals(200, response.getStatus());
+        InvestmentSimulationBatchResponseDTO corpo = (InvestmentSimulationBatchResponseDTO) response.getEntity();
+        assertEquals(3, corpo.total);
+        assertEquals(2, corpo.sucessos);
+        assertEquals(1, corpo.falhas);
+        assertEquals(400, corpo.resultados.get(1).erro.status);
+        assertNull(corpo.resultados.get(1).resultado);
+        assertNull(corpo.resultados.get(0).erro);
+        assertEquals(10L, corpo.resultados.get(0).resultado.produtoValidado.id);
+        assertNull(corpo.resultados.get(2).erro);
+        assertEquals(10L, corpo.resultados.get(2).resultado.produtoValidado.id);
+    }
+
+    private InvestmentSimulationRequestDTO itemDoLote(double valor) {
+        InvestmentSimulationRequestDTO req = new InvestmentSimulationRequestDTO();
+        req.clienteId = 1L;
+        req.produtoId = 10L;
+        req.valor = valor;
+        req.prazoMeses = 12;
+        req.tipoProduto = "CDB";
+        return req;
+    }
+
+    @Test
+    void testSimularInvestimentoEmLote_DelegaParaServico() {
+        InvestmentSimulationRequestDTO req = new InvestmentSimulationRequestDTO();
+        req.clienteId = 1L;
+        req.valor = 1000.0;
+        req.prazoMeses = 12;
+
+        InvestmentSimulationBatchResponseDTO lote = new InvestmentSimulationBatchResponseDTO(List.of(
+                InvestmentSimulationBatchResponseDTO.ItemResultado.sucesso(0, new InvestmentSimulationResponseDTO()),
+                InvestmentSimulationBatchResponseDTO.ItemResultado.falha(1, 400, "valor deve ser informado e maior que zero.")
+        ));
+
+        when(batchService.simularLote(List.of(req, req))).thenReturn(lote);
+
+        Response response = resource.simularInvestimentoEmLote(List.of(req, req));
+
+        assertEquals(200, response.getStatus());
+        InvestmentSimulationBatchResponseDTO corpo = (InvestmentSimulationBatchResponseDTO) response.getEntity();
+        assertEquals(2, corpo.total);
+        assertEquals(1, corpo.sucessos);
+        assertEquals(1, corpo.falhas);
+        assertEquals(400, corpo.resultados.get(1).erro.status);
+    }
+
+    @Test
+    void testProjetarInvestimentoAnnotations() throws Exception {
+        var method = SimulationResource.class.getMethod("projetarInvestimento", InvestmentProjectionRequestDTO.class);
+
+        assertTrue(method.isAnnotationPresent(POST.class));
+        assertEquals("/simular-investimento/projecao", method.getAnnotation(Path.class).value());
+
+        RolesAllowed roles = method.getAnnotation(RolesAllowed.class);
+        assertArrayEquals(new String[]{"user", "admin"}, roles.value());
+    }
+
+    @Test
+    void testProjetarInvestimento_DelegaParaServico() {
+        InvestmentProjectionRequestDTO req = new InvestmentProjectionRequestDTO();
+        req.produtoId = 1L;
+        req.valor = 1000.0;
+        req.prazoMeses = 12;
+
+        InvestmentProjectionResponseDTO projecao = new InvestmentProjectionResponseDTO();
+        when(simulationService.projetarSerie(req)).thenReturn(projecao);
+
+        assertSame(projecao, resource.projetarInvestimento(req));
+    }
+
+    @Test
+    void testCompararProdutosAnnotations() throws Exception {
+        var method = SimulationResource.class.getMethod("compararProdutos",
+                double.class, int.class, String.class, Long.class);
+
+        assertTrue(method.isAnnotationPresent(GET.class));
+        assertEquals("/simular-investimento/comparacao", method.getAnnotation(Path.class).value());
+
+        RolesAllowed roles = method.getAnnotation(RolesAllowed.class);
+        assertArrayEquals(new String[]{"user", "admin"}, roles.value());
+    }
+
+    @Test
+    void testCompararProdutos_RepassaFiltrosParaServico() {
+        InvestmentComparisonResponseDTO comparacao = new InvestmentComparisonResponseDTO();
+        when(simulationService.compararProdutos(10_000.0, 24, "CDB", 7L)).thenReturn(comparacao);
+
+        assertSame(comparacao, resource.compararProdutos(10_000.0, 24, "CDB", 7L));
     }
 
     @Test
     void testListarSimulacoesAnnotations() throws Exception {
-        var method = SimulationResource.class.getMethod("listarSimulacoes");
+        var method = SimulationResource.class.getMethod("listarSimulacoes", Long.class, Integer.class);
 
         assertTrue(method.isAnnotationPresent(GET.class));
         assertEquals("/simulacoes", method.getAnnotation(Path.class).value());
     }
 
+    @Test
+    void testExportarSimulacoesAnnotations() throws Exception {
+        var method = SimulationResource.class.getMethod("exportarSimulacoes", Long.class);
+
+        assertTrue(method.isAnnotationPresent(GET.class));
+        assertEquals("/simulacoes/exportar", method.getAnnotation(Path.class).value());
+        assertEquals("application/x-ndjson", method.getAnnotation(Produces.class).value()[0]);
+    }
+
     @Test
     void testSimulacoesPorProdutoDiaAnnotations() throws Exception {
-        var method = SimulationResource.class.getMethod("simulacoesPorProdutoDia");
+        var method = SimulationResource.class.getMethod("simulacoesPorProdutoDia",
+                String.class, String.class, Long.class);
 
         assertTrue(method.isAnnotationPresent(GET.class));
         assertEquals("/simulacoes/por-produto-dia", method.getAnnotation(Path.class).value());
@@ -107,7 +338,7 @@ class SimulationResourceTest {
         when(simulationService.simulate(req)).thenReturn(resp);
 
         // chama o método real
-        Response response = resource.simularInvestimento(req);
+        Response response = resource.simularInvestimento(req, null);
 
         assertNotNull(response);
         assertEquals(200, response.getStatus());
@@ -121,88 +352,146 @@ class SimulationResourceTest {
         verify(simulationService).simulate(req);
     }
 
-    // ----------------------------- TESTES DO listAllSimulations -----------------------------
-
     @Test
-    void testListarSimulacoes_MapeamentoCompleto() {
+    @DisplayName("Idempotency-Key repetida devolve a resposta original sem simular de novo")
+    void testSimularInvestimento_IdempotencyKeyRepetida() {
+        IdempotencyService idempotencia =
+                new IdempotencyService(null, new ObjectMapper(), Duration.ofHours(1), 100, false);
+        resource = new SimulationResource(simulationService, batchService, null, idempotencia);
 
-        InvestmentProduct prod = new InvestmentProduct();
-        prod.id = 1L; // acompanha seu padrão de IDs fixos
-        prod.nome = "Produto Teste";
+        InvestmentSimulationRequestDTO req = new InvestmentSimulationRequestDTO();
+        req.clienteId = 1L;
+        req.valor = 1000.0;
+        req.prazoMeses = 12;
 
-        InvestmentSimulation sim = new InvestmentSimulation();
-        sim.id = 1L;
-        sim.clienteId = 50L;
-        sim.produto = prod;
-        sim.valorInvestido = 1000;
-        sim.valorFinal = 1200;
-        sim.prazoMeses = 12;
-        sim.dataSimulacao = OffsetDateTime.now(ZoneOffset.UTC);
+        InvestmentSimulationResponseDTO resp = new InvestmentSimulationResponseDTO();
+        when(simulationService.simulate(req)).thenReturn(resp);
+
+        Response primeira = resource.simularInvestimento(req, "app-123");
+        Response repetida = resource.simularInvestimento(req, "app-123");
 
-        when(simulationService.listAllSimulations()).thenReturn(List.of(sim));
+        assertSame(resp, primeira.getEntity());
+        assertNull(primeira.getHeaderString("Idempotent-Replayed"));
+        assertSame(resp, repetida.getEntity());
+        assertEquals("true", repetida.getHeaderString("Idempotent-Replayed"));
+        verify(simulationService, times(1)).simulate(req);
+    }
 
-        List<SimulationHistoryResponseDTO> result = resource.listarSimulacoes();
+    // ----------------------------- TESTES DO listarSimulacoes -----------------------------
 
-        assertEquals(1, result.size());
-        assertEquals(50L, result.get(0).clienteId);
-        verify(simulationService).listAllSimulations();
+    private SimulationHistoryResponseDTO historico(long id) {
+        return new SimulationHistoryResponseDTO(id, 50L, "Produto Teste", 1000, 1200, 12,
+                OffsetDateTime.of(2025, 11, 1, 10, 0, 0, 0, ZoneOffset.UTC));
     }
 
     @Test
-    void testListarSimulacoes_Vazio() {
-        when(simulationService.listAllSimulations()).thenReturn(List.of());
+    @SuppressWarnings("unchecked")
+    void testListarSimulacoes_PaginaCheiaInformaProximoCursor() {
+        when(simulationService.listarSimulacoes(10L, 2))
+                .thenReturn(List.of(historico(11L), historico(15L)));
 
-        List<SimulationHistoryResponseDTO> result = resource.listarSimulacoes();
+        Response response = resource.listarSimulacoes(10L, 2);
 
-        assertTrue(result.isEmpty());
+        List<SimulationHistoryResponseDTO> result = (List<SimulationHistoryResponseDTO>) response.getEntity();
+        assertEquals(2, result.size());
+        assertEquals(50L, result.get(0).clienteId);
+        assertEquals(15L, response.getHeaders().getFirst("X-Proximo-Cursor"));
     }
 
-    // ----------------------------- TESTE DO AGRUPAMENTO REAL -----------------------------
+    @Test
+    void testListarSimulacoes_UltimaPaginaSemCursor() {
+        when(simulationService.listarSimulacoes(null, null)).thenReturn(List.of(historico(1L)));
+
+        Response response = resource.listarSimulacoes(null, null);
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeaders().getFirst("X-Proximo-Cursor"));
+    }
 
     @Test
-    void testSimulacoesPorProdutoDia_MapeamentoCompleto() {
+    @SuppressWarnings("unchecked")
+    void testListarSimulacoes_Vazio() {
+        when(simulationService.listarSimulacoes(null, null)).thenReturn(List.of());
 
-        InvestmentProduct a = new InvestmentProduct();
-        a.id = 1L;
-        a.nome = "A";
+        Response response = resource.listarSimulacoes(null, null);
+
+        assertTrue(((List<SimulationHistoryResponseDTO>) response.getEntity()).isEmpty());
+        assertNull(response.getHeaders().getFirst("X-Proximo-Cursor"));
+    }
 
-        InvestmentProduct b = new InvestmentProduct();
-        b.id = 2L;
-        b.nome = "B";
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportarSimulacoes_UmaLinhaJsonPorSimulacao() throws Exception {
+        resource = new SimulationResource(simulationService, batchService, new ObjectMapper().findAndRegisterModules(), null);
+
+        doAnswer(inv -> {
+            Consumer<SimulationHistoryResponseDTO> consumidor = inv.getArgument(1);
+            consumidor.accept(historico(1L));
+            consumidor.accept(historico(2L));
+            return null;
+        }).when(simulationService).percorrerSimulacoes(eq(0L), any());
+
+        Response response = resource.exportarSimulacoes(0L);
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(saida);
+
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, linhas.length);
+        assertTrue(linhas[0].contains("\"id\":1"));
+        assertTrue(linhas[1].contains("\"id\":2"));
+        assertTrue(linhas[1].contains("\"produto\":\"Produto Teste\""));
+    }
 
-        OffsetDateTime d1 = OffsetDateTime.of(2025,11,1,10,0,0,0,ZoneOffset.UTC);
-        OffsetDateTime d2 = OffsetDateTime.of(2025,11,2,10,0,0,0,ZoneOffset.UTC);
+    // ----------------------------- TESTE DO AGRUPAMENTO REAL -----------------------------
 
-        InvestmentSimulation s1 = criarSim(a, 100, 150, d1);
-        InvestmentSimulation s2 = criarSim(a, 200, 300, d1);
-        InvestmentSimulation s3 = criarSim(a, 300, 450, d2);
-        InvestmentSimulation s4 = criarSim(b, 500, 550, d1);
+    @Test
+    void testSimulacoesPorProdutoDia_RepassaFiltrosParaAgregado() {
+        LocalDate d1 = LocalDate.of(2025, 11, 1);
+        LocalDate d2 = LocalDate.of(2025, 11, 2);
 
-        when(simulationService.listAllSimulations())
-                .thenReturn(List.of(s1, s2, s3, s4));
+        List<SimulationByProductDayResponseDTO> agregados = List.of(
+                new SimulationByProductDayResponseDTO(1L, "A", d2, 1L, 450.0, 300.0, 450.0, 450.0),
+                new SimulationByProductDayResponseDTO(1L, "A", d1, 2L, 225.0, 150.0, 150.0, 300.0),
+                new SimulationByProductDayResponseDTO(2L, "B", d1, 1L, 550.0, 500.0, 550.0, 550.0)
+        );
+        when(simulationService.agregarPorProdutoDia(d1, d2, null)).thenReturn(agregados);
 
         List<SimulationByProductDayResponseDTO> result =
-                resource.simulacoesPorProdutoDia();
+                resource.simulacoesPorProdutoDia("2025-11-01", "2025-11-02", null);
 
         assertEquals(3, result.size());
         assertTrue(result.stream().anyMatch(r ->
-                r.produto.equals("A") && r.data.equals(d1.toLocalDate()) && r.quantidadeSimulacoes == 2
+                r.produto.equals("A") && r.data.equals(d1) && r.quantidadeSimulacoes == 2
         ));
         assertTrue(result.stream().anyMatch(r ->
-                r.produto.equals("B") && r.data.equals(d1.toLocalDate()) && r.quantidadeSimulacoes == 1
+                r.produto.equals("B") && r.data.equals(d1) && r.quantidadeSimulacoes == 1
         ));
     }
 
     @Test
-    void testSimulacoesPorProdutoDia_Vazio() {
-        when(simulationService.listAllSimulations()).thenReturn(List.of());
+    void testSimulacoesPorProdutoDia_SemFiltros() {
+        when(simulationService.agregarPorProdutoDia(null, null, 7L)).thenReturn(List.of());
 
         List<SimulationByProductDayResponseDTO> result =
-                resource.simulacoesPorProdutoDia();
+                resource.simulacoesPorProdutoDia(null, null, 7L);
 
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void testSimulacoesPorProdutoDia_DataInvalida() {
+        BadRequestException inicio = assertThrows(BadRequestException.class,
+                () -> resource.simulacoesPorProdutoDia("01/11/2025", null, null));
+        assertEquals(400, inicio.getResponse().getStatus());
+        assertTrue(inicio.getMessage().contains("inicio"));
+
+        BadRequestException fim = assertThrows(BadRequestException.class,
+                () -> resource.simulacoesPorProdutoDia("2025-11-01", "2025-13-40", null));
+        assertTrue(fim.getMessage().contains("fim"));
+
+        verifyNoInteractions(simulationService);
+    }
+
     // ----------------------------- COBERTURA EXTRA -----------------------------
 
     @Test
@@ -214,15 +503,4 @@ class SimulationResourceTest {
         assertNotNull(new InvestmentSimulationRequestDTO());
         assertNotNull(new InvestmentSimulationResponseDTO());
     }
-
-    // ----------------------------- MÉTODOS AUXILIARES -----------------------------
-
-    private InvestmentSimulation criarSim(InvestmentProduct p, double vi, double vf, OffsetDateTime d) {
-        InvestmentSimulation s = new InvestmentSimulation();
-        s.produto = p;
-        s.valorInvestido = vi;
-        s.valorFinal = vf;
-        s.dataSimulacao = d;
-        return s;
-    }
 }
@@ -3,8 +3,11 @@ package cef.invest.ResourcesTest;
 import cef.financial.domain.service.TelemetryService;
 import cef.financial.infra.TelemetryFilter;
 import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
 import jakarta.ws.rs.container.ContainerResponseContext;
-import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.container.ResourceInfo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -28,14 +31,37 @@ class TelemetryFilterTest {
     ContainerResponseContext responseContext;
 
     @Mock
-    UriInfo uriInfo;
+    ResourceInfo resourceInfo;
 
     TelemetryFilter filter;
 
+    // recursos fictícios só para fornecer as anotações @Path
+    @Path("/perfil-risco")
+    static class RecursoPerfil {
+        @GET
+        @Path("/{clienteId}")
+        public void perfil() {
+        }
+    }
+
+    @Path("")
+    static class RecursoSimulacao {
+        @POST
+        @Path("/simulacoes/{id: \\d+}/")
+        public void simulacao() {
+        }
+    }
+
     @BeforeEach
     void setup() {
         filter = new TelemetryFilter();
         filter.telemetryService = telemetryService;
+        filter.resourceInfo = resourceInfo;
+    }
+
+    private void mapearPara(Class<?> recurso, String metodo) throws NoSuchMethodException {
+        doReturn(recurso).when(resourceInfo).getResourceClass();
+        when(resourceInfo.getResourceMethod()).thenReturn(recurso.getMethod(metodo));
     }
 
     @Test
@@ -48,19 +74,18 @@ class TelemetryFilterTest {
     }
 
     @Test
-    @DisplayName("2. Deve calcular duração e chamar telemetryService.record() corretamente")
-    void testResponseFilter_ChamaRecord() {
-        long fakeStart = System.currentTimeMillis() - 150;
+    @DisplayName("2. Deve calcular duração em nanos e registrar pelo template da rota")
+    void testResponseFilter_ChamaRecord() throws Exception {
+        long fakeStart = System.nanoTime() - 150_000_000L;
 
         when(requestContext.getProperty("telemetryStartTime")).thenReturn(fakeStart);
         when(requestContext.getMethod()).thenReturn("GET");
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("investimentos");
+        mapearPara(RecursoPerfil.class, "perfil");
 
         filter.filter(requestContext, responseContext);
 
         verify(telemetryService, times(1))
-                .record(eq("GET investimentos"), anyLong());
+                .recordNanos(eq("GET /perfil-risco/{clienteId}"), longThat(d -> d >= 150_000_000L));
     }
 
     @Test
@@ -70,7 +95,7 @@ class TelemetryFilterTest {
 
         filter.filter(requestContext, responseContext);
 
-        verify(telemetryService, never()).record(anyString(), anyLong());
+        verify(telemetryService, never()).recordNanos(anyString(), anyLong());
     }
 
     @Test
@@ -80,22 +105,33 @@ class TelemetryFilterTest {
 
         filter.filter(requestContext, responseContext);
 
-        verify(telemetryService, never()).record(anyString(), anyLong());
+        verify(telemetryService, never()).recordNanos(anyString(), anyLong());
     }
 
     @Test
-    @DisplayName("5. Deve montar o serviceName corretamente: METHOD + PATH")
-    void testResponseFilter_MontaServiceNameCorreto() {
-        long start = System.currentTimeMillis() - 50;
+    @DisplayName("5. Deve normalizar o template: barras duplicadas, barra final e regex de parâmetro")
+    void testResponseFilter_MontaServiceNameCorreto() throws Exception {
+        long start = System.nanoTime();
 
         when(requestContext.getProperty("telemetryStartTime")).thenReturn(start);
         when(requestContext.getMethod()).thenReturn("POST");
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("telemetria/dia");
+        mapearPara(RecursoSimulacao.class, "simulacao");
 
         filter.filter(requestContext, responseContext);
 
         verify(telemetryService)
-                .record(eq("POST telemetria/dia"), anyLong());
+                .recordNanos(eq("POST /simulacoes/{id}"), anyLong());
+    }
+
+    @Test
+    @DisplayName("6. Requisição sem método de recurso (ex.: 404) cai na série não mapeada")
+    void testResponseFilter_NaoMapeado() {
+        when(requestContext.getProperty("telemetryStartTime")).thenReturn(System.nanoTime());
+        when(requestContext.getMethod()).thenReturn("GET");
+        when(resourceInfo.getResourceMethod()).thenReturn(null);
+
+        filter.filter(requestContext, responseContext);
+
+        verify(telemetryService).recordNanos(eq("GET <nao-mapeado>"), anyLong());
     }
 }
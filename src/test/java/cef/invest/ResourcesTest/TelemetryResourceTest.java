@@ -1,8 +1,10 @@
 package cef.invest.ResourcesTest; // Ajuste para o seu pacote
 
 import cef.financial.api.resources.TelemetryResource;
+import cef.financial.domain.dto.CacheStatisticsResponseDTO;
 import cef.financial.domain.dto.TelemetryResponseDTO;
 import cef.financial.domain.model.TelemetryEvent;
+import cef.financial.domain.service.CacheStatisticsService;
 import cef.financial.domain.service.TelemetryService;
 import io.quarkus.security.Authenticated;
 import jakarta.annotation.security.RolesAllowed;
@@ -30,6 +32,9 @@ class TelemetryResourceTest {
     @Mock
     TelemetryService telemetryService;
 
+    @Mock
+    CacheStatisticsService cacheStatisticsService;
+
     @InjectMocks
     TelemetryResource telemetryResource;
 
@@ -134,6 +139,24 @@ class TelemetryResourceTest {
         }, "Uma data inválida deve lançar DateTimeParseException");
     }
 
+    @Test
+    @DisplayName("Estatísticas de cache: apenas admin, delegando ao serviço")
+    void testEstatisticasCache() throws NoSuchMethodException {
+        var consulta = TelemetryResource.class.getMethod("estatisticasCache");
+        var zeramento = TelemetryResource.class.getMethod("zerarEstatisticasCache");
+        assertTrue(consulta.isAnnotationPresent(GET.class));
+        assertTrue(zeramento.isAnnotationPresent(DELETE.class));
+        assertArrayEquals(new String[]{"admin"}, consulta.getAnnotation(RolesAllowed.class).value());
+        assertArrayEquals(new String[]{"admin"}, zeramento.getAnnotation(RolesAllowed.class).value());
+
+        CacheStatisticsResponseDTO mockResponse = new CacheStatisticsResponseDTO();
+        when(cacheStatisticsService.estatisticas()).thenReturn(mockResponse);
+
+        assertSame(mockResponse, telemetryResource.estatisticasCache());
+        telemetryResource.zerarEstatisticasCache();
+        verify(cacheStatisticsService).zerar();
+    }
+
     @Test
     @DisplayName("Deve instanciar DTOs e Modelos para cobertura")
     void testDTOAndModelInstantiability() {
@@ -0,0 +1,85 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.dto.CacheStatisticsResponseDTO;
+import cef.financial.domain.service.CacheStatisticsService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheStatisticsServiceTest {
+
+    @Mock
+    SessionFactory sessionFactory;
+
+    @Mock
+    Statistics statistics;
+
+    private CacheStatisticsService service;
+
+    @BeforeEach
+    void setUp() {
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+        service = new CacheStatisticsService(sessionFactory);
+    }
+
+    @Test
+    @DisplayName("1. Monta as métricas por região, em ordem de nome, com taxa de acerto")
+    void estatisticasPorRegiao() {
+        CacheRegionStatistics produto = regiao(90, 10, 6);
+        CacheRegionStatistics cliente = regiao(0, 0, 0);
+
+        when(statistics.isStatisticsEnabled()).thenReturn(true);
+        when(statistics.getPrepareStatementCount()).thenReturn(42L);
+        when(statistics.getQueryCacheHitCount()).thenReturn(7L);
+        when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[]{
+                "cef.financial.domain.model.InvestmentProduct",
+                "cef.financial.domain.model.Customer"
+        });
+        when(statistics.getCacheRegionStatistics("cef.financial.domain.model.InvestmentProduct")).thenReturn(produto);
+        when(statistics.getCacheRegionStatistics("cef.financial.domain.model.Customer")).thenReturn(cliente);
+
+        CacheStatisticsResponseDTO response = service.estatisticas();
+
+        assertTrue(response.estatisticasHabilitadas);
+        assertEquals(42L, response.sentencasPreparadas);
+        assertEquals(7L, response.cacheConsultasHits);
+        assertEquals(2, response.regioes.size());
+
+        CacheStatisticsResponseDTO.RegiaoCache primeira = response.regioes.get(0);
+        assertEquals("cef.financial.domain.model.Customer", primeira.nome);
+        assertNull(primeira.taxaAcerto);
+
+        CacheStatisticsResponseDTO.RegiaoCache segunda = response.regioes.get(1);
+        assertEquals(90L, segunda.hits);
+        assertEquals(10L, segunda.misses);
+        assertEquals(6L, segunda.elementosEmMemoria);
+        assertEquals(0.9, segunda.taxaAcerto, 1e-9);
+    }
+
+    @Test
+    @DisplayName("2. Zerar limpa os contadores do Hibernate")
+    void zerar() {
+        service.zerar();
+
+        verify(statistics).clear();
+    }
+
+    private CacheRegionStatistics regiao(long hits, long misses, long elementos) {
+        CacheRegionStatistics regiao = mock(CacheRegionStatistics.class);
+        when(regiao.getHitCount()).thenReturn(hits);
+        when(regiao.getMissCount()).thenReturn(misses);
+        lenient().when(regiao.getPutCount()).thenReturn(elementos);
+        lenient().when(regiao.getElementCountInMemory()).thenReturn(elementos);
+        return regiao;
+    }
+}
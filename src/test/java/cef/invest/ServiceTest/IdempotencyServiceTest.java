@@ -0,0 +1,240 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.dto.InvestmentSimulationRequestDTO;
+import cef.financial.domain.dto.InvestmentSimulationResponseDTO;
+import cef.financial.domain.model.IdempotencyRecord;
+import cef.financial.domain.repository.IdempotencyRecordRepository;
+import cef.financial.domain.service.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    IdempotencyRecordRepository repository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private IdempotencyService emMemoria(Duration ttl, int maxChaves) {
+        return new IdempotencyService(repository, objectMapper, ttl, maxChaves, false);
+    }
+
+    private InvestmentSimulationRequestDTO request(double valor) {
+        InvestmentSimulationRequestDTO r = new InvestmentSimulationRequestDTO();
+        r.clienteId = 1L;
+        r.produtoId = 10L;
+        r.valor = valor;
+        r.prazoMeses = 12;
+        return r;
+    }
+
+    private InvestmentSimulationResponseDTO resposta(double valorFinal) {
+        return new InvestmentSimulationResponseDTO(
+                new InvestmentSimulationResponseDTO.ProdutoValidado(10L, "CDB Teste", "CDB", 0.10, "BAIXO"),
+                new InvestmentSimulationResponseDTO.ResultadoSimulacao(valorFinal, 0.10, 12),
+                OffsetDateTime.of(2025, 11, 1, 10, 0, 0, 0, ZoneOffset.UTC)
+        );
+    }
+
+    @Test
+    @DisplayName("1. Mesma chave e mesma requisição executam a simulação uma única vez")
+    void repeticaoDevolveRespostaGuardada() {
+        IdempotencyService service = emMemoria(Duration.ofHours(1), 100);
+        AtomicInteger execucoes = new AtomicInteger();
+        InvestmentSimulationResponseDTO original = resposta(1100.0);
+
+        IdempotencyService.Resultado primeiro = service.executar("k1", request(1000.0), () -> {
+            execucoes.incrementAndGet();
+            return original;
+        });
+        IdempotencyService.Resultado segundo = service.executar("k1", request(1000.0), () -> {
+            execucoes.incrementAndGet();
+            return resposta(9999.0);
+        });
+
+        assertEquals(1, execucoes.get());
+        assertFalse(primeiro.repetida());
+        assertTrue(segundo.repetida());
+        assertSame(original, segundo.resposta());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("2. Mesma chave com outra requisição é rejeitada com 422")
+    void chaveReutilizadaComOutraRequisicao() {
+        IdempotencyService service = emMemoria(Duration.ofHours(1), 100);
+        service.executar("k1", request(1000.0), () -> resposta(1100.0));
+
+        WebApplicationException ex = assertThrows(WebApplicationException.class,
+                () -> service.executar("k1", request(2000.0), () -> resposta(2200.0)));
+        assertEquals(422, ex.getResponse().getStatus());
+    }
+
+    @Test
+    @DisplayName("3. Repetição enquanto a primeira ainda processa recebe 409")
+    void repeticaoDuranteProcessamento() {
+        IdempotencyService service = emMemoria(Duration.ofHours(1), 100);
+
+        WebApplicationException ex = assertThrows(WebApplicationException.class,
+                () -> service.executar("k1", request(1000.0),
+                        () -> service.executar("k1", request(1000.0), () -> resposta(1100.0)).resposta()));
+        assertEquals(409, ex.getResponse().getStatus());
+    }
+
+    @Test
+    @DisplayName("4. Falha na simulação libera a chave para nova tentativa")
+    void falhaLiberaChave() {
+        IdempotencyService service = emMemoria(Duration.ofHours(1), 100);
+
+        assertThrows(IllegalStateException.class, () -> service.executar("k1", request(1000.0), () -> {
+            throw new IllegalStateException("banco indisponível");
+        }));
+
+        IdempotencyService.Resultado nova = service.executar("k1", request(1000.0), () -> resposta(1100.0));
+        assertFalse(nova.repetida());
+    }
+
+    @Test
+    @DisplayName("5. Chave expirada volta a executar a simulação")
+    void chaveExpirada() {
+        IdempotencyService service = emMemoria(Duration.ZERO, 100);
+        service.executar("k1", request(1000.0), () -> resposta(1100.0));
+
+        IdempotencyService.Resultado depois = service.executar("k1", request(1000.0), () -> resposta(1100.0));
+        assertFalse(depois.repetida());
+    }
+
+    @Test
+    @DisplayName("6. Memória limitada descarta as chaves mais antigas")
+    void limiteDeChaves() {
+        IdempotencyService service = emMemoria(Duration.ofHours(1), 2);
+        service.executar("k1", request(1000.0), () -> resposta(1100.0));
+        service.executar("k2", request(1000.0), () -> resposta(1100.0));
+        service.executar("k3", request(1000.0), () -> resposta(1100.0));
+
+        assertTrue(service.executar("k3", request(1000.0), () -> resposta(1100.0)).repetida());
+        assertFalse(service.executar("k1", request(1000.0), () -> resposta(1100.0)).repetida());
+    }
+
+    @Test
+    @DisplayName("7. Chave inválida é rejeitada com 400")
+    void chaveInvalida() {
+        IdempotencyService service = emMemoria(Duration.ofHours(1), 100);
+
+        assertEquals(400, assertThrows(WebApplicationException.class,
+                () -> service.executar(" ", request(1000.0), () -> resposta(1100.0))).getResponse().getStatus());
+        assertEquals(400, assertThrows(WebApplicationException.class,
+                () -> service.executar("x".repeat(256), request(1000.0), () -> resposta(1100.0)))
+                .getResponse().getStatus());
+    }
+
+    @Test
+    @DisplayName("8. Com persistência, a resposta gravada por outra instância é reaproveitada")
+    void respostaGravadaNoBanco() throws Exception {
+        IdempotencyService service = new IdempotencyService(repository, objectMapper, Duration.ofHours(1), 100, true);
+
+        IdempotencyRecord gravado = new IdempotencyRecord();
+        gravado.chave = "k1";
+        gravado.impressao = "1|10|1000.0|12|";
+        gravado.resposta = objectMapper.writeValueAsString(resposta(1100.0));
+        gravado.expiraEm = OffsetDateTime.now(ZoneOffset.UTC).plusHours(1);
+        when(repository.buscarValida(eq("k1"), any())).thenReturn(gravado);
+
+        IdempotencyService.Resultado resultado = service.executar("k1", request(1000.0), () -> {
+            throw new AssertionError("não deveria simular de novo");
+        });
+
+        assertTrue(resultado.repetida());
+        assertEquals(1100.0, resultado.resposta().resultadoSimulacao.valorFinal);
+        verify(repository, never()).concluir(any(), any(), any());
+        verify(repository, never()).liberar(any());
+    }
+
+    @Test
+    @DisplayName("9. Com persistência, a chave é reservada antes e recebe a resposta; falha ao gravar não derruba a simulação")
+    void gravaRespostaNova() {
+        IdempotencyService service = new IdempotencyService(repository, objectMapper, Duration.ofHours(1), 100, true);
+        when(repository.reservar(any(), any(), any(), any())).thenReturn(true);
+        doNothing().doThrow(new RuntimeException("timeout"))
+                .when(repository).concluir(any(), any(), any());
+
+        service.executar("k1", request(1000.0), () -> {
+            // a reserva já está no banco quando a simulação começa
+            verify(repository).reservar(eq("k1"), eq("1|10|1000.0|12|"), any(), any());
+            return resposta(1100.0);
+        });
+        IdempotencyService.Resultado segunda = service.executar("k2", request(1000.0), () -> resposta(1100.0));
+
+        verify(repository).concluir(eq("k1"), contains("\"valorFinal\":1100.0"), any());
+        assertFalse(segunda.repetida());
+        assertTrue(service.executar("k2", request(1000.0), () -> resposta(1100.0)).repetida());
+    }
+
+    @Test
+    @DisplayName("10. Com persistência, chave reservada em outra instância e ainda em processamento recebe 409 sem simular")
+    void reservadaEmOutraInstancia() {
+        IdempotencyService service = new IdempotencyService(repository, objectMapper, Duration.ofHours(1), 100, true);
+
+        IdempotencyRecord reserva = new IdempotencyRecord();
+        reserva.chave = "k1";
+        reserva.impressao = "1|10|1000.0|12|";
+        reserva.expiraEm = OffsetDateTime.now(ZoneOffset.UTC).plusMinutes(1);
+        when(repository.reservar(eq("k1"), any(), any(), any())).thenReturn(false, true);
+        when(repository.buscarValida(eq("k1"), any())).thenReturn(reserva);
+
+        WebApplicationException ex = assertThrows(WebApplicationException.class,
+                () -> service.executar("k1", request(1000.0), () -> {
+                    throw new AssertionError("não deveria simular com a chave reservada");
+                }));
+        assertEquals(409, ex.getResponse().getStatus());
+        // a reserva é da outra instância: não é removida daqui
+        verify(repository, never()).liberar(any());
+
+        // e a chave não fica presa na memória desta instância
+        assertFalse(service.executar("k1", request(1000.0), () -> resposta(1100.0)).repetida());
+    }
+
+    @Test
+    @DisplayName("11. Com persistência, falha na simulação remove a reserva do banco")
+    void falhaLiberaReservaNoBanco() {
+        IdempotencyService service = new IdempotencyService(repository, objectMapper, Duration.ofHours(1), 100, true);
+        when(repository.reservar(any(), any(), any(), any())).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> service.executar("k1", request(1000.0), () -> {
+            throw new IllegalStateException("banco indisponível");
+        }));
+
+        verify(repository).liberar("k1");
+        verify(repository, never()).concluir(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("12. Memória cheia descarta a chave concluída mais antiga, nunca uma em processamento")
+    void limiteNaoDescartaEmProcessamento() {
+        IdempotencyService service = emMemoria(Duration.ofHours(1), 1);
+
+        WebApplicationException ex = assertThrows(WebApplicationException.class,
+                () -> service.executar("k1", request(1000.0), () -> {
+                    service.executar("k2", request(1000.0), () -> resposta(1100.0));
+                    service.executar("k3", request(1000.0), () -> resposta(1100.0));
+                    // k1 continua reservada: a repetição não executa a simulação outra vez
+                    return service.executar("k1", request(1000.0), () -> resposta(1100.0)).resposta();
+                }));
+        assertEquals(409, ex.getResponse().getStatus());
+    }
+}
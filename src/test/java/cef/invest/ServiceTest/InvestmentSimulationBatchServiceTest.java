@@ -0,0 +1,304 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.dto.InvestmentSimulationBatchResponseDTO;
+import cef.financial.domain.dto.InvestmentSimulationBatchResponseDTO.ItemResultado;
+import cef.financial.domain.dto.InvestmentSimulationRequestDTO;
+import cef.financial.domain.model.Customer;
+import cef.financial.domain.model.CustomerRiskAggregate;
+import cef.financial.domain.model.InvestmentHistory;
+import cef.financial.domain.model.InvestmentProduct;
+import cef.financial.domain.model.InvestmentSimulation;
+import cef.financial.domain.model.SimulationDailyRollup;
+import cef.financial.domain.repository.CustomerRepository;
+import cef.financial.domain.repository.InvestmentHistoryRepository;
+import cef.financial.domain.repository.InvestmentSimulationRepository;
+import cef.financial.domain.repository.SimulationDailyRollupRepository;
+import cef.financial.domain.service.InvestmentSimulationBatchService;
+import cef.financial.domain.service.InvestmentSimulationService;
+import cef.financial.domain.service.ProductCatalogService;
+import cef.financial.domain.service.ProductCatalogSnapshot;
+import cef.financial.domain.service.RiskProfileService;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InvestmentSimulationBatchServiceTest {
+
+    @Mock
+    InvestmentSimulationRepository simulationRepository;
+
+    @Mock
+    InvestmentHistoryRepository historyRepository;
+
+    @Mock
+    SimulationDailyRollupRepository simulationRollupRepository;
+
+    @Mock
+    CustomerRepository customerRepository;
+
+    @Mock
+    RiskProfileService riskProfileService;
+
+    @Mock
+    ProductCatalogService productCatalog;
+
+    // validação, projeção e persistência reais, sobre os repositórios simulados
+    @InjectMocks
+    InvestmentSimulationService simulationService;
+
+    // blocos executados sem gerenciador de transações; "commitFalha" simula erro no commit do bloco N (1-based)
+    private InvestmentSimulationBatchService batch(int itensPorTransacao, List<Integer> transacoes, int commitFalha) {
+        return new InvestmentSimulationBatchService(
+                simulationService, customerRepository, riskProfileService, productCatalog, 100, itensPorTransacao) {
+            @Override
+            protected void executarEmTransacao(Runnable bloco) {
+                bloco.run();
+                transacoes.add(transacoes.size() + 1);
+                if (transacoes.size() == commitFalha) {
+                    throw new IllegalStateException("deadlock no commit");
+                }
+            }
+        };
+    }
+
+    private InvestmentSimulationRequestDTO request(Long clienteId, Long produtoId, double valor) {
+        InvestmentSimulationRequestDTO r = new InvestmentSimulationRequestDTO();
+        r.clienteId = clienteId;
+        r.produtoId = produtoId;
+        r.valor = valor;
+        r.prazoMeses = 12;
+        r.tipoProduto = "CDB";
+        return r;
+    }
+
+    private InvestmentProduct produto() {
+        InvestmentProduct p = new InvestmentProduct();
+        p.id = 10L;
+        p.nome = "CDB Teste";
+        p.tipo = "CDB";
+        p.risco = "BAIXO";
+        p.rentabilidadeAnual = 0.10;
+        p.prazoMinMeses = 6;
+        p.prazoMaxMeses = 24;
+        return p;
+    }
+
+    private Customer cliente(Long id) {
+        Customer c = new Customer();
+        c.id = id;
+        c.perfil = "MODERADO";
+        return c;
+    }
+
+    private void catalogoComProduto() {
+        when(productCatalog.snapshot())
+                .thenReturn(new ProductCatalogSnapshot(1L, Instant.now(), List.of(produto())));
+    }
+
+    // devolve só os clientes cadastrados que estão entre os ids consultados
+    @SuppressWarnings("unchecked")
+    private void clientesCadastrados(Customer... clientes) {
+        when(customerRepository.list(eq("id in ?1"), any(Set.class))).thenAnswer(invocation -> {
+            Set<Long> ids = invocation.getArgument(1);
+            return List.of(clientes).stream().filter(c -> ids.contains(c.id)).toList();
+        });
+    }
+
+    // o acumulado devolvido é o próprio incremento (cliente sem operações anteriores)
+    private void acumuladoDevolveIncremento() {
+        when(riskProfileService.registrarOperacoes(any(CustomerRiskAggregate.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("1. Divide o lote em blocos de itensPorTransacao, cada um com uma consulta de clientes")
+    void divideEmBlocos() {
+        catalogoComProduto();
+        clientesCadastrados(cliente(1L), cliente(2L), cliente(3L));
+        acumuladoDevolveIncremento();
+
+        List<InvestmentSimulationRequestDTO> requests = List.of(
+                request(1L, 10L, 1000.0),
+                request(2L, 10L, 2000.0),
+                request(3L, 10L, 3000.0),
+                request(1L, 10L, 4000.0),
+                request(2L, 10L, 5000.0));
+        List<Integer> transacoes = new ArrayList<>();
+
+        InvestmentSimulationBatchResponseDTO response = batch(2, transacoes, 0).simularLote(requests);
+
+        assertEquals(5, response.total);
+        assertEquals(5, response.sucessos);
+        assertEquals(0, response.falhas);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, response.resultados.get(i).indice);
+            assertEquals(10L, response.resultados.get(i).resultado.produtoValidado.id);
+        }
+
+        // blocos [0, 2), [2, 4) e [4, 5)
+        assertEquals(3, transacoes.size());
+        verify(customerRepository, times(3)).list(eq("id in ?1"), any(Set.class));
+        verify(simulationRepository, times(5)).persist(any(InvestmentSimulation.class));
+        verify(historyRepository, times(5)).persist(any(InvestmentHistory.class));
+        // um acumulado por cliente por bloco: {1, 2}, {3, 1}, {2}
+        verify(riskProfileService, times(5)).registrarOperacoes(any(CustomerRiskAggregate.class));
+        verify(riskProfileService, never()).calculateProfile(any());
+        // um MERGE do agregado produto/dia por bloco
+        verify(simulationRollupRepository, times(3)).registrar(any(SimulationDailyRollup.class));
+    }
+
+    @Test
+    @DisplayName("2. Erros de validação ficam no próprio item e não impedem os demais do bloco")
+    void errosPorItem() {
+        catalogoComProduto();
+        clientesCadastrados(cliente(1L));
+        acumuladoDevolveIncremento();
+
+        InvestmentSimulationRequestDTO semTipo = request(1L, 10L, 1000.0);
+        semTipo.tipoProduto = null;
+        InvestmentSimulationRequestDTO semProduto = request(1L, null, 1000.0);
+
+        List<InvestmentSimulationRequestDTO> requests = Arrays.asList(
+                request(1L, 10L, 1000.0),
+                request(1L, 10L, 0.0),      // valor inválido
+                request(-1L, 10L, 1000.0),  // cliente inválido
+                request(1L, 99L, 1000.0),   // produto fora do catálogo
+                semTipo,                    // @NotNull tipoProduto
+                semProduto,                 // @NotNull produtoId
+                null);
+
+        InvestmentSimulationBatchResponseDTO response = batch(10, new ArrayList<>(), 0).simularLote(requests);
+
+        assertEquals(1, response.sucessos);
+        assertEquals(6, response.falhas);
+        assertNull(response.resultados.get(0).erro);
+        assertEquals(400, response.resultados.get(1).erro.status);
+        assertEquals(400, response.resultados.get(2).erro.status);
+        assertEquals(404, response.resultados.get(3).erro.status);
+        assertEquals(400, response.resultados.get(4).erro.status);
+        assertEquals(400, response.resultados.get(5).erro.status);
+        assertEquals(400, response.resultados.get(6).erro.status);
+
+        verify(simulationRepository, times(1)).persist(any(InvestmentSimulation.class));
+        ArgumentCaptor<CustomerRiskAggregate> incremento = ArgumentCaptor.forClass(CustomerRiskAggregate.class);
+        verify(riskProfileService).registrarOperacoes(incremento.capture());
+        assertEquals(1L, incremento.getValue().clienteId);
+        assertEquals(1, incremento.getValue().qtdOperacoes);
+    }
+
+    @Test
+    @DisplayName("3. Cliente inexistente é criado no próprio bloco com perfil INDEFINIDO")
+    void criaClienteInexistente() {
+        catalogoComProduto();
+        clientesCadastrados(cliente(1L));
+        acumuladoDevolveIncremento();
+
+        InvestmentSimulationBatchResponseDTO response = batch(10, new ArrayList<>(), 0).simularLote(List.of(
+                request(1L, 10L, 1000.0),
+                request(77L, 10L, 1000.0)));
+
+        assertEquals(2, response.sucessos);
+
+        ArgumentCaptor<Customer> novo = ArgumentCaptor.forClass(Customer.class);
+        verify(customerRepository).persist(novo.capture());
+        assertEquals(77L, novo.getValue().id);
+        assertEquals("INDEFINIDO", novo.getValue().perfil);
+        assertNotNull(novo.getValue().criadoEm);
+        verify(riskProfileService).atualizarPerfil(eq(77L), any(CustomerRiskAggregate.class));
+    }
+
+    @Test
+    @DisplayName("4. Operações do mesmo cliente e produto/dia no bloco viram um UPDATE de acumulado e um MERGE")
+    void agregaPorClienteEProdutoDia() {
+        catalogoComProduto();
+        clientesCadastrados(cliente(1L));
+        CustomerRiskAggregate gravado = new CustomerRiskAggregate();
+        gravado.clienteId = 1L;
+        gravado.qtdOperacoes = 13;
+        when(riskProfileService.registrarOperacoes(any(CustomerRiskAggregate.class))).thenReturn(gravado);
+
+        batch(10, new ArrayList<>(), 0).simularLote(List.of(
+                request(1L, 10L, 1000.0),
+                request(1L, 10L, 2000.0),
+                request(1L, 10L, 3000.0)));
+
+        ArgumentCaptor<CustomerRiskAggregate> incremento = ArgumentCaptor.forClass(CustomerRiskAggregate.class);
+        verify(riskProfileService).registrarOperacoes(incremento.capture());
+        assertEquals(3, incremento.getValue().qtdOperacoes);
+        assertEquals(6000.0, incremento.getValue().pesoTotal, 1e-9);
+        assertEquals(1, incremento.getValue().maxNivelRisco);
+
+        // o perfil é pontuado pelo acumulado devolvido pelo banco, não pelo incremento
+        verify(riskProfileService).atualizarPerfil(1L, gravado);
+
+        ArgumentCaptor<SimulationDailyRollup> rollup = ArgumentCaptor.forClass(SimulationDailyRollup.class);
+        verify(simulationRollupRepository).registrar(rollup.capture());
+        assertEquals(10L, rollup.getValue().id.produtoId);
+        assertEquals(3, rollup.getValue().quantidade);
+        assertEquals(6000.0, rollup.getValue().somaValorInvestido, 1e-9);
+        assertTrue(rollup.getValue().minValorFinal < rollup.getValue().maxValorFinal);
+    }
+
+    @Test
+    @DisplayName("5. Falha no commit de um bloco vira 500 só para os itens dele; erros de validação são mantidos")
+    void rollbackDoBlocoViraErroInterno() {
+        catalogoComProduto();
+        clientesCadastrados(cliente(1L), cliente(2L));
+        acumuladoDevolveIncremento();
+
+        List<InvestmentSimulationRequestDTO> requests = List.of(
+                request(1L, 10L, 1000.0),
+                request(1L, 10L, 2000.0),
+                request(2L, 10L, 3000.0),
+                request(2L, 10L, 0.0));
+
+        InvestmentSimulationBatchResponseDTO response = batch(2, new ArrayList<>(), 2).simularLote(requests);
+
+        assertEquals(2, response.sucessos);
+        assertEquals(2, response.falhas);
+        assertNull(response.resultados.get(0).erro);
+        assertNull(response.resultados.get(1).erro);
+
+        ItemResultado desfeito = response.resultados.get(2);
+        assertNull(desfeito.resultado);
+        assertEquals(500, desfeito.erro.status);
+        assertEquals(400, response.resultados.get(3).erro.status);
+    }
+
+    @Test
+    @DisplayName("6. Lote vazio ou acima do limite é rejeitado com 400 sem abrir transação")
+    void loteInvalido() {
+        List<Integer> transacoes = new ArrayList<>();
+        InvestmentSimulationBatchService service = batch(10, transacoes, 0);
+
+        WebApplicationException vazio = assertThrows(WebApplicationException.class,
+                () -> service.simularLote(List.of()));
+        assertEquals(400, vazio.getResponse().getStatus());
+
+        List<InvestmentSimulationRequestDTO> grande =
+                Collections.nCopies(101, request(1L, 10L, 1000.0));
+        WebApplicationException excesso = assertThrows(WebApplicationException.class,
+                () -> service.simularLote(grande));
+        assertEquals(400, excesso.getResponse().getStatus());
+
+        assertTrue(transacoes.isEmpty());
+        verifyNoInteractions(productCatalog, customerRepository, riskProfileService);
+    }
+}
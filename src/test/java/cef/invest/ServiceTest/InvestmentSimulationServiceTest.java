@@ -1,5 +1,8 @@
 package cef.invest.ServiceTest;
 
+import cef.financial.domain.dto.InvestmentComparisonResponseDTO;
+import cef.financial.domain.dto.InvestmentProjectionRequestDTO;
+import cef.financial.domain.dto.InvestmentProjectionResponseDTO;
 import cef.financial.domain.dto.InvestmentSimulationRequestDTO;
 import cef.financial.domain.dto.InvestmentSimulationResponseDTO;
 import cef.financial.domain.dto.RiskProfileResponseDTO;
@@ -7,11 +10,15 @@ import cef.financial.domain.model.Customer;
 import cef.financial.domain.model.InvestmentHistory;
 import cef.financial.domain.model.InvestmentProduct;
 import cef.financial.domain.model.InvestmentSimulation;
+import cef.financial.domain.model.SimulationDailyRollup;
 import cef.financial.domain.repository.CustomerRepository;
 import cef.financial.domain.repository.InvestmentHistoryRepository;
 import cef.financial.domain.repository.InvestmentProductRepository;
 import cef.financial.domain.repository.InvestmentSimulationRepository;
+import cef.financial.domain.repository.SimulationDailyRollupRepository;
 import cef.financial.domain.service.InvestmentSimulationService;
+import cef.financial.domain.service.ProductCatalogService;
+import cef.financial.domain.service.ProductCatalogSnapshot;
 import cef.financial.domain.service.RiskProfileService;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
@@ -19,10 +26,12 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -47,6 +56,12 @@ class InvestmentSimulationServiceTest {
     @Mock
     RiskProfileService riskProfileService;
 
+    @Mock
+    ProductCatalogService productCatalog;
+
+    @Mock
+    SimulationDailyRollupRepository simulationRollupRepository;
+
     @InjectMocks
     InvestmentSimulationService simulationService;
 
@@ -81,6 +96,10 @@ class InvestmentSimulationServiceTest {
         return p;
     }
 
+    private ProductCatalogSnapshot catalogo(InvestmentProduct... produtos) {
+        return new ProductCatalogSnapshot(1L, Instant.now(), List.of(produtos));
+    }
+
     private RiskProfileResponseDTO perfilMock(String perfil, int score) {
         RiskProfileResponseDTO r = new RiskProfileResponseDTO();
         r.perfil = perfil;
@@ -102,7 +121,7 @@ class InvestmentSimulationServiceTest {
 
         when(customerRepository.findById(1L)).thenReturn(cliente);
         when(productRepository.findById(10L)).thenReturn(product);
-        when(riskProfileService.calculateProfile(1L))
+        when(riskProfileService.atualizarPerfil(eq(1L), any()))
                 .thenReturn(perfilMock("ARROJADO", 90));
 
         // não precisamos stubbar persist (método void), só garantir que não explode
@@ -129,7 +148,21 @@ class InvestmentSimulationServiceTest {
         verify(productRepository).findById(10L);
         verify(simulationRepository).persist(any(InvestmentSimulation.class));
         verify(historyRepository).persist(any(InvestmentHistory.class));
-        verify(riskProfileService).calculateProfile(1L);
+        // agregado por produto/dia gravado depois do flush das simulações e do perfil
+        ArgumentCaptor<SimulationDailyRollup> rollup = ArgumentCaptor.forClass(SimulationDailyRollup.class);
+        InOrder ordem = inOrder(riskProfileService, simulationRepository, simulationRollupRepository);
+        ordem.verify(riskProfileService).atualizarPerfil(eq(1L), any());
+        ordem.verify(simulationRepository).flush();
+        ordem.verify(simulationRollupRepository).registrar(rollup.capture());
+        assertEquals(10L, rollup.getValue().id.produtoId);
+        assertEquals(1, rollup.getValue().quantidade);
+        assertEquals(1000.0, rollup.getValue().somaValorInvestido, 0.0001);
+        assertEquals(resp.resultadoSimulacao.valorFinal, rollup.getValue().minValorFinal, 0.0001);
+        assertEquals(resp.resultadoSimulacao.valorFinal, rollup.getValue().maxValorFinal, 0.0001);
+        // o perfil é pontuado com o acumulado devolvido por registrarOperacao, sem nova leitura
+        verify(riskProfileService).registrarOperacao(any(InvestmentHistory.class));
+        verify(riskProfileService).atualizarPerfil(eq(1L), any());
+        verify(riskProfileService, never()).calculateProfile(any());
     }
 
     // ==========================================================
@@ -151,7 +184,7 @@ class InvestmentSimulationServiceTest {
         doNothing().when(simulationRepository).persist(any(InvestmentSimulation.class));
         doNothing().when(historyRepository).persist(any(InvestmentHistory.class));
 
-        when(riskProfileService.calculateProfile(999L))
+        when(riskProfileService.atualizarPerfil(eq(999L), any()))
                 .thenReturn(perfilMock("INDEFINIDO", 0));
 
         InvestmentSimulationResponseDTO resp = simulationService.simulate(request);
@@ -202,11 +235,11 @@ class InvestmentSimulationServiceTest {
         p2.liquidezDias = 1;         // liquidez melhor
         p2.rentabilidadeAnual = 0.10;
 
-        when(productRepository.listAll()).thenReturn(List.of(p1, p2));
+        when(productCatalog.snapshot()).thenReturn(catalogo(p1, p2));
 
         doNothing().when(simulationRepository).persist(any(InvestmentSimulation.class));
         doNothing().when(historyRepository).persist(any(InvestmentHistory.class));
-        when(riskProfileService.calculateProfile(1L))
+        when(riskProfileService.atualizarPerfil(eq(1L), any()))
                 .thenReturn(perfilMock("MODERADO", 70));
 
         InvestmentSimulationResponseDTO resp = simulationService.simulate(request);
@@ -248,10 +281,10 @@ class InvestmentSimulationServiceTest {
         p2.liquidezDias = 90;
         p2.rentabilidadeAnual = 0.15;
 
-        when(productRepository.listAll()).thenReturn(List.of(p1, p2));
+        when(productCatalog.snapshot()).thenReturn(catalogo(p1, p2));
 
         // perfil moderado: risco máximo 2 → produto de risco 3 (ALTO) é filtrado
-        when(riskProfileService.calculateProfile(1L))
+        when(riskProfileService.atualizarPerfil(eq(1L), any()))
                 .thenReturn(perfilMock("MODERADO", 70));
 
         doNothing().when(simulationRepository).persist(any(InvestmentSimulation.class));
@@ -413,7 +446,7 @@ class InvestmentSimulationServiceTest {
         InvestmentProduct p = produtoPadrao();
         p.prazoMaxMeses = 24;
 
-        when(productRepository.listAll()).thenReturn(List.of(p));
+        when(productCatalog.snapshot()).thenReturn(catalogo(p));
 
         WebApplicationException ex = assertThrows(WebApplicationException.class,
                 () -> simulationService.simulate(request));
@@ -450,25 +483,218 @@ class InvestmentSimulationServiceTest {
         assertTrue(ex.getMessage().contains("Erro interno ao processar a simulação"));
     }
     // ==========================================================
-    // 8. listAllSimulations
+    // 8. Paginação por keyset / exportação
     // ==========================================================
 
     @Test
-    @DisplayName("16. listAllSimulations deve delegar para o repositório")
-    void listAllSimulations_DeveDelegarParaRepositorio() {
-        InvestmentSimulation s1 = new InvestmentSimulation();
-        s1.id = 1L;
-        InvestmentSimulation s2 = new InvestmentSimulation();
-        s2.id = 2L;
-
-        when(simulationRepository.listAll()).thenReturn(List.of(s1, s2));
-
-        List<InvestmentSimulation> lista = simulationService.listAllSimulations();
-
-        assertNotNull(lista);
-        assertEquals(2, lista.size());
-        assertEquals(1L, lista.get(0).id);
-        assertEquals(2L, lista.get(1).id);
-        verify(simulationRepository).listAll();
+    @DisplayName("16. listarSimulacoes aplica cursor e limite padrão quando ausentes")
+    void listarSimulacoes_Padroes() {
+        when(simulationRepository.listarPagina(0L, InvestmentSimulationService.LIMITE_PAGINA_PADRAO))
+                .thenReturn(List.of());
+
+        assertTrue(simulationService.listarSimulacoes(null, null).isEmpty());
+
+        verify(simulationRepository).listarPagina(0L, InvestmentSimulationService.LIMITE_PAGINA_PADRAO);
+        verify(simulationRepository, never()).listAll();
+    }
+
+    @Test
+    @DisplayName("17. listarSimulacoes limita o tamanho da página ao máximo")
+    void listarSimulacoes_LimiteMaximo() {
+        simulationService.listarSimulacoes(500L, 50_000);
+
+        verify(simulationRepository).listarPagina(500L, InvestmentSimulationService.LIMITE_PAGINA_MAXIMO);
+    }
+
+    @Test
+    @DisplayName("18. listarSimulacoes rejeita limite não positivo com 400")
+    void listarSimulacoes_LimiteInvalido() {
+        WebApplicationException ex = assertThrows(WebApplicationException.class,
+                () -> simulationService.listarSimulacoes(null, 0));
+
+        assertEquals(400, ex.getResponse().getStatus());
+        verifyNoInteractions(simulationRepository);
+    }
+
+    @Test
+    @DisplayName("19. percorrerSimulacoes converte falha de JDBC em erro 500")
+    void percorrerSimulacoes_FalhaJdbc() throws Exception {
+        doThrow(new java.sql.SQLException("conexão perdida"))
+                .when(simulationRepository).percorrer(eq(0L), any());
+
+        WebApplicationException ex = assertThrows(WebApplicationException.class,
+                () -> simulationService.percorrerSimulacoes(null, dto -> { }));
+
+        assertEquals(500, ex.getResponse().getStatus());
+    }
+
+    @Test
+    @DisplayName("20. agregarPorProdutoDia lê o agregado produto/dia, sem tocar nas simulações")
+    void agregarPorProdutoDia_LeAgregado() {
+        java.time.LocalDate inicio = java.time.LocalDate.of(2025, 11, 1);
+        java.time.LocalDate fim = java.time.LocalDate.of(2025, 11, 30);
+
+        when(simulationRollupRepository.consultar(inicio, fim, 10L)).thenReturn(List.of());
+
+        assertTrue(simulationService.agregarPorProdutoDia(inicio, fim, 10L).isEmpty());
+        verifyNoInteractions(simulationRepository);
+    }
+
+    @Test
+    @DisplayName("21. agregarPorProdutoDia rejeita período invertido com 400")
+    void agregarPorProdutoDia_PeriodoInvertido() {
+        java.time.LocalDate hoje = java.time.LocalDate.now();
+
+        WebApplicationException ex = assertThrows(WebApplicationException.class,
+                () -> simulationService.agregarPorProdutoDia(hoje, hoje.minusDays(1), null));
+
+        assertEquals(400, ex.getResponse().getStatus());
+        verifyNoInteractions(simulationRollupRepository);
+    }
+
+    @Test
+    @DisplayName("22. projetarSerie devolve a curva mês a mês e os prazos pedidos, sem gravar nada")
+    void projetarSerie_CurvaEPrazos() {
+        when(productCatalog.snapshot()).thenReturn(catalogo(produtoPadrao()));
+
+        InvestmentProjectionRequestDTO request = new InvestmentProjectionRequestDTO();
+        request.produtoId = 10L;
+        request.valor = 1000.0;
+        request.prazoMeses = 12;
+        request.prazos = new int[]{24, 6};
+
+        InvestmentProjectionResponseDTO resp = simulationService.projetarSerie(request);
+
+        assertEquals(13, resp.saldosMensais.length);
+        assertEquals(1000.0, resp.saldosMensais[0]);
+        // 10% ao ano: 12 meses rendem exatamente a taxa anual
+        assertEquals(1100.0, resp.saldosMensais[12], 1e-6);
+        assertEquals(1210.0, resp.valoresNosPrazos[0], 1e-6);
+        assertEquals(resp.saldosMensais[6], resp.valoresNosPrazos[1], 1e-9);
+        assertEquals(10L, resp.produtoValidado.id);
+
+        verifyNoInteractions(simulationRepository, historyRepository, simulationRollupRepository, riskProfileService);
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("23. projetarSerie valida entrada e rentabilidade do produto")
+    void projetarSerie_Validacoes() {
+        InvestmentProjectionRequestDTO semPrazo = new InvestmentProjectionRequestDTO();
+        semPrazo.produtoId = 10L;
+        semPrazo.valor = 1000.0;
+        assertEquals(400, assertThrows(WebApplicationException.class,
+                () -> simulationService.projetarSerie(semPrazo)).getResponse().getStatus());
+
+        InvestmentProjectionRequestDTO prazoInvalido = new InvestmentProjectionRequestDTO();
+        prazoInvalido.produtoId = 10L;
+        prazoInvalido.valor = 1000.0;
+        prazoInvalido.prazos = new int[]{12, 0};
+        assertEquals(400, assertThrows(WebApplicationException.class,
+                () -> simulationService.projetarSerie(prazoInvalido)).getResponse().getStatus());
+
+        InvestmentProduct semTaxa = produtoPadrao();
+        semTaxa.rentabilidadeAnual = null;
+        when(productCatalog.snapshot()).thenReturn(catalogo(semTaxa));
+
+        InvestmentProjectionRequestDTO request = new InvestmentProjectionRequestDTO();
+        request.produtoId = 10L;
+        request.valor = 1000.0;
+        request.prazoMeses = 12;
+        assertEquals(400, assertThrows(WebApplicationException.class,
+                () -> simulationService.projetarSerie(request)).getResponse().getStatus());
+    }
+
+    @Test
+    @DisplayName("24. compararProdutos ranqueia elegíveis com o critério do motor, compatíveis com o perfil primeiro")
+    void compararProdutos_RankingComPerfil() {
+        InvestmentProduct cdb = produtoPadrao();                 // 10% a.a., risco médio, 6..24 meses
+        InvestmentProduct fundo = produtoPadrao();
+        fundo.id = 20L;
+        fundo.tipo = "FUNDO";
+        fundo.risco = "ALTO";
+        fundo.rentabilidadeAnual = 0.18;
+        InvestmentProduct lci = produtoPadrao();
+        lci.id = 30L;
+        lci.risco = "BAIXO";
+        lci.rentabilidadeAnual = 0.12;
+        InvestmentProduct curto = produtoPadrao();
+        curto.id = 40L;
+        curto.prazoMaxMeses = 12;                                 // não cobre 24 meses
+
+        when(productCatalog.snapshot()).thenReturn(catalogo(cdb, fundo, lci, curto));
+        when(customerRepository.findById(1L)).thenReturn(cliente("MODERADO", 1L));
+
+        InvestmentComparisonResponseDTO resp = simulationService.compararProdutos(1000.0, 24, null, 1L);
+
+        assertEquals("RENTABILIDADE", resp.criterio);
+        assertEquals("MODERADO", resp.perfilCliente);
+        assertEquals(List.of(30L, 10L, 20L), resp.produtos.stream().map(p -> p.produtoId).toList());
+        assertFalse(resp.produtos.get(2).compativelComPerfil);
+        assertEquals(1210.0, resp.produtos.get(1).valorFinal, 1e-6);
+        assertEquals(3, resp.produtos.get(2).posicao);
+
+        verifyNoInteractions(simulationRepository, historyRepository, simulationRollupRepository, riskProfileService);
+        verify(customerRepository, never()).persist(any(Customer.class));
+    }
+
+    @Test
+    @DisplayName("25. compararProdutos filtra por tipo, dispensa perfil sem cliente e valida prazo")
+    void compararProdutos_TipoEValidacoes() {
+        InvestmentProduct cdb = produtoPadrao();
+        InvestmentProduct fundo = produtoPadrao();
+        fundo.id = 20L;
+        fundo.tipo = "FUNDO";
+        when(productCatalog.snapshot()).thenReturn(catalogo(cdb, fundo));
+
+        InvestmentComparisonResponseDTO resp = simulationService.compararProdutos(1000.0, 12, "fundo", null);
+
+        assertEquals("LIQUIDEZ", resp.criterio);
+        assertNull(resp.perfilCliente);
+        assertEquals(1, resp.produtos.size());
+        assertEquals(20L, resp.produtos.get(0).produtoId);
+        assertTrue(resp.produtos.get(0).compativelComPerfil);
+
+        assertEquals(400, assertThrows(WebApplicationException.class,
+                () -> simulationService.compararProdutos(1000.0, 0, null, null)).getResponse().getStatus());
+        verifyNoInteractions(customerRepository);
+    }
+
+    @Test
+    @DisplayName("26. simularPrevia calcula como simulate, sem gravar nada nem criar cliente")
+    void simularPrevia_NaoPersiste() {
+        InvestmentSimulationRequestDTO request = defaultRequest();
+        request.clienteId = 99L;
+
+        when(customerRepository.findById(99L)).thenReturn(null);
+        when(productCatalog.snapshot()).thenReturn(catalogo(produtoPadrao()));
+
+        InvestmentSimulationResponseDTO resp = simulationService.simularPrevia(request);
+
+        assertEquals(10L, resp.produtoValidado.id);
+        assertEquals(1100.0, resp.resultadoSimulacao.valorFinal, 1e-6);
+        assertEquals(12, resp.resultadoSimulacao.prazoMeses);
+
+        verifyNoInteractions(simulationRepository, historyRepository, simulationRollupRepository,
+                riskProfileService, productRepository);
+        verify(customerRepository, never()).persist(any(Customer.class));
+    }
+
+    @Test
+    @DisplayName("27. simularPrevia aplica as mesmas validações de simulate")
+    void simularPrevia_Validacoes() {
+        InvestmentSimulationRequestDTO semValor = defaultRequest();
+        semValor.valor = 0;
+        assertEquals(400, assertThrows(WebApplicationException.class,
+                () -> simulationService.simularPrevia(semValor)).getResponse().getStatus());
+
+        InvestmentSimulationRequestDTO foraDoPrazo = defaultRequest();
+        foraDoPrazo.prazoMeses = 36;
+        when(customerRepository.findById(1L)).thenReturn(cliente("MODERADO", 1L));
+        when(productCatalog.snapshot()).thenReturn(catalogo(produtoPadrao()));
+        assertEquals(400, assertThrows(WebApplicationException.class,
+                () -> simulationService.simularPrevia(foraDoPrazo)).getResponse().getStatus());
+
+        verifyNoInteractions(simulationRepository, historyRepository, simulationRollupRepository, riskProfileService);
     }
 }
@@ -0,0 +1,104 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.service.LatencyHistogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("1. Histograma vazio retorna percentil zero")
+    void vazio() {
+        LatencyHistogram h = new LatencyHistogram();
+
+        assertTrue(h.isEmpty());
+        assertEquals(0, h.percentil(99.0));
+    }
+
+    @Test
+    @DisplayName("2. Valores pequenos são registrados sem erro")
+    void valoresPequenosExatos() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int v = 1; v <= 10; v++) {
+            h.registrar(v);
+        }
+
+        assertEquals(10, h.total());
+        assertEquals(5, h.percentil(50.0));
+        assertEquals(10, h.percentil(100.0));
+        assertEquals(1, h.percentil(0.0));
+    }
+
+    @Test
+    @DisplayName("3. Percentis ficam dentro de 3% do valor exato")
+    void erroRelativoLimitado() {
+        Random random = new Random(42);
+        long[] amostras = new long[50_000];
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < amostras.length; i++) {
+            // distribuição de cauda longa: de microssegundos a dezenas de segundos
+            amostras[i] = (long) Math.exp(random.nextDouble() * 17);
+            h.registrar(amostras[i]);
+        }
+        Arrays.sort(amostras);
+
+        for (double p : new double[]{50.0, 95.0, 99.0, 99.9}) {
+            long exato = amostras[(int) Math.ceil(p / 100.0 * amostras.length) - 1];
+            long estimado = h.percentil(p);
+            assertEquals(exato, estimado, Math.max(1, exato * 0.03), "p" + p);
+        }
+    }
+
+    @Test
+    @DisplayName("4. Mesclar histogramas equivale a registrar tudo em um só")
+    void mesclar() {
+        LatencyHistogram dia1 = new LatencyHistogram();
+        LatencyHistogram dia2 = new LatencyHistogram();
+        LatencyHistogram tudo = new LatencyHistogram();
+        for (long v = 1; v < 100_000; v += 7) {
+            (v % 2 == 0 ? dia1 : dia2).registrar(v);
+            tudo.registrar(v);
+        }
+
+        dia1.mesclar(dia2);
+
+        assertEquals(tudo, dia1);
+        assertEquals(tudo.percentil(99.0), dia1.percentil(99.0));
+    }
+
+    @Test
+    @DisplayName("5. Serialização compacta preserva o conteúdo")
+    void serializacao() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.registrar(120, 30);
+        h.registrar(4_500);
+        h.registrar(2_000_000);
+
+        byte[] bytes = h.serializar();
+        LatencyHistogram copia = LatencyHistogram.desserializar(bytes);
+
+        assertEquals(h, copia);
+        assertEquals(32, copia.total());
+        assertTrue(bytes.length < 20);
+        assertTrue(LatencyHistogram.desserializar(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("6. Valores fora da faixa são saturados sem exceção")
+    void foraDaFaixa() {
+        LatencyHistogram h = new LatencyHistogram();
+
+        assertDoesNotThrow(() -> {
+            h.registrar(-5);
+            h.registrar(Long.MAX_VALUE);
+        });
+        assertEquals(2, h.total());
+        assertEquals(0, h.percentil(50.0));
+        assertTrue(h.percentil(100.0) > 0);
+    }
+}
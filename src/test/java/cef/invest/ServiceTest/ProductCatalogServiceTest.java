@@ -0,0 +1,150 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.model.InvestmentProduct;
+import cef.financial.domain.repository.InvestmentProductRepository;
+import cef.financial.domain.service.ProductCatalogService;
+import cef.financial.domain.service.ProductCatalogSnapshot;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCatalogServiceTest {
+
+    @Mock
+    InvestmentProductRepository productRepository;
+
+    private InvestmentProduct produto(Long id, String nome) {
+        InvestmentProduct p = new InvestmentProduct();
+        p.id = id;
+        p.nome = nome;
+        return p;
+    }
+
+    @Test
+    @DisplayName("1. Deve carregar o catálogo uma única vez enquanto a fotografia estiver válida")
+    void snapshot_ReutilizaFotografia() {
+        ProductCatalogService service = new ProductCatalogService(productRepository, Duration.ofMinutes(5));
+        when(productRepository.listAll()).thenReturn(List.of(produto(1L, "A"), produto(2L, "B")));
+
+        ProductCatalogSnapshot primeiro = service.snapshot();
+        ProductCatalogSnapshot segundo = service.snapshot();
+
+        assertSame(primeiro, segundo);
+        assertEquals(2, primeiro.produtos().size());
+        assertEquals("B", primeiro.porId(2L).nome);
+        verify(productRepository, times(1)).listAll();
+    }
+
+    @Test
+    @DisplayName("2. Invalidar deve forçar nova carga com versão incrementada")
+    void invalidar_ForcaRecarga() {
+        ProductCatalogService service = new ProductCatalogService(productRepository, Duration.ofMinutes(5));
+        when(productRepository.listAll())
+                .thenReturn(List.of(produto(1L, "A")))
+                .thenReturn(List.of(produto(1L, "A"), produto(3L, "C")));
+
+        ProductCatalogSnapshot antes = service.snapshot();
+        service.invalidar();
+        ProductCatalogSnapshot depois = service.snapshot();
+
+        assertTrue(depois.versao() > antes.versao());
+        assertEquals(1, antes.produtos().size());
+        assertEquals(2, depois.produtos().size());
+        verify(productRepository, times(2)).listAll();
+    }
+
+    @Test
+    @DisplayName("3. Fotografia expirada deve ser recarregada na próxima leitura")
+    void snapshot_Expirado_Recarrega() throws InterruptedException {
+        ProductCatalogService service = new ProductCatalogService(productRepository, Duration.ofMillis(1));
+        when(productRepository.listAll()).thenReturn(List.of(produto(1L, "A")));
+
+        service.snapshot();
+        Thread.sleep(5);
+        service.snapshot();
+
+        verify(productRepository, times(2)).listAll();
+    }
+
+    @Test
+    @DisplayName("4. Fotografia deve ser imutável")
+    void snapshot_Imutavel() {
+        ProductCatalogService service = new ProductCatalogService(productRepository, Duration.ofMinutes(5));
+        when(productRepository.listAll()).thenReturn(List.of(produto(1L, "A")));
+
+        ProductCatalogSnapshot snapshot = service.snapshot();
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> snapshot.produtos().add(produto(9L, "X")));
+        assertNull(snapshot.porId(null));
+        assertNull(snapshot.porId(99L));
+    }
+
+    @Test
+    @DisplayName("5. Leituras simultâneas sem fotografia carregam o catálogo uma única vez")
+    void snapshot_Concorrente_UmaCarga() throws Exception {
+        ProductCatalogService service = new ProductCatalogService(productRepository, Duration.ofMinutes(5));
+        CountDownLatch carregando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(productRepository.listAll()).thenAnswer(invocation -> {
+            carregando.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            return List.of(produto(1L, "A"));
+        });
+
+        int leitores = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(leitores);
+        try {
+            List<Future<ProductCatalogSnapshot>> leituras = new ArrayList<>();
+            for (int i = 0; i < leitores; i++) {
+                leituras.add(executor.submit(service::snapshot));
+            }
+            // todos chegam enquanto a primeira carga ainda lê o banco
+            assertTrue(carregando.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            liberar.countDown();
+
+            ProductCatalogSnapshot primeira = leituras.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<ProductCatalogSnapshot> leitura : leituras) {
+                assertSame(primeira, leitura.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(productRepository, times(1)).listAll();
+    }
+
+    @Test
+    @DisplayName("6. Invalidação durante a recarga não publica os produtos lidos antes dela")
+    void recarga_ConcorrenteComInvalidacao() {
+        ProductCatalogService service = new ProductCatalogService(productRepository, Duration.ofMinutes(5));
+        when(productRepository.listAll())
+                .thenAnswer(invocation -> {
+                    // produto alterado e catálogo invalidado enquanto a leitura anterior estava em curso
+                    service.invalidar();
+                    return List.of(produto(1L, "A"));
+                })
+                .thenReturn(List.of(produto(1L, "A"), produto(2L, "B")));
+
+        ProductCatalogSnapshot snapshot = service.snapshot();
+
+        assertEquals(2, snapshot.produtos().size());
+        assertSame(snapshot, service.snapshot());
+        verify(productRepository, times(2)).listAll();
+    }
+}
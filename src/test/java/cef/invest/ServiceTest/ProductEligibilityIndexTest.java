@@ -0,0 +1,144 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.model.InvestmentProduct;
+import cef.financial.domain.service.ProductEligibilityIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductEligibilityIndexTest {
+
+    private InvestmentProduct produto(long id, String tipo, String risco,
+                                      Integer prazoMin, Integer prazoMax,
+                                      int liquidezDias, double rentabilidade) {
+        InvestmentProduct p = new InvestmentProduct();
+        p.id = id;
+        p.nome = "Produto " + id;
+        p.tipo = tipo;
+        p.risco = risco;
+        p.prazoMinMeses = prazoMin;
+        p.prazoMaxMeses = prazoMax;
+        p.liquidezDias = liquidezDias;
+        p.rentabilidadeAnual = rentabilidade;
+        return p;
+    }
+
+    private List<InvestmentProduct> catalogoPadrao() {
+        return List.of(
+                produto(1L, "CDB", "BAIXO", 6, 36, 1, 0.13),
+                produto(2L, "CDB", "MÉDIO", 12, 48, 30, 0.16),
+                produto(3L, "TESOURO", "BAIXO", 24, 60, 1, 0.11),
+                produto(4L, "Fundo Multimercado", "ALTO", 12, 0, 30, 0.18),
+                produto(5L, "LCI", "BAIXO", 12, 36, 90, 0.125)
+        );
+    }
+
+    @Test
+    @DisplayName("1. Prazo curto deve priorizar liquidez")
+    void consultar_PrazoCurto_PriorizaLiquidez() {
+        ProductEligibilityIndex indice = new ProductEligibilityIndex(catalogoPadrao());
+
+        ProductEligibilityIndex.Resultado r = indice.consultar(12, null, 0, true);
+
+        assertTrue(r.possuiElegivel());
+        // elegíveis para 12 meses: 1, 2, 4 e 5 → menor liquidez é a do produto 1
+        assertEquals(1L, r.escolhido().id);
+    }
+
+    @Test
+    @DisplayName("2. Prazo longo deve priorizar rentabilidade respeitando o teto de risco")
+    void consultar_PrazoLongo_RespeitaPerfil() {
+        ProductEligibilityIndex indice = new ProductEligibilityIndex(catalogoPadrao());
+
+        ProductEligibilityIndex.Resultado semPerfil = indice.consultar(36, null, 0, false);
+        ProductEligibilityIndex.Resultado moderado = indice.consultar(36, null, 2, false);
+        ProductEligibilityIndex.Resultado conservador = indice.consultar(36, null, 1, false);
+
+        assertEquals(4L, semPerfil.escolhido().id);
+        assertNull(semPerfil.melhorCompativelComPerfil());
+        assertEquals(2L, moderado.escolhido().id);
+        assertEquals(1L, conservador.escolhido().id);
+    }
+
+    @Test
+    @DisplayName("3. Filtro por tipo deve ser case-insensitive")
+    void consultar_FiltraPorTipo() {
+        ProductEligibilityIndex indice = new ProductEligibilityIndex(catalogoPadrao());
+
+        ProductEligibilityIndex.Resultado r = indice.consultar(30, "tesouro", 0, false);
+
+        assertEquals(3L, r.escolhido().id);
+        assertFalse(indice.consultar(30, "DEBENTURE", 0, false).possuiElegivel());
+    }
+
+    @Test
+    @DisplayName("4. Sem produto compatível com o perfil deve cair no melhor por prazo/tipo")
+    void consultar_SemCompativel_UsaBase() {
+        ProductEligibilityIndex indice = new ProductEligibilityIndex(catalogoPadrao());
+
+        ProductEligibilityIndex.Resultado r = indice.consultar(100, null, 1, false);
+
+        assertTrue(r.possuiElegivel());
+        assertNull(r.melhorCompativelComPerfil());
+        assertEquals(4L, r.escolhido().id);
+    }
+
+    @Test
+    @DisplayName("5. Prazo fora de todas as faixas não deve retornar candidato")
+    void consultar_ForaDasFaixas() {
+        ProductEligibilityIndex indice = new ProductEligibilityIndex(catalogoPadrao());
+
+        assertFalse(indice.consultar(3, "CDB", 0, true).possuiElegivel());
+        assertFalse(indice.consultar(49, "CDB", 0, true).possuiElegivel());
+        assertTrue(indice.consultar(48, "CDB", 0, true).possuiElegivel());
+    }
+
+    @Test
+    @DisplayName("6. Índice deve concordar com a busca linear em catálogo grande")
+    void consultar_EquivalenteABuscaLinear() {
+        List<InvestmentProduct> produtos = new ArrayList<>();
+        String[] tipos = {"CDB", "LCI", "LCA", "FUNDO"};
+        String[] riscos = {"BAIXO", "MEDIO", "ALTO"};
+        for (int i = 1; i <= 300; i++) {
+            produtos.add(produto(i, tipos[i % tipos.length], riscos[i % riscos.length],
+                    i % 24, (i % 5 == 0) ? 0 : 12 + (i % 60), i % 90, (i % 37) / 100.0));
+        }
+        ProductEligibilityIndex indice = new ProductEligibilityIndex(produtos);
+
+        for (int prazo = 1; prazo <= 90; prazo += 7) {
+            for (int teto = 1; teto <= 3; teto++) {
+                final int prazoFinal = prazo;
+                final int tetoFinal = teto;
+                boolean liquidez = prazo <= 12;
+
+                InvestmentProduct esperado = produtos.stream()
+                        .filter(p -> "LCI".equals(p.tipo))
+                        .filter(p -> (p.prazoMinMeses == null || prazoFinal >= p.prazoMinMeses)
+                                && (p.prazoMaxMeses == null || p.prazoMaxMeses <= 0 || prazoFinal <= p.prazoMaxMeses))
+                        .filter(p -> risco(p.risco) <= tetoFinal)
+                        .sorted(liquidez
+                                ? java.util.Comparator.comparing((InvestmentProduct p) -> p.liquidezDias)
+                                .thenComparing((InvestmentProduct p) -> p.rentabilidadeAnual, java.util.Comparator.reverseOrder())
+                                : java.util.Comparator.comparing((InvestmentProduct p) -> p.rentabilidadeAnual, java.util.Comparator.reverseOrder())
+                                .thenComparing((InvestmentProduct p) -> p.liquidezDias))
+                        .findFirst()
+                        .orElse(null);
+
+                InvestmentProduct obtido = indice.consultar(prazo, "lci", teto, liquidez).melhorCompativelComPerfil();
+                assertSame(esperado, obtido, "prazo=" + prazo + ", teto=" + teto);
+            }
+        }
+    }
+
+    private int risco(String risco) {
+        return switch (risco) {
+            case "BAIXO" -> 1;
+            case "ALTO" -> 3;
+            default -> 2;
+        };
+    }
+}
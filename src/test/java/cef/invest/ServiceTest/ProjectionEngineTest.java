@@ -0,0 +1,48 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.service.ProjectionEngine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectionEngineTest {
+
+    @Test
+    @DisplayName("1. Fator mensal composto 12 vezes reproduz a taxa anual")
+    void fatorMensalEquivaleTaxaAnual() {
+        double fator = ProjectionEngine.fatorMensal(0.12);
+
+        assertEquals(1.12, Math.pow(fator, 12), 1e-12);
+        assertEquals(1.0, ProjectionEngine.fatorMensal(0.0));
+    }
+
+    @Test
+    @DisplayName("2. Série mês a mês bate com a forma fechada em todos os meses")
+    void serieIgualFormaFechada() {
+        double fator = ProjectionEngine.fatorMensal(0.1375);
+
+        double[] saldos = ProjectionEngine.saldosMensais(5_000.0, fator, ProjectionEngine.PRAZO_MAXIMO_MESES);
+
+        assertEquals(ProjectionEngine.PRAZO_MAXIMO_MESES + 1, saldos.length);
+        assertEquals(5_000.0, saldos[0]);
+        for (int mes = 1; mes < saldos.length; mes++) {
+            double fechado = ProjectionEngine.valorFinal(5_000.0, fator, mes);
+            assertEquals(fechado, saldos[mes], fechado * 1e-12, "mês " + mes);
+        }
+    }
+
+    @Test
+    @DisplayName("3. Valores nos prazos respeitam a ordem pedida")
+    void valoresNosPrazos() {
+        double fator = ProjectionEngine.fatorMensal(0.10);
+
+        double[] valores = ProjectionEngine.valoresNosPrazos(1_000.0, fator, new int[]{36, 12, 24, 12});
+
+        assertEquals(4, valores.length);
+        assertEquals(1_331.0, valores[0], 1e-6);
+        assertEquals(1_100.0, valores[1], 1e-6);
+        assertEquals(1_210.0, valores[2], 1e-6);
+        assertEquals(valores[1], valores[3]);
+    }
+}
@@ -0,0 +1,55 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.service.RiskLevelClassifier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RiskLevelClassifierTest {
+
+    @Test
+    @DisplayName("1. Tipo do histórico: renda variável = 3, fundos = 2, renda fixa e desconhecidos = 1")
+    void nivelPorTipo() {
+        assertEquals(3, RiskLevelClassifier.nivelPorTipo("Ação PETR4"));
+        assertEquals(3, RiskLevelClassifier.nivelPorTipo("FII"));
+        assertEquals(3, RiskLevelClassifier.nivelPorTipo("Renda Variável"));
+        assertEquals(3, RiskLevelClassifier.nivelPorTipo("Fundo Imobiliário"));
+        assertEquals(2, RiskLevelClassifier.nivelPorTipo("Fundo Multimercado"));
+        assertEquals(2, RiskLevelClassifier.nivelPorTipo("Fundo de Renda Fixa"));
+        assertEquals(1, RiskLevelClassifier.nivelPorTipo("CDB"));
+        assertEquals(1, RiskLevelClassifier.nivelPorTipo("Tesouro Selic"));
+        assertEquals(1, RiskLevelClassifier.nivelPorTipo("Debênture"));
+        assertEquals(1, RiskLevelClassifier.nivelPorTipo(null));
+    }
+
+    @Test
+    @DisplayName("2. Risco do produto ignora caixa e espaços; nulo ou desconhecido = médio")
+    void nivelPorRisco() {
+        assertEquals(1, RiskLevelClassifier.nivelPorRisco(" baixo "));
+        assertEquals(2, RiskLevelClassifier.nivelPorRisco("Médio"));
+        assertEquals(3, RiskLevelClassifier.nivelPorRisco("Alto Risco"));
+        assertEquals(2, RiskLevelClassifier.nivelPorRisco("???"));
+        assertEquals(2, RiskLevelClassifier.nivelPorRisco(null));
+    }
+
+    @Test
+    @DisplayName("3. Teto do perfil: conservador = 1, moderado = 2, agressivo/arrojado = 3")
+    void tetoPorPerfil() {
+        assertEquals(1, RiskLevelClassifier.tetoPorPerfil("Conservador"));
+        assertEquals(2, RiskLevelClassifier.tetoPorPerfil("MODERADO"));
+        assertEquals(3, RiskLevelClassifier.tetoPorPerfil("agressivo"));
+        assertEquals(3, RiskLevelClassifier.tetoPorPerfil(" Arrojado"));
+        assertEquals(2, RiskLevelClassifier.tetoPorPerfil(null));
+    }
+
+    @Test
+    @DisplayName("4. Textos além do limite do cache continuam classificados corretamente")
+    void alemDoLimiteDoCache() {
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals(2, RiskLevelClassifier.nivelPorTipo("Fundo " + i));
+            assertEquals(3, RiskLevelClassifier.tetoPorPerfil("Arrojado" + " ".repeat(i % 3)));
+        }
+        assertEquals(3, RiskLevelClassifier.nivelPorTipo("Ação PETR4"));
+    }
+}
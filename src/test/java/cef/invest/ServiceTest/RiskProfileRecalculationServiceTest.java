@@ -0,0 +1,234 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.dto.RiskRecalculationStatusDTO;
+import cef.financial.domain.model.CustomerRiskAggregate;
+import cef.financial.domain.model.RiskRecalculationCheckpoint;
+import cef.financial.domain.repository.RiskRecalculationCheckpointRepository;
+import cef.financial.domain.repository.RiskRecalculationRepository;
+import cef.financial.domain.service.RiskProfileRecalculationService;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RiskProfileRecalculationServiceTest {
+
+    private static final String JOB = "perfil-risco";
+
+    @Mock
+    RiskRecalculationRepository recalculationRepository;
+
+    @Mock
+    RiskRecalculationCheckpointRepository checkpointRepository;
+
+    private record Operacao(long clienteId, double valor, double rentabilidade, String tipo) {
+    }
+
+    // execução síncrona: iniciar só retorna quando o job termina
+    private RiskProfileRecalculationService service(int clientesPorBloco, int paralelismo) {
+        return new RiskProfileRecalculationService(
+                recalculationRepository, checkpointRepository, clientesPorBloco, paralelismo, Runnable::run);
+    }
+
+    private Answer<Void> historico(Operacao... operacoes) {
+        return invocation -> {
+            RiskRecalculationRepository.LeitorOperacao leitor = invocation.getArgument(1);
+            for (Operacao o : operacoes) {
+                if (!leitor.aceitar(o.clienteId(), o.valor(), o.rentabilidade(), o.tipo())) {
+                    break;
+                }
+            }
+            return null;
+        };
+    }
+
+    // grava e conta todos os clientes do bloco como alterados
+    private Answer<Integer> gravarEm(Map<Long, String> perfis) {
+        return invocation -> {
+            long[] ids = invocation.getArgument(0);
+            String[] novos = invocation.getArgument(2);
+            int quantidade = invocation.getArgument(3);
+            for (int i = 0; i < quantidade; i++) {
+                perfis.put(ids[i], novos[i]);
+            }
+            return quantidade;
+        };
+    }
+
+    @Test
+    @DisplayName("1. Pontua cada cliente a partir de todas as suas operações e conclui o checkpoint")
+    void recalculoCompleto() throws Exception {
+        List<Operacao> operacoes = new ArrayList<>();
+        // cliente 1: experiente, FII com 15% a.a. → 40 + 30 + 20 = 90 → Moderado
+        for (int i = 0; i < 12; i++) {
+            operacoes.add(new Operacao(1, 1000.0, 0.15, "FII"));
+        }
+        // cliente 2: uma operação em CDB com 2% → 15 + 2 + 3 = 20 → Conservador
+        operacoes.add(new Operacao(2, 500.0, 0.02, "CDB"));
+        // cliente 3: duas operações em multimercado com 10 (percentual) → 35 + 18 + 5 = 58 → Conservador
+        operacoes.add(new Operacao(3, 1000.0, 10.0, "Fundo Multimercado"));
+        operacoes.add(new Operacao(3, 3000.0, 10.0, "Fundo Multimercado"));
+
+        doAnswer(historico(operacoes.toArray(Operacao[]::new)))
+                .when(recalculationRepository).percorrerHistorico(eq(0L), any());
+        Map<Long, String> perfis = new ConcurrentHashMap<>();
+        when(recalculationRepository.gravarBloco(any(), any(), any(), anyInt())).thenAnswer(gravarEm(perfis));
+
+        RiskRecalculationStatusDTO status = service(2, 2).iniciar(false);
+
+        assertEquals(RiskProfileRecalculationService.CONCLUIDO, status.status);
+        assertEquals(3, status.clientesProcessados);
+        assertEquals(3, status.perfisAlterados);
+        assertEquals(15, status.operacoesLidas);
+        assertEquals(3, status.ultimoClienteId);
+        assertEquals(Map.of(1L, "Moderado", 2L, "Conservador", 3L, "Conservador"), perfis);
+
+        // blocos de 2 clientes: [1, 2] e [3]; o acumulado reconstruído é gravado junto com o perfil
+        ArgumentCaptor<CustomerRiskAggregate[]> agregados = ArgumentCaptor.forClass(CustomerRiskAggregate[].class);
+        verify(recalculationRepository, times(2)).gravarBloco(any(), agregados.capture(), any(), anyInt());
+        Map<Long, CustomerRiskAggregate> porCliente = agregados.getAllValues().stream()
+                .flatMap(Arrays::stream)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(a -> a.clienteId, a -> a));
+        assertEquals(Set.of(1L, 2L, 3L), porCliente.keySet());
+        assertEquals(12, porCliente.get(1L).qtdOperacoes);
+        assertEquals(12000.0, porCliente.get(1L).pesoTotal, 1e-9);
+        assertEquals(3, porCliente.get(1L).maxNivelRisco);
+        assertEquals(2, porCliente.get(3L).qtdOperacoes);
+        assertEquals(2, porCliente.get(3L).maxNivelRisco);
+
+        verify(checkpointRepository).salvar(eq(JOB), eq(RiskProfileRecalculationService.CONCLUIDO),
+                eq(3L), eq(3L), eq(3L), any());
+        verify(checkpointRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("2. Retomar continua após o último cliente do checkpoint e soma aos totais anteriores")
+    void retomaDoCheckpoint() throws Exception {
+        RiskRecalculationCheckpoint checkpoint = new RiskRecalculationCheckpoint();
+        checkpoint.job = JOB;
+        checkpoint.status = RiskProfileRecalculationService.FALHOU;
+        checkpoint.ultimoClienteId = 10;
+        checkpoint.clientesProcessados = 10;
+        checkpoint.perfisAlterados = 4;
+        when(checkpointRepository.findById(JOB)).thenReturn(checkpoint);
+
+        doAnswer(historico(new Operacao(11, 500.0, 0.02, "CDB"), new Operacao(12, 500.0, 0.02, "CDB")))
+                .when(recalculationRepository).percorrerHistorico(eq(10L), any());
+        when(recalculationRepository.gravarBloco(any(), any(), any(), anyInt()))
+                .thenAnswer(gravarEm(new ConcurrentHashMap<>()));
+
+        RiskRecalculationStatusDTO status = service(100, 1).iniciar(true);
+
+        assertEquals(RiskProfileRecalculationService.CONCLUIDO, status.status);
+        assertEquals(12, status.clientesProcessados);
+        assertEquals(6, status.perfisAlterados);
+        assertEquals(12, status.ultimoClienteId);
+    }
+
+    @Test
+    @DisplayName("3. Checkpoint concluído não é retomado: recomeça do primeiro cliente")
+    void checkpointConcluidoRecomeca() throws Exception {
+        RiskRecalculationCheckpoint checkpoint = new RiskRecalculationCheckpoint();
+        checkpoint.status = RiskProfileRecalculationService.CONCLUIDO;
+        checkpoint.ultimoClienteId = 99;
+        when(checkpointRepository.findById(JOB)).thenReturn(checkpoint);
+
+        RiskRecalculationStatusDTO status = service(100, 1).iniciar(true);
+
+        verify(recalculationRepository).percorrerHistorico(eq(0L), any());
+        verify(recalculationRepository, never()).gravarBloco(any(), any(), any(), anyInt());
+        assertEquals(RiskProfileRecalculationService.CONCLUIDO, status.status);
+        assertEquals(0, status.clientesProcessados);
+    }
+
+    @Test
+    @DisplayName("4. Falha na gravação de um bloco encerra o job sem avançar o checkpoint além dele")
+    void falhaNaGravacao() throws Exception {
+        doAnswer(historico(
+                new Operacao(1, 500.0, 0.02, "CDB"),
+                new Operacao(2, 500.0, 0.02, "CDB"),
+                new Operacao(3, 500.0, 0.02, "CDB")))
+                .when(recalculationRepository).percorrerHistorico(eq(0L), any());
+        when(recalculationRepository.gravarBloco(any(), any(), any(), anyInt())).thenAnswer(invocation -> {
+            long[] ids = invocation.getArgument(0);
+            if (ids[0] == 2L) {
+                throw new SQLException("deadlock");
+            }
+            return 1;
+        });
+
+        RiskRecalculationStatusDTO status = service(1, 1).iniciar(false);
+
+        assertEquals(RiskProfileRecalculationService.FALHOU, status.status);
+        assertNotNull(status.erro);
+        assertEquals(1, status.ultimoClienteId);
+        assertEquals(1, status.clientesProcessados);
+        verify(checkpointRepository).salvar(eq(JOB), eq(RiskProfileRecalculationService.FALHOU),
+                eq(1L), eq(1L), eq(1L), any());
+    }
+
+    @Test
+    @DisplayName("5. Segunda execução simultânea é rejeitada com 409; cancelar interrompe a leitura")
+    void concorrenciaECancelamento() throws Exception {
+        List<Runnable> agendados = new ArrayList<>();
+        RiskProfileRecalculationService service = new RiskProfileRecalculationService(
+                recalculationRepository, checkpointRepository, 100, 1, agendados::add);
+        doAnswer(historico(new Operacao(1, 500.0, 0.02, "CDB")))
+                .when(recalculationRepository).percorrerHistorico(eq(0L), any());
+
+        assertEquals(RiskProfileRecalculationService.EXECUTANDO, service.iniciar(false).status);
+
+        WebApplicationException conflito = assertThrows(WebApplicationException.class, () -> service.iniciar(false));
+        assertEquals(409, conflito.getResponse().getStatus());
+
+        service.cancelar();
+        agendados.get(0).run();
+
+        RiskRecalculationStatusDTO status = service.consultar();
+        assertEquals(RiskProfileRecalculationService.CANCELADO, status.status);
+        assertEquals(0, status.operacoesLidas);
+        verify(recalculationRepository, never()).gravarBloco(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("6. Sem execução nesta instância: cancelar devolve 404 e a consulta usa o checkpoint")
+    void semExecucao() {
+        RiskProfileRecalculationService service = service(100, 1);
+
+        WebApplicationException e = assertThrows(WebApplicationException.class, service::cancelar);
+        assertEquals(404, e.getResponse().getStatus());
+
+        when(checkpointRepository.findById(JOB)).thenReturn(null);
+        assertEquals(RiskProfileRecalculationService.NUNCA_EXECUTADO, service.consultar().status);
+
+        RiskRecalculationCheckpoint checkpoint = new RiskRecalculationCheckpoint();
+        checkpoint.status = RiskProfileRecalculationService.EXECUTANDO;
+        checkpoint.ultimoClienteId = 500;
+        checkpoint.clientesProcessados = 500;
+        when(checkpointRepository.findById(JOB)).thenReturn(checkpoint);
+
+        RiskRecalculationStatusDTO status = service.consultar();
+        assertEquals(RiskProfileRecalculationService.INTERROMPIDO, status.status);
+        assertEquals(500, status.ultimoClienteId);
+    }
+}
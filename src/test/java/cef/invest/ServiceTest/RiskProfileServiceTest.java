@@ -1,20 +1,37 @@
 package cef.invest.ServiceTest;
 
 import cef.financial.domain.dto.RiskProfileResponseDTO;
+import cef.financial.domain.model.Customer;
+import cef.financial.domain.model.CustomerRiskAggregate;
 import cef.financial.domain.model.InvestmentHistory;
+import cef.financial.domain.repository.CustomerRiskAggregateRepository;
 import cef.financial.domain.repository.InvestmentHistoryRepository;
 import cef.financial.domain.repository.CustomerRepository;
 import cef.financial.domain.service.RiskProfileService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import jakarta.persistence.LockModeType;
+import java.time.OffsetDateTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.doubleThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +43,9 @@ class RiskProfileServiceTest {
     @Mock
     CustomerRepository customerRepository;
 
+    @Mock
+    CustomerRiskAggregateRepository aggregateRepository;
+
     @InjectMocks
     RiskProfileService riskProfileService;
 
@@ -38,6 +58,30 @@ class RiskProfileServiceTest {
         return h;
     }
 
+    private List<Object[]> linhas(List<InvestmentHistory> historico) {
+        return historico.stream()
+                .map(h -> new Object[]{h.valor, h.rentabilidade, h.tipo})
+                .toList();
+    }
+
+    private CustomerRiskAggregate agregado(Long clienteId, double pesoTotal, double retornoPonderado,
+                                           int maxNivelRisco, long qtdOperacoes) {
+        CustomerRiskAggregate a = new CustomerRiskAggregate();
+        a.clienteId = clienteId;
+        a.pesoTotal = pesoTotal;
+        a.retornoPonderado = retornoPonderado;
+        a.maxNivelRisco = maxNivelRisco;
+        a.qtdOperacoes = qtdOperacoes;
+        return a;
+    }
+
+    // MERGE sem concorrência: o acumulado criado é o montado a partir do histórico
+    @BeforeEach
+    void criarAgregadoSemConcorrencia() {
+        lenient().when(aggregateRepository.criarOuAcumular(any(), anyDouble(), anyDouble(), anyInt(), anyLong()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
     // ========== TESTES ==========
 
     @Test
@@ -45,8 +89,8 @@ class RiskProfileServiceTest {
     void calculateProfile_SemHistorico() {
         Long clienteId = 1L;
 
-        when(historyRepository.list("clienteId", clienteId))
-                .thenReturn(List.of());
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(List.of()));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
@@ -64,8 +108,8 @@ class RiskProfileServiceTest {
 
         InvestmentHistory h1 = history("CDB Renda Fixa", 1000.0, -0.01);
 
-        when(historyRepository.list("clienteId", clienteId))
-                .thenReturn(List.of(h1));
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(List.of(h1)));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
@@ -82,8 +126,8 @@ class RiskProfileServiceTest {
         InvestmentHistory h1 = history("Fundo Multimercado", 2000.0, 0.07);
         InvestmentHistory h2 = history("Fundo Multimercado", 1000.0, 0.07);
 
-        when(historyRepository.list("clienteId", clienteId))
-                .thenReturn(List.of(h1, h2));
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(List.of(h1, h2)));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
@@ -111,8 +155,8 @@ class RiskProfileServiceTest {
                 history("FII", 300.0, 0.19)
         );
 
-        when(historyRepository.list("clienteId", clienteId))
-                .thenReturn(historico);
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(historico));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
@@ -129,8 +173,8 @@ class RiskProfileServiceTest {
         InvestmentHistory h1 = history("Ação", 1000.0, 0.20);
         InvestmentHistory h2 = history("FII", 500.0, 0.25);
 
-        when(historyRepository.list("clienteId", clienteId))
-                .thenReturn(List.of(h1, h2));
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(List.of(h1, h2)));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
@@ -146,8 +190,8 @@ class RiskProfileServiceTest {
 
         InvestmentHistory h1 = history("CRYPTO RANDOM", 1000.0, 0.10);
 
-        when(historyRepository.list("clienteId", clienteId))
-                .thenReturn(List.of(h1));
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(List.of(h1)));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
@@ -163,8 +207,8 @@ class RiskProfileServiceTest {
 
         InvestmentHistory h1 = history("Fundo Multimercado", 500.0, 0.0);
 
-        when(historyRepository.list("clienteId", clienteId))
-                .thenReturn(List.of(h1));
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(List.of(h1)));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
@@ -181,8 +225,8 @@ class RiskProfileServiceTest {
         // 1.5 → normaliza para 0.015
         InvestmentHistory h1 = history("Ação", 1000.0, 1.5);
 
-        when(historyRepository.list("clienteId", clienteId))
-                .thenReturn(List.of(h1));
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(List.of(h1)));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
@@ -199,8 +243,8 @@ class RiskProfileServiceTest {
 
         InvestmentHistory h1 = history("CDB", 0.0, 0.05);
 
-        when(historyRepository.list("clienteId", clienteId))
-                .thenReturn(List.of(h1));
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(List.of(h1)));
 
         assertDoesNotThrow(() -> riskProfileService.calculateProfile(clienteId));
     }
@@ -216,7 +260,7 @@ class RiskProfileServiceTest {
                 history("Fundo Multimercado", 700, 0.07)
         );
 
-        when(historyRepository.list("clienteId", clienteId)).thenReturn(historico);
+        when(historyRepository.colunasDeRisco(clienteId)).thenReturn(linhas(historico));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
@@ -232,7 +276,7 @@ class RiskProfileServiceTest {
 
         InvestmentHistory h1 = history("CDB", 1000, -0.50);
 
-        when(historyRepository.list("clienteId", clienteId)).thenReturn(List.of(h1));
+        when(historyRepository.colunasDeRisco(clienteId)).thenReturn(linhas(List.of(h1)));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
@@ -250,11 +294,223 @@ class RiskProfileServiceTest {
                 .mapToObj(i -> history("Ação", 100 + i, 0.20))
                 .toList();
 
-        when(historyRepository.list("clienteId", clienteId)).thenReturn(historico);
+        when(historyRepository.colunasDeRisco(clienteId)).thenReturn(linhas(historico));
 
         RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
 
         assertEquals("Moderado", resp.perfil);
         assertEquals(90, resp.pontuacao);
     }
+
+    @Test
+    @DisplayName("13. Perfil é calculado a partir do acumulado, sem reler o histórico")
+    void calculateProfile_UsaAcumulado() {
+        Long clienteId = 13L;
+
+        // equivalente ao cenário 3: 2 operações multimercado a 7%
+        when(aggregateRepository.findById(clienteId))
+                .thenReturn(agregado(clienteId, 3000.0, 210.0, 2, 2));
+
+        RiskProfileResponseDTO resp = riskProfileService.calculateProfile(clienteId);
+
+        assertEquals("Conservador", resp.perfil);
+        assertEquals(48, resp.pontuacao);
+        verifyNoInteractions(historyRepository);
+    }
+
+    @Test
+    @DisplayName("14. registrarOperacao soma a operação no banco (normalizando percentual) e devolve o acumulado")
+    void registrarOperacao_IncrementaAcumulado() {
+        Long clienteId = 14L;
+        CustomerRiskAggregate atualizado = agregado(clienteId, 2000.0, 120.0, 3, 2);
+
+        // 10 → 0.10; peso 1000 → retorno ponderado 100; "Ação" → risco 3
+        when(aggregateRepository.acumular(eq(clienteId), eq(1000.0), doubleThat(r -> Math.abs(r - 100.0) < 1e-9),
+                eq(3), eq(1L), any(OffsetDateTime.class)))
+                .thenReturn(atualizado);
+
+        InvestmentHistory nova = history("Ação", 1000.0, 10.0);
+        nova.clienteId = clienteId;
+
+        CustomerRiskAggregate resultado = riskProfileService.registrarOperacao(nova);
+
+        assertSame(atualizado, resultado);
+        verifyNoInteractions(historyRepository);
+        verify(aggregateRepository, never())
+                .criarOuAcumular(any(), anyDouble(), anyDouble(), anyInt(), anyLong());
+        verify(aggregateRepository, never()).findById(any(), any(LockModeType.class));
+    }
+
+    @Test
+    @DisplayName("15. registrarOperacao sem acumulado reconstrói a partir do histórico uma única vez")
+    void registrarOperacao_SemAcumulado_Reconstroi() {
+        Long clienteId = 15L;
+
+        InvestmentHistory h1 = history("CDB", 1000.0, 0.02);
+        InvestmentHistory h2 = history("FII", 500.0, 0.18);
+        h2.clienteId = clienteId;
+
+        when(historyRepository.colunasDeRisco(clienteId)).thenReturn(linhas(List.of(h1, h2)));
+
+        CustomerRiskAggregate resultado = riskProfileService.registrarOperacao(h2);
+
+        ArgumentCaptor<CustomerRiskAggregate> captor = ArgumentCaptor.forClass(CustomerRiskAggregate.class);
+        // o incremento (FII: peso 500, retorno 90, risco 3) só é somado se outra transação criou o acumulado antes
+        verify(aggregateRepository).criarOuAcumular(captor.capture(), eq(500.0),
+                doubleThat(r -> Math.abs(r - 90.0) < 1e-9), eq(3), eq(1L));
+
+        CustomerRiskAggregate criado = captor.getValue();
+        assertSame(criado, resultado);
+        assertEquals(clienteId, criado.clienteId);
+        assertEquals(2, criado.qtdOperacoes);
+        assertEquals(3, criado.maxNivelRisco);
+        assertEquals(1500.0, criado.pesoTotal, 1e-9);
+    }
+
+    @Test
+    @DisplayName("16. registrarOperacao ignora histórico sem cliente")
+    void registrarOperacao_SemCliente() {
+        assertNull(riskProfileService.registrarOperacao(history("CDB", 100.0, 0.01)));
+
+        verifyNoInteractions(aggregateRepository);
+    }
+
+    @Test
+    @DisplayName("17. atualizarPerfil pontua o acumulado recebido sem consultar acumulado nem histórico")
+    void atualizarPerfil_UsaAcumuladoRecebido() {
+        Long clienteId = 17L;
+
+        RiskProfileResponseDTO resp = riskProfileService.atualizarPerfil(clienteId,
+                agregado(clienteId, 3000.0, 210.0, 2, 2));
+
+        assertEquals("Conservador", resp.perfil);
+        assertEquals(48, resp.pontuacao);
+        verifyNoInteractions(aggregateRepository, historyRepository);
+    }
+
+    private Customer cliente(Long id, String perfil) {
+        Customer c = new Customer();
+        c.id = id;
+        c.perfil = perfil;
+        return c;
+    }
+
+    @Test
+    @DisplayName("18. consultarPerfil com perfil gravado em dia só lê: nada é gravado")
+    void consultarPerfil_PerfilEmDia() {
+        Long clienteId = 18L;
+        when(aggregateRepository.buscarSomenteLeitura(clienteId))
+                .thenReturn(agregado(clienteId, 3000.0, 210.0, 2, 2));
+        when(customerRepository.findById(clienteId)).thenReturn(cliente(clienteId, "Conservador"));
+
+        RiskProfileResponseDTO resp = riskProfileService.consultarPerfil(clienteId);
+
+        assertEquals("Conservador", resp.perfil);
+        assertEquals(48, resp.pontuacao);
+        verify(customerRepository, never()).atualizarPerfil(any(), any());
+        verify(aggregateRepository, never()).findById(any());
+        verifyNoInteractions(historyRepository);
+    }
+
+    @Test
+    @DisplayName("19. consultarPerfil regrava o perfil só quando diverge do calculado")
+    void consultarPerfil_PerfilDesatualizado() {
+        Long clienteId = 19L;
+        Customer customer = cliente(clienteId, "Agressivo");
+        when(aggregateRepository.buscarSomenteLeitura(clienteId))
+                .thenReturn(agregado(clienteId, 3000.0, 210.0, 2, 2));
+        when(customerRepository.findById(clienteId)).thenReturn(customer);
+
+        RiskProfileResponseDTO resp = riskProfileService.consultarPerfil(clienteId);
+
+        assertEquals("Conservador", resp.perfil);
+        verify(customerRepository).atualizarPerfil(clienteId, "Conservador");
+        // a entidade lida fora de transação não é alterada diretamente
+        assertEquals("Agressivo", customer.perfil);
+    }
+
+    @Test
+    @DisplayName("20. consultarPerfil sem acumulado cai no cálculo completo, que cria o acumulado")
+    void consultarPerfil_SemAcumulado() {
+        Long clienteId = 20L;
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(List.of(history("CDB", 1000.0, 0.02))));
+
+        RiskProfileResponseDTO resp = riskProfileService.consultarPerfil(clienteId);
+
+        assertEquals("Conservador", resp.perfil);
+        // cálculo pelo GET só garante que o acumulado exista: incremento zero
+        verify(aggregateRepository).criarOuAcumular(any(CustomerRiskAggregate.class), eq(0.0), eq(0.0), eq(0), eq(0L));
+    }
+
+    @Test
+    @DisplayName("21. consultarPerfil: ID inválido e acumulado vazio não consultam o cliente")
+    void consultarPerfil_InvalidoEIndefinido() {
+        assertEquals("Inválido", riskProfileService.consultarPerfil(0L).perfil);
+
+        when(aggregateRepository.buscarSomenteLeitura(21L)).thenReturn(agregado(21L, 0.0, 0.0, 0, 0));
+        assertEquals("Indefinido", riskProfileService.consultarPerfil(21L).perfil);
+
+        verifyNoInteractions(customerRepository, historyRepository);
+    }
+
+    @Test
+    @DisplayName("22. Primeiras operações simultâneas do cliente: a segunda soma só a própria operação ao acumulado criado")
+    void registrarOperacao_PrimeiraOperacaoConcorrente() {
+        Long clienteId = 22L;
+
+        // as duas transações fazem o UPDATE antes de qualquer acumulado existir (acumular devolve null)
+        // e cada uma só enxerga no histórico a própria operação, ainda não confirmada na outra
+        InvestmentHistory primeira = history("CDB", 1000.0, 0.02);
+        primeira.clienteId = clienteId;
+        InvestmentHistory segunda = history("FII", 500.0, 0.18);
+        segunda.clienteId = clienteId;
+        when(historyRepository.colunasDeRisco(clienteId))
+                .thenReturn(linhas(List.of(primeira)))
+                .thenReturn(linhas(List.of(segunda)));
+
+        // MERGE com HOLDLOCK: a primeira insere, a segunda encontra a linha e soma o incremento
+        CustomerRiskAggregate[] gravado = new CustomerRiskAggregate[1];
+        when(aggregateRepository.criarOuAcumular(any(), anyDouble(), anyDouble(), anyInt(), anyLong()))
+                .thenAnswer(invocation -> {
+                    CustomerRiskAggregate inicial = invocation.getArgument(0);
+                    if (gravado[0] == null) {
+                        gravado[0] = agregado(clienteId, inicial.pesoTotal, inicial.retornoPonderado,
+                                inicial.maxNivelRisco, inicial.qtdOperacoes);
+                    } else {
+                        CustomerRiskAggregate a = gravado[0];
+                        gravado[0] = agregado(clienteId,
+                                a.pesoTotal + (double) invocation.getArgument(1),
+                                a.retornoPonderado + (double) invocation.getArgument(2),
+                                Math.max(a.maxNivelRisco, (int) invocation.getArgument(3)),
+                                a.qtdOperacoes + (long) invocation.getArgument(4));
+                    }
+                    return gravado[0];
+                });
+
+        CustomerRiskAggregate aposPrimeira = riskProfileService.registrarOperacao(primeira);
+        CustomerRiskAggregate aposSegunda = riskProfileService.registrarOperacao(segunda);
+
+        assertEquals(1, aposPrimeira.qtdOperacoes);
+        // nenhuma operação perdida nem contada duas vezes
+        assertEquals(2, aposSegunda.qtdOperacoes);
+        assertEquals(1500.0, aposSegunda.pesoTotal, 1e-9);
+        assertEquals(20.0 + 90.0, aposSegunda.retornoPonderado, 1e-9);
+        assertEquals(3, aposSegunda.maxNivelRisco);
+        verify(aggregateRepository, never()).persist(any(CustomerRiskAggregate.class));
+    }
+
+    @Test
+    @DisplayName("23. registrarOperacoes grava as operações de um bloco do lote num único UPDATE do acumulado")
+    void registrarOperacoes_UmUpdatePorCliente() {
+        Long clienteId = 23L;
+        CustomerRiskAggregate incremento = agregado(clienteId, 3000.0, 210.0, 2, 3);
+        CustomerRiskAggregate atualizado = agregado(clienteId, 5000.0, 350.0, 2, 5);
+        when(aggregateRepository.acumular(eq(clienteId), eq(3000.0), eq(210.0), eq(2), eq(3L),
+                any(OffsetDateTime.class)))
+                .thenReturn(atualizado);
+
+        assertSame(atualizado, riskProfileService.registrarOperacoes(incremento));
+        verifyNoInteractions(historyRepository);
+    }
 }
@@ -0,0 +1,56 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.model.CustomerRiskAggregate;
+import cef.financial.domain.service.RiskScoringKernel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RiskScoringKernelTest {
+
+    @Test
+    @DisplayName("1. Linhas da projeção viram colunas com o nível de risco de cada tipo")
+    void colunas() {
+        RiskScoringKernel.Colunas colunas = RiskScoringKernel.colunas(List.of(
+                new Object[]{1000.0, 0.10, "CDB"},
+                new Object[]{500.0, 12.0, "Fundo Multimercado"},
+                new Object[]{200.0, 0.20, null}
+        ));
+
+        assertEquals(3, colunas.tamanho());
+        assertArrayEquals(new double[]{1000.0, 500.0, 200.0}, colunas.valores());
+        assertArrayEquals(new double[]{0.10, 12.0, 0.20}, colunas.rentabilidades());
+        assertArrayEquals(new byte[]{1, 2, 1}, colunas.niveisRisco());
+    }
+
+    @Test
+    @DisplayName("2. Acumulado pondera pelo valor, normaliza percentuais e guarda o maior risco")
+    void acumular() {
+        RiskScoringKernel.Colunas colunas = new RiskScoringKernel.Colunas(
+                new double[]{1000.0, 0.0, 3000.0},
+                new double[]{0.10, 0.05, 12.0},
+                new byte[]{1, 3, 2});
+
+        CustomerRiskAggregate agregado = RiskScoringKernel.acumular(colunas);
+
+        // valor 0 pesa 1; 12 (percentual) vira 0.12
+        assertEquals(4001.0, agregado.pesoTotal, 1e-9);
+        assertEquals(1000 * 0.10 + 0.05 + 3000 * 0.12, agregado.retornoPonderado, 1e-9);
+        assertEquals(3, agregado.maxNivelRisco);
+        assertEquals(3, agregado.qtdOperacoes);
+        assertNull(agregado.clienteId);
+    }
+
+    @Test
+    @DisplayName("3. Histórico vazio gera acumulado zerado")
+    void vazio() {
+        CustomerRiskAggregate agregado = RiskScoringKernel.acumular(RiskScoringKernel.colunas(List.of()));
+
+        assertEquals(0, agregado.qtdOperacoes);
+        assertEquals(0, agregado.maxNivelRisco);
+        assertEquals(0.0, agregado.pesoTotal);
+    }
+}
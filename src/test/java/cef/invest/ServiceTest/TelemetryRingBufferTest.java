@@ -0,0 +1,101 @@
+package cef.invest.ServiceTest;
+
+import cef.financial.domain.service.TelemetryRingBuffer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryRingBufferTest {
+
+    @Test
+    @DisplayName("1. Capacidade é arredondada para a próxima potência de 2")
+    void capacidadeArredondada() {
+        assertEquals(8, new TelemetryRingBuffer<String>(5).capacidade());
+        assertEquals(8, new TelemetryRingBuffer<String>(8).capacidade());
+        assertEquals(1, new TelemetryRingBuffer<String>(1).capacidade());
+        assertThrows(IllegalArgumentException.class, () -> new TelemetryRingBuffer<String>(0));
+    }
+
+    @Test
+    @DisplayName("2. Drena na ordem de chegada respeitando o máximo por chamada")
+    void drenaEmOrdem() {
+        TelemetryRingBuffer<Integer> fila = new TelemetryRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(fila.oferecer(i));
+        }
+
+        List<Integer> lote = new ArrayList<>();
+        assertEquals(3, fila.drenar(lote, 3));
+        assertEquals(List.of(0, 1, 2), lote);
+        assertEquals(2, fila.tamanho());
+
+        lote.clear();
+        assertEquals(2, fila.drenar(lote, 10));
+        assertEquals(List.of(3, 4), lote);
+        assertEquals(0, fila.drenar(lote, 10));
+    }
+
+    @Test
+    @DisplayName("3. Fila cheia descarta sem bloquear e volta a aceitar após drenagem")
+    void filaCheiaDescarta() {
+        TelemetryRingBuffer<Integer> fila = new TelemetryRingBuffer<>(2);
+
+        assertTrue(fila.oferecer(1));
+        assertTrue(fila.oferecer(2));
+        assertFalse(fila.oferecer(3));
+        assertEquals(1, fila.descartados());
+
+        fila.drenar(new ArrayList<>(), 1);
+        assertTrue(fila.oferecer(4));
+
+        List<Integer> lote = new ArrayList<>();
+        fila.drenar(lote, 10);
+        assertEquals(List.of(2, 4), lote);
+    }
+
+    @Test
+    @DisplayName("4. Produtores concorrentes: nenhum item perdido ou duplicado")
+    void produtoresConcorrentes() throws Exception {
+        int produtores = 4;
+        int porProdutor = 10_000;
+        TelemetryRingBuffer<Integer> fila = new TelemetryRingBuffer<>(1024);
+
+        ExecutorService executor = Executors.newFixedThreadPool(produtores);
+        CountDownLatch inicio = new CountDownLatch(1);
+        for (int p = 0; p < produtores; p++) {
+            int base = p * porProdutor;
+            executor.submit(() -> {
+                inicio.await();
+                for (int i = 0; i < porProdutor; i++) {
+                    fila.oferecer(base + i);
+                }
+                return null;
+            });
+        }
+
+        Set<Integer> recebidos = new HashSet<>();
+        List<Integer> lote = new ArrayList<>();
+        inicio.countDown();
+        executor.shutdown();
+        while (!executor.isTerminated() || fila.tamanho() > 0) {
+            fila.drenar(lote, 256);
+            for (Integer item : lote) {
+                assertTrue(recebidos.add(item), "item duplicado: " + item);
+            }
+            lote.clear();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(produtores * porProdutor, recebidos.size() + fila.descartados());
+    }
+}
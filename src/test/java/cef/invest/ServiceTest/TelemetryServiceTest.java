@@ -1,13 +1,17 @@
 package cef.invest.ServiceTest;
 
 import cef.financial.domain.dto.TelemetryResponseDTO;
+import cef.financial.domain.model.TelemetryDailyRollup;
 import cef.financial.domain.model.TelemetryEvent;
+import cef.financial.domain.repository.TelemetryDailyRollupRepository;
 import cef.financial.domain.repository.TelemetryEventRepository;
+import cef.financial.domain.service.LatencyHistogram;
 import cef.financial.domain.service.TelemetryService;
 import jakarta.ws.rs.WebApplicationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -15,7 +19,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,11 +29,17 @@ class TelemetryServiceTest {
     @Mock
     TelemetryEventRepository telemetryEventRepository;
 
+    @Mock
+    TelemetryDailyRollupRepository rollupRepository;
+
     TelemetryService telemetryService;
 
     @BeforeEach
     void setUp() {
-        telemetryService = new TelemetryService(telemetryEventRepository);
+        telemetryService = new TelemetryService(telemetryEventRepository, rollupRepository);
+        // padrão: primeira gravação do serviço/dia, a linha é criada pelo MERGE
+        lenient().when(rollupRepository.acumular(any(TelemetryDailyRollup.class)))
+                .thenReturn(new TelemetryDailyRollupRepository.Acumulo(true, null));
     }
 
     @Test
@@ -39,8 +48,14 @@ class TelemetryServiceTest {
                 telemetryService.record("servico-x", 150L)
         );
 
+        // gravação é assíncrona: nada vai ao banco na thread da requisição
+        verifyNoInteractions(telemetryEventRepository);
+        assertEquals(1, telemetryService.pendentes());
+
+        assertEquals(1, telemetryService.descarregar());
         verify(telemetryEventRepository, times(1))
-                .persist(any(TelemetryEvent.class));
+                .persist(ArgumentMatchers.<Iterable<TelemetryEvent>>any());
+        assertEquals(0, telemetryService.pendentes());
     }
 
     @Test
@@ -53,34 +68,64 @@ class TelemetryServiceTest {
     }
 
     @Test
-    void record_Falha_ErroInterno() {
+    void descarregar_Falha_ErroInterno_NaoPropaga() {
         doThrow(new RuntimeException("falha de banco"))
                 .when(telemetryEventRepository)
-                .persist(any(TelemetryEvent.class));
+                .persist(ArgumentMatchers.<Iterable<TelemetryEvent>>any());
 
-        WebApplicationException ex = assertThrows(
-                WebApplicationException.class,
-                () -> telemetryService.record("servico-x", 150L)
-        );
+        telemetryService.record("servico-x", 150L);
+        telemetryService.record("servico-x", 160L);
 
-        assertEquals("Erro interno ao registrar telemetria.", ex.getMessage());
-        assertEquals(500, ex.getResponse().getStatus());
+        assertEquals(0, assertDoesNotThrow(() -> telemetryService.descarregar()));
+        assertEquals(2, telemetryService.falhasGravacao());
+        assertEquals(0, telemetryService.pendentes());
     }
 
     @Test
-    void getTelemetry_Sucesso_PeriodoPadrao() {
-        TelemetryEvent ev1 = new TelemetryEvent();
-        ev1.serviceName = "servico-x";
-        ev1.durationMs = 100;
-        ev1.timestamp = OffsetDateTime.now().minusDays(1);
+    void descarregar_GravaEmLotesDoTamanhoConfigurado() {
+        telemetryService = new TelemetryService(telemetryEventRepository, rollupRepository, 16, 4);
+
+        for (int i = 0; i < 10; i++) {
+            telemetryService.record("servico-x", i);
+        }
+
+        assertEquals(10, telemetryService.descarregar());
+        // 10 eventos em lotes de 4 → 3 transações (4 + 4 + 2)
+        verify(telemetryEventRepository, times(3))
+                .persist(ArgumentMatchers.<Iterable<TelemetryEvent>>any());
+    }
 
-        TelemetryEvent ev2 = new TelemetryEvent();
-        ev2.serviceName = "servico-x";
-        ev2.durationMs = 200;
-        ev2.timestamp = OffsetDateTime.now().minusDays(2);
+    @Test
+    void record_FilaCheia_DescartaEContabiliza() {
+        telemetryService = new TelemetryService(telemetryEventRepository, rollupRepository, 4, 10);
+
+        for (int i = 0; i < 6; i++) {
+            telemetryService.record("servico-x", i);
+        }
+
+        assertEquals(2, telemetryService.descartados());
+        assertEquals(4, telemetryService.descarregar());
+    }
+
+    private TelemetryDailyRollup rollup(String servico, LocalDate dia,
+                                        long quantidade, long somaMs, long minMs, long maxMs) {
+        TelemetryDailyRollup r = new TelemetryDailyRollup(servico, dia);
+        r.quantidade = quantidade;
+        r.somaMs = somaMs;
+        r.minMs = minMs;
+        r.maxMs = maxMs;
+        return r;
+    }
+
+    @Test
+    void getTelemetry_Sucesso_PeriodoPadrao() {
+        LocalDate hoje = LocalDate.now();
 
-        when(telemetryEventRepository.list(anyString(), ArgumentMatchers.<Object>any(), any()))
-                .thenReturn(List.of(ev1, ev2));
+        when(rollupRepository.findByPeriodo(hoje.minusDays(30), hoje))
+                .thenReturn(List.of(
+                        rollup("servico-x", hoje.minusDays(1), 1, 100, 100, 100),
+                        rollup("servico-x", hoje.minusDays(2), 1, 200, 200, 200)
+                ));
 
         TelemetryResponseDTO dto = telemetryService.getTelemetry(null, null);
 
@@ -90,35 +135,185 @@ class TelemetryServiceTest {
         assertEquals("servico-x", dto.servicos.get(0).nome);
         assertEquals(2, dto.servicos.get(0).quantidadeChamadas);
         assertEquals(150.0, dto.servicos.get(0).mediaTempoRespostaMs);
+        verifyNoInteractions(telemetryEventRepository);
     }
 
     @Test
     void getTelemetry_Sucesso_AgregacaoPorServico() {
-        TelemetryEvent ev1 = new TelemetryEvent();
-        ev1.serviceName = "servico-a";
-        ev1.durationMs = 100;
-        ev1.timestamp = OffsetDateTime.now().minusDays(1);
-
-        TelemetryEvent ev2 = new TelemetryEvent();
-        ev2.serviceName = "servico-b";
-        ev2.durationMs = 300;
-        ev2.timestamp = OffsetDateTime.now().minusDays(1);
-
-        TelemetryEvent ev3 = new TelemetryEvent();
-        ev3.serviceName = "servico-a";
-        ev3.durationMs = 200;
-        ev3.timestamp = OffsetDateTime.now().minusDays(2);
-
-        when(telemetryEventRepository.list(anyString(), Optional.ofNullable(any()), any()))
-                .thenReturn(List.of(ev1, ev2, ev3));
-
-        TelemetryResponseDTO dto = telemetryService.getTelemetry(
-                LocalDate.now().minusDays(5),
-                LocalDate.now()
-        );
+        LocalDate inicio = LocalDate.now().minusDays(5);
+        LocalDate fim = LocalDate.now();
+
+        when(rollupRepository.findByPeriodo(inicio, fim))
+                .thenReturn(List.of(
+                        rollup("servico-a", fim.minusDays(1), 1, 100, 100, 100),
+                        rollup("servico-b", fim.minusDays(1), 1, 300, 300, 300),
+                        rollup("servico-a", fim.minusDays(2), 1, 200, 200, 200)
+                ));
+
+        TelemetryResponseDTO dto = telemetryService.getTelemetry(inicio, fim);
 
         assertEquals(2, dto.servicos.size());
-        // aqui você pode fazer asserts mais específicos se quiser
+        assertEquals("servico-a", dto.servicos.get(0).nome);
+        assertEquals(2, dto.servicos.get(0).quantidadeChamadas);
+        assertEquals(150.0, dto.servicos.get(0).mediaTempoRespostaMs);
+        assertEquals("servico-b", dto.servicos.get(1).nome);
+        assertEquals(300.0, dto.servicos.get(1).mediaTempoRespostaMs);
+    }
+
+    @Test
+    void descarregar_CriaRollupDiarioConsolidadoPorServico() {
+        telemetryService.record("servico-x", 100L);
+        telemetryService.record("servico-x", 300L);
+        telemetryService.record("servico-y", 50L);
+
+        telemetryService.descarregar();
+
+        ArgumentCaptor<TelemetryDailyRollup> captor = ArgumentCaptor.forClass(TelemetryDailyRollup.class);
+        verify(rollupRepository, times(2)).acumular(captor.capture());
+        verify(rollupRepository, never()).gravarHistograma(any(), any());
+        verify(rollupRepository, never()).persist(any(TelemetryDailyRollup.class));
+
+        TelemetryDailyRollup x = captor.getAllValues().stream()
+                .filter(r -> r.id.serviceName.equals("servico-x"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(LocalDate.now(), x.id.dia);
+        assertEquals(2, x.quantidade);
+        assertEquals(400, x.somaMs);
+        assertEquals(100, x.minMs);
+        assertEquals(300, x.maxMs);
+    }
+
+    @Test
+    void descarregar_SomaAoRollupExistente() {
+        LatencyHistogram anterior = new LatencyHistogram();
+        anterior.registrar(100_000, 3);
+        when(rollupRepository.acumular(any(TelemetryDailyRollup.class)))
+                .thenReturn(new TelemetryDailyRollupRepository.Acumulo(false, anterior.serializar()));
+
+        telemetryService.record("servico-x", 20L);
+        telemetryService.record("servico-x", 400L);
+        telemetryService.descarregar();
+
+        // contadores somados pelo MERGE: o serviço só envia o incremento do lote
+        ArgumentCaptor<TelemetryDailyRollup> incremento = ArgumentCaptor.forClass(TelemetryDailyRollup.class);
+        verify(rollupRepository).acumular(incremento.capture());
+        assertEquals(2, incremento.getValue().quantidade);
+        assertEquals(420, incremento.getValue().somaMs);
+        assertEquals(20, incremento.getValue().minMs);
+        assertEquals(400, incremento.getValue().maxMs);
+
+        // histograma da linha existente mesclado com o do lote
+        ArgumentCaptor<byte[]> histograma = ArgumentCaptor.forClass(byte[].class);
+        verify(rollupRepository).gravarHistograma(eq(incremento.getValue().id), histograma.capture());
+        assertEquals(5, LatencyHistogram.desserializar(histograma.getValue()).total());
+        verify(rollupRepository, never()).persist(any(TelemetryDailyRollup.class));
+    }
+
+    @Test
+    void descarregar_GravaAgregadosEmOrdemDeChave() {
+        telemetryService.record("servico-b", 1L);
+        telemetryService.record("servico-c", 1L);
+        telemetryService.record("servico-a", 1L);
+
+        telemetryService.descarregar();
+
+        // gravadores concorrentes bloqueiam as linhas sempre na mesma ordem
+        ArgumentCaptor<TelemetryDailyRollup> captor = ArgumentCaptor.forClass(TelemetryDailyRollup.class);
+        verify(rollupRepository, times(3)).acumular(captor.capture());
+        assertEquals(List.of("servico-a", "servico-b", "servico-c"),
+                captor.getAllValues().stream().map(r -> r.id.serviceName).toList());
+    }
+
+    @Test
+    void getTelemetry_PercentisMesclandoHistogramasDosDias() {
+        LocalDate inicio = LocalDate.now().minusDays(1);
+        LocalDate fim = LocalDate.now();
+
+        LatencyHistogram ontem = new LatencyHistogram();
+        ontem.registrar(10_000, 98);   // 10 ms
+        LatencyHistogram hoje = new LatencyHistogram();
+        hoje.registrar(10_000, 1);
+        hoje.registrar(2_000_000, 1);  // 2 s
+
+        TelemetryDailyRollup r1 = rollup("servico-x", inicio, 98, 980, 10, 10);
+        r1.histograma = ontem.serializar();
+        TelemetryDailyRollup r2 = rollup("servico-x", fim, 2, 2010, 10, 2000);
+        r2.histograma = hoje.serializar();
+
+        when(rollupRepository.findByPeriodo(inicio, fim)).thenReturn(List.of(r1, r2));
+
+        TelemetryResponseDTO.ServiceMetric m = telemetryService.getTelemetry(inicio, fim).servicos.get(0);
+
+        assertEquals(100, m.quantidadeChamadas);
+        assertEquals(10.0, m.p50Ms, 0.3);
+        assertEquals(10.0, m.p99Ms, 0.3);
+        assertEquals(2000.0, m.p999Ms, 60.0);
+    }
+
+    @Test
+    void getTelemetry_SemHistograma_PercentisNulos() {
+        LocalDate hoje = LocalDate.now();
+        when(rollupRepository.findByPeriodo(hoje, hoje))
+                .thenReturn(List.of(rollup("servico-x", hoje, 1, 100, 100, 100)));
+
+        TelemetryResponseDTO.ServiceMetric m = telemetryService.getTelemetry(hoje, hoje).servicos.get(0);
+
+        assertEquals(100.0, m.mediaTempoRespostaMs);
+        assertNull(m.p50Ms);
+        assertNull(m.p999Ms);
+    }
+
+    @Test
+    void descarregar_RegistraHistogramaNoRollup() {
+        telemetryService.record("servico-x", 5L);
+        telemetryService.record("servico-x", 7L);
+
+        telemetryService.descarregar();
+
+        ArgumentCaptor<TelemetryDailyRollup> captor = ArgumentCaptor.forClass(TelemetryDailyRollup.class);
+        verify(rollupRepository).acumular(captor.capture());
+
+        LatencyHistogram histograma = LatencyHistogram.desserializar(captor.getValue().histograma);
+        assertEquals(2, histograma.total());
+        assertEquals(7_000, histograma.percentil(100.0), 7_000 * 0.03);
+    }
+
+    @Test
+    void recordNanos_PreservaMicrossegundosNoHistograma() {
+        telemetryService.recordNanos("GET /produtos", 250_000L); // 0,25 ms
+
+        telemetryService.descarregar();
+
+        ArgumentCaptor<TelemetryDailyRollup> captor = ArgumentCaptor.forClass(TelemetryDailyRollup.class);
+        verify(rollupRepository).acumular(captor.capture());
+
+        LatencyHistogram histograma = LatencyHistogram.desserializar(captor.getValue().histograma);
+        assertEquals(250, histograma.percentil(50.0), 250 * 0.03);
+        assertEquals(0, captor.getValue().somaMs);
+    }
+
+    @Test
+    void record_LimiteDeSeries_ExcedentesVaoParaOutros() {
+        telemetryService = new TelemetryService(telemetryEventRepository, rollupRepository, 16, 16, 2);
+
+        telemetryService.record("GET /a", 1L);
+        telemetryService.record("GET /b", 1L);
+        telemetryService.record("GET /c", 1L);
+        telemetryService.record("GET /a", 1L);
+        telemetryService.record("GET /d", 1L);
+
+        telemetryService.descarregar();
+
+        ArgumentCaptor<TelemetryDailyRollup> captor = ArgumentCaptor.forClass(TelemetryDailyRollup.class);
+        verify(rollupRepository, times(3)).acumular(captor.capture());
+
+        List<String> nomes = captor.getAllValues().stream()
+                .map(r -> r.id.serviceName)
+                .sorted()
+                .toList();
+        assertEquals(List.of("GET /a", "GET /b", TelemetryService.SERIE_EXCEDENTE), nomes);
+        assertEquals(2, telemetryService.chamadasExcedentes());
     }
 
     @Test